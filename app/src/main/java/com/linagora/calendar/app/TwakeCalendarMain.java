@@ -70,11 +70,14 @@ import com.linagora.calendar.dav.DavModule;
 import com.linagora.calendar.restapi.RestApiModule;
 import com.linagora.calendar.smtp.SmtpModule;
 import com.linagora.calendar.storage.CaffeineOIDCTokenCache;
+import com.linagora.calendar.storage.CaffeineProcessedMessageCache;
 import com.linagora.calendar.storage.FileUploadConfigurationModule;
 import com.linagora.calendar.storage.MemoryStorageModule;
+import com.linagora.calendar.storage.MessageDeduplicationConfigurationModule;
 import com.linagora.calendar.storage.OIDCTokenCache;
 import com.linagora.calendar.storage.OIDCTokenCacheConfigurationModule;
 import com.linagora.calendar.storage.OpenPaaSUserDeletionTaskStep;
+import com.linagora.calendar.storage.ProcessedMessageCache;
 import com.linagora.calendar.storage.TechnicalUserTokenModule;
 import com.linagora.calendar.storage.configuration.ReadOnlyPropertyProviderModule;
 import com.linagora.calendar.storage.eventsearch.CalendarSearchDeletionTaskStep;
@@ -84,8 +87,10 @@ import com.linagora.calendar.storage.mongodb.MongoDBStorageModule;
 import com.linagora.calendar.storage.opensearch.OpensearchCalendarSearchModule;
 import com.linagora.calendar.storage.redis.RedisCommonModule;
 import com.linagora.calendar.storage.redis.RedisEventBusModule;
+import com.linagora.calendar.storage.redis.RedisMessageDeduplicationModule;
 import com.linagora.calendar.storage.redis.RedisOIDCModule;
 import com.linagora.calendar.webadmin.CalendarRoutesModule;
+import com.linagora.calendar.webadmin.DeadLetterReplayRouteModule;
 import com.linagora.calendar.webadmin.DomainMembersSyncRouteModule;
 import com.linagora.calendar.webadmin.LdapUsersImportRouteModule;
 import com.linagora.tmail.james.jmap.module.OSContactAutoCompleteModule;
@@ -144,6 +149,7 @@ public class TwakeCalendarMain {
                 new DavModule(),
                 new CalendarAmqpModule(),
                 new TwakeCalendarRabbitMQModule(),
+                new DeadLetterReplayRouteModule(),
                 new TechnicalUserTokenModule(),
                 new AlarmEventModule(),
                 new SmtpModule(),
@@ -208,6 +214,8 @@ public class TwakeCalendarMain {
             return Modules.combine(new RedisCommonModule(),
                 new OIDCTokenCacheConfigurationModule(),
                 new RedisOIDCModule(),
+                new MessageDeduplicationConfigurationModule(),
+                new RedisMessageDeduplicationModule(),
                 new RedisEventBusModule());
         }
         return new AbstractModule() {
@@ -216,6 +224,9 @@ public class TwakeCalendarMain {
                 install(new OIDCTokenCacheConfigurationModule());
                 bind(CaffeineOIDCTokenCache.class).in(Scopes.SINGLETON);
                 bind(OIDCTokenCache.class).to(CaffeineOIDCTokenCache.class);
+                install(new MessageDeduplicationConfigurationModule());
+                bind(CaffeineProcessedMessageCache.class).in(Scopes.SINGLETON);
+                bind(ProcessedMessageCache.class).to(CaffeineProcessedMessageCache.class);
                 bind(RetryBackoffConfiguration.class).toInstance(RetryBackoffConfiguration.DEFAULT);
                 bind(EventDelivery.class).to(InVmEventDelivery.class);
                 bind(EventDeadLetters.class).to(MemoryEventDeadLetters.class);
@@ -0,0 +1,123 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.app.modules;
+
+import static com.rabbitmq.client.ConnectionFactory.DEFAULT_VHOST;
+
+import java.io.FileNotFoundException;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+import jakarta.annotation.PreDestroy;
+
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.apache.james.backends.rabbitmq.RabbitMQConfiguration;
+import org.apache.james.lifecycle.api.Startable;
+import org.apache.james.util.DurationParser;
+import org.apache.james.utils.PropertiesProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Inject;
+import com.linagora.calendar.amqp.CalendarQueueUtil;
+import com.linagora.calendar.amqp.ConsumerMetrics;
+import com.linagora.calendar.api.CalendarSchedulers;
+import com.linagora.calendar.app.modules.ScheduledReconnectionHandler.RabbitMQManagementAPI;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Periodically reads the depth of the calendar queues from the RabbitMQ management API and exposes it through
+ * {@link ConsumerMetrics}.
+ */
+public class QueueDepthSampler implements Startable {
+    public record QueueDepthSamplerConfiguration(boolean enabled, Duration interval) {
+        public static final boolean ENABLED = true;
+        public static final Duration THIRTY_SECONDS = Duration.ofSeconds(30);
+
+        public static QueueDepthSamplerConfiguration parse(PropertiesProvider propertiesProvider) throws ConfigurationException {
+            try {
+                Configuration configuration = propertiesProvider.getConfiguration("rabbitmq");
+                boolean enabled = configuration.getBoolean("queue.depth.sampling.enabled", ENABLED);
+                Duration interval = Optional.ofNullable(configuration.getString("queue.depth.sampling.interval", null))
+                    .map(s -> DurationParser.parse(s, ChronoUnit.SECONDS))
+                    .orElse(THIRTY_SECONDS);
+
+                return new QueueDepthSamplerConfiguration(enabled, interval);
+            } catch (FileNotFoundException e) {
+                return new QueueDepthSamplerConfiguration(false, THIRTY_SECONDS);
+            }
+        }
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueueDepthSampler.class);
+
+    private final RabbitMQManagementAPI mqManagementAPI;
+    private final RabbitMQConfiguration configuration;
+    private final ConsumerMetrics consumerMetrics;
+    private final QueueDepthSamplerConfiguration config;
+    private final ImmutableList<String> queuesToSample;
+    private Disposable disposable;
+
+    @Inject
+    public QueueDepthSampler(RabbitMQConfiguration configuration,
+                             ConsumerMetrics consumerMetrics,
+                             QueueDepthSamplerConfiguration config) {
+        this.mqManagementAPI = RabbitMQManagementAPI.from(configuration);
+        this.configuration = configuration;
+        this.consumerMetrics = consumerMetrics;
+        this.config = config;
+
+        this.queuesToSample = ImmutableList.copyOf(CalendarQueueUtil.getAllQueueNamesIncludingFanOut());
+    }
+
+    public void start() {
+        if (!config.enabled()) {
+            return;
+        }
+        disposable = Flux.interval(config.interval())
+            .concatMap(any -> Flux.fromIterable(queuesToSample)
+                .concatMap(queue -> Mono.fromRunnable(() -> sample(queue))
+                    .onErrorResume(e -> {
+                        LOGGER.warn("Failed to sample the depth of the {} queue", queue, e);
+                        return Mono.empty();
+                    }))
+                .subscribeOn(CalendarSchedulers.blocking()))
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Optional.ofNullable(disposable).ifPresent(Disposable::dispose);
+    }
+
+    public void sample(String queue) {
+        try {
+            Optional.ofNullable(mqManagementAPI.queueDetails(configuration.getVhost().orElse(DEFAULT_VHOST), queue).messages())
+                .ifPresent(messages -> consumerMetrics.forQueue(queue).recordDepth(messages));
+        } catch (RabbitMQManagementAPI.QueueNotFoundException e) {
+            LOGGER.debug("The {} queue does not exist, skipping its depth sampling", queue);
+        }
+    }
+}
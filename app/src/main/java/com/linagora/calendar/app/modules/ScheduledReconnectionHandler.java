@@ -104,7 +104,8 @@ public class ScheduledReconnectionHandler implements Startable {
         record MessageQueueDetails(
             @JsonProperty("name") String name,
             @JsonProperty("vhost") String vhost,
-            @JsonProperty("consumer_details") List<RabbitMQManagementAPI.ConsumerDetails> consumerDetails) {
+            @JsonProperty("consumer_details") List<RabbitMQManagementAPI.ConsumerDetails> consumerDetails,
+            @JsonProperty("messages") Long messages) {
         }
 
         @JsonIgnoreProperties(ignoreUnknown = true)
@@ -28,6 +28,7 @@ import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Scopes;
 import com.google.inject.multibindings.ProvidesIntoSet;
+import com.linagora.calendar.app.modules.QueueDepthSampler.QueueDepthSamplerConfiguration;
 import com.linagora.calendar.app.modules.ScheduledReconnectionHandler.ScheduledReconnectionHandlerConfiguration;
 
 public class TwakeCalendarRabbitMQModule extends AbstractModule {
@@ -36,6 +37,7 @@ public class TwakeCalendarRabbitMQModule extends AbstractModule {
     protected void configure() {
         install(new RabbitMQModule());
         bind(ScheduledReconnectionHandler.class).in(Scopes.SINGLETON);
+        bind(QueueDepthSampler.class).in(Scopes.SINGLETON);
     }
 
     @Provides
@@ -43,10 +45,22 @@ public class TwakeCalendarRabbitMQModule extends AbstractModule {
         return ScheduledReconnectionHandlerConfiguration.parse(propertiesProvider);
     }
 
+    @Provides
+    QueueDepthSamplerConfiguration queueDepthSamplerConfiguration(PropertiesProvider propertiesProvider) throws ConfigurationException {
+        return QueueDepthSamplerConfiguration.parse(propertiesProvider);
+    }
+
     @ProvidesIntoSet
     InitializationOperation start(ScheduledReconnectionHandler scheduledReconnectionHandler) {
         return InitilizationOperationBuilder
             .forClass(ScheduledReconnectionHandler.class)
             .init(scheduledReconnectionHandler::start);
     }
+
+    @ProvidesIntoSet
+    InitializationOperation startQueueDepthSampler(QueueDepthSampler queueDepthSampler) {
+        return InitilizationOperationBuilder
+            .forClass(QueueDepthSampler.class)
+            .init(queueDepthSampler::start);
+    }
 }
\ No newline at end of file
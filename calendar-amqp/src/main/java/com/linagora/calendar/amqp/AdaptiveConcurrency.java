@@ -0,0 +1,84 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.amqp;
+
+import static org.apache.james.util.ReactorUtils.DEFAULT_CONCURRENCY;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.inject.Inject;
+
+import org.apache.james.metrics.api.GaugeRegistry;
+import org.apache.james.util.DurationParser;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Hands out one {@link AdaptiveConcurrencyLimiter} per consumed queue, and exposes its current limit as a gauge.
+ */
+public class AdaptiveConcurrency {
+
+    public record Configuration(int minLimit, int maxLimit, Duration latencyThreshold) {
+        public static Configuration fromSystemProperties() {
+            return new Configuration(
+                Integer.parseInt(System.getProperty("calendar.amqp.concurrency.min", "1")),
+                Integer.parseInt(System.getProperty("calendar.amqp.concurrency.max", String.valueOf(4 * DEFAULT_CONCURRENCY))),
+                DurationParser.parse(System.getProperty("calendar.amqp.concurrency.latency.threshold", "1s")));
+        }
+
+        public Configuration {
+            Preconditions.checkArgument(minLimit > 0, "minLimit must be greater than 0");
+            Preconditions.checkArgument(maxLimit >= minLimit, "maxLimit must be greater than or equal to minLimit");
+            Preconditions.checkArgument(latencyThreshold.isPositive(), "latencyThreshold must be positive");
+        }
+    }
+
+    public static final String LIMIT_GAUGE_PREFIX = "calendar.amqp.concurrency.limit.";
+
+    private final Configuration configuration;
+    private final GaugeRegistry gaugeRegistry;
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters;
+
+    @Inject
+    public AdaptiveConcurrency(GaugeRegistry gaugeRegistry) {
+        this(Configuration.fromSystemProperties(), gaugeRegistry);
+    }
+
+    public AdaptiveConcurrency(Configuration configuration, GaugeRegistry gaugeRegistry) {
+        this.configuration = configuration;
+        this.gaugeRegistry = gaugeRegistry;
+        this.limiters = new ConcurrentHashMap<>();
+    }
+
+    public int maxLimit() {
+        return configuration.maxLimit();
+    }
+
+    // Limiters survive consumer restarts, so that the learnt limit is kept upon reconnection
+    public AdaptiveConcurrencyLimiter limiter(String queueName) {
+        return limiters.computeIfAbsent(queueName, name -> {
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(configuration.minLimit(), configuration.maxLimit(),
+                DEFAULT_CONCURRENCY, configuration.latencyThreshold());
+            gaugeRegistry.register(LIMIT_GAUGE_PREFIX + name.replace(':', '.'), limiter::currentLimit);
+            return limiter;
+        });
+    }
+}
@@ -0,0 +1,159 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.amqp;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Bounds the number of messages of a queue processed concurrently, adjusting the bound with an AIMD policy:
+ * the limit grows by one every limit successful and fast processings while saturated, and shrinks by
+ * {@link #DECREASE_FACTOR} when a processing fails or exceeds the latency threshold, at most once per threshold.
+ */
+public class AdaptiveConcurrencyLimiter {
+    // sink, granted and finished are guarded by the limiter lock, the timing is written by the processing
+    private static class Waiter {
+        private MonoSink<Void> sink;
+        private boolean granted;
+        private boolean finished;
+        private volatile long startNanos;
+        private volatile boolean started;
+
+        void start() {
+            startNanos = System.nanoTime();
+            started = true;
+        }
+
+        long latencyNanos() {
+            return started ? System.nanoTime() - startNanos : 0;
+        }
+    }
+
+    @VisibleForTesting
+    static final double DECREASE_FACTOR = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final Deque<Waiter> waiters;
+
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, int initialLimit, Duration latencyThreshold) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.waiters = new ArrayDeque<>();
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.lastDecreaseNanos = System.nanoTime() - latencyThresholdNanos;
+    }
+
+    public int maxLimit() {
+        return maxLimit;
+    }
+
+    public synchronized int currentLimit() {
+        return (int) limit;
+    }
+
+    public <T> Mono<T> limit(Mono<T> processing) {
+        return Mono.defer(() -> {
+            Waiter waiter = new Waiter();
+            return acquire(waiter)
+                .then(Mono.defer(() -> {
+                    waiter.start();
+                    return processing;
+                }))
+                // Runs exactly once however the processing ends, including cancellation while waiting or being granted
+                .doFinally(signal -> finish(waiter, signal));
+        });
+    }
+
+    private Mono<Void> acquire(Waiter waiter) {
+        return Mono.create(sink -> {
+            boolean granted;
+            synchronized (this) {
+                if (waiter.finished) {
+                    return;
+                }
+                waiter.sink = sink;
+                granted = inFlight < currentLimit();
+                if (granted) {
+                    grant(waiter);
+                } else {
+                    waiters.add(waiter);
+                }
+            }
+            if (granted) {
+                sink.success();
+            }
+        });
+    }
+
+    private void finish(Waiter waiter, SignalType signal) {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            if (waiter.finished) {
+                return;
+            }
+            waiter.finished = true;
+            if (!waiter.granted) {
+                waiters.remove(waiter);
+                return;
+            }
+            adjust(signal, waiter.latencyNanos());
+            inFlight--;
+            while (inFlight < currentLimit() && !waiters.isEmpty()) {
+                Waiter next = waiters.poll();
+                grant(next);
+                granted.add(next);
+            }
+        }
+        // A waiter cancelled meanwhile drops this signal: its own finish gives the permit back
+        granted.forEach(next -> next.sink.success());
+    }
+
+    private void grant(Waiter waiter) {
+        inFlight++;
+        waiter.granted = true;
+    }
+
+    private void adjust(SignalType signal, long latencyNanos) {
+        if (signal == SignalType.ON_ERROR || latencyNanos > latencyThresholdNanos) {
+            long now = System.nanoTime();
+            if (now - lastDecreaseNanos >= latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * DECREASE_FACTOR);
+                lastDecreaseNanos = now;
+            }
+        } else if (signal == SignalType.ON_COMPLETE && inFlight >= currentLimit()) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+}
@@ -42,10 +42,13 @@ import com.google.inject.name.Named;
 public class CalendarAmqpModule extends AbstractModule {
     public static final String INJECT_KEY_DAV = "dav";
     public static final int DEFAULT_ITIP_EVENT_MESSAGES_PREFETCH_COUNT = 16;
+    public static final String EVENT_FAN_OUT_ENABLED = "eventFanOutEnabled";
 
     private static final boolean FALLBACK_CLASSIC_QUEUES_VERSION_1 = Boolean.parseBoolean(System.getProperty("fallback.classic.queues.v1", "false"));
     private static final String QUEUES_QUORUM_BYPASS_PROPERTY = "dav.queues.quorum.bypass";
     private static final boolean QUEUES_QUORUM_BYPASS_DEFAULT = false;
+    private static final String EVENT_FAN_OUT_ENABLED_PROPERTY = "dav.events.fanout.enabled";
+    private static final boolean EVENT_FAN_OUT_ENABLED_DEFAULT = false;
 
     @Override
     protected void configure() {
@@ -56,6 +59,10 @@ public class CalendarAmqpModule extends AbstractModule {
         bind(EventResourceConsumer.class).in(Scopes.SINGLETON);
         bind(EventCalendarConsumer.class).in(Scopes.SINGLETON);
         bind(EventCalendarNotificationConsumer.class).in(Scopes.SINGLETON);
+        bind(EventFanOutConsumer.class).in(Scopes.SINGLETON);
+        bind(MessageDeduplicator.class).in(Scopes.SINGLETON);
+        bind(AdaptiveConcurrency.class).in(Scopes.SINGLETON);
+        bind(ConsumerMetrics.class).in(Scopes.SINGLETON);
 
         Multibinder<HealthCheck> healthCheckMultibinder = Multibinder.newSetBinder(binder(), HealthCheck.class);
         healthCheckMultibinder.addBinding().to(RabbitMQCalendarQueueConsumerHealthCheck.class);
@@ -87,15 +94,39 @@ public class CalendarAmqpModule extends AbstractModule {
         }
     }
 
+    @Provides
+    @Singleton
+    @Named(EVENT_FAN_OUT_ENABLED)
+    boolean provideEventFanOutEnabled(PropertiesProvider propertiesProvider) throws ConfigurationException {
+        try {
+            return propertiesProvider.getConfiguration("configuration")
+                .getBoolean(EVENT_FAN_OUT_ENABLED_PROPERTY, EVENT_FAN_OUT_ENABLED_DEFAULT);
+        } catch (FileNotFoundException e) {
+            return EVENT_FAN_OUT_ENABLED_DEFAULT;
+        }
+    }
+
     @ProvidesIntoSet
     SimpleConnectionPool.ReconnectionHandler provideReconnectionHandler(EventIndexerReconnectionHandler reconnectionHandler) {
         return reconnectionHandler;
     }
 
     @ProvidesIntoSet
-    public InitializationOperation initializeContactsConsumer(EventIndexerConsumer instance) {
+    public InitializationOperation initializeContactsConsumer(EventIndexerConsumer instance, @Named(EVENT_FAN_OUT_ENABLED) boolean eventFanOutEnabled) {
         return InitilizationOperationBuilder
             .forClass(EventIndexerConsumer.class)
+            .init(eventFanOutEnabled ? instance::initForFanOut : instance::init);
+    }
+
+    @ProvidesIntoSet
+    SimpleConnectionPool.ReconnectionHandler provideEventFanOutReconnectionHandler(EventFanOutReconnectionHandler reconnectionHandler) {
+        return reconnectionHandler;
+    }
+
+    @ProvidesIntoSet
+    public InitializationOperation initializeEventFanOutConsumer(EventFanOutConsumer instance) {
+        return InitilizationOperationBuilder
+            .forClass(EventFanOutConsumer.class)
             .init(instance::init);
     }
 
@@ -172,10 +203,11 @@ public class CalendarAmqpModule extends AbstractModule {
     }
 
     @ProvidesIntoSet
-    public InitializationOperation initializeEventCalendarNotificationConsumer(EventCalendarNotificationConsumer instance) {
+    public InitializationOperation initializeEventCalendarNotificationConsumer(EventCalendarNotificationConsumer instance,
+                                                                               @Named(EVENT_FAN_OUT_ENABLED) boolean eventFanOutEnabled) {
         return InitilizationOperationBuilder
             .forClass(EventCalendarNotificationConsumer.class)
-            .init(instance::init);
+            .init(eventFanOutEnabled ? instance::initForFanOut : instance::init);
     }
 
     @Provides
@@ -60,6 +60,13 @@ public abstract class CalendarEventMessage {
         return EventFieldConverter.from(this);
     }
 
+    public List<EventUid> extractEventUid() {
+        return EventFieldConverter.extractEventIdentifiers(calendarEvent)
+            .stream()
+            .map(EventIdentifier::uid)
+            .toList();
+    }
+
     protected static <T extends CalendarEventMessage> T deserialize(byte[] json, Class<T> clazz) {
         try {
             return MAPPER.readValue(json, clazz);
@@ -93,12 +100,5 @@ public abstract class CalendarEventMessage {
             super(eventPath, calendarEvent, isImport);
         }
 
-        public List<EventUid> extractEventUid() {
-            return EventFieldConverter.extractVEventProperties(calendarEvent)
-                .stream().flatMap(List::stream)
-                .filter(property -> property instanceof EventProperty.EventUidProperty)
-                .map(property -> ((EventProperty.EventUidProperty) property).getEventUid())
-                .toList();
-        }
     }
 }
@@ -20,8 +20,10 @@ package com.linagora.calendar.amqp;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 public class CalendarQueueUtil {
     public static List<String> getAllQueueNames() {
@@ -46,6 +48,19 @@ public class CalendarQueueUtil {
             .build();
     }
 
+    /**
+     * All the calendar queues, fan-out queues included. Fan-out queues are left out of {@link #getAllQueueNames()} as
+     * they have no consumer when fan-out is disabled.
+     */
+    public static List<String> getAllQueueNamesIncludingFanOut() {
+        return ImmutableList.<String>builder()
+            .addAll(getAllQueueNames())
+            .addAll(Arrays.stream(EventFanOutConsumer.Queue.values())
+                .map(EventFanOutConsumer.Queue::queueName)
+                .collect(ImmutableList.toImmutableList()))
+            .build();
+    }
+
     public static List<String> getAllDeadLetterQueueNames() {
         return ImmutableList.<String>builder()
             .addAll(Arrays.stream(EventIndexerConsumer.Queue.values())
@@ -65,6 +80,31 @@ public class CalendarQueueUtil {
                 .collect(ImmutableList.toImmutableList()))
             .add(EventEmailConsumer.DEAD_LETTER_QUEUE)
             .add(EventITIPConsumer.DEAD_LETTER_QUEUE)
+            .addAll(Arrays.stream(EventFanOutConsumer.Queue.values())
+                .map(EventFanOutConsumer.Queue::deadLetter)
+                .collect(ImmutableList.toImmutableList()))
+            .build();
+    }
+
+    /**
+     * Maps each dead letter queue to the queue whose consumer rejected its messages.
+     */
+    public static Map<String, String> getDeadLetterQueueSources() {
+        return ImmutableMap.<String, String>builder()
+            .putAll(Arrays.stream(EventIndexerConsumer.Queue.values())
+                .collect(ImmutableMap.toImmutableMap(EventIndexerConsumer.Queue::deadLetter, EventIndexerConsumer.Queue::queueName)))
+            .putAll(Arrays.stream(EventAlarmConsumer.Queue.values())
+                .collect(ImmutableMap.toImmutableMap(EventAlarmConsumer.Queue::deadLetter, EventAlarmConsumer.Queue::queueName)))
+            .putAll(Arrays.stream(EventResourceConsumer.Queue.values())
+                .collect(ImmutableMap.toImmutableMap(EventResourceConsumer.Queue::deadLetter, EventResourceConsumer.Queue::queueName)))
+            .putAll(Arrays.stream(EventCalendarConsumer.Queue.values())
+                .collect(ImmutableMap.toImmutableMap(EventCalendarConsumer.Queue::deadLetter, EventCalendarConsumer.Queue::queueName)))
+            .putAll(Arrays.stream(EventCalendarNotificationConsumer.Queue.values())
+                .collect(ImmutableMap.toImmutableMap(EventCalendarNotificationConsumer.Queue::deadLetter, EventCalendarNotificationConsumer.Queue::queueName)))
+            .put(EventEmailConsumer.DEAD_LETTER_QUEUE, EventEmailConsumer.QUEUE_NAME)
+            .put(EventITIPConsumer.DEAD_LETTER_QUEUE, EventITIPConsumer.QUEUE_NAME)
+            .putAll(Arrays.stream(EventFanOutConsumer.Queue.values())
+                .collect(ImmutableMap.toImmutableMap(EventFanOutConsumer.Queue::deadLetter, EventFanOutConsumer.Queue::queueName)))
             .build();
     }
 }
@@ -0,0 +1,162 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.amqp;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.inject.Inject;
+
+import org.apache.james.metrics.api.GaugeRegistry;
+import org.apache.james.metrics.api.Metric;
+import org.apache.james.metrics.api.MetricFactory;
+import org.apache.james.metrics.api.TimeMetric;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import reactor.rabbitmq.AcknowledgableDelivery;
+
+/**
+ * Per queue metrics of the calendar consumers, named `calendar.amqp.consumer.<queue>.<metric>`:
+ * `latency` (time from delivery to ack or nack), `inflight` (deliveries not acknowledged yet), `ack`, `nack` (rejected
+ * messages, which end up in the dead letter queue), `deadletter` (messages explicitly published to the dead letter
+ * queue) and `depth` (messages in the queue, as last sampled from the management API).
+ */
+public class ConsumerMetrics {
+    public static final String PREFIX = "calendar.amqp.consumer.";
+
+    public class QueueMetrics {
+        private final String prefix;
+        private final AtomicInteger inFlight;
+        // Incremented each time the consumer of the queue starts: deliveries of a previous consumer are not counted anymore
+        private int generation;
+        private final AtomicLong depth;
+        private final Metric ackMetric;
+        private final Metric nackMetric;
+        private final Metric deadLetterMetric;
+
+        private QueueMetrics(String queueName) {
+            this.prefix = PREFIX + queueName.replace(':', '.') + ".";
+            this.inFlight = new AtomicInteger();
+            this.depth = new AtomicLong();
+            this.ackMetric = metricFactory.generate(prefix + "ack");
+            this.nackMetric = metricFactory.generate(prefix + "nack");
+            this.deadLetterMetric = metricFactory.generate(prefix + "deadletter");
+            gaugeRegistry.register(prefix + "inflight", inFlight::get);
+            gaugeRegistry.register(prefix + "depth", depth::get);
+        }
+
+        /**
+         * Starts tracking a delivery: the returned acknowledgement records its outcome before acknowledging it.
+         * Only the first ack or reject reaches the delivery, later ones are ignored.
+         */
+        public MessageAcknowledgement track(AcknowledgableDelivery delivery) {
+            return track(MessageAcknowledgement.of(delivery));
+        }
+
+        public MessageAcknowledgement track(MessageAcknowledgement acknowledgement) {
+            TimeMetric latency = metricFactory.timer(prefix + "latency");
+            AtomicBoolean acknowledged = new AtomicBoolean(false);
+            int trackedGeneration = startTracking();
+
+            return new MessageAcknowledgement() {
+                @Override
+                public void ack() {
+                    if (acknowledged.compareAndSet(false, true)) {
+                        completed(latency, trackedGeneration);
+                        ackMetric.increment();
+                        acknowledgement.ack();
+                    }
+                }
+
+                @Override
+                public void reject() {
+                    if (acknowledged.compareAndSet(false, true)) {
+                        completed(latency, trackedGeneration);
+                        nackMetric.increment();
+                        acknowledgement.reject();
+                    }
+                }
+            };
+        }
+
+        public void recordDeadLetter() {
+            deadLetterMetric.increment();
+        }
+
+        public void recordDepth(long messages) {
+            depth.set(messages);
+        }
+
+        /**
+         * To be called when the consumer of the queue (re)starts. Deliveries of a disposed consumer or of a lost channel
+         * are never acknowledged: they are dropped from the in flight count instead of drifting it upwards.
+         */
+        public synchronized void consumerStarted() {
+            generation++;
+            inFlight.set(0);
+        }
+
+        @VisibleForTesting
+        int inFlight() {
+            return inFlight.get();
+        }
+
+        private synchronized int startTracking() {
+            inFlight.incrementAndGet();
+            return generation;
+        }
+
+        private void completed(TimeMetric latency, int trackedGeneration) {
+            latency.stopAndPublish();
+            synchronized (this) {
+                if (generation == trackedGeneration) {
+                    inFlight.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    private final MetricFactory metricFactory;
+    private final GaugeRegistry gaugeRegistry;
+    private final Map<String, QueueMetrics> queueMetrics;
+
+    @Inject
+    public ConsumerMetrics(MetricFactory metricFactory, GaugeRegistry gaugeRegistry) {
+        this.metricFactory = metricFactory;
+        this.gaugeRegistry = gaugeRegistry;
+        this.queueMetrics = new ConcurrentHashMap<>();
+    }
+
+    public QueueMetrics forQueue(String queueName) {
+        return queueMetrics.computeIfAbsent(queueName, QueueMetrics::new);
+    }
+
+    /**
+     * Metrics of a queue whose consumer is starting, see {@link QueueMetrics#consumerStarted()}.
+     */
+    public QueueMetrics forStartingConsumer(String queueName) {
+        QueueMetrics metrics = forQueue(queueName);
+        metrics.consumerStarted();
+        return metrics;
+    }
+}
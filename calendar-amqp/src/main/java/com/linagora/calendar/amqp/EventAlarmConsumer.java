@@ -21,7 +21,6 @@ package com.linagora.calendar.amqp;
 import static com.linagora.calendar.amqp.CalendarAmqpModule.INJECT_KEY_DAV;
 import static org.apache.james.backends.rabbitmq.Constants.DURABLE;
 import static org.apache.james.backends.rabbitmq.Constants.EMPTY_ROUTING_KEY;
-import static org.apache.james.util.ReactorUtils.DEFAULT_CONCURRENCY;
 
 import java.io.Closeable;
 import java.util.Arrays;
@@ -45,12 +44,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.github.fge.lambdas.Throwing;
 import com.google.inject.name.Named;
+import com.linagora.calendar.api.CalendarSchedulers;
 import com.rabbitmq.client.BuiltinExchangeType;
 
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 import reactor.rabbitmq.AcknowledgableDelivery;
 import reactor.rabbitmq.BindingSpecification;
 import reactor.rabbitmq.ConsumeOptions;
@@ -62,7 +61,7 @@ import reactor.rabbitmq.Sender;
 public class EventAlarmConsumer implements Closeable, Startable {
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().registerModule(new Jdk8Module());
     private static final Logger LOGGER = LoggerFactory.getLogger(EventAlarmConsumer.class);
-    private static final boolean REQUEUE_ON_NACK = true;
+    private static final String DEDUPLICATION_SCOPE = "alarm";
 
     public enum Queue {
         CREATE("calendar:event:alarm:created", "tcalendar:event:alarm:created", "tcalendar:event:alarm:created:dead-letter"),
@@ -98,14 +97,23 @@ public class EventAlarmConsumer implements Closeable, Startable {
     private final Consumer<Queue> declareExchangeAndQueue;
     private final Map<Queue, Disposable> consumeDisposableMap;
     private final EventAlarmHandler eventAlarmHandler;
+    private final MessageDeduplicator messageDeduplicator;
+    private final AdaptiveConcurrency adaptiveConcurrency;
+    private final ConsumerMetrics consumerMetrics;
 
     @Inject
     @Singleton
     public EventAlarmConsumer(ReactorRabbitMQChannelPool channelPool,
                               @Named(INJECT_KEY_DAV) Supplier<QueueArguments.Builder> queueArgumentSupplier,
-                              EventAlarmHandler eventAlarmHandler) {
+                              EventAlarmHandler eventAlarmHandler,
+                              MessageDeduplicator messageDeduplicator,
+                              AdaptiveConcurrency adaptiveConcurrency,
+                              ConsumerMetrics consumerMetrics) {
         this.receiverProvider = channelPool::createReceiver;
         this.eventAlarmHandler = eventAlarmHandler;
+        this.messageDeduplicator = messageDeduplicator;
+        this.adaptiveConcurrency = adaptiveConcurrency;
+        this.consumerMetrics = consumerMetrics;
 
         Sender sender = channelPool.getSender();
         this.declareExchangeAndQueue = eventQueue -> Flux.concat(
@@ -179,27 +187,32 @@ public class EventAlarmConsumer implements Closeable, Startable {
     }
 
     private Disposable doConsumeCalendarEventMessages(Queue queue, PersistAlarmHandler persistAlarmHandler) {
+        AdaptiveConcurrencyLimiter limiter = adaptiveConcurrency.limiter(queue.queueName);
+        ConsumerMetrics.QueueMetrics metrics = consumerMetrics.forStartingConsumer(queue.queueName);
         return delivery(queue.queueName)
-            .flatMap(delivery -> messageConsume(delivery,
-                persistAlarmHandler), DEFAULT_CONCURRENCY)
-            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(delivery -> messageConsume(delivery, metrics.track(delivery), queue,
+                persistAlarmHandler, limiter), adaptiveConcurrency.maxLimit())
+            .subscribeOn(CalendarSchedulers.blocking())
             .subscribe();
     }
 
     public Flux<AcknowledgableDelivery> delivery(String queue) {
         return Flux.using(receiverProvider::createReceiver,
-            receiver -> receiver.consumeManualAck(queue, new ConsumeOptions().qos(DEFAULT_CONCURRENCY)),
+            receiver -> receiver.consumeManualAck(queue, new ConsumeOptions().qos(adaptiveConcurrency.maxLimit())),
             Receiver::close);
     }
 
-    private Mono<?> messageConsume(AcknowledgableDelivery ackDelivery, PersistAlarmHandler persistAlarmHandler) {
-        return Mono.fromSupplier(Throwing.supplier(() -> OBJECT_MAPPER.readValue(ackDelivery.getBody(), CalendarAlarmMessageDTO.class)))
-            .flatMap(message -> persistAlarmHandler.handle(message)
-                .then(ReactorUtils.logAsMono(() -> LOGGER.debug("Consumed calendar alarm event successfully {} '{}'", message.getClass().getSimpleName(), message.eventPath()))))
-            .doOnSuccess(result -> ackDelivery.ack())
+    private Mono<?> messageConsume(AcknowledgableDelivery ackDelivery, MessageAcknowledgement acknowledgement, Queue queue,
+                                   PersistAlarmHandler persistAlarmHandler, AdaptiveConcurrencyLimiter limiter) {
+        return limiter.limit(Mono.fromSupplier(Throwing.supplier(() -> OBJECT_MAPPER.readValue(ackDelivery.getBody(), CalendarAlarmMessageDTO.class)))
+            .flatMap(message -> messageDeduplicator.processOnce(
+                messageDeduplicator.fingerprint(DEDUPLICATION_SCOPE, queue.queueName, message.eventPath(), ackDelivery.getBody()),
+                Mono.defer(() -> persistAlarmHandler.handle(message))
+                    .then(ReactorUtils.logAsMono(() -> LOGGER.debug("Consumed calendar alarm event successfully {} '{}'", message.getClass().getSimpleName(), message.eventPath()))))))
+            .doOnSuccess(result -> acknowledgement.ack())
             .onErrorResume(error -> {
                 LOGGER.error("Error when consume calendar alarm event", error);
-                ackDelivery.nack(!REQUEUE_ON_NACK);
+                acknowledgement.reject();
                 return Mono.empty();
             });
     }
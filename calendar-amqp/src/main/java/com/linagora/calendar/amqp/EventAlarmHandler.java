@@ -21,24 +21,29 @@ package com.linagora.calendar.amqp;
 import static com.linagora.calendar.storage.configuration.resolver.AlarmSettingReader.ALARM_SETTING_IDENTIFIER;
 
 import java.net.URI;
-import java.util.List;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 
+import org.apache.james.core.MailAddress;
 import org.apache.james.core.Username;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.fge.lambdas.Throwing;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 import com.linagora.calendar.api.CalendarUtil;
 import com.linagora.calendar.dav.CalDavClient;
 import com.linagora.calendar.dav.DavCalendarObject;
 import com.linagora.calendar.storage.AlarmEvent;
 import com.linagora.calendar.storage.AlarmEventDAO;
 import com.linagora.calendar.storage.OpenPaaSUserDAO;
+import com.linagora.calendar.storage.UpcomingAlarmRegistry;
 import com.linagora.calendar.storage.configuration.resolver.SettingsBasedResolver;
 import com.linagora.calendar.storage.event.AlarmInstantFactory;
 import com.linagora.calendar.storage.event.AlarmInstantFactory.AlarmInstant;
@@ -59,6 +64,7 @@ public class EventAlarmHandler {
     private final OpenPaaSUserDAO openPaaSUserDAO;
     private final SettingsBasedResolver settingsResolver;
     private final EventEmailFilter eventEmailFilter;
+    private final UpcomingAlarmRegistry upcomingAlarmRegistry;
 
     @Inject
     @Singleton
@@ -67,13 +73,15 @@ public class EventAlarmHandler {
                              CalDavClient calDavClient,
                              OpenPaaSUserDAO openPaaSUserDAO,
                              @Named("alarm") SettingsBasedResolver settingsResolver,
-                             EventEmailFilter eventEmailFilter) {
+                             EventEmailFilter eventEmailFilter,
+                             UpcomingAlarmRegistry upcomingAlarmRegistry) {
         this.alarmInstantFactory = alarmInstantFactory;
         this.alarmEventDAO = alarmEventDAO;
         this.calDavClient = calDavClient;
         this.openPaaSUserDAO = openPaaSUserDAO;
         this.settingsResolver = settingsResolver;
         this.eventEmailFilter = eventEmailFilter;
+        this.upcomingAlarmRegistry = upcomingAlarmRegistry;
     }
 
     public Mono<Void> handleCreate(CalendarAlarmMessageDTO alarmMessageDTO) {
@@ -112,27 +120,35 @@ public class EventAlarmHandler {
                     return upsertUpcomingAlarmRequest(username, eventCalendar, maybeNextAlarmInstant.get());
                 } else {
                     LOGGER.debug("No upcoming alarm found for {} at {}", username.asString(), alarmMessageDTO.eventPath());
-                    return doDeleteAlarmEvent(username, extractEventUid(alarmMessageDTO));
+                    return doDeleteAlarmEvents(username, extractEventUid(alarmMessageDTO), alarmRecipients(username, eventCalendar));
                 }
             });
     }
 
     private Mono<Void> upsertUpcomingAlarmRequest(Username username, Calendar eventCalendar, AlarmInstant nextAlarmInstant) {
         return buildAlarmEvent(eventCalendar, nextAlarmInstant)
-            .flatMap(alarmEvent -> upsertAlarmEvent(username, alarmEvent))
-            .then();
+            .collectList()
+            .flatMap(alarmEvents -> {
+                LOGGER.debug("Upserting {} alarm events for {}", alarmEvents.size(), username.asString());
+                EventUid eventUid = new EventUid(EventParseUtils.extractEventUid(eventCalendar));
+                Set<MailAddress> upsertedRecipients = alarmEvents.stream()
+                    .map(AlarmEvent::recipient)
+                    .collect(ImmutableSet.toImmutableSet());
+                Set<MailAddress> droppedRecipients = Sets.difference(alarmRecipients(username, eventCalendar), upsertedRecipients);
+
+                return alarmEventDAO.upsertAll(alarmEvents)
+                    .then(Mono.fromRunnable(() -> alarmEvents.forEach(upcomingAlarmRegistry::register)))
+                    .then(doDeleteAlarmEvents(username, eventUid, droppedRecipients));
+            });
     }
 
-    private Mono<AlarmEvent> upsertAlarmEvent(Username username, AlarmEvent alarmEvent) {
-        return alarmEventDAO.find(alarmEvent.eventUid(), Throwing.supplier(username::asMailAddress).get())
-            .flatMap(existing -> {
-                LOGGER.debug("Updating existing alarm event: {}", alarmEvent.eventUid().value());
-                return alarmEventDAO.update(alarmEvent).thenReturn(alarmEvent);
-            })
-            .switchIfEmpty(Mono.defer(() -> {
-                LOGGER.debug("Creating new alarm event: {}", alarmEvent.eventUid().value());
-                return alarmEventDAO.create(alarmEvent).thenReturn(alarmEvent);
-            }));
+    // The user and every recipient of a VALARM of the event: the ones that are not targeted by the next alarm anymore
+    // may still have a stored alarm from a previous version of the event.
+    private Set<MailAddress> alarmRecipients(Username username, Calendar eventCalendar) {
+        return ImmutableSet.<MailAddress>builder()
+            .add(Throwing.supplier(username::asMailAddress).get())
+            .addAll(EventParseUtils.getAlarmRecipients(eventCalendar))
+            .build();
     }
 
     private Flux<AlarmEvent> buildAlarmEvent(Calendar eventCalendar, AlarmInstant nextAlarmInstant) {
@@ -159,12 +175,18 @@ public class EventAlarmHandler {
 
     private Mono<Void> handleDelete(Username username, CalendarAlarmMessageDTO message) {
         return Mono.fromCallable(() -> extractEventUid(message))
-            .flatMap(eventUid -> doDeleteAlarmEvent(username, eventUid));
+            .flatMap(eventUid -> doDeleteAlarmEvents(username, eventUid, ImmutableSet.of(Throwing.supplier(username::asMailAddress).get())));
     }
 
-    private Mono<Void> doDeleteAlarmEvent(Username username, EventUid eventUid) {
-        return alarmEventDAO.delete(eventUid, Throwing.supplier(username::asMailAddress).get())
-            .doOnSuccess(unused -> LOGGER.debug("Deleted alarm event for {} with UID {}", username.asString(), eventUid.value()))
+    private Mono<Void> doDeleteAlarmEvents(Username username, EventUid eventUid, Collection<MailAddress> recipients) {
+        if (recipients.isEmpty()) {
+            return Mono.empty();
+        }
+        return alarmEventDAO.deleteAll(eventUid, recipients)
+            .doOnSuccess(unused -> {
+                recipients.forEach(recipient -> upcomingAlarmRegistry.unregister(eventUid, recipient));
+                LOGGER.debug("Deleted {} alarm events of {} with UID {}", recipients.size(), username.asString(), eventUid.value());
+            })
             .onErrorResume(error -> {
                 LOGGER.error("Failed to delete alarm event for {} with UID {}", username.asString(), eventUid.value(), error);
                 return Mono.empty();
@@ -172,10 +194,9 @@ public class EventAlarmHandler {
     }
 
     private EventUid extractEventUid(CalendarAlarmMessageDTO alarmMessageDTO) {
-        return EventFieldConverter.extractVEventProperties(alarmMessageDTO.calendarEvent())
-            .stream().flatMap(List::stream)
-            .filter(property -> property instanceof EventProperty.EventUidProperty)
-            .map(property -> ((EventProperty.EventUidProperty) property).getEventUid())
+        return EventFieldConverter.extractEventIdentifiers(alarmMessageDTO.calendarEvent())
+            .stream()
+            .map(EventIdentifier::uid)
             .findFirst().orElseThrow(() -> new IllegalArgumentException("Event UID not found in the calendar event"));
     }
 
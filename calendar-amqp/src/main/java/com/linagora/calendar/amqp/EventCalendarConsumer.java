@@ -21,7 +21,6 @@ package com.linagora.calendar.amqp;
 import static com.linagora.calendar.amqp.CalendarAmqpModule.INJECT_KEY_DAV;
 import static org.apache.james.backends.rabbitmq.Constants.DURABLE;
 import static org.apache.james.backends.rabbitmq.Constants.EMPTY_ROUTING_KEY;
-import static org.apache.james.util.ReactorUtils.DEFAULT_CONCURRENCY;
 
 import java.io.Closeable;
 import java.util.Arrays;
@@ -61,7 +60,6 @@ import reactor.rabbitmq.Sender;
 public class EventCalendarConsumer implements Closeable, Startable {
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().registerModule(new Jdk8Module());
     private static final Logger LOGGER = LoggerFactory.getLogger(EventCalendarConsumer.class);
-    private static final boolean REQUEUE_ON_NACK = true;
 
     public enum Queue {
         CREATE("calendar:calendar:created", "tcalendar:calendar:created", "tcalendar:calendar:created:dead-letter");
@@ -89,14 +87,20 @@ public class EventCalendarConsumer implements Closeable, Startable {
     private final Consumer<Queue> declareExchangeAndQueue;
     private final Map<Queue, Disposable> consumeDisposableMap;
     private final EventCalendarHandler eventCalendarHandler;
+    private final AdaptiveConcurrency adaptiveConcurrency;
+    private final ConsumerMetrics consumerMetrics;
 
     @Inject
     @Singleton
     public EventCalendarConsumer(ReactorRabbitMQChannelPool channelPool,
                                  @Named(INJECT_KEY_DAV) Supplier<QueueArguments.Builder> queueArgumentSupplier,
-                                 EventCalendarHandler eventCalendarHandler) {
+                                 EventCalendarHandler eventCalendarHandler,
+                                 AdaptiveConcurrency adaptiveConcurrency,
+                                 ConsumerMetrics consumerMetrics) {
         this.receiverProvider = channelPool::createReceiver;
         this.eventCalendarHandler = eventCalendarHandler;
+        this.adaptiveConcurrency = adaptiveConcurrency;
+        this.consumerMetrics = consumerMetrics;
 
         Sender sender = channelPool.getSender();
         this.declareExchangeAndQueue = eventQueue -> Flux.concat(
@@ -157,25 +161,28 @@ public class EventCalendarConsumer implements Closeable, Startable {
     }
 
     private Disposable doConsumeCalendarEventMessages(Queue queue, EventHandler eventHandler) {
+        AdaptiveConcurrencyLimiter limiter = adaptiveConcurrency.limiter(queue.queueName);
+        ConsumerMetrics.QueueMetrics metrics = consumerMetrics.forStartingConsumer(queue.queueName);
         return delivery(queue.queueName)
-            .flatMap(delivery -> messageConsume(delivery, eventHandler), DEFAULT_CONCURRENCY)
+            .flatMap(delivery -> messageConsume(delivery, metrics.track(delivery), eventHandler, limiter), adaptiveConcurrency.maxLimit())
             .subscribe();
     }
 
     public Flux<AcknowledgableDelivery> delivery(String queue) {
         return Flux.using(receiverProvider::createReceiver,
-            receiver -> receiver.consumeManualAck(queue, new ConsumeOptions().qos(DEFAULT_CONCURRENCY)),
+            receiver -> receiver.consumeManualAck(queue, new ConsumeOptions().qos(adaptiveConcurrency.maxLimit())),
             Receiver::close);
     }
 
-    private Mono<?> messageConsume(AcknowledgableDelivery ackDelivery, EventHandler eventHandler) {
-        return Mono.fromCallable(() -> Throwing.supplier(() -> OBJECT_MAPPER.readValue(ackDelivery.getBody(), CalendarMessageDTO.class)).get())
+    private Mono<?> messageConsume(AcknowledgableDelivery ackDelivery, MessageAcknowledgement acknowledgement,
+                                   EventHandler eventHandler, AdaptiveConcurrencyLimiter limiter) {
+        return limiter.limit(Mono.fromCallable(() -> Throwing.supplier(() -> OBJECT_MAPPER.readValue(ackDelivery.getBody(), CalendarMessageDTO.class)).get())
             .flatMap(message -> eventHandler.handle(message)
-                .then(ReactorUtils.logAsMono(() -> LOGGER.debug("Consumed calendar amqp event successfully {} '{}'", message.getClass().getSimpleName(), message.calendarPath()))))
-            .doOnSuccess(result -> ackDelivery.ack())
+                .then(ReactorUtils.logAsMono(() -> LOGGER.debug("Consumed calendar amqp event successfully {} '{}'", message.getClass().getSimpleName(), message.calendarPath())))))
+            .doOnSuccess(result -> acknowledgement.ack())
             .onErrorResume(error -> {
                 LOGGER.error("Error when consume calendar amqp event", error);
-                ackDelivery.nack(!REQUEUE_ON_NACK);
+                acknowledgement.reject();
                 return Mono.empty();
             });
     }
@@ -67,7 +67,6 @@ import reactor.rabbitmq.Sender;
 public class EventCalendarNotificationConsumer implements Closeable, Startable {
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().registerModule(new Jdk8Module());
     private static final Logger LOGGER = LoggerFactory.getLogger(EventCalendarNotificationConsumer.class);
-    private static final boolean REQUEUE_ON_NACK = true;
 
     public enum Queue {
         ADD("calendar:event:created", "tcalendar:event:created:notification", "tcalendar:event:created:notification-dead-letter"),
@@ -102,14 +101,19 @@ public class EventCalendarNotificationConsumer implements Closeable, Startable {
 
     private final ReceiverProvider receiverProvider;
     private final Consumer<Queue> declareExchangeAndQueue;
+    private final Consumer<Queue> bindQueue;
+    private final Consumer<Queue> unbindQueue;
     private final Map<Queue, Disposable> consumeDisposableMap;
     private final EventBus eventBus;
+    private final ConsumerMetrics consumerMetrics;
 
     @Inject
     public EventCalendarNotificationConsumer(ReactorRabbitMQChannelPool channelPool,
-                                             @Named(INJECT_KEY_DAV) Supplier<QueueArguments.Builder> queueArgumentSupplier, EventBus eventBus) {
+                                             @Named(INJECT_KEY_DAV) Supplier<QueueArguments.Builder> queueArgumentSupplier, EventBus eventBus,
+                                             ConsumerMetrics consumerMetrics) {
         this.receiverProvider = channelPool::createReceiver;
         this.eventBus = eventBus;
+        this.consumerMetrics = consumerMetrics;
 
         Sender sender = channelPool.getSender();
         this.declareExchangeAndQueue = eventQueue -> Flux.concat(
@@ -125,20 +129,36 @@ public class EventCalendarNotificationConsumer implements Closeable, Startable {
                     .durable(DURABLE)
                     .arguments(queueArgumentSupplier.get()
                         .deadLetter(eventQueue.deadLetter)
-                        .build())),
-                sender.bind(BindingSpecification.binding()
-                    .exchange(eventQueue.exchangeName)
-                    .queue(eventQueue.queueName)
-                    .routingKey(EMPTY_ROUTING_KEY)))
+                        .build())))
             .then()
             .block();
+        this.bindQueue = eventQueue -> sender.bind(binding(eventQueue)).then().block();
+        this.unbindQueue = eventQueue -> sender.unbind(binding(eventQueue)).then().block();
 
         this.consumeDisposableMap = new EnumMap<>(Queue.class);
     }
 
+    private static BindingSpecification binding(Queue eventQueue) {
+        return BindingSpecification.binding()
+            .exchange(eventQueue.exchangeName)
+            .queue(eventQueue.queueName)
+            .routingKey(EMPTY_ROUTING_KEY);
+    }
+
     public void init() {
         Arrays.stream(Queue.values())
-            .forEach(declareExchangeAndQueue);
+            .forEach(declareExchangeAndQueue.andThen(bindQueue));
+
+        start();
+    }
+
+    /**
+     * Sabre messages are then received through {@link EventFanOutConsumer}: the queues are unbound from their exchange
+     * and only receive the messages redelivered from their dead letter queue.
+     */
+    public void initForFanOut() {
+        Arrays.stream(Queue.values())
+            .forEach(declareExchangeAndQueue.andThen(unbindQueue));
 
         start();
     }
@@ -163,8 +183,9 @@ public class EventCalendarNotificationConsumer implements Closeable, Startable {
     }
 
     private Disposable doConsumeCalendarEventMessages(Queue queue) {
+        ConsumerMetrics.QueueMetrics metrics = consumerMetrics.forStartingConsumer(queue.queueName);
         return delivery(queue.queueName)
-            .flatMap(this::messageConsume, DEFAULT_CONCURRENCY)
+            .flatMap(delivery -> messageConsume(delivery, metrics.track(delivery)), DEFAULT_CONCURRENCY)
             .subscribe();
     }
 
@@ -174,14 +195,14 @@ public class EventCalendarNotificationConsumer implements Closeable, Startable {
             Receiver::close);
     }
 
-    private Mono<Void> messageConsume(AcknowledgableDelivery ackDelivery) {
+    private Mono<Void> messageConsume(AcknowledgableDelivery ackDelivery, MessageAcknowledgement acknowledgement) {
         return Mono.fromCallable(() -> Throwing.supplier(() -> getEventPath(ackDelivery.getBody())).get())
             .flatMap(eventPath -> handle(eventPath)
                 .then(ReactorUtils.logAsMono(() -> LOGGER.debug("Consumed calendar notification event successfully {}", eventPath))))
-            .doOnSuccess(result -> ackDelivery.ack())
+            .doOnSuccess(result -> acknowledgement.ack())
             .onErrorResume(error -> {
                 LOGGER.error("Error when consume calendar notification event", error);
-                ackDelivery.nack(!REQUEUE_ON_NACK);
+                acknowledgement.reject();
                 return Mono.empty();
             });
     }
@@ -195,7 +216,7 @@ public class EventCalendarNotificationConsumer implements Closeable, Startable {
         return eventPathNode.asText();
     }
 
-    private Mono<Void> handle(String eventPath) {
+    public Mono<Void> handle(String eventPath) {
         CalendarURL calendarURL = CalendarURL.fromEventPath(eventPath);
         return eventBus.dispatch(new CalendarChangeEvent(Event.EventId.random(), calendarURL), new CalendarURLRegistrationKey(calendarURL));
     }
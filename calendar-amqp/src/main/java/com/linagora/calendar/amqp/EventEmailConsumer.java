@@ -24,6 +24,8 @@ import static org.apache.james.backends.rabbitmq.Constants.EMPTY_ROUTING_KEY;
 import static org.apache.james.util.ReactorUtils.DEFAULT_CONCURRENCY;
 
 import java.io.Closeable;
+import java.time.Duration;
+import java.util.List;
 import java.util.function.Supplier;
 
 import jakarta.inject.Inject;
@@ -34,25 +36,26 @@ import org.apache.james.backends.rabbitmq.ReceiverProvider;
 import org.apache.james.lifecycle.api.Startable;
 import org.apache.james.metrics.api.Metric;
 import org.apache.james.metrics.api.MetricFactory;
-import org.apache.james.util.ReactorUtils;
+import org.apache.james.util.DurationParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.google.common.collect.ImmutableList;
 import com.google.inject.name.Named;
 import com.linagora.calendar.amqp.model.CalendarEventCancelNotificationEmail;
 import com.linagora.calendar.amqp.model.CalendarEventCounterNotificationEmail;
 import com.linagora.calendar.amqp.model.CalendarEventInviteNotificationEmail;
 import com.linagora.calendar.amqp.model.CalendarEventReplyNotificationEmail;
 import com.linagora.calendar.amqp.model.CalendarEventUpdateNotificationEmail;
+import com.linagora.calendar.api.CalendarSchedulers;
 import com.rabbitmq.client.BuiltinExchangeType;
 
 import net.fortuna.ical4j.model.property.Method;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 import reactor.rabbitmq.AcknowledgableDelivery;
 import reactor.rabbitmq.BindingSpecification;
 import reactor.rabbitmq.ConsumeOptions;
@@ -67,8 +70,17 @@ public class EventEmailConsumer implements Closeable, Startable {
     public static final String DEAD_LETTER_QUEUE = "tcalendar:event:notificationEmail:send:dead-letter";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(EventEmailConsumer.class);
-    private static final boolean REQUEUE_ON_NACK = true;
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().registerModule(new Jdk8Module());
+    private static final Duration BATCH_WINDOW = DurationParser.parse(System.getProperty("calendar.imip.batch.window", "100ms"));
+
+    private record ReceivedMessage(AcknowledgableDelivery delivery, MessageAcknowledgement acknowledgement) {
+    }
+
+    private record PendingNotification(MessageAcknowledgement acknowledgement,
+                                       CalendarEventNotificationEmailDTO message,
+                                       EventMailHandler.Notification notification,
+                                       Metric sentMetric) {
+    }
 
     private final ReceiverProvider receiverProvider;
     private final EventMailHandler eventMailHandler;
@@ -79,6 +91,7 @@ public class EventEmailConsumer implements Closeable, Startable {
     private final Metric cancelSentMetric;
     private final Metric counterSentMetric;
     private final MetricFactory metricFactory;
+    private final ConsumerMetrics.QueueMetrics queueMetrics;
 
     private Disposable consumeDisposable;
 
@@ -87,7 +100,8 @@ public class EventEmailConsumer implements Closeable, Startable {
                               @Named(INJECT_KEY_DAV) Supplier<QueueArguments.Builder> queueArgumentSupplier,
                               EventMailHandler eventMailHandler,
                               EventEmailFilter eventEmailFilter,
-                              MetricFactory metricFactory) {
+                              MetricFactory metricFactory,
+                              ConsumerMetrics consumerMetrics) {
         this.receiverProvider = channelPool::createReceiver;
         this.eventMailHandler = eventMailHandler;
         this.eventEmailFilter = eventEmailFilter;
@@ -112,6 +126,7 @@ public class EventEmailConsumer implements Closeable, Startable {
             .block();
 
         this.metricFactory = metricFactory;
+        this.queueMetrics = consumerMetrics.forQueue(QUEUE_NAME);
         inviteSentMetric = metricFactory.generate("calendar.imip.invite");
         replySentMetric = metricFactory.generate("calendar.imip.reply");
         cancelSentMetric = metricFactory.generate("calendar.imip.cancel");
@@ -140,9 +155,12 @@ public class EventEmailConsumer implements Closeable, Startable {
     }
 
     private Disposable doConsumeCalendarEventMessages() {
+        queueMetrics.consumerStarted();
         return delivery(QUEUE_NAME)
-            .flatMap(this::consumeMessage, DEFAULT_CONCURRENCY)
-            .subscribeOn(Schedulers.boundedElastic())
+            .map(delivery -> new ReceivedMessage(delivery, queueMetrics.track(delivery)))
+            .bufferTimeout(DEFAULT_CONCURRENCY, BATCH_WINDOW)
+            .flatMap(this::consumeMessages, DEFAULT_CONCURRENCY)
+            .subscribeOn(CalendarSchedulers.blocking())
             .subscribe();
     }
 
@@ -152,56 +170,99 @@ public class EventEmailConsumer implements Closeable, Startable {
             Receiver::close);
     }
 
-    private Mono<Void> consumeMessage(AcknowledgableDelivery ackDelivery) {
+    // Deliveries received together are sent on a single SMTP session: one ITIP message to N attendees
+    // results in N deliveries published at once.
+    private Mono<Void> consumeMessages(List<ReceivedMessage> receivedMessages) {
         return Mono.from(metricFactory.decoratePublisherWithTimerMetric("calendar.imip",
-            Mono.fromCallable(() -> OBJECT_MAPPER.readValue(ackDelivery.getBody(), CalendarEventNotificationEmailDTO.class))
-                .filter(eventEmailFilter::shouldProcess)
-                .flatMap(message -> handleMessage(message)
-                    .then(ReactorUtils.logAsMono(() -> LOGGER.debug("Consumed calendar mail event message successfully {} '{}'", message.getClass().getSimpleName(), message.eventPath()))))
-                .doOnSuccess(result -> ackDelivery.ack())
-                .onErrorResume(error -> {
-                    LOGGER.error("Error when consume calendar mail event message", error);
-                    ackDelivery.nack(!REQUEUE_ON_NACK);
-                    return Mono.empty();
-                })));
+            Flux.fromIterable(receivedMessages)
+                .flatMap(this::toPendingNotification, DEFAULT_CONCURRENCY)
+                .collectList()
+                .flatMap(this::sendNotifications)));
     }
 
-    private Mono<Void> handleMessage(CalendarEventNotificationEmailDTO calendarEventMessage) {
+    private Mono<PendingNotification> toPendingNotification(ReceivedMessage receivedMessage) {
+        MessageAcknowledgement acknowledgement = receivedMessage.acknowledgement();
+        return Mono.fromCallable(() -> OBJECT_MAPPER.readValue(receivedMessage.delivery().getBody(), CalendarEventNotificationEmailDTO.class))
+            .filter(eventEmailFilter::shouldProcess)
+            .flatMap(message -> toPendingNotification(acknowledgement, message))
+            .switchIfEmpty(Mono.fromRunnable(acknowledgement::ack))
+            .onErrorResume(error -> {
+                LOGGER.error("Error when consume calendar mail event message", error);
+                acknowledgement.reject();
+                return Mono.empty();
+            });
+    }
+
+    private Mono<Void> sendNotifications(List<PendingNotification> pendingNotifications) {
+        if (pendingNotifications.isEmpty()) {
+            return Mono.empty();
+        }
+        // Each delivery is acknowledged according to the outcome of its own mail
+        return eventMailHandler.handleNotifications(pendingNotifications.stream().map(PendingNotification::notification).toList())
+            .zipWithIterable(pendingNotifications)
+            .doOnNext(resultAndPending -> acknowledge(resultAndPending.getT2(), resultAndPending.getT1()))
+            .then()
+            .onErrorResume(error -> error instanceof EventMailHandlerException && pendingNotifications.size() > 1, error -> {
+                // Nothing was sent yet: isolate the faulty messages
+                LOGGER.warn("Failed to generate a batch of {} calendar mail event messages, handling them one by one", pendingNotifications.size(), error);
+                return Flux.fromIterable(pendingNotifications)
+                    .concatMap(pending -> sendNotifications(ImmutableList.of(pending)))
+                    .then();
+            })
+            .onErrorResume(error -> {
+                LOGGER.error("Error when consume calendar mail event message", error);
+                pendingNotifications.forEach(pending -> pending.acknowledgement().reject());
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    private void acknowledge(PendingNotification pending, EventMailHandler.NotificationResult result) {
+        result.error().ifPresentOrElse(error -> {
+            LOGGER.error("Failed to send calendar mail event message {} '{}'", pending.message().getClass().getSimpleName(), pending.message().eventPath(), error);
+            pending.acknowledgement().reject();
+        }, () -> {
+            pending.sentMetric().increment();
+            pending.acknowledgement().ack();
+            LOGGER.debug("Consumed calendar mail event message successfully {} '{}'", pending.message().getClass().getSimpleName(), pending.message().eventPath());
+        });
+    }
+
+    private Mono<PendingNotification> toPendingNotification(MessageAcknowledgement acknowledgement, CalendarEventNotificationEmailDTO calendarEventMessage) {
         return switch (calendarEventMessage.method().getValue()) {
             case Method.VALUE_REQUEST -> {
                 boolean isNewEvent = calendarEventMessage.isNewEvent().orElse(false);
                 if (isNewEvent) {
                     LOGGER.info("Received new calendar event message with method REQUEST and eventPath {}", calendarEventMessage.eventPath());
-                    yield eventMailHandler.handInviteEvent(CalendarEventInviteNotificationEmail.from(calendarEventMessage))
-                        .doOnSuccess(any -> inviteSentMetric.increment());
+                    yield eventMailHandler.inviteNotification(CalendarEventInviteNotificationEmail.from(calendarEventMessage))
+                        .map(notification -> new PendingNotification(acknowledgement, calendarEventMessage, notification, inviteSentMetric));
                 } else {
                     if (calendarEventMessage.changes().isEmpty()) {
                         yield Mono.empty();
                     } else {
                         LOGGER.info("Received updated calendar event message with method REQUEST and eventPath {}", calendarEventMessage.eventPath());
-                        yield eventMailHandler.handleUpdateEvent(CalendarEventUpdateNotificationEmail.from(calendarEventMessage))
-                            .doOnSuccess(any -> updateSentMetric.increment());
+                        yield eventMailHandler.updateNotification(CalendarEventUpdateNotificationEmail.from(calendarEventMessage))
+                            .map(notification -> new PendingNotification(acknowledgement, calendarEventMessage, notification, updateSentMetric));
                     }
                 }
             }
             case Method.VALUE_REPLY -> {
                 LOGGER.info("Received calendar event message with method REPLY and eventPath {}", calendarEventMessage.eventPath());
-                yield eventMailHandler.handleReplyEvent(CalendarEventReplyNotificationEmail.from(calendarEventMessage))
-                    .doOnSuccess(any -> replySentMetric.increment());
+                yield eventMailHandler.replyNotification(CalendarEventReplyNotificationEmail.from(calendarEventMessage))
+                    .map(notification -> new PendingNotification(acknowledgement, calendarEventMessage, notification, replySentMetric));
             }
             case Method.VALUE_CANCEL -> {
                 LOGGER.info("Received calendar event message with method CANCEL and eventPath {}", calendarEventMessage.eventPath());
                 CalendarEventCancelNotificationEmail calendarEventCancelNotificationEmail = CalendarEventCancelNotificationEmail.from(calendarEventMessage);
-                yield eventMailHandler.handleCancelEvent(calendarEventCancelNotificationEmail)
-                    .doOnSuccess(any -> cancelSentMetric.increment());
+                yield eventMailHandler.cancelNotification(calendarEventCancelNotificationEmail)
+                    .map(notification -> new PendingNotification(acknowledgement, calendarEventMessage, notification, cancelSentMetric));
             }
             case Method.VALUE_COUNTER -> {
                 LOGGER.info("Received calendar event message with method COUNTER and eventPath {}", calendarEventMessage.eventPath());
-                yield eventMailHandler.handleCounterEvent(CalendarEventCounterNotificationEmail.from(calendarEventMessage))
-                    .doOnSuccess(any -> counterSentMetric.increment());
+                yield eventMailHandler.counterNotification(CalendarEventCounterNotificationEmail.from(calendarEventMessage))
+                    .map(notification -> new PendingNotification(acknowledgement, calendarEventMessage, notification, counterSentMetric));
             }
             default -> throw new IllegalArgumentException("Unknown method: " + calendarEventMessage.method());
         };
     }
 }
-
@@ -0,0 +1,278 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.amqp;
+
+import static com.linagora.calendar.amqp.CalendarAmqpModule.EVENT_FAN_OUT_ENABLED;
+import static com.linagora.calendar.amqp.CalendarAmqpModule.INJECT_KEY_DAV;
+import static org.apache.james.backends.rabbitmq.Constants.DURABLE;
+import static org.apache.james.backends.rabbitmq.Constants.EMPTY_ROUTING_KEY;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import org.apache.james.backends.rabbitmq.QueueArguments;
+import org.apache.james.backends.rabbitmq.ReactorRabbitMQChannelPool;
+import org.apache.james.backends.rabbitmq.ReceiverProvider;
+import org.apache.james.lifecycle.api.Startable;
+import org.apache.james.metrics.api.Metric;
+import org.apache.james.metrics.api.MetricFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.name.Named;
+import com.linagora.calendar.api.CalendarSchedulers;
+import com.rabbitmq.client.BuiltinExchangeType;
+import com.rabbitmq.client.MessageProperties;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.rabbitmq.AcknowledgableDelivery;
+import reactor.rabbitmq.BindingSpecification;
+import reactor.rabbitmq.ConsumeOptions;
+import reactor.rabbitmq.ExchangeSpecification;
+import reactor.rabbitmq.OutboundMessage;
+import reactor.rabbitmq.QueueSpecification;
+import reactor.rabbitmq.Receiver;
+import reactor.rabbitmq.Sender;
+
+/**
+ * Optional single ingest of the sabre event exchanges: each message is consumed and deserialized once, then handed
+ * over in process to the indexer and to the calendar change notifications, instead of going through one queue per handler.
+ *
+ * A handler failing to process a message does not affect the others: its copy of the message is moved to the dead letter
+ * queue of that handler, from where it can be redelivered to the handler queue.
+ */
+public class EventFanOutConsumer implements Closeable, Startable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventFanOutConsumer.class);
+    private static final String DEFAULT_EXCHANGE = "";
+    // Indexing acknowledgements are only received once the bulk request is done, keep enough messages in flight to fill it
+    private static final int PREFETCH = Integer.parseInt(System.getProperty("calendar.event.fanout.prefetch", "200"));
+    private static final String INDEXER = "indexer";
+    private static final String NOTIFICATION = "notification";
+    private static final String FAILURE_METRIC_PREFIX = "calendar.event.fanout.failed.";
+
+    public enum Queue {
+        ADD("tcalendar:event:created:fanout", "tcalendar:event:created:fanout-dead-letter", CalendarEventMessage.CreatedOrUpdated::deserialize,
+            Optional.of(EventIndexerConsumer.Queue.ADD), EventCalendarNotificationConsumer.Queue.ADD),
+        UPDATE("tcalendar:event:updated:fanout", "tcalendar:event:updated:fanout-dead-letter", CalendarEventMessage.CreatedOrUpdated::deserialize,
+            Optional.of(EventIndexerConsumer.Queue.UPDATE), EventCalendarNotificationConsumer.Queue.UPDATE),
+        DELETE("tcalendar:event:deleted:fanout", "tcalendar:event:deleted:fanout-dead-letter", CalendarEventMessage.Deleted::deserialize,
+            Optional.of(EventIndexerConsumer.Queue.DELETE), EventCalendarNotificationConsumer.Queue.DELETE),
+        CANCEL("tcalendar:event:cancel:fanout", "tcalendar:event:cancel:fanout-dead-letter", CalendarEventMessage.Deleted::deserialize,
+            Optional.of(EventIndexerConsumer.Queue.CANCEL), EventCalendarNotificationConsumer.Queue.CANCEL),
+        REQUEST("tcalendar:event:request:fanout", "tcalendar:event:request:fanout-dead-letter", CalendarEventMessage.CreatedOrUpdated::deserialize,
+            Optional.of(EventIndexerConsumer.Queue.REQUEST), EventCalendarNotificationConsumer.Queue.REQUEST),
+        REPLY("tcalendar:event:reply:fanout", "tcalendar:event:reply:fanout-dead-letter", CalendarEventMessage.CreatedOrUpdated::deserialize,
+            Optional.empty(), EventCalendarNotificationConsumer.Queue.REPLY);
+
+        private final String queueName;
+        private final String deadLetter;
+        private final Function<byte[], CalendarEventMessage> deserializer;
+        private final Optional<EventIndexerConsumer.Queue> indexerQueue;
+        private final EventCalendarNotificationConsumer.Queue notificationQueue;
+
+        Queue(String queueName, String deadLetter, Function<byte[], CalendarEventMessage> deserializer,
+              Optional<EventIndexerConsumer.Queue> indexerQueue, EventCalendarNotificationConsumer.Queue notificationQueue) {
+            this.queueName = queueName;
+            this.deadLetter = deadLetter;
+            this.deserializer = deserializer;
+            this.indexerQueue = indexerQueue;
+            this.notificationQueue = notificationQueue;
+        }
+
+        public String queueName() {
+            return queueName;
+        }
+
+        public String deadLetter() {
+            return deadLetter;
+        }
+
+        public String exchangeName() {
+            return notificationQueue.exchangeName();
+        }
+    }
+
+    private final boolean enabled;
+    private final ReceiverProvider receiverProvider;
+    private final Sender sender;
+    private final Consumer<Queue> declareExchangeAndQueue;
+    private final Consumer<Queue> bindQueue;
+    private final Consumer<Queue> unbindQueue;
+    private final EventIndexerConsumer eventIndexerConsumer;
+    private final EventCalendarNotificationConsumer eventCalendarNotificationConsumer;
+    private final Map<String, Metric> failureMetrics;
+    private final ConsumerMetrics consumerMetrics;
+    private final Map<Queue, Disposable> consumeDisposableMap;
+
+    @Inject
+    @Singleton
+    public EventFanOutConsumer(ReactorRabbitMQChannelPool channelPool,
+                               @Named(INJECT_KEY_DAV) Supplier<QueueArguments.Builder> queueArgumentSupplier,
+                               EventIndexerConsumer eventIndexerConsumer,
+                               EventCalendarNotificationConsumer eventCalendarNotificationConsumer,
+                               MetricFactory metricFactory,
+                               ConsumerMetrics consumerMetrics,
+                               @Named(EVENT_FAN_OUT_ENABLED) boolean enabled) {
+        this.enabled = enabled;
+        this.receiverProvider = channelPool::createReceiver;
+        this.sender = channelPool.getSender();
+        this.eventIndexerConsumer = eventIndexerConsumer;
+        this.eventCalendarNotificationConsumer = eventCalendarNotificationConsumer;
+        this.consumerMetrics = consumerMetrics;
+        this.failureMetrics = Map.of(
+            INDEXER, metricFactory.generate(FAILURE_METRIC_PREFIX + INDEXER),
+            NOTIFICATION, metricFactory.generate(FAILURE_METRIC_PREFIX + NOTIFICATION));
+
+        this.declareExchangeAndQueue = eventQueue -> Flux.concat(
+                sender.declareExchange(ExchangeSpecification.exchange(eventQueue.exchangeName())
+                    .durable(DURABLE).type(BuiltinExchangeType.FANOUT.getType())),
+                sender.declareQueue(QueueSpecification
+                    .queue(eventQueue.deadLetter)
+                    .durable(DURABLE)
+                    .arguments(queueArgumentSupplier.get()
+                        .build())),
+                sender.declareQueue(QueueSpecification
+                    .queue(eventQueue.queueName)
+                    .durable(DURABLE)
+                    .arguments(queueArgumentSupplier.get()
+                        .deadLetter(eventQueue.deadLetter)
+                        .build())))
+            .then()
+            .block();
+        this.bindQueue = eventQueue -> sender.bind(binding(eventQueue)).then().block();
+        this.unbindQueue = eventQueue -> sender.unbind(binding(eventQueue)).then().block();
+
+        this.consumeDisposableMap = new EnumMap<>(Queue.class);
+    }
+
+    private static BindingSpecification binding(Queue eventQueue) {
+        return BindingSpecification.binding()
+            .exchange(eventQueue.exchangeName())
+            .queue(eventQueue.queueName)
+            .routingKey(EMPTY_ROUTING_KEY);
+    }
+
+    /**
+     * When fan-out is disabled, the fan-out queues left over by a previous run are unbound, so that they stop
+     * accumulating messages nobody consumes. All nodes of a deployment must thus share the same
+     * dav.events.fanout.enabled value.
+     */
+    public void init() {
+        if (!enabled) {
+            Arrays.stream(Queue.values())
+                .forEach(declareExchangeAndQueue.andThen(unbindQueue));
+            return;
+        }
+        Arrays.stream(Queue.values())
+            .forEach(declareExchangeAndQueue.andThen(bindQueue));
+
+        start();
+    }
+
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Arrays.stream(Queue.values())
+            .forEach(queue -> consumeDisposableMap.put(queue, doConsumeCalendarEventMessages(queue)));
+    }
+
+    public void restart() {
+        close();
+        consumeDisposableMap.clear();
+        start();
+    }
+
+    @Override
+    public void close() {
+        consumeDisposableMap.values().forEach(disposable -> {
+            if (!disposable.isDisposed()) {
+                disposable.dispose();
+            }
+        });
+    }
+
+    private Disposable doConsumeCalendarEventMessages(Queue queue) {
+        ConsumerMetrics.QueueMetrics metrics = consumerMetrics.forStartingConsumer(queue.queueName);
+        return delivery(queue.queueName)
+            .flatMap(delivery -> fanOut(queue, metrics, delivery.getBody(), metrics.track(delivery)), PREFETCH)
+            .subscribeOn(CalendarSchedulers.blocking())
+            .subscribe();
+    }
+
+    public Flux<AcknowledgableDelivery> delivery(String queue) {
+        return Flux.using(receiverProvider::createReceiver,
+            receiver -> receiver.consumeManualAck(queue, new ConsumeOptions().qos(PREFETCH)),
+            Receiver::close);
+    }
+
+    private Mono<Void> fanOut(Queue queue, ConsumerMetrics.QueueMetrics metrics, byte[] body, MessageAcknowledgement acknowledgement) {
+        return Mono.fromCallable(() -> queue.deserializer.apply(body))
+            .flatMap(message -> Mono.when(
+                queue.indexerQueue
+                    .map(indexerQueue -> isolate(INDEXER, metrics, indexerQueue.deadLetter(), body, index(indexerQueue, message, body)))
+                    .orElse(Mono.empty()),
+                isolate(NOTIFICATION, metrics, queue.notificationQueue.deadLetter(), body,
+                    Mono.defer(() -> eventCalendarNotificationConsumer.handle(message.eventPath)))))
+            .doOnSuccess(result -> acknowledgement.ack())
+            .onErrorResume(error -> {
+                LOGGER.error("Error when fanning out calendar event", error);
+                acknowledgement.reject();
+                return Mono.empty();
+            });
+    }
+
+    private Mono<Void> index(EventIndexerConsumer.Queue indexerQueue, CalendarEventMessage message, byte[] body) {
+        Sinks.One<Void> outcome = Sinks.one();
+        MessageAcknowledgement acknowledgement = new MessageAcknowledgement() {
+            @Override
+            public void ack() {
+                outcome.tryEmitEmpty();
+            }
+
+            @Override
+            public void reject() {
+                outcome.tryEmitError(new CalendarEventConsumerException("Failed to index calendar event " + message.eventPath));
+            }
+        };
+        return Mono.fromRunnable(() -> eventIndexerConsumer.submit(indexerQueue, message, body, acknowledgement))
+            .then(outcome.asMono());
+    }
+
+    private Mono<Void> isolate(String handlerName, ConsumerMetrics.QueueMetrics metrics, String deadLetter, byte[] body, Mono<Void> handling) {
+        return handling.onErrorResume(error -> {
+            LOGGER.error("Failed to handle calendar event with the {}, moving it to {}", handlerName, deadLetter, error);
+            failureMetrics.get(handlerName).increment();
+            return sender.send(Mono.just(new OutboundMessage(DEFAULT_EXCHANGE, deadLetter, MessageProperties.PERSISTENT_TEXT_PLAIN, body)))
+                .doOnSuccess(any -> metrics.recordDeadLetter());
+        });
+    }
+}
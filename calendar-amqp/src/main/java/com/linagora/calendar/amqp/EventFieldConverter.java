@@ -38,6 +38,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
 import com.linagora.calendar.amqp.EventProperty.AttendeeProperty;
 import com.linagora.calendar.amqp.EventProperty.DateProperty;
 import com.linagora.calendar.amqp.EventProperty.DtStampProperty;
@@ -48,6 +49,7 @@ import com.linagora.calendar.storage.CalendarURL;
 import com.linagora.calendar.storage.OpenPaaSId;
 import com.linagora.calendar.storage.event.EventFields;
 import com.linagora.calendar.storage.eventsearch.CalendarEvents;
+import com.linagora.calendar.storage.eventsearch.EventUid;
 
 public class EventFieldConverter {
     private static final ObjectMapper MAPPER = new ObjectMapper()
@@ -122,15 +124,10 @@ public class EventFieldConverter {
     }
 
     public static List<List<EventProperty>> extractVEventProperties(JsonNode calendarEvent) {
-        if (!calendarEvent.isArray() || calendarEvent.size() < 3 || !"vcalendar".equalsIgnoreCase(calendarEvent.get(0).asText())) {
-            throw new CalendarEventDeserializeException("Not a valid vcalendar array structure" + calendarEvent.toPrettyString());
-        }
-
-        ArrayNode components = (ArrayNode) calendarEvent.get(2);
+        ArrayNode components = vCalendarComponents(calendarEvent);
 
         return StreamSupport.stream(components.spliterator(), false)
-            .filter(component -> component.isArray() && component.size() >= 2
-                && "vevent".equalsIgnoreCase(component.get(0).asText()))
+            .filter(EventFieldConverter::isVEvent)
             .map(component -> {
                 ArrayNode veventProps = (ArrayNode) component.get(1);
                 return StreamSupport.stream(veventProps.spliterator(), false)
@@ -140,6 +137,54 @@ public class EventFieldConverter {
             .collect(Collectors.toList());
     }
 
+    /**
+     * Reads only the UID and RECURRENCE-ID of each VEVENT, skipping the deserialization of every other property done by
+     * {@link #extractVEventProperties(JsonNode)}. VEVENTs without UID are ignored.
+     */
+    public static List<EventIdentifier> extractEventIdentifiers(JsonNode calendarEvent) {
+        ImmutableList.Builder<EventIdentifier> identifiers = ImmutableList.builder();
+        for (JsonNode component : vCalendarComponents(calendarEvent)) {
+            if (isVEvent(component)) {
+                extractEventIdentifier(component.get(1)).ifPresent(identifiers::add);
+            }
+        }
+        return identifiers.build();
+    }
+
+    private static Optional<EventIdentifier> extractEventIdentifier(JsonNode veventProperties) {
+        String uid = null;
+        String recurrenceId = null;
+        for (JsonNode property : veventProperties) {
+            if (property.isArray() && property.size() >= 4) {
+                String name = property.get(0).asText();
+                if (EventProperty.UID_PROPERTY.equals(name)) {
+                    uid = property.get(3).asText();
+                } else if (EventProperty.RECURRENCE_ID_PROPERTY.equals(name)) {
+                    recurrenceId = property.get(3).asText();
+                }
+                if (uid != null && recurrenceId != null) {
+                    break;
+                }
+            }
+        }
+        if (uid == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new EventIdentifier(new EventUid(uid), Optional.ofNullable(recurrenceId)));
+    }
+
+    private static ArrayNode vCalendarComponents(JsonNode calendarEvent) {
+        if (!calendarEvent.isArray() || calendarEvent.size() < 3 || !"vcalendar".equalsIgnoreCase(calendarEvent.get(0).asText())) {
+            throw new CalendarEventDeserializeException("Not a valid vcalendar array structure" + calendarEvent.toPrettyString());
+        }
+        return (ArrayNode) calendarEvent.get(2);
+    }
+
+    private static boolean isVEvent(JsonNode component) {
+        return component.isArray() && component.size() >= 2
+            && "vevent".equalsIgnoreCase(component.get(0).asText());
+    }
+
     private static EventProperty deserializeEventProperty(JsonNode node) {
         try {
             return MAPPER.treeToValue(node, EventProperty.class);
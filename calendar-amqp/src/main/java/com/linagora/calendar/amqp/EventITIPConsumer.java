@@ -21,7 +21,6 @@ package com.linagora.calendar.amqp;
 import static com.linagora.calendar.amqp.CalendarAmqpModule.INJECT_KEY_DAV;
 import static org.apache.james.backends.rabbitmq.Constants.DURABLE;
 import static org.apache.james.backends.rabbitmq.Constants.EMPTY_ROUTING_KEY;
-import static org.apache.james.util.ReactorUtils.DEFAULT_CONCURRENCY;
 
 import java.io.Closeable;
 import java.net.URI;
@@ -40,13 +39,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.inject.name.Named;
+import com.linagora.calendar.api.CalendarSchedulers;
 import com.linagora.calendar.dav.CalDavClient;
 import com.rabbitmq.client.BuiltinExchangeType;
 
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 import reactor.rabbitmq.AcknowledgableDelivery;
 import reactor.rabbitmq.BindingSpecification;
 import reactor.rabbitmq.ConsumeOptions;
@@ -63,11 +62,12 @@ public class EventITIPConsumer implements Closeable, Startable {
     public static final String REQUEST_URI_HEADER = "requestURI";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(EventITIPConsumer.class);
-    private static final boolean REQUEUE_ON_NACK = true;
 
     private final ReceiverProvider receiverProvider;
     private final CalDavClient calDavClient;
     private final int itipEventMessagesPrefetchCount;
+    private final AdaptiveConcurrency adaptiveConcurrency;
+    private final ConsumerMetrics consumerMetrics;
 
     private Disposable consumeDisposable;
 
@@ -75,10 +75,14 @@ public class EventITIPConsumer implements Closeable, Startable {
     public EventITIPConsumer(ReactorRabbitMQChannelPool channelPool,
                              @Named(INJECT_KEY_DAV) Supplier<QueueArguments.Builder> queueArgumentSupplier,
                              CalDavClient calDavClient,
-                             @Named("itipEventMessagesPrefetchCount") int itipEventMessagesPrefetchCount) {
+                             @Named("itipEventMessagesPrefetchCount") int itipEventMessagesPrefetchCount,
+                             AdaptiveConcurrency adaptiveConcurrency,
+                             ConsumerMetrics consumerMetrics) {
         this.receiverProvider = channelPool::createReceiver;
         this.calDavClient = calDavClient;
         this.itipEventMessagesPrefetchCount = itipEventMessagesPrefetchCount;
+        this.adaptiveConcurrency = adaptiveConcurrency;
+        this.consumerMetrics = consumerMetrics;
 
         Sender sender = channelPool.getSender();
         Flux.concat(
@@ -121,9 +125,11 @@ public class EventITIPConsumer implements Closeable, Startable {
     }
 
     private Disposable doConsumeMessages() {
+        AdaptiveConcurrencyLimiter limiter = adaptiveConcurrency.limiter(QUEUE_NAME);
+        ConsumerMetrics.QueueMetrics metrics = consumerMetrics.forStartingConsumer(QUEUE_NAME);
         return delivery(QUEUE_NAME)
-            .flatMap(this::consumeMessage, DEFAULT_CONCURRENCY)
-            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(delivery -> consumeMessage(delivery, metrics.track(delivery), limiter), adaptiveConcurrency.maxLimit())
+            .subscribeOn(CalendarSchedulers.blocking())
             .subscribe();
     }
 
@@ -133,14 +139,15 @@ public class EventITIPConsumer implements Closeable, Startable {
             Receiver::close);
     }
 
-    private Mono<Void> consumeMessage(AcknowledgableDelivery ackDelivery) {
-        return Mono.fromCallable(() -> extractHeaderProperties(ackDelivery))
+    private Mono<Void> consumeMessage(AcknowledgableDelivery ackDelivery, MessageAcknowledgement acknowledgement,
+                                      AdaptiveConcurrencyLimiter limiter) {
+        return limiter.limit(Mono.fromCallable(() -> extractHeaderProperties(ackDelivery))
             .flatMap(usernameURIPair -> calDavClient.sendIMIPCallback(usernameURIPair.getLeft(),
-                usernameURIPair.getRight(), ackDelivery.getBody()))
-            .doOnSuccess(result -> ackDelivery.ack())
+                usernameURIPair.getRight(), ackDelivery.getBody())))
+            .doOnSuccess(result -> acknowledgement.ack())
             .onErrorResume(error -> {
                 LOGGER.error("Error when consume calendar itip event message", error);
-                ackDelivery.nack(!REQUEUE_ON_NACK);
+                acknowledgement.reject();
                 return Mono.empty();
             });
     }
@@ -24,11 +24,18 @@ import static org.apache.james.backends.rabbitmq.Constants.EMPTY_ROUTING_KEY;
 import static org.apache.james.util.ReactorUtils.DEFAULT_CONCURRENCY;
 
 import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
@@ -39,17 +46,22 @@ import org.apache.james.backends.rabbitmq.ReactorRabbitMQChannelPool;
 import org.apache.james.backends.rabbitmq.ReceiverProvider;
 import org.apache.james.lifecycle.api.Startable;
 import org.apache.james.metrics.api.MetricFactory;
+import org.apache.james.util.DurationParser;
 import org.apache.james.util.ReactorUtils;
 import org.apache.james.vacation.api.AccountId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableList;
 import com.google.inject.name.Named;
+import com.linagora.calendar.api.CalendarSchedulers;
 import com.linagora.calendar.storage.OpenPaaSId;
 import com.linagora.calendar.storage.OpenPaaSUserDAO;
 import com.linagora.calendar.storage.ResourceDAO;
 import com.linagora.calendar.storage.eventsearch.CalendarEvents;
 import com.linagora.calendar.storage.eventsearch.CalendarSearchService;
+import com.linagora.calendar.storage.eventsearch.CalendarSearchService.IndexRequest;
+import com.linagora.calendar.storage.eventsearch.EventUid;
 import com.linagora.calendar.storage.exception.CalendarSearchIndexingException;
 import com.linagora.calendar.storage.model.ResourceId;
 import com.rabbitmq.client.BuiltinExchangeType;
@@ -57,7 +69,7 @@ import com.rabbitmq.client.BuiltinExchangeType;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
+import reactor.core.publisher.Sinks;
 import reactor.rabbitmq.AcknowledgableDelivery;
 import reactor.rabbitmq.BindingSpecification;
 import reactor.rabbitmq.ConsumeOptions;
@@ -65,11 +77,19 @@ import reactor.rabbitmq.ExchangeSpecification;
 import reactor.rabbitmq.QueueSpecification;
 import reactor.rabbitmq.Receiver;
 import reactor.rabbitmq.Sender;
+import reactor.util.function.Tuples;
 
 public class EventIndexerConsumer implements Closeable, Startable {
     private static final boolean IGNORE_EVENT_IF_USER_NOT_FOUND = BooleanUtils.toBoolean(System.getProperty("calendar.event.consumer.ignoreIfUserNotFound", "false"));
     private static final Logger LOGGER = LoggerFactory.getLogger(EventIndexerConsumer.class);
-    private static final boolean REQUEUE_ON_NACK = true;
+    private static final int BULK_SIZE = Integer.parseInt(System.getProperty("calendar.event.indexing.bulk.size", "100"));
+    private static final Duration BULK_WINDOW = DurationParser.parse(System.getProperty("calendar.event.indexing.bulk.window", "200ms"));
+    // Lets the next batch fill up while the previous bulk request is in flight
+    private static final int PREFETCH = Math.max(DEFAULT_CONCURRENCY, 2 * BULK_SIZE);
+    // Messages are serialized per account and event UID on one of these lanes, lanes run in parallel
+    private static final int LANE_COUNT = Integer.parseInt(System.getProperty("calendar.event.indexing.lanes", String.valueOf(DEFAULT_CONCURRENCY)));
+    private static final Duration EMIT_TIMEOUT = Duration.ofSeconds(10);
+    private static final String DEDUPLICATION_SCOPE = "indexer";
 
     public enum Queue {
         ADD("calendar:event:created", "tcalendar:event:created:search", "tcalendar:event:created:search-dead-letter"),
@@ -101,24 +121,35 @@ public class EventIndexerConsumer implements Closeable, Startable {
 
     private final ReceiverProvider receiverProvider;
     private final Consumer<Queue> declareExchangeAndQueue;
+    private final Consumer<Queue> bindQueue;
+    private final Consumer<Queue> unbindQueue;
     private final CalendarSearchService calendarSearchService;
     private final OpenPaaSUserDAO openPaaSUserDAO;
     private final ResourceDAO resourceDAO;
     private final MetricFactory metricFactory;
+    private final MessageDeduplicator messageDeduplicator;
+    private final ConsumerMetrics consumerMetrics;
     private final Map<Queue, Disposable> consumeDisposableMap;
 
+    private volatile List<Sinks.Many<IndexingTask>> lanes;
+    private Disposable lanesDisposable;
+
     @Inject
     @Singleton
     public EventIndexerConsumer(ReactorRabbitMQChannelPool channelPool,
                                 CalendarSearchService calendarSearchService,
                                 OpenPaaSUserDAO openPaaSUserDAO,
                                 @Named(INJECT_KEY_DAV) Supplier<QueueArguments.Builder> queueArgumentSupplier, ResourceDAO resourceDAO,
-                                MetricFactory metricFactory) {
+                                MetricFactory metricFactory,
+                                MessageDeduplicator messageDeduplicator,
+                                ConsumerMetrics consumerMetrics) {
         this.receiverProvider = channelPool::createReceiver;
         this.calendarSearchService = calendarSearchService;
         this.openPaaSUserDAO = openPaaSUserDAO;
         this.resourceDAO = resourceDAO;
         this.metricFactory = metricFactory;
+        this.messageDeduplicator = messageDeduplicator;
+        this.consumerMetrics = consumerMetrics;
 
         Sender sender = channelPool.getSender();
         this.declareExchangeAndQueue = eventQueue -> Flux.concat(
@@ -134,30 +165,45 @@ public class EventIndexerConsumer implements Closeable, Startable {
                     .durable(DURABLE)
                     .arguments(queueArgumentSupplier.get()
                         .deadLetter(eventQueue.deadLetter)
-                        .build())),
-                sender.bind(BindingSpecification.binding()
-                    .exchange(eventQueue.exchangeName)
-                    .queue(eventQueue.queueName)
-                    .routingKey(EMPTY_ROUTING_KEY)))
+                        .build())))
             .then()
             .block();
+        this.bindQueue = eventQueue -> sender.bind(binding(eventQueue)).then().block();
+        this.unbindQueue = eventQueue -> sender.unbind(binding(eventQueue)).then().block();
 
         this.consumeDisposableMap = new EnumMap<>(Queue.class);
     }
 
+    private static BindingSpecification binding(Queue eventQueue) {
+        return BindingSpecification.binding()
+            .exchange(eventQueue.exchangeName)
+            .queue(eventQueue.queueName)
+            .routingKey(EMPTY_ROUTING_KEY);
+    }
+
     public void init() {
         Arrays.stream(Queue.values())
-            .forEach(declareExchangeAndQueue);
+            .forEach(declareExchangeAndQueue.andThen(bindQueue));
+
+        start();
+    }
+
+    /**
+     * Sabre messages are then received through {@link EventFanOutConsumer}: the queues are unbound from their exchange
+     * and only receive the messages redelivered from their dead letter queue.
+     */
+    public void initForFanOut() {
+        Arrays.stream(Queue.values())
+            .forEach(declareExchangeAndQueue.andThen(unbindQueue));
 
         start();
     }
 
     public void start() {
-        consumeDisposableMap.put(Queue.ADD, doConsumeCalendarEventMessages(Queue.ADD, handlerAdd));
-        consumeDisposableMap.put(Queue.UPDATE, doConsumeCalendarEventMessages(Queue.UPDATE, handlerAddOrUpdate));
-        consumeDisposableMap.put(Queue.DELETE, doConsumeCalendarEventMessages(Queue.DELETE, handlerDelete));
-        consumeDisposableMap.put(Queue.CANCEL, doConsumeCalendarEventMessages(Queue.CANCEL, handlerDelete));
-        consumeDisposableMap.put(Queue.REQUEST, doConsumeCalendarEventMessages(Queue.REQUEST, handlerAddOrUpdate));
+        lanes = createLanes();
+        lanesDisposable = consumeLanes(lanes);
+        Arrays.stream(Queue.values())
+            .forEach(queue -> consumeDisposableMap.put(queue, doConsumeCalendarEventMessages(queue, handler(queue))));
     }
 
     public void restart() {
@@ -173,12 +219,36 @@ public class EventIndexerConsumer implements Closeable, Startable {
                 disposable.dispose();
             }
         });
+        if (lanesDisposable != null && !lanesDisposable.isDisposed()) {
+            lanesDisposable.dispose();
+        }
     }
 
     public interface CalendarEventHandler {
         Mono<?> handle(AccountId ownerAccountId, CalendarEventMessage calendarEventMessage);
 
         Mono<CalendarEventMessage> deserialize(byte[] messagesAsBytes);
+
+        /**
+         * The events to index as part of a bulk request, empty when the message requires a dedicated handling.
+         */
+        default Mono<CalendarEvents> bulkIndexableEvents(CalendarEventMessage calendarEventMessage) {
+            return Mono.empty();
+        }
+    }
+
+    private record IndexingTask(MessageAcknowledgement acknowledgement, CalendarEventMessage message, CalendarEventHandler handler,
+                                MessageDeduplicator.Fingerprint fingerprint) {
+    }
+
+    private record LaneKey(OpenPaaSId calendarBaseId, Optional<EventUid> eventUid) {
+    }
+
+    private record PendingIndexing(MessageAcknowledgement acknowledgement, CalendarEventMessage message, IndexRequest request,
+                                   MessageDeduplicator.Fingerprint fingerprint) {
+    }
+
+    private record PreparedTask(IndexingTask task, Optional<PendingIndexing> bulkIndexing) {
     }
 
     private final CalendarEventHandler handlerAdd = new CalendarEventHandler() {
@@ -193,6 +263,11 @@ public class EventIndexerConsumer implements Closeable, Startable {
         public Mono<CalendarEventMessage> deserialize(byte[] messagesAsBytes) {
             return Mono.fromCallable(() -> CalendarEventMessage.CreatedOrUpdated.deserialize(messagesAsBytes));
         }
+
+        @Override
+        public Mono<CalendarEvents> bulkIndexableEvents(CalendarEventMessage calendarEventMessage) {
+            return Mono.fromCallable(calendarEventMessage::extractCalendarEvents);
+        }
     };
 
     private final CalendarEventHandler handlerAddOrUpdate = new CalendarEventHandler() {
@@ -227,6 +302,13 @@ public class EventIndexerConsumer implements Closeable, Startable {
         public Mono<CalendarEventMessage> deserialize(byte[] messagesAsBytes) {
             return Mono.fromCallable(() -> CalendarEventMessage.CreatedOrUpdated.deserialize(messagesAsBytes));
         }
+
+        @Override
+        public Mono<CalendarEvents> bulkIndexableEvents(CalendarEventMessage calendarEventMessage) {
+            // Recurring events are deleted then re-indexed
+            return Mono.fromCallable(calendarEventMessage::extractCalendarEvents)
+                .filter(calendarEvents -> !hasRecurrenceEvents(calendarEvents));
+        }
     };
 
     private final CalendarEventHandler handlerDelete = new CalendarEventHandler() {
@@ -247,31 +329,217 @@ public class EventIndexerConsumer implements Closeable, Startable {
         }
     };
 
+    private CalendarEventHandler handler(Queue queue) {
+        return switch (queue) {
+            case ADD -> handlerAdd;
+            case UPDATE, REQUEST -> handlerAddOrUpdate;
+            case DELETE, CANCEL -> handlerDelete;
+        };
+    }
+
+    /**
+     * Indexes a message that was consumed and deserialized by {@link EventFanOutConsumer}.
+     */
+    public void submit(Queue queue, CalendarEventMessage message, byte[] body, MessageAcknowledgement acknowledgement) {
+        dispatch(new IndexingTask(acknowledgement, message, handler(queue),
+            messageDeduplicator.fingerprint(DEDUPLICATION_SCOPE, queue.queueName, message.eventPath, body)));
+    }
+
     private Disposable doConsumeCalendarEventMessages(Queue queue, CalendarEventHandler calendarEventHandler) {
-        return delivery(queue.queueName)
-            .flatMap(delivery -> messageConsume(delivery,
-                calendarEventHandler.deserialize(delivery.getBody()),
-                calendarEventHandler), DEFAULT_CONCURRENCY)
-            .subscribeOn(Schedulers.boundedElastic())
+        ConsumerMetrics.QueueMetrics metrics = consumerMetrics.forStartingConsumer(queue.queueName);
+        return delivery(queue.queueName, PREFETCH)
+            .flatMap(delivery -> {
+                MessageAcknowledgement acknowledgement = metrics.track(delivery);
+                return calendarEventHandler.deserialize(delivery.getBody())
+                    .doOnNext(message -> submit(queue, message, delivery.getBody(), acknowledgement))
+                    .onErrorResume(error -> {
+                        LOGGER.error("Error when consume calendar event", error);
+                        acknowledgement.reject();
+                        return Mono.empty();
+                    });
+            }, DEFAULT_CONCURRENCY)
+            .subscribeOn(CalendarSchedulers.blocking())
             .subscribe();
     }
 
     public Flux<AcknowledgableDelivery> delivery(String queue) {
+        return delivery(queue, DEFAULT_CONCURRENCY);
+    }
+
+    private Flux<AcknowledgableDelivery> delivery(String queue, int prefetch) {
         return Flux.using(receiverProvider::createReceiver,
-            receiver -> receiver.consumeManualAck(queue, new ConsumeOptions().qos(DEFAULT_CONCURRENCY)),
+            receiver -> receiver.consumeManualAck(queue, new ConsumeOptions().qos(prefetch)),
             Receiver::close);
     }
 
-    private Mono<?> messageConsume(AcknowledgableDelivery ackDelivery, Mono<CalendarEventMessage> messagePublisher, CalendarEventHandler calendarEventHandler) {
-        return messagePublisher
-            .flatMap(message -> Mono.from(metricFactory.decoratePublisherWithTimerMetric("calendar.event.indexing",
+    private List<Sinks.Many<IndexingTask>> createLanes() {
+        return IntStream.range(0, LANE_COUNT)
+            .mapToObj(i -> Sinks.many().unicast().<IndexingTask>onBackpressureBuffer())
+            .toList();
+    }
+
+    private Disposable consumeLanes(List<Sinks.Many<IndexingTask>> lanes) {
+        return Flux.fromIterable(lanes)
+            .flatMap(lane -> lane.asFlux()
+                .bufferTimeout(BULK_SIZE, BULK_WINDOW)
+                // An error escaping a batch, eg an acknowledgement on a closed channel, must not terminate the lanes
+                .concatMap(tasks -> processInOrder(tasks)
+                    .onErrorResume(error -> {
+                        LOGGER.error("Error when indexing a batch of {} calendar events", tasks.size(), error);
+                        tasks.forEach(task -> rejectQuietly(task.acknowledgement()));
+                        return Mono.empty();
+                    })), lanes.size())
+            .subscribeOn(CalendarSchedulers.blocking())
+            .subscribe();
+    }
+
+    // Messages of a given event within a given account always land in the same lane, across all queues
+    private void dispatch(IndexingTask task) {
+        LaneKey laneKey = new LaneKey(task.message().extractCalendarURL().base(), task.message().extractEventUid().stream().findFirst());
+        Sinks.EmitResult emitResult = emit(lanes.get(Math.floorMod(laneKey.hashCode(), lanes.size())), task);
+        if (emitResult.isFailure()) {
+            LOGGER.error("Could not dispatch calendar event '{}' to its indexing lane: {}", task.message().eventPath, emitResult);
+            task.acknowledgement().reject();
+        }
+    }
+
+    // Concurrent consumers may emit into the same lane: only non serialized emissions are retried
+    private Sinks.EmitResult emit(Sinks.Many<IndexingTask> lane, IndexingTask task) {
+        long deadline = System.nanoTime() + EMIT_TIMEOUT.toNanos();
+        Sinks.EmitResult emitResult = lane.tryEmitNext(task);
+        while (emitResult == Sinks.EmitResult.FAIL_NON_SERIALIZED && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+            emitResult = lane.tryEmitNext(task);
+        }
+        return emitResult;
+    }
+
+    private void rejectQuietly(MessageAcknowledgement acknowledgement) {
+        try {
+            acknowledgement.reject();
+        } catch (Exception e) {
+            LOGGER.warn("Failed to reject calendar event message", e);
+        }
+    }
+
+    private Mono<Void> processInOrder(List<IndexingTask> tasks) {
+        return skipDuplicates(tasks)
+            .flatMapSequential(this::prepare, DEFAULT_CONCURRENCY)
+            .collectList()
+            .flatMapMany(preparedTasks -> Flux.fromIterable(consecutiveRuns(preparedTasks)))
+            .concatMap(run -> {
+                if (run.getFirst().bulkIndexing().isPresent()) {
+                    return bulkIndex(run.stream().map(preparedTask -> preparedTask.bulkIndexing().get()).toList());
+                }
+                return Flux.fromIterable(run)
+                    .concatMap(preparedTask -> messageConsume(preparedTask.task()))
+                    .then();
+            })
+            .then();
+    }
+
+    // Previous batches of the lane are fully processed, but earlier tasks of this batch are not: only the first task of
+    // each event can be compared with the last processed message of that event.
+    private Flux<IndexingTask> skipDuplicates(List<IndexingTask> tasks) {
+        Set<String> eventKeys = new HashSet<>();
+        return Flux.fromIterable(tasks)
+            .map(task -> Tuples.of(task, eventKeys.add(task.fingerprint().key())))
+            .flatMapSequential(taskAndFirstOfEvent -> {
+                IndexingTask task = taskAndFirstOfEvent.getT1();
+                if (!taskAndFirstOfEvent.getT2()) {
+                    return Mono.just(task);
+                }
+                return messageDeduplicator.isDuplicate(task.fingerprint())
+                    .flatMap(duplicate -> {
+                        if (duplicate) {
+                            task.acknowledgement().ack();
+                            return Mono.empty();
+                        }
+                        return Mono.just(task);
+                    });
+            }, DEFAULT_CONCURRENCY);
+    }
+
+    // Groups consecutive bulk indexable tasks together so that ordering within the lane is preserved
+    private List<List<PreparedTask>> consecutiveRuns(List<PreparedTask> preparedTasks) {
+        ImmutableList.Builder<List<PreparedTask>> runs = ImmutableList.builder();
+        List<PreparedTask> currentRun = new ArrayList<>();
+        for (PreparedTask preparedTask : preparedTasks) {
+            boolean bulkIndexing = preparedTask.bulkIndexing().isPresent();
+            if (!currentRun.isEmpty() && (!bulkIndexing || currentRun.getFirst().bulkIndexing().isEmpty())) {
+                runs.add(ImmutableList.copyOf(currentRun));
+                currentRun.clear();
+            }
+            currentRun.add(preparedTask);
+        }
+        if (!currentRun.isEmpty()) {
+            runs.add(ImmutableList.copyOf(currentRun));
+        }
+        return runs.build();
+    }
+
+    private Mono<PreparedTask> prepare(IndexingTask task) {
+        if (BULK_SIZE <= 1) {
+            return Mono.just(new PreparedTask(task, Optional.empty()));
+        }
+        MessageAcknowledgement acknowledgement = task.acknowledgement();
+        CalendarEventMessage message = task.message();
+        return task.handler().bulkIndexableEvents(message)
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .flatMap(bulkIndexableEvents -> bulkIndexableEvents
+                .map(calendarEvents -> getAccountId(message.extractCalendarURL().base())
+                    .map(accountId -> new PreparedTask(task, Optional.of(new PendingIndexing(acknowledgement, message, new IndexRequest(accountId, calendarEvents), task.fingerprint()))))
+                    .switchIfEmpty(Mono.fromRunnable(acknowledgement::ack)))
+                .orElseGet(() -> Mono.just(new PreparedTask(task, Optional.empty()))))
+            .onErrorResume(error -> {
+                LOGGER.error("Error when consume calendar event", error);
+                acknowledgement.reject();
+                return Mono.empty();
+            });
+    }
+
+    private Mono<Void> bulkIndex(List<PendingIndexing> pendingIndexings) {
+        if (pendingIndexings.isEmpty()) {
+            return Mono.empty();
+        }
+        return Flux.fromIterable(pendingIndexings)
+            .zipWith(Flux.from(metricFactory.decoratePublisherWithTimerMetric("calendar.event.indexing.bulk",
+                calendarSearchService.indexAll(pendingIndexings.stream().map(PendingIndexing::request).toList()))))
+            .concatMap(pendingAndResult -> {
+                PendingIndexing pending = pendingAndResult.getT1();
+                return pendingAndResult.getT2().error()
+                    .map(error -> {
+                        LOGGER.error("Error when consume calendar event", error);
+                        pending.acknowledgement().reject();
+                        return Mono.<Void>empty();
+                    })
+                    .orElseGet(() -> {
+                        LOGGER.debug("Consumed calendar event successfully {} '{}'", pending.message().getClass().getSimpleName(), pending.message().eventPath);
+                        return messageDeduplicator.markProcessed(pending.fingerprint())
+                            .doOnSuccess(any -> pending.acknowledgement().ack());
+                    });
+            })
+            .then()
+            .onErrorResume(error -> {
+                LOGGER.error("Error when bulk indexing calendar events", error);
+                pendingIndexings.forEach(pending -> pending.acknowledgement().reject());
+                return Mono.empty();
+            });
+    }
+
+    private Mono<?> messageConsume(IndexingTask task) {
+        CalendarEventMessage message = task.message();
+        MessageAcknowledgement acknowledgement = task.acknowledgement();
+        return Mono.from(metricFactory.decoratePublisherWithTimerMetric("calendar.event.indexing",
                 getAccountId(message.extractCalendarURL().base())
-                    .flatMap(accountId -> calendarEventHandler.handle(accountId, message))
-                    .then(ReactorUtils.logAsMono(() -> LOGGER.debug("Consumed calendar event successfully {} '{}'", message.getClass().getSimpleName(), message.eventPath))))))
-            .doOnSuccess(result -> ackDelivery.ack())
+                    .flatMap(accountId -> task.handler().handle(accountId, message))
+                    .then(ReactorUtils.logAsMono(() -> LOGGER.debug("Consumed calendar event successfully {} '{}'", message.getClass().getSimpleName(), message.eventPath)))))
+            .then(messageDeduplicator.markProcessed(task.fingerprint()))
+            .doOnSuccess(result -> acknowledgement.ack())
             .onErrorResume(error -> {
                 LOGGER.error("Error when consume calendar event", error);
-                ackDelivery.nack(!REQUEUE_ON_NACK);
+                acknowledgement.reject();
                 return Mono.empty();
             });
     }
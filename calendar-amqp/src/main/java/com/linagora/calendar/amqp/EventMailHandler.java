@@ -20,10 +20,13 @@ package com.linagora.calendar.amqp;
 
 import static com.linagora.calendar.amqp.EventFieldConverter.extractCalendarURL;
 import static com.linagora.calendar.smtp.template.MimeAttachment.ATTACHMENT_DISPOSITION_TYPE;
+import static org.apache.james.util.ReactorUtils.DEFAULT_CONCURRENCY;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
@@ -48,6 +51,7 @@ import com.linagora.calendar.amqp.model.CalendarEventInviteNotificationEmail;
 import com.linagora.calendar.amqp.model.CalendarEventNotificationEmail;
 import com.linagora.calendar.amqp.model.CalendarEventReplyNotificationEmail;
 import com.linagora.calendar.amqp.model.CalendarEventUpdateNotificationEmail;
+import com.linagora.calendar.api.CalendarSchedulers;
 import com.linagora.calendar.api.EventParticipationActionLinkFactory;
 import com.linagora.calendar.api.EventParticipationActionLinkFactory.ActionLinks;
 import com.linagora.calendar.smtp.Mail;
@@ -69,8 +73,8 @@ import com.linagora.calendar.storage.model.ResourceId;
 import net.fortuna.ical4j.model.property.Method;
 import net.fortuna.ical4j.model.property.Uid;
 import net.fortuna.ical4j.model.property.immutable.ImmutableMethod;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 public class EventMailHandler {
 
@@ -114,8 +118,31 @@ public class EventMailHandler {
         this.participationActionLinkFactory = participationActionLinkFactory;
     }
 
+    record Notification(EventMessageGenerator messageGenerator, Username recipientUser, MailAddress senderEmail) {
+    }
+
+    record NotificationResult(Notification notification, Optional<Throwable> error) {
+        boolean isSuccess() {
+            return error.isEmpty();
+        }
+    }
+
+    private record RenderingKey(EventType eventType, Language language) {
+    }
+
+    private record RenderedNotification(long position, Notification notification, Mail mail) {
+    }
+
+    private record ResolvedNotification(long position, Notification notification, ResolvedSettings resolvedSettings) {
+        RenderingKey renderingKey() {
+            return new RenderingKey(notification.messageGenerator().eventType(), new Language(resolvedSettings.locale()));
+        }
+    }
+
     interface EventMessageGenerator {
-        Mono<Message> generate(ResolvedSettings resolvedSettings);
+        EventType eventType();
+
+        Mono<Message> generate(ResolvedSettings resolvedSettings, MessageGenerator messageGenerator);
 
         static List<MimeAttachment> createAttachments(byte[] calendarAsBytes, Method method) {
             return List.of(
@@ -156,10 +183,13 @@ public class EventMailHandler {
         }
 
         @Override
-        public Mono<Message> generate(ResolvedSettings resolvedSettings) {
-            return Mono.fromCallable(() -> messageGeneratorFactory.forLocalizedFeature(new Language(resolvedSettings.locale()), EventType.INVITE.asTemplateType()))
-                .subscribeOn(Schedulers.boundedElastic())
-                .flatMap(messageGenerator -> generateInvitationMessage(resolvedSettings, messageGenerator))
+        public EventType eventType() {
+            return EventType.INVITE;
+        }
+
+        @Override
+        public Mono<Message> generate(ResolvedSettings resolvedSettings, MessageGenerator messageGenerator) {
+            return generateInvitationMessage(resolvedSettings, messageGenerator)
                 .onErrorResume(error -> Mono.error(new EventMailHandlerException("Error occurred when generate invitation event message", error)));
         }
 
@@ -186,10 +216,13 @@ public class EventMailHandler {
         }
 
         @Override
-        public Mono<Message> generate(ResolvedSettings resolvedSettings) {
-            return Mono.fromCallable(() -> messageGeneratorFactory.forLocalizedFeature(new Language(resolvedSettings.locale()), EventType.UPDATE.asTemplateType()))
-                .subscribeOn(Schedulers.boundedElastic())
-                .flatMap(messageGenerator -> generateUpdateMessage(resolvedSettings, messageGenerator))
+        public EventType eventType() {
+            return EventType.UPDATE;
+        }
+
+        @Override
+        public Mono<Message> generate(ResolvedSettings resolvedSettings, MessageGenerator messageGenerator) {
+            return generateUpdateMessage(resolvedSettings, messageGenerator)
                 .onErrorResume(error -> Mono.error(new EventMailHandlerException("Error occurred when generate update event message", error)));
         }
 
@@ -217,10 +250,13 @@ public class EventMailHandler {
         }
 
         @Override
-        public Mono<Message> generate(ResolvedSettings resolvedSettings) {
-            return Mono.fromCallable(() -> messageGeneratorFactory.forLocalizedFeature(new Language(resolvedSettings.locale()), EventType.CANCEL.asTemplateType()))
-                .subscribeOn(Schedulers.boundedElastic())
-                .flatMap(messageGenerator -> generateCancelMessage(resolvedSettings, messageGenerator))
+        public EventType eventType() {
+            return EventType.CANCEL;
+        }
+
+        @Override
+        public Mono<Message> generate(ResolvedSettings resolvedSettings, MessageGenerator messageGenerator) {
+            return generateCancelMessage(resolvedSettings, messageGenerator)
                 .onErrorResume(error -> Mono.error(new EventMailHandlerException("Error occurred when generate cancel event message", error)));
         }
 
@@ -244,10 +280,13 @@ public class EventMailHandler {
         }
 
         @Override
-        public Mono<Message> generate(ResolvedSettings resolvedSettings) {
-            return Mono.fromCallable(() -> messageGeneratorFactory.forLocalizedFeature(new Language(resolvedSettings.locale()), EventType.REPLY.asTemplateType()))
-                .subscribeOn(Schedulers.boundedElastic())
-                .flatMap(messageGenerator -> generateReplyMessage(resolvedSettings, messageGenerator))
+        public EventType eventType() {
+            return EventType.REPLY;
+        }
+
+        @Override
+        public Mono<Message> generate(ResolvedSettings resolvedSettings, MessageGenerator messageGenerator) {
+            return generateReplyMessage(resolvedSettings, messageGenerator)
                 .onErrorResume(error -> Mono.error(new EventMailHandlerException("Error occurred when generate reply event message", error)));
         }
 
@@ -282,10 +321,13 @@ public class EventMailHandler {
         }
 
         @Override
-        public Mono<Message> generate(ResolvedSettings resolvedSettings) {
-            return Mono.fromCallable(() -> messageGeneratorFactory.forLocalizedFeature(new Language(resolvedSettings.locale()), EventType.COUNTER.asTemplateType()))
-                .subscribeOn(Schedulers.boundedElastic())
-                .flatMap(messageGenerator -> generateCounterMessage(resolvedSettings, messageGenerator))
+        public EventType eventType() {
+            return EventType.COUNTER;
+        }
+
+        @Override
+        public Mono<Message> generate(ResolvedSettings resolvedSettings, MessageGenerator messageGenerator) {
+            return generateCounterMessage(resolvedSettings, messageGenerator)
                 .onErrorResume(error -> Mono.error(new EventMailHandlerException("Error occurred when generate counter event message", error)));
         }
 
@@ -307,27 +349,44 @@ public class EventMailHandler {
     }
 
     public Mono<Void> handInviteEvent(CalendarEventInviteNotificationEmail event) {
-        MailAddress recipientEmail = event.base().recipientEmail();
-        Username recipientUser = Username.fromMailAddress(recipientEmail);
-        return Mono.from(usersRepository.containsReactive(recipientUser))
-            .flatMap(isInternalUser -> handleEvent(new InviteEventMessageGenerator(event, recipientUser, isInternalUser), recipientUser, event.base().senderEmail()));
+        return inviteNotification(event).flatMap(this::handleNotification);
     }
 
     public Mono<Void> handleUpdateEvent(CalendarEventUpdateNotificationEmail event) {
-        MailAddress recipientEmail = event.base().recipientEmail();
-        Username recipientUser = Username.fromMailAddress(recipientEmail);
-        return Mono.from(usersRepository.containsReactive(recipientUser))
-            .flatMap(isInternalUser -> handleEvent(new UpdateEventMessageGenerator(event, recipientUser, isInternalUser), recipientUser, event.base().senderEmail()));
+        return updateNotification(event).flatMap(this::handleNotification);
     }
 
     public Mono<Void> handleCancelEvent(CalendarEventCancelNotificationEmail event) {
-        MailAddress recipientEmail = event.base().recipientEmail();
-        Username recipientUser = Username.fromMailAddress(recipientEmail);
-        return Mono.from(usersRepository.containsReactive(recipientUser))
-            .flatMap(isInternalUser -> handleEvent(new CancelEventMessageGenerator(event, recipientUser, isInternalUser), recipientUser, event.base().senderEmail()));
+        return cancelNotification(event).flatMap(this::handleNotification);
     }
 
     public Mono<Void> handleReplyEvent(CalendarEventReplyNotificationEmail event) {
+        return replyNotification(event).flatMap(this::handleNotification);
+    }
+
+    public Mono<Void> handleCounterEvent(CalendarEventCounterNotificationEmail event) {
+        return counterNotification(event).flatMap(this::handleNotification);
+    }
+
+    Mono<Notification> inviteNotification(CalendarEventInviteNotificationEmail event) {
+        Username recipientUser = Username.fromMailAddress(event.base().recipientEmail());
+        return Mono.from(usersRepository.containsReactive(recipientUser))
+            .map(isInternalUser -> new Notification(new InviteEventMessageGenerator(event, recipientUser, isInternalUser), recipientUser, event.base().senderEmail()));
+    }
+
+    Mono<Notification> updateNotification(CalendarEventUpdateNotificationEmail event) {
+        Username recipientUser = Username.fromMailAddress(event.base().recipientEmail());
+        return Mono.from(usersRepository.containsReactive(recipientUser))
+            .map(isInternalUser -> new Notification(new UpdateEventMessageGenerator(event, recipientUser, isInternalUser), recipientUser, event.base().senderEmail()));
+    }
+
+    Mono<Notification> cancelNotification(CalendarEventCancelNotificationEmail event) {
+        Username recipientUser = Username.fromMailAddress(event.base().recipientEmail());
+        return Mono.from(usersRepository.containsReactive(recipientUser))
+            .map(isInternalUser -> new Notification(new CancelEventMessageGenerator(event, recipientUser, isInternalUser), recipientUser, event.base().senderEmail()));
+    }
+
+    Mono<Notification> replyNotification(CalendarEventReplyNotificationEmail event) {
         MailAddress senderEmail = event.base().senderEmail();
         return isResourceEmail(senderEmail)
             .flatMap(isResource -> {
@@ -335,12 +394,16 @@ public class EventMailHandler {
                     LOGGER.debug("Ignoring reply event from resource email: {}", senderEmail.asString());
                     return Mono.empty();
                 }
-                MailAddress recipientEmail = event.base().recipientEmail();
-                Username recipientUser = Username.fromMailAddress(recipientEmail);
-                return handleEvent(new ReplyEventMessageGenerator(event, recipientUser), recipientUser, senderEmail);
+                Username recipientUser = Username.fromMailAddress(event.base().recipientEmail());
+                return Mono.just(new Notification(new ReplyEventMessageGenerator(event, recipientUser), recipientUser, senderEmail));
             });
     }
 
+    Mono<Notification> counterNotification(CalendarEventCounterNotificationEmail event) {
+        Username recipientUser = Username.fromMailAddress(event.base().recipientEmail());
+        return Mono.just(new Notification(new CounterEventMessageGenerator(event, recipientUser), recipientUser, event.base().senderEmail()));
+    }
+
     private Mono<Boolean> isResourceEmail(MailAddress senderEmail) {
         Domain domain = senderEmail.getDomain();
         String localPart = senderEmail.getLocalPart();
@@ -350,24 +413,63 @@ public class EventMailHandler {
             .defaultIfEmpty(false);
     }
 
-    public Mono<Void> handleCounterEvent(CalendarEventCounterNotificationEmail event) {
-        MailAddress recipientEmail = event.base().recipientEmail();
-        Username recipientUser = Username.fromMailAddress(recipientEmail);
-        return handleEvent(new CounterEventMessageGenerator(event, recipientUser), recipientUser, event.base().senderEmail());
+    private Mono<Void> handleNotification(Notification notification) {
+        return handleNotifications(ImmutableList.of(notification))
+            .flatMap(result -> Mono.justOrEmpty(result.error())
+                .flatMap(error -> Mono.<Void>error(error)))
+            .then();
+    }
+
+    /**
+     * Renders the notifications then sends them on a single SMTP session, and reports one result per notification, in
+     * the order of the given notifications.
+     *
+     * <p>Recipients sharing the same event type and language share the same template: it is resolved once per group.
+     * Any failure happening before the SMTP session is opened is reported as an {@link EventMailHandlerException},
+     * meaning that nothing was sent.</p>
+     */
+    Flux<NotificationResult> handleNotifications(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return Flux.empty();
+        }
+        return Flux.fromIterable(notifications)
+            .index()
+            .flatMap(indexed -> settingsResolver.resolveOrDefault(indexed.getT2().recipientUser(), Username.fromMailAddress(indexed.getT2().senderEmail()))
+                .map(resolvedSettings -> new ResolvedNotification(indexed.getT1(), indexed.getT2(), resolvedSettings)), DEFAULT_CONCURRENCY)
+            .groupBy(ResolvedNotification::renderingKey)
+            .flatMap(group -> messageGenerator(group.key())
+                .flatMapMany(messageGenerator -> group.flatMap(resolved -> resolved.notification().messageGenerator()
+                    .generate(resolved.resolvedSettings(), messageGenerator)
+                    .switchIfEmpty(Mono.error(() -> new EventMailHandlerException("No message generated for " + resolved.notification().recipientUser().asString())))
+                    .map(message -> new RenderedNotification(resolved.position(), resolved.notification(), asMail(resolved.notification(), message))), DEFAULT_CONCURRENCY)))
+            .onErrorMap(error -> !(error instanceof EventMailHandlerException),
+                error -> new EventMailHandlerException("Error occurred when generate event messages", error))
+            .collectSortedList(Comparator.comparingLong(RenderedNotification::position))
+            .flatMapMany(renderedNotifications -> mailSenderFactory.create()
+                .flatMapMany(mailSender -> Flux.fromIterable(renderedNotifications)
+                    .zipWith(mailSender.sendEach(renderedNotifications.stream().map(RenderedNotification::mail).toList()),
+                        (rendered, sendResult) -> new NotificationResult(rendered.notification(), sendResult.error()))))
+            .doOnNext(result -> {
+                if (result.isSuccess()) {
+                    AuditTrail.entry()
+                        .action("IMIP")
+                        .action(result.notification().messageGenerator().getClass().getName())
+                        .parameters(() -> ImmutableMap.of(
+                            "sender", result.notification().senderEmail().asString(),
+                            "recipient", result.notification().recipientUser().asString()))
+                        .log("IMIP mail sent");
+                }
+            });
+    }
+
+    private Mono<MessageGenerator> messageGenerator(RenderingKey renderingKey) {
+        return Mono.fromCallable(() -> messageGeneratorFactory.forLocalizedFeature(renderingKey.language(), renderingKey.eventType().asTemplateType()))
+            .subscribeOn(CalendarSchedulers.blocking())
+            .onErrorResume(error -> Mono.error(new EventMailHandlerException("Error occurred when loading the " + renderingKey.eventType().asTemplateType().value() + " template", error)));
     }
 
-    private Mono<Void> handleEvent(EventMessageGenerator eventMessageGenerator, Username recipientUser, MailAddress senderEmail) {
-        return settingsResolver.resolveOrDefault(recipientUser, Username.fromMailAddress(senderEmail))
-            .flatMap(eventMessageGenerator::generate)
-            .flatMap(mailMessage -> mailSenderFactory.create()
-                .flatMap(mailSender -> mailSender.send(new Mail(MaybeSender.of(senderEmail),
-                    ImmutableList.of(Throwing.supplier(recipientUser::asMailAddress).get()), mailMessage)))
-                .doOnSuccess(any -> AuditTrail.entry()
-                    .action("IMIP")
-                    .action(eventMessageGenerator.getClass().getName())
-                    .parameters(() -> ImmutableMap.of(
-                        "sender", senderEmail.asString(),
-                        "recipient", recipientUser.asString()))
-                    .log("IMIP mail sent")));
+    private Mail asMail(Notification notification, Message message) {
+        return new Mail(MaybeSender.of(notification.senderEmail()),
+            ImmutableList.of(Throwing.supplier(notification.recipientUser()::asMailAddress).get()), message);
     }
 }
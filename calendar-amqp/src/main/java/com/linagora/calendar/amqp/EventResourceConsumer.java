@@ -21,7 +21,6 @@ package com.linagora.calendar.amqp;
 import static com.linagora.calendar.amqp.CalendarAmqpModule.INJECT_KEY_DAV;
 import static org.apache.james.backends.rabbitmq.Constants.DURABLE;
 import static org.apache.james.backends.rabbitmq.Constants.EMPTY_ROUTING_KEY;
-import static org.apache.james.util.ReactorUtils.DEFAULT_CONCURRENCY;
 
 import java.io.Closeable;
 import java.util.Arrays;
@@ -61,7 +60,6 @@ import reactor.rabbitmq.Sender;
 public class EventResourceConsumer implements Closeable, Startable {
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().registerModule(new Jdk8Module());
     private static final Logger LOGGER = LoggerFactory.getLogger(EventResourceConsumer.class);
-    private static final boolean REQUEUE_ON_NACK = true;
 
     public enum Queue {
         CREATE("resource:calendar:event:created", "resource:tcalendar:event:created", "resource:tcalendar:event:created:dead-letter"),
@@ -95,14 +93,20 @@ public class EventResourceConsumer implements Closeable, Startable {
     private final Consumer<Queue> declareExchangeAndQueue;
     private final Map<Queue, Disposable> consumeDisposableMap;
     private final EventResourceHandler eventResourceHandler;
+    private final AdaptiveConcurrency adaptiveConcurrency;
+    private final ConsumerMetrics consumerMetrics;
 
     @Inject
     @Singleton
     public EventResourceConsumer(ReactorRabbitMQChannelPool channelPool,
                                  @Named(INJECT_KEY_DAV) Supplier<QueueArguments.Builder> queueArgumentSupplier,
-                                 EventResourceHandler eventResourceHandler) {
+                                 EventResourceHandler eventResourceHandler,
+                                 AdaptiveConcurrency adaptiveConcurrency,
+                                 ConsumerMetrics consumerMetrics) {
         this.receiverProvider = channelPool::createReceiver;
         this.eventResourceHandler = eventResourceHandler;
+        this.adaptiveConcurrency = adaptiveConcurrency;
+        this.consumerMetrics = consumerMetrics;
 
         Sender sender = channelPool.getSender();
         this.declareExchangeAndQueue = eventQueue -> Flux.concat(
@@ -174,25 +178,28 @@ public class EventResourceConsumer implements Closeable, Startable {
     }
 
     private Disposable doConsumeCalendarEventMessages(Queue queue, EventHandler eventHandler) {
+        AdaptiveConcurrencyLimiter limiter = adaptiveConcurrency.limiter(queue.queueName);
+        ConsumerMetrics.QueueMetrics metrics = consumerMetrics.forStartingConsumer(queue.queueName);
         return delivery(queue.queueName)
-            .flatMap(delivery -> messageConsume(delivery, eventHandler), DEFAULT_CONCURRENCY)
+            .flatMap(delivery -> messageConsume(delivery, metrics.track(delivery), eventHandler, limiter), adaptiveConcurrency.maxLimit())
             .subscribe();
     }
 
     public Flux<AcknowledgableDelivery> delivery(String queue) {
         return Flux.using(receiverProvider::createReceiver,
-            receiver -> receiver.consumeManualAck(queue, new ConsumeOptions().qos(DEFAULT_CONCURRENCY)),
+            receiver -> receiver.consumeManualAck(queue, new ConsumeOptions().qos(adaptiveConcurrency.maxLimit())),
             Receiver::close);
     }
 
-    private Mono<?> messageConsume(AcknowledgableDelivery ackDelivery, EventHandler eventHandler) {
-        return Mono.fromSupplier(Throwing.supplier(() -> OBJECT_MAPPER.readValue(ackDelivery.getBody(), CalendarResourceMessageDTO.class)))
+    private Mono<?> messageConsume(AcknowledgableDelivery ackDelivery, MessageAcknowledgement acknowledgement,
+                                   EventHandler eventHandler, AdaptiveConcurrencyLimiter limiter) {
+        return limiter.limit(Mono.fromSupplier(Throwing.supplier(() -> OBJECT_MAPPER.readValue(ackDelivery.getBody(), CalendarResourceMessageDTO.class)))
             .flatMap(message -> eventHandler.handle(message)
-                .then(ReactorUtils.logAsMono(() -> LOGGER.debug("Consumed calendar resource event successfully {} '{}'", message.getClass().getSimpleName(), message.eventPath()))))
-            .doOnSuccess(result -> ackDelivery.ack())
+                .then(ReactorUtils.logAsMono(() -> LOGGER.debug("Consumed calendar resource event successfully {} '{}'", message.getClass().getSimpleName(), message.eventPath())))))
+            .doOnSuccess(result -> acknowledgement.ack())
             .onErrorResume(error -> {
                 LOGGER.error("Error when consume calendar resource event", error);
-                ackDelivery.nack(!REQUEUE_ON_NACK);
+                acknowledgement.reject();
                 return Mono.empty();
             });
     }
@@ -40,6 +40,7 @@ import org.slf4j.LoggerFactory;
 
 import com.github.fge.lambdas.Throwing;
 import com.google.common.collect.ImmutableMap;
+import com.linagora.calendar.api.CalendarSchedulers;
 import com.linagora.calendar.api.JwtSigner;
 import com.linagora.calendar.dav.CalDavEventRepository;
 import com.linagora.calendar.smtp.Mail;
@@ -68,7 +69,6 @@ import net.fortuna.ical4j.model.component.VEvent;
 import net.fortuna.ical4j.model.parameter.PartStat;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 public class EventResourceHandler {
 
@@ -206,7 +206,7 @@ public class EventResourceHandler {
         return getUserSettings(recipientUser)
             .flatMap(resolvedSettings ->
                 Mono.fromCallable(() -> messageGeneratorFactory.forLocalizedFeature(new Language(resolvedSettings.locale()), templateType))
-                    .subscribeOn(Schedulers.boundedElastic())
+                    .subscribeOn(CalendarSchedulers.blocking())
                     .flatMap(messageGenerator ->
                         modelGenerator.apply(resolvedSettings, messageGenerator.getI18nTranslator())
                             .flatMap(model -> sendMessage(recipientUser, recipient, messageGenerator, model))));
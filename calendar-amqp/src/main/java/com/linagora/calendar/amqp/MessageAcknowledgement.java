@@ -0,0 +1,48 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.amqp;
+
+import reactor.rabbitmq.AcknowledgableDelivery;
+
+/**
+ * Outcome of the processing of a message, decoupled from the delivery it was consumed from.
+ */
+public interface MessageAcknowledgement {
+
+    static MessageAcknowledgement of(AcknowledgableDelivery delivery) {
+        return new MessageAcknowledgement() {
+            @Override
+            public void ack() {
+                delivery.ack();
+            }
+
+            @Override
+            public void reject() {
+                delivery.nack(false);
+            }
+        };
+    }
+
+    void ack();
+
+    /**
+     * The message could not be processed and should end up in the dead letter queue.
+     */
+    void reject();
+}
@@ -0,0 +1,108 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.amqp;
+
+import java.nio.charset.StandardCharsets;
+
+import jakarta.inject.Inject;
+
+import org.apache.james.metrics.api.Metric;
+import org.apache.james.metrics.api.MetricFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.Hashing;
+import com.linagora.calendar.storage.ProcessedMessageCache;
+import com.linagora.calendar.storage.configuration.MessageDeduplicationConfiguration;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Drops exact repeats of the sabre messages: a message is a duplicate when it is identical to the last message
+ * successfully processed for the same event by the same consumer, within the configured window.
+ *
+ * Comparing against the last processed message only, rather than against every message seen, keeps a change that
+ * is reverted (A, B, then A again) from being dropped.
+ */
+public class MessageDeduplicator {
+
+    public record Fingerprint(String key, String value) {
+    }
+
+    public static final String SKIPPED_METRIC_NAME = "calendar.amqp.deduplication.skipped";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageDeduplicator.class);
+
+    private final ProcessedMessageCache processedMessageCache;
+    private final MessageDeduplicationConfiguration configuration;
+    private final Metric skippedMetric;
+
+    @Inject
+    public MessageDeduplicator(ProcessedMessageCache processedMessageCache,
+                               MessageDeduplicationConfiguration configuration,
+                               MetricFactory metricFactory) {
+        this.processedMessageCache = processedMessageCache;
+        this.configuration = configuration;
+        this.skippedMetric = metricFactory.generate(SKIPPED_METRIC_NAME);
+    }
+
+    public Fingerprint fingerprint(String consumer, String queue, String eventPath, byte[] body) {
+        String value = Hashing.sha256().newHasher()
+            .putString(queue, StandardCharsets.UTF_8)
+            .putBytes(body)
+            .hash()
+            .toString();
+        return new Fingerprint(consumer + ":" + eventPath, value);
+    }
+
+    public Mono<Boolean> isDuplicate(Fingerprint fingerprint) {
+        if (!configuration.enabled()) {
+            return Mono.just(false);
+        }
+        return processedMessageCache.lastFingerprint(fingerprint.key())
+            .map(fingerprint.value()::equals)
+            .defaultIfEmpty(false)
+            .doOnNext(duplicate -> {
+                if (duplicate) {
+                    LOGGER.debug("Skipping duplicated message for {}", fingerprint.key());
+                    skippedMetric.increment();
+                }
+            });
+    }
+
+    public Mono<Void> markProcessed(Fingerprint fingerprint) {
+        if (!configuration.enabled()) {
+            return Mono.empty();
+        }
+        return processedMessageCache.recordFingerprint(fingerprint.key(), fingerprint.value());
+    }
+
+    /**
+     * Runs the processing unless the message is a duplicate, and remembers the message once processed successfully.
+     */
+    public Mono<Void> processOnce(Fingerprint fingerprint, Mono<?> processing) {
+        return isDuplicate(fingerprint)
+            .flatMap(duplicate -> {
+                if (duplicate) {
+                    return Mono.empty();
+                }
+                return processing.then(markProcessed(fingerprint));
+            });
+    }
+}
@@ -0,0 +1,176 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.amqp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+public class AdaptiveConcurrencyLimiterTest {
+    private static final Duration LONG_THRESHOLD = Duration.ofMinutes(1);
+
+    @Test
+    void limitShouldBoundConcurrentProcessing() {
+        AdaptiveConcurrencyLimiter testee = new AdaptiveConcurrencyLimiter(1, 2, 2, LONG_THRESHOLD);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        Flux.range(0, 20)
+            .flatMap(i -> testee.limit(Mono.fromRunnable(() -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                .then(Mono.delay(Duration.ofMillis(10)))
+                .doFinally(signal -> inFlight.decrementAndGet())), 20)
+            .blockLast();
+
+        assertThat(maxInFlight.get()).isEqualTo(2);
+    }
+
+    @Test
+    void limitShouldIncreaseWhenSaturatedAndFast() {
+        AdaptiveConcurrencyLimiter testee = new AdaptiveConcurrencyLimiter(1, 10, 1, LONG_THRESHOLD);
+
+        Flux.range(0, 100)
+            .flatMap(i -> testee.limit(Mono.delay(Duration.ofMillis(1))), 10)
+            .blockLast();
+
+        assertThat(testee.currentLimit()).isGreaterThan(1);
+    }
+
+    @Test
+    void limitShouldNotExceedMaxLimit() {
+        AdaptiveConcurrencyLimiter testee = new AdaptiveConcurrencyLimiter(1, 3, 3, LONG_THRESHOLD);
+
+        Flux.range(0, 100)
+            .flatMap(i -> testee.limit(Mono.delay(Duration.ofMillis(1))), 10)
+            .blockLast();
+
+        assertThat(testee.currentLimit()).isEqualTo(3);
+    }
+
+    @Test
+    void limitShouldDecreaseOnError() {
+        AdaptiveConcurrencyLimiter testee = new AdaptiveConcurrencyLimiter(1, 20, 10, LONG_THRESHOLD);
+
+        assertThatThrownBy(() -> testee.limit(Mono.error(new RuntimeException("boom"))).block())
+            .isInstanceOf(RuntimeException.class);
+
+        assertThat(testee.currentLimit()).isEqualTo((int) (10 * AdaptiveConcurrencyLimiter.DECREASE_FACTOR));
+    }
+
+    @Test
+    void limitShouldDecreaseAtMostOncePerLatencyThreshold() {
+        AdaptiveConcurrencyLimiter testee = new AdaptiveConcurrencyLimiter(1, 20, 10, LONG_THRESHOLD);
+
+        testee.limit(Mono.error(new RuntimeException("boom"))).onErrorResume(e -> Mono.empty()).block();
+        testee.limit(Mono.error(new RuntimeException("boom"))).onErrorResume(e -> Mono.empty()).block();
+
+        assertThat(testee.currentLimit()).isEqualTo((int) (10 * AdaptiveConcurrencyLimiter.DECREASE_FACTOR));
+    }
+
+    @Test
+    void limitShouldDecreaseWhenProcessingIsSlow() {
+        AdaptiveConcurrencyLimiter testee = new AdaptiveConcurrencyLimiter(1, 20, 10, Duration.ofMillis(10));
+
+        testee.limit(Mono.delay(Duration.ofMillis(50))).block();
+
+        assertThat(testee.currentLimit()).isEqualTo((int) (10 * AdaptiveConcurrencyLimiter.DECREASE_FACTOR));
+    }
+
+    @Test
+    void limitShouldNotGoBelowMinLimit() {
+        AdaptiveConcurrencyLimiter testee = new AdaptiveConcurrencyLimiter(5, 20, 5, Duration.ZERO);
+
+        Flux.range(0, 10)
+            .concatMap(i -> testee.limit(Mono.error(new RuntimeException("boom"))).onErrorResume(e -> Mono.empty()))
+            .blockLast();
+
+        assertThat(testee.currentLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void limitShouldReleasePermitOnCancellation() {
+        AdaptiveConcurrencyLimiter testee = new AdaptiveConcurrencyLimiter(1, 1, 1, LONG_THRESHOLD);
+
+        testee.limit(Mono.never()).timeout(Duration.ofMillis(50), Mono.empty()).block();
+
+        assertThat(testee.limit(Mono.just("done")).block(Duration.ofSeconds(5))).isEqualTo("done");
+    }
+
+    @Test
+    void limitShouldReleasePermitOfWaiterCancelledWhileWaiting() {
+        AdaptiveConcurrencyLimiter testee = new AdaptiveConcurrencyLimiter(1, 1, 1, LONG_THRESHOLD);
+        Sinks.Empty<Void> holder = Sinks.empty();
+        testee.limit(holder.asMono()).subscribe();
+
+        testee.limit(Mono.just("never")).subscribe().dispose();
+        holder.tryEmitEmpty();
+
+        assertThat(testee.limit(Mono.just("done")).block(Duration.ofSeconds(5))).isEqualTo("done");
+    }
+
+    @Test
+    void limitShouldNotLeakPermitWhenWaiterIsCancelledWhileBeingGranted() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                AdaptiveConcurrencyLimiter testee = new AdaptiveConcurrencyLimiter(1, 1, 1, LONG_THRESHOLD);
+                Sinks.Empty<Void> holder = Sinks.empty();
+                testee.limit(holder.asMono()).subscribe();
+                Disposable waiter = testee.limit(Mono.never()).subscribe();
+                CyclicBarrier barrier = new CyclicBarrier(2);
+
+                Future<?> grant = executor.submit(() -> {
+                    await(barrier);
+                    holder.tryEmitEmpty();
+                });
+                Future<?> cancel = executor.submit(() -> {
+                    await(barrier);
+                    waiter.dispose();
+                });
+                grant.get(5, TimeUnit.SECONDS);
+                cancel.get(5, TimeUnit.SECONDS);
+
+                assertThat(testee.limit(Mono.just("done")).block(Duration.ofSeconds(5))).isEqualTo("done");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
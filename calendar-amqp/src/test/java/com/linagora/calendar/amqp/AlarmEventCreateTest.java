@@ -73,9 +73,12 @@ import com.linagora.calendar.dav.DockerSabreDavSetup;
 import com.linagora.calendar.dav.SabreDavExtension;
 import com.linagora.calendar.storage.AlarmEvent;
 import com.linagora.calendar.storage.AlarmEventDAO;
+import com.linagora.calendar.storage.CaffeineProcessedMessageCache;
 import com.linagora.calendar.storage.MemoryAlarmEventDAO;
 import com.linagora.calendar.storage.OpenPaaSUser;
 import com.linagora.calendar.storage.OpenPaaSUserDAO;
+import com.linagora.calendar.storage.UpcomingAlarmRegistry;
+import com.linagora.calendar.storage.configuration.MessageDeduplicationConfiguration;
 import com.linagora.calendar.storage.configuration.resolver.SettingsBasedResolver;
 import com.linagora.calendar.storage.event.AlarmInstantFactory;
 import com.linagora.calendar.storage.event.EventParseUtils;
@@ -184,11 +187,16 @@ public class AlarmEventCreateTest {
             calDavClient,
             openPaaSUserDAO,
             settingsResolver,
-            eventEmailFilter);
+            eventEmailFilter,
+            UpcomingAlarmRegistry.NOOP);
 
         EventAlarmConsumer consumer = new EventAlarmConsumer(channelPool,
             QueueArguments.Builder::new,
-            eventAlarmHandler);
+            eventAlarmHandler,
+            new MessageDeduplicator(new CaffeineProcessedMessageCache(MessageDeduplicationConfiguration.DEFAULT),
+                MessageDeduplicationConfiguration.DEFAULT, new RecordingMetricFactory()),
+            new AdaptiveConcurrency(new NoopGaugeRegistry()),
+            new ConsumerMetrics(new RecordingMetricFactory(), new NoopGaugeRegistry()));
         consumer.init();
 
         sender = channelPool.getSender();
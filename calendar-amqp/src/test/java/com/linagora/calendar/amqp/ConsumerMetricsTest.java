@@ -0,0 +1,144 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.amqp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.james.metrics.api.NoopGaugeRegistry;
+import org.apache.james.metrics.tests.RecordingMetricFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ConsumerMetricsTest {
+    private static final String QUEUE = "tcalendar:event:created";
+    private static final String METRIC_PREFIX = "calendar.amqp.consumer.tcalendar.event.created.";
+
+    private RecordingMetricFactory metricFactory;
+    private ConsumerMetrics.QueueMetrics testee;
+    private AtomicInteger acks;
+    private AtomicInteger rejects;
+    private MessageAcknowledgement delegate;
+
+    @BeforeEach
+    void setUp() {
+        metricFactory = new RecordingMetricFactory();
+        testee = new ConsumerMetrics(metricFactory, new NoopGaugeRegistry()).forQueue(QUEUE);
+        acks = new AtomicInteger();
+        rejects = new AtomicInteger();
+        delegate = new MessageAcknowledgement() {
+            @Override
+            public void ack() {
+                acks.incrementAndGet();
+            }
+
+            @Override
+            public void reject() {
+                rejects.incrementAndGet();
+            }
+        };
+    }
+
+    @Test
+    void ackShouldBeCountedAndDelegated() {
+        testee.track(delegate).ack();
+
+        assertThat(metricFactory.countFor(METRIC_PREFIX + "ack")).isEqualTo(1);
+        assertThat(metricFactory.countFor(METRIC_PREFIX + "nack")).isZero();
+        assertThat(acks.get()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectShouldBeCountedAndDelegated() {
+        testee.track(delegate).reject();
+
+        assertThat(metricFactory.countFor(METRIC_PREFIX + "nack")).isEqualTo(1);
+        assertThat(metricFactory.countFor(METRIC_PREFIX + "ack")).isZero();
+        assertThat(rejects.get()).isEqualTo(1);
+    }
+
+    @Test
+    void acknowledgementShouldRecordLatency() {
+        testee.track(delegate).ack();
+
+        assertThat(metricFactory.executionTimesFor(METRIC_PREFIX + "latency")).hasSize(1);
+    }
+
+    @Test
+    void onlyTheFirstOutcomeShouldBeRecorded() {
+        MessageAcknowledgement acknowledgement = testee.track(delegate);
+
+        acknowledgement.reject();
+        acknowledgement.ack();
+
+        assertThat(metricFactory.countFor(METRIC_PREFIX + "nack")).isEqualTo(1);
+        assertThat(metricFactory.countFor(METRIC_PREFIX + "ack")).isZero();
+        assertThat(metricFactory.executionTimesFor(METRIC_PREFIX + "latency")).hasSize(1);
+    }
+
+    @Test
+    void onlyTheFirstOutcomeShouldBeDelegated() {
+        MessageAcknowledgement acknowledgement = testee.track(delegate);
+
+        acknowledgement.ack();
+        acknowledgement.reject();
+        acknowledgement.ack();
+
+        assertThat(acks.get()).isEqualTo(1);
+        assertThat(rejects.get()).isZero();
+    }
+
+    @Test
+    void inFlightShouldCountUnacknowledgedDeliveries() {
+        MessageAcknowledgement first = testee.track(delegate);
+        testee.track(delegate);
+
+        first.ack();
+
+        assertThat(testee.inFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void consumerStartedShouldForgetDeliveriesOfThePreviousConsumer() {
+        testee.track(delegate);
+        MessageAcknowledgement lateAcknowledgement = testee.track(delegate);
+
+        testee.consumerStarted();
+        testee.track(delegate);
+        lateAcknowledgement.ack();
+
+        assertThat(testee.inFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void forQueueShouldReturnTheSameMetricsForTheSameQueue() {
+        ConsumerMetrics consumerMetrics = new ConsumerMetrics(metricFactory, new NoopGaugeRegistry());
+
+        assertThat(consumerMetrics.forQueue(QUEUE)).isSameAs(consumerMetrics.forQueue(QUEUE));
+    }
+
+    @Test
+    void recordDeadLetterShouldBeCounted() {
+        testee.recordDeadLetter();
+        testee.recordDeadLetter();
+
+        assertThat(metricFactory.countFor(METRIC_PREFIX + "deadletter")).isEqualTo(2);
+    }
+}
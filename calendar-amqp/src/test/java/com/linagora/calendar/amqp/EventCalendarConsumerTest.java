@@ -114,7 +114,8 @@ public class EventCalendarConsumerTest {
         OpenPaaSUserDAO openPaaSUserDAO = new MongoDBOpenPaaSUserDAO(mongoDB, domainDAO);
 
         consumer = new EventCalendarConsumer(channelPool, QueueArguments.Builder::new,
-            new EventCalendarHandler(openPaaSUserDAO, calDavClient, defaultCalendarPublicVisibilityEnabled));
+            new EventCalendarHandler(openPaaSUserDAO, calDavClient, defaultCalendarPublicVisibilityEnabled),
+            new AdaptiveConcurrency(new NoopGaugeRegistry()), new ConsumerMetrics(new RecordingMetricFactory(), new NoopGaugeRegistry()));
         consumer.init();
     }
 
@@ -120,7 +120,8 @@ public class EventCalendarNotificationConsumerTest {
     @BeforeEach
     void setUp() throws SSLException {
         eventBus = new InVMEventBus(new InVmEventDelivery(new RecordingMetricFactory()), RETRY_BACKOFF_CONFIGURATION, new MemoryEventDeadLetters());
-        consumer = new EventCalendarNotificationConsumer(channelPool, QueueArguments.Builder::new, eventBus);
+        consumer = new EventCalendarNotificationConsumer(channelPool, QueueArguments.Builder::new, eventBus,
+            new ConsumerMetrics(new RecordingMetricFactory(), new NoopGaugeRegistry()));
         consumer.init();
     }
 
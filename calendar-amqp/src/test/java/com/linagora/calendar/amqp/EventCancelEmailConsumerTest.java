@@ -229,7 +229,7 @@ public class EventCancelEmailConsumerTest {
             settingsResolver, actionLinkFactory);
 
         EventEmailConsumer consumer = new EventEmailConsumer(channelPool, QueueArguments.Builder::new, mailHandler,
-            eventEmailFilter, new RecordingMetricFactory());
+            eventEmailFilter, new RecordingMetricFactory(), new ConsumerMetrics(new RecordingMetricFactory(), new NoopGaugeRegistry()));
         consumer.init();
 
         sender = channelPool.getSender();
@@ -0,0 +1,272 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.amqp;
+
+import static com.linagora.calendar.storage.TestFixture.TECHNICAL_TOKEN_SERVICE_TESTING;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.apache.james.backends.rabbitmq.QueueArguments;
+import org.apache.james.backends.rabbitmq.RabbitMQConfiguration;
+import org.apache.james.backends.rabbitmq.RabbitMQConnectionFactory;
+import org.apache.james.backends.rabbitmq.ReactorRabbitMQChannelPool;
+import org.apache.james.backends.rabbitmq.SimpleConnectionPool;
+import org.apache.james.core.Username;
+import org.apache.james.events.EventBus;
+import org.apache.james.events.InVMEventBus;
+import org.apache.james.events.MemoryEventDeadLetters;
+import org.apache.james.events.RetryBackoffConfiguration;
+import org.apache.james.events.delivery.InVmEventDelivery;
+import org.apache.james.metrics.api.NoopGaugeRegistry;
+import org.apache.james.metrics.tests.RecordingMetricFactory;
+import org.apache.james.vacation.api.AccountId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.Mockito;
+import org.testcontainers.shaded.org.awaitility.Awaitility;
+import org.testcontainers.shaded.org.awaitility.core.ConditionFactory;
+
+import com.linagora.calendar.dav.DavTestHelper;
+import com.linagora.calendar.dav.DockerSabreDavSetup;
+import com.linagora.calendar.dav.SabreDavExtension;
+import com.linagora.calendar.storage.CaffeineProcessedMessageCache;
+import com.linagora.calendar.storage.CalendarChangeEvent;
+import com.linagora.calendar.storage.CalendarURL;
+import com.linagora.calendar.storage.CalendarURLRegistrationKey;
+import com.linagora.calendar.storage.OpenPaaSUser;
+import com.linagora.calendar.storage.OpenPaaSUserDAO;
+import com.linagora.calendar.storage.configuration.MessageDeduplicationConfiguration;
+import com.linagora.calendar.storage.eventsearch.CalendarSearchService;
+import com.linagora.calendar.storage.eventsearch.EventSearchQuery;
+import com.linagora.calendar.storage.eventsearch.MemoryCalendarSearchService;
+import com.linagora.calendar.storage.mongodb.MongoDBOpenPaaSDomainDAO;
+import com.linagora.calendar.storage.mongodb.MongoDBOpenPaaSUserDAO;
+import com.linagora.calendar.storage.mongodb.MongoDBResourceDAO;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import com.rabbitmq.client.Channel;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.rabbitmq.QueueSpecification;
+import reactor.rabbitmq.Sender;
+
+public class EventFanOutConsumerTest {
+    private final ConditionFactory calmlyAwait = Awaitility.with()
+        .pollInterval(Duration.ofMillis(500))
+        .and()
+        .with()
+        .pollDelay(Duration.ofMillis(500))
+        .await();
+    private final ConditionFactory awaitAtMost = calmlyAwait.atMost(30, TimeUnit.SECONDS);
+
+    private static final RetryBackoffConfiguration RETRY_BACKOFF_CONFIGURATION = RetryBackoffConfiguration.builder()
+        .maxRetries(3)
+        .firstBackoff(Duration.ofMillis(5))
+        .jitterFactor(0.5)
+        .build();
+
+    @RegisterExtension
+    static SabreDavExtension sabreDavExtension = new SabreDavExtension(DockerSabreDavSetup.SINGLETON);
+
+    private static ReactorRabbitMQChannelPool channelPool;
+    private static SimpleConnectionPool connectionPool;
+    private static Channel channel;
+    private static DavTestHelper davTestHelper;
+
+    @BeforeAll
+    static void beforeAll(DockerSabreDavSetup dockerSabreDavSetup) throws Exception {
+        RabbitMQConfiguration rabbitMQConfiguration = dockerSabreDavSetup.rabbitMQConfiguration();
+
+        RabbitMQConnectionFactory connectionFactory = new RabbitMQConnectionFactory(rabbitMQConfiguration);
+        connectionPool = new SimpleConnectionPool(connectionFactory,
+            SimpleConnectionPool.Configuration.builder()
+                .retries(2)
+                .initialDelay(Duration.ofMillis(5)));
+        channelPool = new ReactorRabbitMQChannelPool(connectionPool.getResilientConnection(),
+            ReactorRabbitMQChannelPool.Configuration.builder()
+                .retries(2)
+                .maxBorrowDelay(Duration.ofMillis(250))
+                .maxChannel(10),
+            new RecordingMetricFactory(),
+            new NoopGaugeRegistry());
+        channelPool.start();
+        channel = connectionPool.getResilientConnection().block().createChannel();
+
+        davTestHelper = new DavTestHelper(dockerSabreDavSetup.davConfiguration(), TECHNICAL_TOKEN_SERVICE_TESTING);
+    }
+
+    @AfterAll
+    static void afterAll() {
+        channelPool.close();
+        connectionPool.close();
+    }
+
+    private OpenPaaSUser openPaasUser;
+    private CalendarSearchService calendarSearchService;
+    private EventBus eventBus;
+    private RecordingMetricFactory metricFactory;
+    private EventIndexerConsumer eventIndexerConsumer;
+    private EventCalendarNotificationConsumer eventCalendarNotificationConsumer;
+    private EventFanOutConsumer eventFanOutConsumer;
+    private Sender sender;
+
+    @BeforeEach
+    void setUp(DockerSabreDavSetup dockerSabreDavSetup) {
+        openPaasUser = sabreDavExtension.newTestUser();
+        calendarSearchService = Mockito.spy(new MemoryCalendarSearchService());
+        eventBus = new InVMEventBus(new InVmEventDelivery(new RecordingMetricFactory()), RETRY_BACKOFF_CONFIGURATION, new MemoryEventDeadLetters());
+        metricFactory = new RecordingMetricFactory();
+
+        MongoDatabase mongoDB = dockerSabreDavSetup.getMongoDB();
+        OpenPaaSUserDAO openPaaSUserDAO = new MongoDBOpenPaaSUserDAO(mongoDB, new MongoDBOpenPaaSDomainDAO(mongoDB));
+        MessageDeduplicator messageDeduplicator = new MessageDeduplicator(new CaffeineProcessedMessageCache(MessageDeduplicationConfiguration.DEFAULT),
+            MessageDeduplicationConfiguration.DEFAULT, metricFactory);
+
+        eventIndexerConsumer = new EventIndexerConsumer(channelPool, calendarSearchService, openPaaSUserDAO,
+            QueueArguments.Builder::new, new MongoDBResourceDAO(mongoDB, Clock.systemUTC()), metricFactory, messageDeduplicator,
+            new ConsumerMetrics(metricFactory, new NoopGaugeRegistry()));
+        eventIndexerConsumer.initForFanOut();
+        eventCalendarNotificationConsumer = new EventCalendarNotificationConsumer(channelPool, QueueArguments.Builder::new, eventBus,
+            new ConsumerMetrics(metricFactory, new NoopGaugeRegistry()));
+        eventCalendarNotificationConsumer.initForFanOut();
+        eventFanOutConsumer = new EventFanOutConsumer(channelPool, QueueArguments.Builder::new,
+            eventIndexerConsumer, eventCalendarNotificationConsumer, metricFactory,
+            new ConsumerMetrics(metricFactory, new NoopGaugeRegistry()), true);
+        eventFanOutConsumer.init();
+
+        sender = channelPool.getSender();
+    }
+
+    @AfterEach
+    void afterEach() throws Exception {
+        eventFanOutConsumer.close();
+        eventIndexerConsumer.close();
+        eventCalendarNotificationConsumer.close();
+
+        Arrays.stream(EventFanOutConsumer.Queue.values())
+            .map(EventFanOutConsumer.Queue::queueName)
+            .forEach(queueName -> sender.delete(QueueSpecification.queue().name(queueName))
+                .block());
+        for (EventIndexerConsumer.Queue queue : EventIndexerConsumer.Queue.values()) {
+            channel.queuePurge(queue.deadLetter());
+        }
+    }
+
+    @Test
+    void shouldIndexAndNotifyCreatedEvents() {
+        AtomicBoolean notified = listenCalendarChanges();
+
+        String eventUid = UUID.randomUUID().toString();
+        davTestHelper.upsertCalendar(openPaasUser, getSampleCalendar(eventUid), eventUid);
+
+        awaitAtMost.untilAsserted(() -> assertThat(searchUids(openPaasUser.username(), "Test1")).containsExactly(eventUid));
+        awaitAtMost.untilAsserted(() -> assertThat(notified.get()).isTrue());
+    }
+
+    @Test
+    void shouldNotDeliverSabreMessagesToTheHandlerQueues() throws Exception {
+        String eventUid = UUID.randomUUID().toString();
+        davTestHelper.upsertCalendar(openPaasUser, getSampleCalendar(eventUid), eventUid);
+
+        awaitAtMost.untilAsserted(() -> assertThat(searchUids(openPaasUser.username(), "Test1")).containsExactly(eventUid));
+        assertThat(channel.queueDeclarePassive(EventIndexerConsumer.Queue.ADD.queueName()).getMessageCount()).isZero();
+        assertThat(channel.queueDeclarePassive(EventCalendarNotificationConsumer.Queue.ADD.queueName()).getMessageCount()).isZero();
+    }
+
+    @Test
+    void shouldStillNotifyWhenIndexingFails() {
+        Mockito.doReturn(Mono.error(new RuntimeException("mock exception")))
+            .when(calendarSearchService).index(any(), any());
+        Mockito.doReturn(Flux.error(new RuntimeException("mock exception")))
+            .when(calendarSearchService).indexAll(any());
+        AtomicBoolean notified = listenCalendarChanges();
+
+        String eventUid = UUID.randomUUID().toString();
+        davTestHelper.upsertCalendar(openPaasUser, getSampleCalendar(eventUid), eventUid);
+
+        awaitAtMost.untilAsserted(() -> assertThat(notified.get()).isTrue());
+        awaitAtMost.untilAsserted(() -> assertThat(metricFactory.countFor("calendar.event.fanout.failed.indexer")).isEqualTo(1));
+    }
+
+    @Test
+    void shouldMoveMessagesFailingToBeIndexedToTheIndexerDeadLetterQueue() throws Exception {
+        Mockito.doReturn(Mono.error(new RuntimeException("mock exception")))
+            .when(calendarSearchService).index(any(), any());
+        Mockito.doReturn(Flux.error(new RuntimeException("mock exception")))
+            .when(calendarSearchService).indexAll(any());
+
+        String eventUid = UUID.randomUUID().toString();
+        davTestHelper.upsertCalendar(openPaasUser, getSampleCalendar(eventUid), eventUid);
+
+        awaitAtMost.untilAsserted(() -> assertThat(channel.queueDeclarePassive(EventIndexerConsumer.Queue.ADD.deadLetter()).getMessageCount()).isEqualTo(1));
+        assertThat(channel.queueDeclarePassive(EventFanOutConsumer.Queue.ADD.deadLetter()).getMessageCount()).isZero();
+    }
+
+    private AtomicBoolean listenCalendarChanges() {
+        CalendarURL calendarURL = new CalendarURL(openPaasUser.id(), openPaasUser.id());
+        AtomicBoolean notified = new AtomicBoolean(false);
+        Mono.from(eventBus.register(event -> {
+            if (event instanceof CalendarChangeEvent) {
+                notified.set(true);
+            }
+        }, new CalendarURLRegistrationKey(calendarURL))).block();
+        return notified;
+    }
+
+    private Set<String> searchUids(Username username, String query) {
+        return Flux.from(calendarSearchService.search(AccountId.fromUsername(username), new EventSearchQuery(query, Optional.empty(),
+                Optional.empty(), Optional.empty(), EventSearchQuery.MAX_LIMIT, 0)))
+            .map(e -> e.uid().value())
+            .collect(Collectors.toSet())
+            .block();
+    }
+
+    private String getSampleCalendar(String eventUid) {
+        return """
+            BEGIN:VCALENDAR
+            VERSION:2.0
+            PRODID:-//Sabre//Sabre VObject 4.2.2//EN
+            BEGIN:VEVENT
+            UID:{eventUid}
+            TRANSP:OPAQUE
+            DTSTART:20250314T140000Z
+            DTEND:20250314T150000Z
+            CLASS:PUBLIC
+            SUMMARY:Test1
+            ORGANIZER;CN=John1 Doe1:mailto:{organizer}
+            END:VEVENT
+            END:VCALENDAR
+            """.replace("{eventUid}", eventUid)
+            .replace("{organizer}", openPaasUser.username().asString());
+    }
+}
@@ -23,12 +23,16 @@ import static org.assertj.core.api.SoftAssertions.assertSoftly;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 import jakarta.mail.internet.AddressException;
 
+import org.apache.james.util.ClassLoaderUtils;
 import org.junit.jupiter.api.Test;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.github.fge.lambdas.Throwing;
 import com.linagora.calendar.storage.CalendarURL;
 import com.linagora.calendar.storage.OpenPaaSId;
@@ -1584,4 +1588,38 @@ public class EventFieldConverterTest {
 
         assertThat(eventFieldsActual).isEqualTo(eventFieldsExpected);
     }
-}
\ No newline at end of file
+
+    @Test
+    void extractEventIdentifiersShouldReturnUidAndRecurrenceIdOfEachVEvent() {
+        CalendarEventMessage.CreatedOrUpdated message = CalendarEventMessage.CreatedOrUpdated.deserialize(recurringEventUpdatedMessage());
+
+        EventUid eventUid = new EventUid("87d9d3ab-e2f5-4613-8e9c-dbc11afa69e6");
+        assertThat(EventFieldConverter.extractEventIdentifiers(message.calendarEvent))
+            .containsExactly(new EventIdentifier(eventUid, Optional.empty()),
+                new EventIdentifier(eventUid, Optional.of("2025-05-29T04:00:00Z")));
+    }
+
+    @Test
+    void extractEventIdentifiersShouldMatchFullDeserialization() {
+        CalendarEventMessage.CreatedOrUpdated message = CalendarEventMessage.CreatedOrUpdated.deserialize(recurringEventUpdatedMessage());
+
+        List<EventIdentifier> expected = message.extractCalendarEvents().events().stream()
+            .map(event -> new EventIdentifier(event.uid(), event.recurrenceId()))
+            .toList();
+        assertThat(EventFieldConverter.extractEventIdentifiers(message.calendarEvent))
+            .containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    @Test
+    void extractEventIdentifiersShouldIgnoreVEventWithoutUid() {
+        JsonNode calendarEvent = Throwing.supplier(() -> CalendarEventMessage.MAPPER.readTree("""
+            ["vcalendar", [], [["vevent", [["summary", {}, "text", "No uid"]], []]]]
+            """)).get();
+
+        assertThat(EventFieldConverter.extractEventIdentifiers(calendarEvent)).isEmpty();
+    }
+
+    private static byte[] recurringEventUpdatedMessage() {
+        return ClassLoaderUtils.getSystemResourceAsByteArray("recurring-event-updated-message.json");
+    }
+}
@@ -124,7 +124,8 @@ public class EventITIPConsumerTest {
             Optional.empty(),
             Optional.empty());
         CalDavClient calDavClient = new CalDavClient(davConfiguration, TECHNICAL_TOKEN_SERVICE_TESTING);
-        consumer = new EventITIPConsumer(channelPool, QueueArguments.Builder::new, calDavClient, DEFAULT_ITIP_EVENT_MESSAGES_PREFETCH_COUNT);
+        consumer = new EventITIPConsumer(channelPool, QueueArguments.Builder::new, calDavClient, DEFAULT_ITIP_EVENT_MESSAGES_PREFETCH_COUNT,
+            new AdaptiveConcurrency(new NoopGaugeRegistry()), new ConsumerMetrics(new RecordingMetricFactory(), new NoopGaugeRegistry()));
         consumer.init();
     }
 
@@ -36,6 +36,7 @@ import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import jakarta.mail.internet.AddressException;
 
@@ -66,11 +67,13 @@ import org.testcontainers.shaded.org.awaitility.core.ConditionFactory;
 import com.linagora.calendar.dav.DavTestHelper;
 import com.linagora.calendar.dav.DockerSabreDavSetup;
 import com.linagora.calendar.dav.SabreDavExtension;
+import com.linagora.calendar.storage.CaffeineProcessedMessageCache;
 import com.linagora.calendar.storage.CalendarURL;
 import com.linagora.calendar.storage.OpenPaaSId;
 import com.linagora.calendar.storage.OpenPaaSUser;
 import com.linagora.calendar.storage.OpenPaaSUserDAO;
 import com.linagora.calendar.storage.ResourceDAO;
+import com.linagora.calendar.storage.configuration.MessageDeduplicationConfiguration;
 import com.linagora.calendar.storage.event.EventFields;
 import com.linagora.calendar.storage.eventsearch.CalendarSearchService;
 import com.linagora.calendar.storage.eventsearch.EventSearchQuery;
@@ -134,6 +137,7 @@ public class EventIndexerConsumerTest {
     private OpenPaaSUser attendee1;
     private OpenPaaSUser attendee2;
     private CalendarSearchService calendarSearchService;
+    private RecordingMetricFactory metricFactory;
     private Sender sender;
 
     @BeforeEach
@@ -148,8 +152,13 @@ public class EventIndexerConsumerTest {
         OpenPaaSUserDAO openPaaSUserDAO = new MongoDBOpenPaaSUserDAO(mongoDB, domainDAO);
         ResourceDAO resourceDAO = new MongoDBResourceDAO(mongoDB, Clock.systemUTC());
 
+        metricFactory = new RecordingMetricFactory();
+        MessageDeduplicator messageDeduplicator = new MessageDeduplicator(new CaffeineProcessedMessageCache(MessageDeduplicationConfiguration.DEFAULT),
+            MessageDeduplicationConfiguration.DEFAULT, metricFactory);
+
         EventIndexerConsumer calendarEventConsumer = new EventIndexerConsumer(channelPool, calendarSearchService, openPaaSUserDAO,
-            QueueArguments.Builder::new, resourceDAO, new RecordingMetricFactory());
+            QueueArguments.Builder::new, resourceDAO, metricFactory, messageDeduplicator,
+            new ConsumerMetrics(metricFactory, new NoopGaugeRegistry()));
         calendarEventConsumer.init();
 
         sender = channelPool.getSender();
@@ -175,6 +184,58 @@ public class EventIndexerConsumerTest {
         assertEventExistsInSearch(openPaasUser.username(), "Test1", eventUid);
     }
 
+    @Test
+    void shouldIndexCreatedEventsThroughBulkRequests() {
+        List<String> eventUids = IntStream.range(0, 5)
+            .mapToObj(i -> UUID.randomUUID().toString())
+            .toList();
+        eventUids.forEach(eventUid -> davTestHelper.upsertCalendar(openPaasUser, getSampleCalendar(eventUid), eventUid));
+
+        awaitAtMost.untilAsserted(() -> assertThat(
+            Flux.from(calendarSearchService.search(AccountId.fromUsername(openPaasUser.username()), simpleQuery("Test1")))
+                .map(e -> e.uid().value())
+                .collectList()
+                .block()).containsExactlyInAnyOrderElementsOf(eventUids));
+        Mockito.verify(calendarSearchService, Mockito.atLeastOnce()).indexAll(any());
+    }
+
+    @Test
+    void shouldApplyMessagesOfTheSameEventInOrder() {
+        String eventUid = UUID.randomUUID().toString();
+        String calendarData = getSampleCalendar(eventUid);
+        davTestHelper.upsertCalendar(openPaasUser, calendarData, eventUid);
+        IntStream.rangeClosed(2, 5)
+            .forEach(i -> davTestHelper.upsertCalendar(openPaasUser, calendarData.replace("Test1", "Test" + i), eventUid));
+        davTestHelper.deleteCalendar(openPaasUser, eventUid);
+
+        awaitAtMost.untilAsserted(() -> Mockito.verify(calendarSearchService, Mockito.atLeastOnce()).delete(any(), any()));
+        assertEventNotInSearch(openPaasUser.username(), "Test5", eventUid);
+    }
+
+    @Test
+    void shouldSkipDuplicatedMessages() {
+        String eventUid = UUID.randomUUID().toString();
+        String userId = openPaasUser.id().value();
+        String amqpMessage = """
+            {"eventPath":"/calendars/%s/%s/%s.ics","event":["vcalendar",[["version",{},"text","2.0"],["prodid",{},"text","-//Sabre//Sabre VObject 4.2.2//EN"]],[["vevent",[["uid",{},"text","%s"],["transp",{},"text","OPAQUE"],["dtstart",{},"date-time","2025-04-19T11:00:00Z"],["dtend",{},"date-time","2025-04-19T11:30:00Z"],["class",{},"text","PUBLIC"],["summary",{},"text","Duplicated"],["organizer",{},"cal-address","mailto:%s"],["dtstamp",{},"date-time","2025-04-18T07:47:48Z"]],[]]]],"import":false}""".formatted(userId, userId, eventUid, eventUid, openPaasUser.username().asString());
+
+        publishCreatedMessage(amqpMessage);
+        assertEventExistsInSearch(openPaasUser.username(), "Duplicated", eventUid);
+
+        publishCreatedMessage(amqpMessage);
+
+        awaitAtMost.untilAsserted(() -> assertThat(metricFactory.countFor(MessageDeduplicator.SKIPPED_METRIC_NAME)).isEqualTo(1));
+        Mockito.verify(calendarSearchService, Mockito.times(1)).indexAll(any());
+    }
+
+    private void publishCreatedMessage(String amqpMessage) {
+        channelPool.getSender()
+            .send(Mono.just(new OutboundMessage("calendar:event:created",
+                EMPTY_ROUTING_KEY,
+                amqpMessage.getBytes(UTF_8))))
+            .block();
+    }
+
     @Test
     void shouldIndexAllCalendarFields() throws AddressException {
         String eventUid = UUID.randomUUID().toString();
@@ -236,7 +236,7 @@ public class EventInviteEmailConsumerTest {
             settingsResolver, actionLinkFactory);
 
         EventEmailConsumer consumer = new EventEmailConsumer(channelPool, QueueArguments.Builder::new, mailHandler,
-            eventEmailFilter, new RecordingMetricFactory());
+            eventEmailFilter, new RecordingMetricFactory(), new ConsumerMetrics(new RecordingMetricFactory(), new NoopGaugeRegistry()));
         consumer.init();
 
         sender = channelPool.getSender();
@@ -363,6 +363,30 @@ public class EventInviteEmailConsumerTest {
         }));
     }
 
+    @Test
+    void shouldSendOneInviteEmailPerAttendee() {
+        OpenPaaSUser attendee2 = sabreDavExtension.newTestUser();
+
+        String eventUid = UUID.randomUUID().toString();
+        String initialCalendarData = generateCalendarData(
+            eventUid,
+            organizer.username().asString(),
+            attendee.username().asString(),
+            PartStat.NEEDS_ACTION)
+            .replace("END:VEVENT", "ATTENDEE;PARTSTAT=NEEDS-ACTION;CN=Second attendee:mailto:" + attendee2.username().asString() + "\nEND:VEVENT");
+        davTestHelper.upsertCalendar(organizer, initialCalendarData, eventUid);
+
+        awaitAtMost.atMost(Duration.ofSeconds(20))
+            .untilAsserted(() -> assertThat(smtpMailsResponseSupplier.get().getList("")).hasSize(2));
+
+        JsonPath smtpMailsResponse = smtpMailsResponseSupplier.get();
+
+        assertThat(smtpMailsResponse.getList("recipients.address.flatten()", String.class))
+            .containsExactlyInAnyOrder(attendee.username().asString(), attendee2.username().asString());
+        assertThat(smtpMailsResponse.getList("message", String.class))
+            .allSatisfy(message -> assertThat(message).contains("Subject: New event from Van Tung TRAN: Twake Calendar - Sprint planning #04"));
+    }
+
     private String getHtml(JsonPath smtpMailsResponse) {
         String rawMessage = smtpMailsResponse.getString("[0].message");
         Pattern htmlPattern = Pattern.compile(
@@ -242,7 +242,8 @@ public class EventResourceConsumerTest {
             jwtSigner,
             calDavEventRepository);
 
-        consumer = new EventResourceConsumer(channelPool, QueueArguments.Builder::new, eventResourceHandler);
+        consumer = new EventResourceConsumer(channelPool, QueueArguments.Builder::new, eventResourceHandler,
+            new AdaptiveConcurrency(new NoopGaugeRegistry()), new ConsumerMetrics(new RecordingMetricFactory(), new NoopGaugeRegistry()));
         consumer.init();
 
         sender = channelPool.getSender();
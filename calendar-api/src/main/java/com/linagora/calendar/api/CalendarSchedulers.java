@@ -0,0 +1,76 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.api;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Suppliers;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Scheduler of the blocking work: ICS parsing, template rendering, SMTP exchanges, LDAP binds and searches, image
+ * generation...
+ *
+ * The `calendar.scheduler.blocking` system property selects it: `bounded-elastic` (default) is the Reactor bounded
+ * elastic scheduler, whose thread count caps the concurrency of the blocking work, while `virtual-threads` runs every
+ * task on its own virtual thread.
+ */
+public class CalendarSchedulers {
+    public enum BlockingMode {
+        BOUNDED_ELASTIC("bounded-elastic"),
+        VIRTUAL_THREADS("virtual-threads");
+
+        public static BlockingMode parse(String value) {
+            return Arrays.stream(values())
+                .filter(mode -> mode.value.equalsIgnoreCase(value.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported blocking scheduler '" + value + "', expecting one of "
+                    + Arrays.stream(values()).map(mode -> mode.value).toList()));
+        }
+
+        private final String value;
+
+        BlockingMode(String value) {
+            this.value = value;
+        }
+    }
+
+    public static final BlockingMode BLOCKING_MODE = BlockingMode.parse(System.getProperty("calendar.scheduler.blocking", "bounded-elastic"));
+
+    private static final Supplier<Scheduler> VIRTUAL_THREADS = Suppliers.memoize(() ->
+        Schedulers.fromExecutorService(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("calendar-blocking-", 0).factory()),
+            "calendar-blocking"));
+
+    public static Scheduler blocking() {
+        return blocking(BLOCKING_MODE);
+    }
+
+    @VisibleForTesting
+    static Scheduler blocking(BlockingMode mode) {
+        return switch (mode) {
+            case BOUNDED_ELASTIC -> Schedulers.boundedElastic();
+            case VIRTUAL_THREADS -> VIRTUAL_THREADS.get();
+        };
+    }
+}
@@ -0,0 +1,61 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import com.linagora.calendar.api.CalendarSchedulers.BlockingMode;
+
+import reactor.core.publisher.Mono;
+
+public class CalendarSchedulersTest {
+
+    @Test
+    void parseShouldAcceptKnownModes() {
+        assertThat(BlockingMode.parse("bounded-elastic")).isEqualTo(BlockingMode.BOUNDED_ELASTIC);
+        assertThat(BlockingMode.parse(" Virtual-Threads ")).isEqualTo(BlockingMode.VIRTUAL_THREADS);
+    }
+
+    @Test
+    void parseShouldRejectUnknownModes() {
+        assertThatThrownBy(() -> BlockingMode.parse("parallel"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void boundedElasticModeShouldRunOnPlatformThreads() {
+        Boolean isVirtual = Mono.fromCallable(() -> Thread.currentThread().isVirtual())
+            .subscribeOn(CalendarSchedulers.blocking(BlockingMode.BOUNDED_ELASTIC))
+            .block();
+
+        assertThat(isVirtual).isFalse();
+    }
+
+    @Test
+    void virtualThreadsModeShouldRunOnVirtualThreads() {
+        Boolean isVirtual = Mono.fromCallable(() -> Thread.currentThread().isVirtual())
+            .subscribeOn(CalendarSchedulers.blocking(BlockingMode.VIRTUAL_THREADS))
+            .block();
+
+        assertThat(isVirtual).isTrue();
+    }
+}
@@ -1157,6 +1157,110 @@ public class AlarmInstantFactoryTest {
                 .isEmpty();
         }
 
+        @Test
+        void shouldFindAlarmTriggeredLongBeforeADistantOccurrence() {
+            String ics = """
+                BEGIN:VCALENDAR
+                VERSION:2.0
+                BEGIN:VEVENT
+                UID:weekly-long-lead
+                DTSTART:20250829T100000Z
+                DTEND:20250829T110000Z
+                RRULE:FREQ=WEEKLY
+                ATTENDEE;CN=Bob;PARTSTAT=ACCEPTED:mailto:bob@example.com
+                SUMMARY:Weekly sync
+                BEGIN:VALARM
+                ACTION:EMAIL
+                TRIGGER:-P40D
+                END:VALARM
+                END:VEVENT
+                END:VCALENDAR
+                """;
+
+            Optional<AlarmInstant> result = testee(Instant.parse("2025-08-28T00:00:00Z"))
+                .computeNextAlarmInstant(CalendarUtil.parseIcs(ics), Username.of("bob@example.com"));
+
+            assertThat(result)
+                .describedAs("First occurrence whose alarm is still upcoming is on 2025-10-10")
+                .isPresent()
+                .get()
+                .extracting(AlarmInstant::alarmTime)
+                .isEqualTo(Instant.parse("2025-08-31T10:00:00Z"));
+        }
+
+        @Test
+        void shouldPickDistantOverrideMovedBeforeNextOccurrence() {
+            String ics = """
+                BEGIN:VCALENDAR
+                VERSION:2.0
+                BEGIN:VEVENT
+                UID:weekly-moved-override
+                DTSTART:20250829T100000Z
+                DTEND:20250829T110000Z
+                RRULE:FREQ=WEEKLY
+                ATTENDEE;CN=Bob;PARTSTAT=ACCEPTED:mailto:bob@example.com
+                SUMMARY:Weekly sync
+                BEGIN:VALARM
+                ACTION:EMAIL
+                TRIGGER:-PT15M
+                END:VALARM
+                END:VEVENT
+                BEGIN:VEVENT
+                UID:weekly-moved-override
+                RECURRENCE-ID:20251031T100000Z
+                DTSTART:20250829T080000Z
+                DTEND:20250829T090000Z
+                ATTENDEE;CN=Bob;PARTSTAT=ACCEPTED:mailto:bob@example.com
+                SUMMARY:Weekly sync moved
+                BEGIN:VALARM
+                ACTION:EMAIL
+                TRIGGER:-PT15M
+                END:VALARM
+                END:VEVENT
+                END:VCALENDAR
+                """;
+
+            Optional<AlarmInstant> result = testee(Instant.parse("2025-08-28T00:00:00Z"))
+                .computeNextAlarmInstant(CalendarUtil.parseIcs(ics), Username.of("bob@example.com"));
+
+            assertThat(result)
+                .describedAs("Override of the 2025-10-31 occurrence is moved before the first occurrence")
+                .isPresent()
+                .get()
+                .extracting(AlarmInstant::alarmTime)
+                .isEqualTo(Instant.parse("2025-08-29T07:45:00Z"));
+        }
+
+        @Test
+        void shouldExpandAgainWhenRecurrenceRuleChanges() {
+            String ics = """
+                BEGIN:VCALENDAR
+                VERSION:2.0
+                BEGIN:VEVENT
+                UID:changing-rule
+                SEQUENCE:%s
+                DTSTART:20250829T100000Z
+                DTEND:20250829T110000Z
+                RRULE:%s
+                ATTENDEE;CN=Bob;PARTSTAT=ACCEPTED:mailto:bob@example.com
+                SUMMARY:Sync
+                BEGIN:VALARM
+                ACTION:EMAIL
+                TRIGGER:-PT15M
+                END:VALARM
+                END:VEVENT
+                END:VCALENDAR
+                """;
+            AlarmInstantFactory factory = testee(Instant.parse("2025-08-29T12:00:00Z"));
+            Username user = Username.of("bob@example.com");
+
+            Optional<AlarmInstant> daily = factory.computeNextAlarmInstant(CalendarUtil.parseIcs(ics.formatted("0", "FREQ=DAILY")), user);
+            Optional<AlarmInstant> weekly = factory.computeNextAlarmInstant(CalendarUtil.parseIcs(ics.formatted("1", "FREQ=WEEKLY")), user);
+
+            assertThat(daily.map(AlarmInstant::alarmTime)).contains(Instant.parse("2025-08-30T09:45:00Z"));
+            assertThat(weekly.map(AlarmInstant::alarmTime)).contains(Instant.parse("2025-09-05T09:45:00Z"));
+        }
+
         @Test
         void shouldIterativelyReturnNextAlarmsAcrossMultipleVALARMsInRecurringEvent() {
             String ics = """
@@ -0,0 +1,93 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage.redis;
+
+import java.util.Set;
+
+import jakarta.inject.Inject;
+
+import org.apache.james.core.Username;
+import org.apache.james.events.Event;
+import org.apache.james.events.EventBus;
+import org.apache.james.events.EventListener;
+import org.apache.james.lifecycle.api.Startable;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Provider;
+import com.linagora.calendar.storage.OpenPaaSUserChangeEvent;
+import com.linagora.calendar.storage.OpenPaaSUserChangeListener;
+import com.linagora.calendar.storage.OpenPaaSUserChangeRegistrationKey;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Propagates the user changes made on this node to the {@link OpenPaaSUserChangeListener}s of the other nodes, so that
+ * their caches get invalidated too.
+ */
+public class OpenPaaSUserChangePropagator implements OpenPaaSUserChangeListener, Startable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OpenPaaSUserChangePropagator.class);
+
+    private final EventBus eventBus;
+    // The listeners include this propagator
+    private final Provider<Set<OpenPaaSUserChangeListener>> listeners;
+
+    @Inject
+    public OpenPaaSUserChangePropagator(EventBus eventBus, Provider<Set<OpenPaaSUserChangeListener>> listeners) {
+        this.eventBus = eventBus;
+        this.listeners = listeners;
+    }
+
+    public void start() {
+        Mono.from(eventBus.register(new RemoteChangeListener(), OpenPaaSUserChangeRegistrationKey.INSTANCE)).block();
+    }
+
+    @Override
+    public void userChanged(Username username) {
+        eventBus.dispatch(new OpenPaaSUserChangeEvent(Event.EventId.random(), username), OpenPaaSUserChangeRegistrationKey.INSTANCE)
+            .doOnError(error -> LOGGER.warn("Failed to propagate the change of user {}", username.asString(), error))
+            .onErrorResume(error -> Mono.empty())
+            .subscribe();
+    }
+
+    private void notifyListener(OpenPaaSUserChangeListener listener, Username username) {
+        try {
+            listener.userChanged(username);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to notify {} of the change of user {}", listener.getClass().getSimpleName(), username.asString(), e);
+        }
+    }
+
+    private class RemoteChangeListener implements EventListener.ReactiveEventListener {
+        @Override
+        public boolean isHandling(Event event) {
+            return event instanceof OpenPaaSUserChangeEvent;
+        }
+
+        @Override
+        public Publisher<Void> reactiveEvent(Event event) {
+            Username username = ((OpenPaaSUserChangeEvent) event).username();
+            // Also called back for changes of this node, whose listeners were already notified: invalidating twice is harmless
+            return Mono.fromRunnable(() -> listeners.get().stream()
+                .filter(listener -> listener != OpenPaaSUserChangePropagator.this)
+                .forEach(listener -> notifyListener(listener, username)));
+        }
+    }
+}
@@ -19,19 +19,74 @@
 package com.linagora.calendar.storage.redis;
 
 import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.function.Function;
 
 import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.apache.james.backends.redis.ClusterRedisConfiguration;
+import org.apache.james.backends.redis.MasterReplicaRedisConfiguration;
+import org.apache.james.backends.redis.RedisClientFactory;
 import org.apache.james.backends.redis.RedisConfiguration;
+import org.apache.james.backends.redis.SentinelRedisConfiguration;
+import org.apache.james.backends.redis.StandaloneRedisConfiguration;
 import org.apache.james.utils.PropertiesProvider;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.TimeoutOptions;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.api.reactive.RedisClusterReactiveCommands;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.masterreplica.MasterReplica;
+import scala.jdk.javaapi.CollectionConverters;
+
 public class RedisCommonModule extends AbstractModule {
     @Provides
     @Singleton
     public RedisConfiguration redisConfiguration(PropertiesProvider propertiesProvider) throws ConfigurationException, FileNotFoundException {
         return RedisConfiguration.from(propertiesProvider.getConfiguration("redis"));
     }
+
+    public static RedisClusterReactiveCommands<String, String> reactiveCommands(RedisClientFactory redisClientFactory,
+                                                                               RedisConfiguration redisConfiguration) {
+        AbstractRedisClient rawClient = redisClientFactory.rawRedisClient();
+
+        Function<AbstractRedisClient, RedisClient> toRedisClient = client -> {
+            RedisClient redisClient = (RedisClient) rawClient;
+            redisClient.setOptions(ClientOptions.builder()
+                .timeoutOptions(TimeoutOptions.enabled())
+                .build());
+            return redisClient;
+        };
+
+        return switch (redisConfiguration) {
+            case StandaloneRedisConfiguration ignored ->
+                toRedisClient.apply(rawClient).connect(StringCodec.UTF8).reactive();
+
+            case ClusterRedisConfiguration ignored -> {
+                RedisClusterClient client = (RedisClusterClient) rawClient;
+                client.setOptions(ClusterClientOptions.builder()
+                    .timeoutOptions(TimeoutOptions.enabled())
+                    .build());
+                yield client.connect(StringCodec.UTF8).reactive();
+            }
+
+            case SentinelRedisConfiguration sentinelConf ->
+                MasterReplica.connect(toRedisClient.apply(rawClient), StringCodec.UTF8, sentinelConf.redisURI()).reactive();
+
+            case MasterReplicaRedisConfiguration replicaConf -> {
+                List<RedisURI> uris = CollectionConverters.asJava(replicaConf.redisURI());
+                yield MasterReplica.connect(toRedisClient.apply(rawClient), StringCodec.UTF8, uris).reactive();
+            }
+            default ->
+                throw new RuntimeException("Unknown redis configuration type: " + redisConfiguration.getClass().getName());
+        };
+    }
 }
@@ -30,6 +30,7 @@ import org.apache.james.events.CalendarURLRegistrationKeyFactory;
 import org.apache.james.events.EventBus;
 import org.apache.james.events.EventBusId;
 import org.apache.james.events.EventSerializer;
+import org.apache.james.events.OpenPaaSUserChangeRegistrationKeyFactory;
 import org.apache.james.events.RedisEventBusConfiguration;
 import org.apache.james.events.RetryBackoffConfiguration;
 import org.apache.james.events.RoutingKeyConverter;
@@ -42,7 +43,9 @@ import com.google.common.collect.ImmutableSet;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Scopes;
+import com.google.inject.multibindings.Multibinder;
 import com.google.inject.multibindings.ProvidesIntoSet;
+import com.linagora.calendar.storage.OpenPaaSUserChangeListener;
 
 public class RedisEventBusModule extends AbstractModule {
     private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(RedisEventBusModule.class);
@@ -51,10 +54,16 @@ public class RedisEventBusModule extends AbstractModule {
     protected void configure() {
         bind(RetryBackoffConfiguration.class).toInstance(RetryBackoffConfiguration.DEFAULT);
         bind(EventSerializer.class).to(CalendarEventSerializer.class);
-        bind(RoutingKeyConverter.class).toInstance(new RoutingKeyConverter(ImmutableSet.of(new CalendarURLRegistrationKeyFactory())));
+        bind(RoutingKeyConverter.class).toInstance(new RoutingKeyConverter(ImmutableSet.of(new CalendarURLRegistrationKeyFactory(),
+            new OpenPaaSUserChangeRegistrationKeyFactory())));
         bind(EventBusId.class).toInstance(EventBusId.random());
         bind(CalendarRedisEventBus.class).in(Scopes.SINGLETON);
         bind(EventBus.class).to(CalendarRedisEventBus.class);
+
+        bind(OpenPaaSUserChangePropagator.class).in(Scopes.SINGLETON);
+        Multibinder.newSetBinder(binder(), OpenPaaSUserChangeListener.class)
+            .addBinding()
+            .to(OpenPaaSUserChangePropagator.class);
     }
 
     @ProvidesIntoSet
@@ -64,6 +73,13 @@ public class RedisEventBusModule extends AbstractModule {
             .init(instance::start);
     }
 
+    @ProvidesIntoSet
+    InitializationOperation initializeOpenPaaSUserChangePropagator(OpenPaaSUserChangePropagator instance) {
+        return InitilizationOperationBuilder
+            .forClass(OpenPaaSUserChangePropagator.class)
+            .init(instance::start);
+    }
+
     @Provides
     @Singleton
     RedisEventBusConfiguration redisEventBusConfiguration(PropertiesProvider propertiesProvider) throws ConfigurationException {
@@ -18,15 +18,8 @@
 
 package com.linagora.calendar.storage.redis;
 
-import java.util.List;
-import java.util.function.Function;
-
-import org.apache.james.backends.redis.ClusterRedisConfiguration;
-import org.apache.james.backends.redis.MasterReplicaRedisConfiguration;
 import org.apache.james.backends.redis.RedisClientFactory;
 import org.apache.james.backends.redis.RedisConfiguration;
-import org.apache.james.backends.redis.SentinelRedisConfiguration;
-import org.apache.james.backends.redis.StandaloneRedisConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,17 +31,6 @@ import com.linagora.calendar.storage.OIDCTokenCache;
 import com.linagora.calendar.storage.TokenInfoResolver;
 import com.linagora.calendar.storage.configuration.OIDCTokenCacheConfiguration;
 
-import io.lettuce.core.AbstractRedisClient;
-import io.lettuce.core.ClientOptions;
-import io.lettuce.core.RedisClient;
-import io.lettuce.core.RedisURI;
-import io.lettuce.core.TimeoutOptions;
-import io.lettuce.core.cluster.ClusterClientOptions;
-import io.lettuce.core.cluster.RedisClusterClient;
-import io.lettuce.core.codec.StringCodec;
-import io.lettuce.core.masterreplica.MasterReplica;
-import scala.jdk.javaapi.CollectionConverters;
-
 public class RedisOIDCModule extends AbstractModule {
     public static final Logger LOGGER = LoggerFactory.getLogger(RedisOIDCModule.class);
 
@@ -65,38 +47,7 @@ public class RedisOIDCModule extends AbstractModule {
                                                           OIDCTokenCacheConfiguration oidcTokenCacheConfiguration,
                                                           TokenInfoResolver tokenInfoResolver) {
 
-        AbstractRedisClient rawClient = redisClientFactory.rawRedisClient();
-
-        Function<AbstractRedisClient, RedisClient> toRedisClient = client -> {
-            RedisClient redisClient = (RedisClient) rawClient;
-            redisClient.setOptions(ClientOptions.builder()
-                .timeoutOptions(TimeoutOptions.enabled())
-                .build());
-            return redisClient;
-        };
-
-        RedisTokenCacheCommands redisReactiveCommands = switch (redisConfiguration) {
-            case StandaloneRedisConfiguration ignored ->
-                RedisTokenCacheCommands.of(toRedisClient.apply(rawClient).connect(StringCodec.UTF8).reactive());
-
-            case ClusterRedisConfiguration ignored -> {
-                RedisClusterClient client = (RedisClusterClient) rawClient;
-                client.setOptions(ClusterClientOptions.builder()
-                    .timeoutOptions(TimeoutOptions.enabled())
-                    .build());
-                yield RedisTokenCacheCommands.of(client.connect(StringCodec.UTF8).reactive());
-            }
-
-            case SentinelRedisConfiguration sentinelConf ->
-                RedisTokenCacheCommands.of(MasterReplica.connect(toRedisClient.apply(rawClient), StringCodec.UTF8, sentinelConf.redisURI()).reactive());
-
-            case MasterReplicaRedisConfiguration replicaConf -> {
-                List<RedisURI> uris = CollectionConverters.asJava(replicaConf.redisURI());
-                yield RedisTokenCacheCommands.of(MasterReplica.connect(toRedisClient.apply(rawClient), StringCodec.UTF8, uris).reactive());
-            }
-            default ->
-                throw new RuntimeException("Unknown redis configuration type: " + redisConfiguration.getClass().getName());
-        };
+        RedisTokenCacheCommands redisReactiveCommands = RedisTokenCacheCommands.of(RedisCommonModule.reactiveCommands(redisClientFactory, redisConfiguration));
 
         return new RedisOIDCTokenCache(tokenInfoResolver, oidcTokenCacheConfiguration, redisReactiveCommands);
     }
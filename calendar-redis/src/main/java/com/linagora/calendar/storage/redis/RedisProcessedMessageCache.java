@@ -0,0 +1,64 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linagora.calendar.storage.ProcessedMessageCache;
+import com.linagora.calendar.storage.configuration.MessageDeduplicationConfiguration;
+
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.reactive.RedisStringReactiveCommands;
+import reactor.core.publisher.Mono;
+
+public class RedisProcessedMessageCache implements ProcessedMessageCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisProcessedMessageCache.class);
+    private static final String FINGERPRINT_PREFIX = "tcal_amqp_dedup_";
+
+    private final RedisStringReactiveCommands<String, String> stringCommands;
+    private final SetArgs setArgs;
+
+    public RedisProcessedMessageCache(RedisStringReactiveCommands<String, String> stringCommands,
+                                      MessageDeduplicationConfiguration configuration) {
+        this.stringCommands = stringCommands;
+        this.setArgs = SetArgs.Builder.ex(configuration.window());
+    }
+
+    // A Redis outage must not block consumers: messages are then processed as if they were unknown
+    @Override
+    public Mono<String> lastFingerprint(String key) {
+        return stringCommands.get(FINGERPRINT_PREFIX + key)
+            .onErrorResume(error -> {
+                LOGGER.warn("Failed to read the last processed message fingerprint for {}", key, error);
+                return Mono.empty();
+            });
+    }
+
+    @Override
+    public Mono<Void> recordFingerprint(String key, String fingerprint) {
+        return stringCommands.set(FINGERPRINT_PREFIX + key, fingerprint, setArgs)
+            .then()
+            .onErrorResume(error -> {
+                LOGGER.warn("Failed to record the processed message fingerprint for {}", key, error);
+                return Mono.empty();
+            });
+    }
+}
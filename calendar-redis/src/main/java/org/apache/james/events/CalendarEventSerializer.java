@@ -21,6 +21,8 @@ package org.apache.james.events;
 import java.util.Collection;
 import java.util.List;
 
+import org.apache.james.core.Username;
+
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -28,6 +30,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
 import com.linagora.calendar.storage.CalendarChangeEvent;
 import com.linagora.calendar.storage.CalendarURL;
+import com.linagora.calendar.storage.OpenPaaSUserChangeEvent;
 
 public class CalendarEventSerializer implements EventSerializer {
 
@@ -35,7 +38,8 @@ public class CalendarEventSerializer implements EventSerializer {
         use = JsonTypeInfo.Id.NAME,
         property = "type")
     @JsonSubTypes({
-        @JsonSubTypes.Type(value = CalendarChangeDTO.class)
+        @JsonSubTypes.Type(value = CalendarChangeDTO.class),
+        @JsonSubTypes.Type(value = UserChangeDTO.class)
     })
     interface EventDTO {
     }
@@ -43,6 +47,9 @@ public class CalendarEventSerializer implements EventSerializer {
     record CalendarChangeDTO(String eventId, String username, String calendarUrl) implements EventDTO {
     }
 
+    record UserChangeDTO(String eventId, String username) implements EventDTO {
+    }
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Override
@@ -85,6 +92,10 @@ public class CalendarEventSerializer implements EventSerializer {
                     calendarChangeEvent.getEventId().getId().toString(),
                     calendarChangeEvent.getUsername().asString(),
                     calendarChangeEvent.calendarURL().serialize());
+            case OpenPaaSUserChangeEvent userChangeEvent ->
+                new UserChangeDTO(
+                    userChangeEvent.getEventId().getId().toString(),
+                    userChangeEvent.username().asString());
             default -> throw new IllegalArgumentException("Unsupported event type: " + event.getClass());
         };
     }
@@ -94,6 +105,9 @@ public class CalendarEventSerializer implements EventSerializer {
             case CalendarChangeDTO calendarChangeDTO -> new CalendarChangeEvent(
                 Event.EventId.of(calendarChangeDTO.eventId),
                 CalendarURL.deserialize(calendarChangeDTO.calendarUrl));
+            case UserChangeDTO userChangeDTO -> new OpenPaaSUserChangeEvent(
+                Event.EventId.of(userChangeDTO.eventId),
+                Username.of(userChangeDTO.username));
             default -> throw new IllegalArgumentException("Unsupported event DTO type: " + eventDTO.getClass());
         };
     }
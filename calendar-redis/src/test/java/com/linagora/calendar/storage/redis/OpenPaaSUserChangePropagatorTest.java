@@ -0,0 +1,121 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage.redis;
+
+import static org.apache.james.events.RedisEventBusConfiguration.FAILURE_IGNORE_DEFAULT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.james.backends.redis.RedisClientFactory;
+import org.apache.james.backends.redis.RedisConfiguration;
+import org.apache.james.backends.redis.RedisExtension;
+import org.apache.james.backends.redis.StandaloneRedisConfiguration;
+import org.apache.james.core.Username;
+import org.apache.james.events.CalendarEventSerializer;
+import org.apache.james.events.CalendarRedisEventBus;
+import org.apache.james.events.EventBusId;
+import org.apache.james.events.EventBusTestFixture;
+import org.apache.james.events.OpenPaaSUserChangeRegistrationKeyFactory;
+import org.apache.james.events.RedisEventBusClientFactory;
+import org.apache.james.events.RedisEventBusConfiguration;
+import org.apache.james.events.RoutingKeyConverter;
+import org.apache.james.metrics.tests.RecordingMetricFactory;
+import org.apache.james.server.core.filesystem.FileSystemImpl;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import com.google.common.collect.ImmutableSet;
+import com.linagora.calendar.storage.OpenPaaSUserChangeListener;
+
+public class OpenPaaSUserChangePropagatorTest {
+    private static final Username BOB = Username.of("bob@domain.tld");
+
+    @RegisterExtension
+    static RedisExtension redisExtension = new RedisExtension();
+
+    private CalendarRedisEventBus eventBus1;
+    private CalendarRedisEventBus eventBus2;
+    private OpenPaaSUserChangePropagator propagator1;
+    private OpenPaaSUserChangePropagator propagator2;
+    private List<Username> notified1;
+    private List<Username> notified2;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        RedisConfiguration redisConfiguration = StandaloneRedisConfiguration.from(redisExtension.dockerRedis().redisURI().toString());
+        RedisEventBusClientFactory redisEventBusClientFactory = new RedisEventBusClientFactory(redisConfiguration,
+            new RedisClientFactory(FileSystemImpl.forTesting(), redisConfiguration));
+
+        eventBus1 = newEventBus(redisEventBusClientFactory);
+        eventBus2 = newEventBus(redisEventBusClientFactory);
+        eventBus1.start();
+        eventBus2.start();
+
+        notified1 = new CopyOnWriteArrayList<>();
+        notified2 = new CopyOnWriteArrayList<>();
+        OpenPaaSUserChangeListener recorder1 = notified1::add;
+        OpenPaaSUserChangeListener recorder2 = notified2::add;
+        propagator1 = new OpenPaaSUserChangePropagator(eventBus1, () -> ImmutableSet.of(propagator1, recorder1));
+        propagator2 = new OpenPaaSUserChangePropagator(eventBus2, () -> ImmutableSet.of(propagator2, recorder2));
+        propagator1.start();
+        propagator2.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventBus1.stop();
+        eventBus2.stop();
+    }
+
+    private CalendarRedisEventBus newEventBus(RedisEventBusClientFactory redisEventBusClientFactory) {
+        return new CalendarRedisEventBus(new CalendarEventSerializer(),
+            EventBusTestFixture.RETRY_BACKOFF_CONFIGURATION,
+            new RoutingKeyConverter(ImmutableSet.of(new OpenPaaSUserChangeRegistrationKeyFactory())),
+            new RecordingMetricFactory(),
+            EventBusId.random(),
+            redisEventBusClientFactory,
+            new RedisEventBusConfiguration(FAILURE_IGNORE_DEFAULT, Duration.ofSeconds(2)));
+    }
+
+    @Test
+    void userChangedShouldNotifyListenersOfOtherNodes() {
+        propagator1.userChanged(BOB);
+
+        Awaitility.await().atMost(Duration.ofSeconds(10))
+            .untilAsserted(() -> assertThat(notified2).containsExactly(BOB));
+    }
+
+    @Test
+    void propagatedChangesShouldNotBePropagatedAgain() throws Exception {
+        propagator1.userChanged(BOB);
+
+        Awaitility.await().atMost(Duration.ofSeconds(10))
+            .untilAsserted(() -> assertThat(notified2).containsExactly(BOB));
+        Thread.sleep(500);
+
+        assertThat(notified1).containsExactly(BOB);
+        assertThat(notified2).containsExactly(BOB);
+    }
+}
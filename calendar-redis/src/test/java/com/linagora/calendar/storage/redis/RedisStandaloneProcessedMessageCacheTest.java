@@ -0,0 +1,49 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage.redis;
+
+import org.apache.james.backends.redis.RedisClientFactory;
+import org.apache.james.backends.redis.RedisConfiguration;
+import org.apache.james.backends.redis.StandaloneRedisConfiguration;
+import org.apache.james.server.core.filesystem.FileSystemImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import com.linagora.calendar.storage.ProcessedMessageCache;
+import com.linagora.calendar.storage.ProcessedMessageCacheContract;
+
+public class RedisStandaloneProcessedMessageCacheTest extends ProcessedMessageCacheContract {
+
+    @RegisterExtension
+    static DockerRedisExtension redisExtension = new DockerRedisExtension();
+
+    private RedisProcessedMessageCache testee;
+
+    @BeforeEach
+    void setUp() {
+        RedisConfiguration redisConfiguration = StandaloneRedisConfiguration.from(redisExtension.redisURI().toString());
+        RedisClientFactory redisClientFactory = new RedisClientFactory(FileSystemImpl.forTesting(), redisConfiguration);
+        testee = new RedisMessageDeduplicationModule().provideRedisProcessedMessageCache(redisClientFactory, redisConfiguration, CONFIGURATION);
+    }
+
+    @Override
+    public ProcessedMessageCache testee() {
+        return testee;
+    }
+}
@@ -21,10 +21,12 @@ package org.apache.james.events;
 import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import org.apache.james.core.Username;
 import org.junit.jupiter.api.Test;
 
 import com.linagora.calendar.storage.CalendarChangeEvent;
 import com.linagora.calendar.storage.CalendarURL;
+import com.linagora.calendar.storage.OpenPaaSUserChangeEvent;
 
 public class CalendarEventSerializerTest {
     public static final String CALENDAR_CHANGE_JSON = """
@@ -38,6 +40,16 @@ public class CalendarEventSerializerTest {
     public static final CalendarChangeEvent CALENDAR_CHANGE_EVENT = new CalendarChangeEvent(
         Event.EventId.of("34392fb0-8fc1-442e-bd33-5bd1af689f0e"),
         CalendarURL.deserialize("baseId/calendarId"));
+    public static final String USER_CHANGE_JSON = """
+        {
+            "type": "CalendarEventSerializer$UserChangeDTO",
+            "eventId": "6e0dd59d-660e-4d9b-b22f-0354479f47b4",
+            "username": "bob@domain.tld"
+        }
+        """;
+    public static final OpenPaaSUserChangeEvent USER_CHANGE_EVENT = new OpenPaaSUserChangeEvent(
+        Event.EventId.of("6e0dd59d-660e-4d9b-b22f-0354479f47b4"),
+        Username.of("bob@domain.tld"));
 
     private final CalendarEventSerializer serializer = new CalendarEventSerializer();
 
@@ -52,4 +64,16 @@ public class CalendarEventSerializerTest {
         Event event = serializer.asEvent(CALENDAR_CHANGE_JSON);
         assertThat(event).isEqualTo(CALENDAR_CHANGE_EVENT);
     }
+
+    @Test
+    void shouldSerializeUserChangeEvent() {
+        String json = serializer.toJson(USER_CHANGE_EVENT);
+        assertThatJson(json).isEqualTo(USER_CHANGE_JSON);
+    }
+
+    @Test
+    void shouldDeserializeJsonToUserChangeEvent() {
+        Event event = serializer.asEvent(USER_CHANGE_JSON);
+        assertThat(event).isEqualTo(USER_CHANGE_EVENT);
+    }
 }
@@ -36,11 +36,11 @@ import org.apache.james.util.ReactorUtils;
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
+import com.linagora.calendar.api.CalendarSchedulers;
 import com.linagora.calendar.restapi.RestApiConfiguration;
 import com.linagora.calendar.storage.SimpleSessionProvider;
 
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 import reactor.netty.http.server.HttpServerRequest;
 
 // Duplicated not to depend on JMAP RFC-8620 module of James
@@ -103,7 +103,7 @@ public class BasicAuthenticationStrategy implements AuthenticationStrategy {
             return Mono.from(metricFactory.decoratePublisherWithTimerMetric("basic-auth",
                 Mono.fromCallable(() -> usersRepository.test(creds.username(), creds.password())
                         .orElseThrow(() -> new UnauthorizedException("Wrong credentials provided")))
-                    .subscribeOn(Schedulers.boundedElastic())));
+                    .subscribeOn(CalendarSchedulers.blocking())));
         }
         return Mono.empty();
     }
@@ -38,12 +38,12 @@ import org.apache.james.jmap.JMAPRoutes;
 import org.apache.james.metrics.api.MetricFactory;
 
 import com.google.common.base.Preconditions;
+import com.linagora.calendar.api.CalendarSchedulers;
 
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.QueryStringDecoder;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 import reactor.netty.http.server.HttpServerRequest;
 import reactor.netty.http.server.HttpServerResponse;
 
@@ -73,7 +73,7 @@ public class AvatarRoute implements JMAPRoutes {
         Preconditions.checkArgument(!email.isEmpty(), "Empty email ");
 
         return Mono.fromCallable(() ->  generateLetterImage(email.toUpperCase(Locale.US).charAt(0)))
-            .subscribeOn(Schedulers.boundedElastic())
+            .subscribeOn(CalendarSchedulers.blocking())
             .flatMap(data -> response
                     .status(200)
                     .header(HttpHeaderNames.CONTENT_TYPE, "image/png")
@@ -38,6 +38,7 @@ import org.apache.james.util.ReactorUtils;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.linagora.calendar.api.CalendarSchedulers;
 import com.linagora.calendar.storage.FileUploadConfiguration;
 import com.linagora.calendar.storage.OpenPaaSId;
 import com.linagora.calendar.storage.UploadedFileDAO;
@@ -51,7 +52,6 @@ import io.netty.handler.codec.http.multipart.FileUpload;
 import io.netty.handler.codec.http.multipart.HttpData;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 import reactor.netty.http.server.HttpServerRequest;
 import reactor.netty.http.server.HttpServerResponse;
 
@@ -143,7 +143,7 @@ public class FileUploadRoute extends CalendarRoute {
                     throw sizeExceededException(pSizeMax, pCount);
                 }
             }).flatMap(inputStream -> Mono.fromCallable(() -> getBytes(inputStream))
-                .subscribeOn(Schedulers.boundedElastic()));
+                .subscribeOn(CalendarSchedulers.blocking()));
     }
 
     private Mono<byte[]> getUploadedDataFromMultiPartRequest(HttpServerRequest request, long fileSize) {
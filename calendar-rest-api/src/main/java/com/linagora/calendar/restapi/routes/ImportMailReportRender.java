@@ -33,6 +33,7 @@ import org.apache.james.mailbox.model.ContentType;
 import com.github.fge.lambdas.Throwing;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.linagora.calendar.api.CalendarSchedulers;
 import com.linagora.calendar.restapi.RestApiConfiguration;
 import com.linagora.calendar.restapi.routes.ImportProcessor.ImportResult;
 import com.linagora.calendar.restapi.routes.ImportProcessor.ImportType;
@@ -43,7 +44,6 @@ import com.linagora.calendar.smtp.template.MessageGenerator;
 import com.linagora.calendar.smtp.template.MimeAttachment;
 
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 public class ImportMailReportRender {
     private final MailTemplateConfiguration templateConfiguration;
@@ -95,7 +95,7 @@ public class ImportMailReportRender {
         return Mono.fromCallable(() -> messageGeneratorFactory.forLocalizedFeature(language, importType.getTemplateType()))
             .flatMap(messageGenerator -> messageGenerator.generate(username, fromMailAddress, model, ImmutableList.of(logoAttachment)))
             .map(Throwing.function(message -> new Mail(templateConfiguration.sender(), List.of(username.asMailAddress()), message)))
-            .subscribeOn(Schedulers.boundedElastic());
+            .subscribeOn(CalendarSchedulers.blocking());
     }
 }
 
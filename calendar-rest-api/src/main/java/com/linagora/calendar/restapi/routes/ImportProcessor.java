@@ -39,6 +39,7 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.linagora.calendar.api.CalendarSchedulers;
 import com.linagora.calendar.api.CalendarUtil;
 import com.linagora.calendar.dav.CalDavClient;
 import com.linagora.calendar.dav.CardDavClient;
@@ -119,7 +120,7 @@ public class ImportProcessor {
             CalendarURL calendarURL = new CalendarURL(importCommand.baseId(), new OpenPaaSId(importCommand.resourceId()));
 
             return Mono.fromCallable(() -> CalendarUtil.parseIcs(importCommand.uploadData()))
-                .subscribeOn(Schedulers.boundedElastic())
+                .subscribeOn(CalendarSchedulers.blocking())
                 .flatMapMany(calendar -> Mono.fromCallable(() -> EventParseUtils.groupByUid(calendar))
                     .flatMapMany(map -> Flux.fromIterable(map.entrySet()))
                     .flatMap(entry -> {
@@ -162,7 +163,7 @@ public class ImportProcessor {
         @Override
         public Mono<ImportResult> handle(ImportCommand importCommand, Username username) {
             return Mono.fromCallable(() -> Ezvcard.parse(new String(importCommand.uploadData(), StandardCharsets.UTF_8)).all())
-                .subscribeOn(Schedulers.boundedElastic())
+                .subscribeOn(CalendarSchedulers.blocking())
                 .flatMapMany(Flux::fromIterable)
                 .flatMap(vcard -> {
                     String vcardUid = UUID.randomUUID().toString();
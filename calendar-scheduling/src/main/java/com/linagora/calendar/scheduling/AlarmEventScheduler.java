@@ -21,12 +21,19 @@ package com.linagora.calendar.scheduling;
 import java.io.Closeable;
 import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
 import jakarta.annotation.PreDestroy;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 
+import org.apache.james.core.MailAddress;
 import org.apache.james.lifecycle.api.Startable;
 import org.apache.james.metrics.api.Metric;
 import org.apache.james.metrics.api.MetricFactory;
@@ -39,25 +46,38 @@ import com.google.inject.name.Named;
 import com.linagora.calendar.scheduling.AlarmEventSchedulerConfiguration.Mode;
 import com.linagora.calendar.storage.AlarmEvent;
 import com.linagora.calendar.storage.AlarmEventDAO;
+import com.linagora.calendar.storage.AlarmEventFetchOptions;
 import com.linagora.calendar.storage.AlarmEventLeaseProvider;
+import com.linagora.calendar.storage.AlarmPartitionMembership;
+import com.linagora.calendar.storage.UpcomingAlarmRegistry;
+import com.linagora.calendar.storage.eventsearch.EventUid;
 
 import reactor.core.Disposable;
+import reactor.core.Disposables;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
-public class AlarmEventScheduler implements Startable, Closeable {
+public class AlarmEventScheduler implements Startable, Closeable, UpcomingAlarmRegistry {
     private static final Duration LEASE_TTL = DurationParser.parse(System.getProperty("alarm.event.scheduler.lease.ttl", "60s"));
+    private static final Duration TIMING_WHEEL_TICK = DurationParser.parse(System.getProperty("alarm.event.scheduler.timing.wheel.tick", "100ms"));
+    private static final int TIMING_WHEEL_SIZE = 64;
+    private static final int MEMBERSHIP_TTL_POLL_INTERVALS = 3;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AlarmEventScheduler.class);
 
     private final Clock clock;
     private final AlarmEventDAO alarmEventDAO;
     private final AlarmEventLeaseProvider alarmEventLeaseProvider;
+    private final AlarmPartitionMembership alarmPartitionMembership;
     private final AlarmTriggerService alarmTriggerService;
     private final AlarmEventSchedulerConfiguration configuration;
     private final Metric alarmMetric;
     private final MetricFactory metricFactory;
+    private final Optional<AlarmTimingWheel> timingWheel;
+    private final Set<AlarmTimingWheel.Key> inFlightAlarms = ConcurrentHashMap.newKeySet();
+    private final String schedulerId = UUID.randomUUID().toString();
+    private volatile Set<Integer> ownedPartitions = AlarmPartitionMembership.ALL_PARTITIONS;
 
     private Disposable loop;
 
@@ -65,6 +85,7 @@ public class AlarmEventScheduler implements Startable, Closeable {
     @Singleton
     public AlarmEventScheduler(Clock clock, AlarmEventDAO alarmEventDAO,
                                @Named("scheduler") AlarmEventLeaseProvider alarmEventLeaseProvider,
+                               AlarmPartitionMembership alarmPartitionMembership,
                                AlarmTriggerService alarmTriggerService,
                                AlarmEventSchedulerConfiguration configuration,
                                MetricFactory metricFactory) {
@@ -73,9 +94,13 @@ public class AlarmEventScheduler implements Startable, Closeable {
         this.alarmTriggerService = alarmTriggerService;
         this.configuration = configuration;
         this.alarmEventLeaseProvider = alarmEventLeaseProvider;
+        this.alarmPartitionMembership = alarmPartitionMembership;
 
         this.metricFactory = metricFactory;
         alarmMetric = metricFactory.generate("calendar.alarm");
+        this.timingWheel = configuration.lookahead()
+            .filter(any -> !Mode.DISABLED.equals(configuration.mode()))
+            .map(any -> new AlarmTimingWheel(clock.instant(), TIMING_WHEEL_TICK, TIMING_WHEEL_SIZE));
     }
 
     public void start() {
@@ -84,12 +109,18 @@ public class AlarmEventScheduler implements Startable, Closeable {
             return;
         }
 
-        LOGGER.info("Starting AlarmEventScheduler: initialDelay={}, pollInterval={}, batchSize={}",
-            configuration.initialJitterMax(), configuration.pollInterval(), configuration.batchSize());
+        LOGGER.info("Starting AlarmEventScheduler: initialDelay={}, pollInterval={}, batchSize={}, lookahead={}",
+            configuration.initialJitterMax(), configuration.pollInterval(), configuration.batchSize(), configuration.lookahead());
 
-        loop = Flux.interval(configuration.initialJitterMax(), configuration.pollInterval())
+        loop = timingWheel
+            .map(wheel -> Disposables.composite(startPolling(() -> prefetchUpcomingAlarms(wheel)), startTimingWheel(wheel)))
+            .orElseGet(() -> startPolling(this::pollAndProcess));
+    }
+
+    private Disposable startPolling(Supplier<Mono<Long>> tickAction) {
+        return Flux.interval(configuration.initialJitterMax(), configuration.pollInterval())
             .onBackpressureDrop()
-            .concatMap(tick -> pollAndProcess()
+            .concatMap(tick -> tickAction.get()
                 .then(Mono.delay(Duration.ofMillis(ThreadLocalRandom.current().nextLong(0,
                     configuration.initialJitterMax().toMillis()))))
                 .onErrorResume(ex -> {
@@ -105,18 +136,61 @@ public class AlarmEventScheduler implements Startable, Closeable {
             }, ex -> LOGGER.error("AlarmDeliveryWorker encountered an error", ex));
     }
 
+    private Disposable startTimingWheel(AlarmTimingWheel wheel) {
+        return Flux.interval(TIMING_WHEEL_TICK)
+            .onBackpressureDrop()
+            .concatMap(tick -> fireDueAlarms(wheel)
+                .onErrorResume(ex -> {
+                    LOGGER.warn("Firing due alarms failed", ex);
+                    return Mono.empty();
+                }))
+            .subscribeOn(Schedulers.parallel())
+            .subscribe(count -> {
+                if (count > 0) {
+                    LOGGER.debug("Fired {} alarm(s) from the timing wheel", count);
+                }
+            }, ex -> LOGGER.error("Alarm timing wheel encountered an error", ex));
+    }
+
     @PreDestroy
     @Override
     public void close() {
         if (loop != null && !loop.isDisposed()) {
             loop.dispose();
+            if (Mode.PARTITIONED.equals(configuration.mode())) {
+                alarmPartitionMembership.leave()
+                    .onErrorResume(ex -> {
+                        LOGGER.warn("Failed to leave alarm partition membership", ex);
+                        return Mono.empty();
+                    })
+                    .block();
+            }
         }
     }
 
+    private Mono<AlarmEventFetchOptions> fetchOptions() {
+        AlarmEventFetchOptions options = AlarmEventFetchOptions.oldestFirst(configuration.batchSize());
+        if (!Mode.PARTITIONED.equals(configuration.mode())) {
+            return Mono.just(options);
+        }
+        return alarmPartitionMembership.renew(configuration.pollInterval().multipliedBy(MEMBERSHIP_TTL_POLL_INTERVALS)
+                .plus(configuration.initialJitterMax()))
+            .doOnNext(partitions -> {
+                if (!partitions.equals(ownedPartitions)) {
+                    LOGGER.info("Alarm scheduler now owns {} partition(s) out of {}", partitions.size(), AlarmEvent.PARTITION_COUNT);
+                }
+                ownedPartitions = partitions;
+                timingWheel.ifPresent(wheel -> wheel.retainPartitions(partitions));
+            })
+            .map(options::withPartitions);
+    }
+
     private Mono<Long> pollAndProcess() {
+        Instant now = clock.instant();
         return Mono.from(metricFactory.decoratePublisherWithTimerMetric("calendar.alarm.tick.duration",
-            alarmEventDAO.findAlarmsToTrigger(clock.instant())
-                .take(configuration.batchSize())
+            fetchOptions()
+                .flatMapMany(options -> deleteUntriggerableAlarms(now, options)
+                    .thenMany(alarmsToTrigger(now, options)))
                 .flatMap(this::processOneAlarm, ReactorUtils.LOW_CONCURRENCY)
                 .onErrorResume(ex -> {
                     LOGGER.warn("Batch processing error", ex);
@@ -125,6 +199,80 @@ public class AlarmEventScheduler implements Startable, Closeable {
                 .count()));
     }
 
+    private Flux<AlarmEvent> alarmsToTrigger(Instant now, AlarmEventFetchOptions options) {
+        if (configuration.claimsAlarms()) {
+            return alarmEventDAO.claimAlarmsToTrigger(now, schedulerId, LEASE_TTL, options);
+        }
+        return alarmEventDAO.findAlarmsToTrigger(now, options);
+    }
+
+    private Mono<Long> prefetchUpcomingAlarms(AlarmTimingWheel wheel) {
+        Instant horizon = clock.instant().plus(configuration.lookahead().orElseThrow());
+        return Mono.from(metricFactory.decoratePublisherWithTimerMetric("calendar.alarm.prefetch.duration",
+            fetchOptions()
+                // In-flight alarms are still stored and would otherwise eat into the batch, starving the ones behind them
+                .map(options -> options.withLimit(options.limit() + inFlightAlarms.size()))
+                .flatMapMany(options -> deleteUntriggerableAlarms(horizon, options)
+                    .thenMany(alarmEventDAO.findAlarmsToTrigger(horizon, options)))
+                .filter(alarmEvent -> !inFlightAlarms.contains(AlarmTimingWheel.Key.of(alarmEvent)))
+                .take(configuration.batchSize())
+                .doOnNext(wheel::schedule)
+                .count()));
+    }
+
+    // Alarms that can not be sent anymore are skipped by the reads: deleting them keeps them from taking room in every batch
+    private Mono<Void> deleteUntriggerableAlarms(Instant time, AlarmEventFetchOptions options) {
+        return alarmEventDAO.deleteUntriggerableAlarms(time, options)
+            .doOnNext(count -> {
+                if (count > 0) {
+                    LOGGER.warn("Deleted {} alarm(s) that can not be sent anymore", count);
+                }
+            })
+            .onErrorResume(ex -> {
+                LOGGER.warn("Failed to delete alarms that can not be sent anymore", ex);
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    private Mono<Long> fireDueAlarms(AlarmTimingWheel wheel) {
+        return Flux.fromIterable(wheel.advance(clock.instant()))
+            .filter(alarmEvent -> inFlightAlarms.add(AlarmTimingWheel.Key.of(alarmEvent)))
+            .flatMap(alarmEvent -> reloadAndProcess(alarmEvent)
+                .doFinally(signal -> inFlightAlarms.remove(AlarmTimingWheel.Key.of(alarmEvent))), ReactorUtils.LOW_CONCURRENCY)
+            .count();
+    }
+
+    // The alarm might have been rescheduled or deleted since it was loaded into the wheel
+    private Mono<Void> reloadAndProcess(AlarmEvent scheduledAlarm) {
+        return alarmEventDAO.find(scheduledAlarm.eventUid(), scheduledAlarm.recipient())
+            .filter(currentAlarm -> currentAlarm.alarmTime().equals(scheduledAlarm.alarmTime()))
+            .flatMap(this::processOneAlarm)
+            .onErrorResume(ex -> {
+                LOGGER.error("Failed to reload alarm {}", scheduledAlarm.toShortString(), ex);
+                return Mono.empty();
+            });
+    }
+
+    @Override
+    public void register(AlarmEvent alarmEvent) {
+        timingWheel.ifPresent(wheel -> {
+            AlarmTimingWheel.Key key = AlarmTimingWheel.Key.of(alarmEvent);
+            Instant horizon = clock.instant().plus(configuration.lookahead().orElseThrow());
+            if (alarmEvent.alarmTime().isBefore(horizon) && !inFlightAlarms.contains(key)
+                && ownedPartitions.contains(alarmEvent.partition())) {
+                wheel.schedule(alarmEvent);
+            } else {
+                wheel.cancel(alarmEvent.eventUid(), alarmEvent.recipient());
+            }
+        });
+    }
+
+    @Override
+    public void unregister(EventUid eventUid, MailAddress recipient) {
+        timingWheel.ifPresent(wheel -> wheel.cancel(eventUid, recipient));
+    }
+
     private Mono<Void> processOneAlarm(AlarmEvent alarmEvent) {
         return Mono.from(metricFactory.decoratePublisherWithTimerMetric("calendar.alarm.duration",
             alarmEventLeaseProvider.acquire(alarmEvent, LEASE_TTL)
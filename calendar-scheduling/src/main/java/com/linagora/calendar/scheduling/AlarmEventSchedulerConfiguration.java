@@ -30,9 +30,15 @@ import com.google.common.base.Preconditions;
 public record AlarmEventSchedulerConfiguration(Duration pollInterval,
                                                int batchSize,
                                                Duration initialJitterMax,
-                                               Mode mode) {
+                                               Mode mode,
+                                               Optional<Duration> lookahead,
+                                               LeaseStrategy leaseStrategy) {
     public enum Mode {
-        SINGLE, CLUSTER, DISABLED
+        SINGLE, CLUSTER, PARTITIONED, DISABLED
+    }
+
+    public enum LeaseStrategy {
+        LEDGER, CLAIM
     }
 
     public static final String POLL_INTERVAL_PROPERTY = "alarm.event.scheduler.poll.interval";
@@ -47,10 +53,15 @@ public record AlarmEventSchedulerConfiguration(Duration pollInterval,
     public static final String MODE_PROPERTY = "alarm.event.scheduler.mode";
     public static final Mode MODE_DEFAULT = Mode.DISABLED;
 
+    public static final String LOOKAHEAD_PROPERTY = "alarm.event.scheduler.lookahead";
+
+    public static final String LEASE_STRATEGY_PROPERTY = "alarm.event.scheduler.lease.strategy";
+    public static final LeaseStrategy LEASE_STRATEGY_DEFAULT = LeaseStrategy.LEDGER;
+
     public static final AlarmEventSchedulerConfiguration DEFAULT =
         new AlarmEventSchedulerConfiguration(POLL_INTERVAL_DEFAULT,
             BATCH_SIZE_DEFAULT, INITIAL_JITTER_MAX_DEFAULT,
-            MODE_DEFAULT);
+            MODE_DEFAULT, Optional.empty(), LEASE_STRATEGY_DEFAULT);
 
     public static AlarmEventSchedulerConfiguration from(Configuration configuration) {
         Optional<Duration> pollIntervalConfiguration = Optional.ofNullable(configuration.getString(POLL_INTERVAL_PROPERTY, null))
@@ -80,15 +91,34 @@ public record AlarmEventSchedulerConfiguration(Duration pollInterval,
             .map(v -> switch (v) {
                 case "single" -> Mode.SINGLE;
                 case "cluster", "distributed", "multi" -> Mode.CLUSTER;
+                case "partitioned" -> Mode.PARTITIONED;
                 case "disabled" -> Mode.DISABLED;
                 default -> throw new IllegalArgumentException("Invalid value for '" + MODE_PROPERTY + "': " + v);
             });
 
+        Optional<Duration> lookaheadConfiguration = Optional.ofNullable(configuration.getString(LOOKAHEAD_PROPERTY, null))
+            .map(string -> DurationParser.parse(string, ChronoUnit.SECONDS));
+
+        Optional<LeaseStrategy> leaseStrategyConfiguration = Optional.ofNullable(configuration.getString(LEASE_STRATEGY_PROPERTY, null))
+            .map(String::trim)
+            .map(String::toLowerCase)
+            .map(v -> switch (v) {
+                case "ledger" -> LeaseStrategy.LEDGER;
+                case "claim" -> LeaseStrategy.CLAIM;
+                default -> throw new IllegalArgumentException("Invalid value for '" + LEASE_STRATEGY_PROPERTY + "': " + v);
+            });
+
         return new AlarmEventSchedulerConfiguration(
             pollIntervalConfiguration.orElse(POLL_INTERVAL_DEFAULT),
             batchSizeConfiguration.orElse(BATCH_SIZE_DEFAULT),
             initialJitterMaxConfiguration.orElse(INITIAL_JITTER_MAX_DEFAULT),
-            modeCfg.orElse(MODE_DEFAULT));
+            modeCfg.orElse(MODE_DEFAULT),
+            lookaheadConfiguration,
+            leaseStrategyConfiguration.orElse(LEASE_STRATEGY_DEFAULT));
+    }
+
+    public AlarmEventSchedulerConfiguration(Duration pollInterval, int batchSize, Duration initialJitterMax, Mode mode) {
+        this(pollInterval, batchSize, initialJitterMax, mode, Optional.empty(), LEASE_STRATEGY_DEFAULT);
     }
 
     public AlarmEventSchedulerConfiguration {
@@ -96,6 +126,17 @@ public record AlarmEventSchedulerConfiguration(Duration pollInterval,
         Preconditions.checkArgument(batchSize > 0, "batchSize must be positive");
         Preconditions.checkArgument(initialJitterMax != null && initialJitterMax.isPositive(), "initialJitterMax must be positive");
         Preconditions.checkNotNull(mode, "mode must not be null");
+        Preconditions.checkNotNull(lookahead, "lookahead must not be null");
+        lookahead.ifPresent(duration -> Preconditions.checkArgument(duration.compareTo(pollInterval) > 0,
+            "'%s' must be greater than the poll interval".formatted(LOOKAHEAD_PROPERTY)));
+        Preconditions.checkNotNull(leaseStrategy, "leaseStrategy must not be null");
+        Preconditions.checkArgument(lookahead.isEmpty() || LeaseStrategy.LEDGER.equals(leaseStrategy),
+            "'%s' is not supported with the claim lease strategy".formatted(LOOKAHEAD_PROPERTY));
+    }
+
+    public boolean claimsAlarms() {
+        return LeaseStrategy.CLAIM.equals(leaseStrategy)
+            && (Mode.CLUSTER.equals(mode) || Mode.PARTITIONED.equals(mode));
     }
 
 }
@@ -30,10 +30,12 @@ import org.apache.james.utils.PropertiesProvider;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
+import com.google.inject.Scopes;
 import com.google.inject.Singleton;
 import com.google.inject.multibindings.ProvidesIntoSet;
 import com.linagora.calendar.storage.AlarmEventLeaseProvider;
 import com.linagora.calendar.storage.SimpleSessionProvider;
+import com.linagora.calendar.storage.UpcomingAlarmRegistry;
 import com.linagora.calendar.storage.configuration.resolver.AlarmSettingReader;
 import com.linagora.calendar.storage.configuration.resolver.ConfigurationResolver;
 import com.linagora.calendar.storage.configuration.resolver.SettingsBasedResolver;
@@ -41,6 +43,12 @@ import com.linagora.calendar.storage.configuration.resolver.SettingsBasedResolve
 
 public class AlarmEventSchedulerModule extends AbstractModule {
 
+    @Override
+    protected void configure() {
+        bind(AlarmEventScheduler.class).in(Scopes.SINGLETON);
+        bind(UpcomingAlarmRegistry.class).to(AlarmEventScheduler.class);
+    }
+
     @ProvidesIntoSet
     InitializationOperation start(AlarmEventScheduler alarmEventScheduler) {
         return InitilizationOperationBuilder
@@ -58,7 +66,7 @@ public class AlarmEventSchedulerModule extends AbstractModule {
     @Named("scheduler")
     AlarmEventLeaseProvider provideAlarmEventLeaseProvider(AlarmEventSchedulerConfiguration configuration,
                                                            AlarmEventLeaseProvider candidate) {
-        if (AlarmEventSchedulerConfiguration.Mode.SINGLE.equals(configuration.mode())) {
+        if (AlarmEventSchedulerConfiguration.Mode.SINGLE.equals(configuration.mode()) || configuration.claimsAlarms()) {
             return AlarmEventLeaseProvider.NOOP;
         } else {
             return candidate;
@@ -0,0 +1,226 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.scheduling;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.apache.james.core.MailAddress;
+
+import com.google.common.base.Preconditions;
+import com.linagora.calendar.storage.AlarmEvent;
+import com.linagora.calendar.storage.eventsearch.EventUid;
+
+/**
+ * Hierarchical timing wheel: each level has wheelSize buckets, each bucket of a level spanning the whole level below.
+ * Alarms cascade down as their bucket expires and are handed back by advance() at most one tick after their alarm time.
+ * Only one alarm is kept per event and recipient.
+ */
+public class AlarmTimingWheel {
+
+    public record Key(EventUid eventUid, MailAddress recipient) {
+        public static Key of(AlarmEvent alarmEvent) {
+            return new Key(alarmEvent.eventUid(), alarmEvent.recipient());
+        }
+    }
+
+    private static class Entry {
+        private final Key key;
+        private final AlarmEvent alarmEvent;
+        private final long expirationMs;
+        private Bucket bucket;
+
+        Entry(AlarmEvent alarmEvent) {
+            this.key = Key.of(alarmEvent);
+            this.alarmEvent = alarmEvent;
+            this.expirationMs = alarmEvent.alarmTime().toEpochMilli();
+        }
+    }
+
+    private static class Bucket {
+        private final Set<Entry> entries = new LinkedHashSet<>();
+        private long expirationMs = -1;
+
+        void add(Entry entry) {
+            entries.add(entry);
+            entry.bucket = this;
+        }
+
+        void remove(Entry entry) {
+            entries.remove(entry);
+            entry.bucket = null;
+        }
+
+        boolean setExpiration(long expirationMs) {
+            if (this.expirationMs == expirationMs) {
+                return false;
+            }
+            this.expirationMs = expirationMs;
+            return true;
+        }
+
+        void flush(Consumer<Entry> consumer) {
+            List<Entry> flushed = new ArrayList<>(entries);
+            entries.clear();
+            expirationMs = -1;
+            flushed.forEach(entry -> {
+                entry.bucket = null;
+                consumer.accept(entry);
+            });
+        }
+    }
+
+    private class Level {
+        private final long tickMs;
+        private final long intervalMs;
+        private final Bucket[] buckets;
+        private long currentTimeMs;
+        private Level overflow;
+
+        Level(long tickMs, long startMs) {
+            this.tickMs = tickMs;
+            this.intervalMs = tickMs * wheelSize;
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket();
+            }
+            this.currentTimeMs = startMs - (startMs % tickMs);
+        }
+
+        boolean add(Entry entry) {
+            if (entry.expirationMs < currentTimeMs + tickMs) {
+                return false;
+            }
+            if (entry.expirationMs < currentTimeMs + intervalMs) {
+                long virtualId = entry.expirationMs / tickMs;
+                Bucket bucket = buckets[(int) (virtualId % wheelSize)];
+                bucket.add(entry);
+                if (bucket.setExpiration(virtualId * tickMs)) {
+                    queue.offer(bucket);
+                }
+                return true;
+            }
+            return overflow().add(entry);
+        }
+
+        void advanceClock(long timeMs) {
+            if (timeMs >= currentTimeMs + tickMs) {
+                currentTimeMs = timeMs - (timeMs % tickMs);
+                if (overflow != null) {
+                    overflow.advanceClock(currentTimeMs);
+                }
+            }
+        }
+
+        private Level overflow() {
+            if (overflow == null) {
+                overflow = new Level(intervalMs, currentTimeMs);
+            }
+            return overflow;
+        }
+    }
+
+    private final int wheelSize;
+    private final PriorityQueue<Bucket> queue = new PriorityQueue<>(Comparator.comparingLong(bucket -> bucket.expirationMs));
+    private final Map<Key, Entry> entries = new HashMap<>();
+    private final List<Entry> expired = new ArrayList<>();
+    private final Level root;
+
+    public AlarmTimingWheel(Instant start, Duration tick, int wheelSize) {
+        Preconditions.checkArgument(tick.toMillis() > 0, "tick must be at least one millisecond");
+        Preconditions.checkArgument(wheelSize > 1, "wheelSize must be greater than 1");
+
+        this.wheelSize = wheelSize;
+        this.root = new Level(tick.toMillis(), start.toEpochMilli());
+    }
+
+    public synchronized void schedule(AlarmEvent alarmEvent) {
+        Entry entry = new Entry(alarmEvent);
+        cancel(entry.key);
+        entries.put(entry.key, entry);
+        insert(entry);
+    }
+
+    public synchronized void cancel(EventUid eventUid, MailAddress recipient) {
+        cancel(new Key(eventUid, recipient));
+    }
+
+    public synchronized void retainPartitions(Set<Integer> partitions) {
+        entries.values().stream()
+            .filter(entry -> !partitions.contains(entry.alarmEvent.partition()))
+            .map(entry -> entry.key)
+            .toList()
+            .forEach(this::cancel);
+    }
+
+    public synchronized boolean contains(Key key) {
+        return entries.containsKey(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized List<AlarmEvent> advance(Instant now) {
+        long nowMs = now.toEpochMilli();
+        while (!queue.isEmpty() && queue.peek().expirationMs <= nowMs) {
+            Bucket bucket = queue.poll();
+            root.advanceClock(bucket.expirationMs);
+            bucket.flush(this::insert);
+        }
+
+        List<Entry> due = expired.stream()
+            .filter(entry -> entry.expirationMs <= nowMs)
+            .sorted(Comparator.comparingLong(entry -> entry.expirationMs))
+            .toList();
+        expired.removeAll(due);
+        return due.stream()
+            .map(entry -> {
+                entries.remove(entry.key);
+                return entry.alarmEvent;
+            })
+            .toList();
+    }
+
+    private void insert(Entry entry) {
+        if (!root.add(entry)) {
+            expired.add(entry);
+        }
+    }
+
+    private void cancel(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            if (entry.bucket != null) {
+                entry.bucket.remove(entry);
+            } else {
+                expired.remove(entry);
+            }
+        }
+    }
+}
@@ -39,9 +39,11 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.james.core.MailAddress;
 import org.apache.james.core.MaybeSender;
 import org.apache.james.core.Username;
+import org.apache.james.metrics.api.MetricFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.linagora.calendar.api.CalendarSchedulers;
 import com.linagora.calendar.api.CalendarUtil;
 import com.linagora.calendar.smtp.Mail;
 import com.linagora.calendar.smtp.MailSender;
@@ -63,7 +65,6 @@ import net.fortuna.ical4j.model.Component;
 import net.fortuna.ical4j.model.Property;
 import net.fortuna.ical4j.model.component.VEvent;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 public class AlarmTriggerService {
 
@@ -87,6 +88,7 @@ public class AlarmTriggerService {
     private final AlarmInstantFactory alarmInstantFactory;
     private final MaybeSender maybeSender;
     private final MailAddress senderAddress;
+    private final MetricFactory metricFactory;
 
     @Inject
     @Singleton
@@ -96,7 +98,8 @@ public class AlarmTriggerService {
                                @Named("alarm") SettingsBasedResolver settingsResolver,
                                MessageGenerator.Factory messageGeneratorFactory,
                                AlarmInstantFactory alarmInstantFactory,
-                               MailTemplateConfiguration mailTemplateConfiguration) {
+                               MailTemplateConfiguration mailTemplateConfiguration,
+                               MetricFactory metricFactory) {
         this.alarmEventDAO = alarmEventDAO;
         this.clock = clock;
         this.mailSenderFactory = mailSenderFactory;
@@ -106,48 +109,54 @@ public class AlarmTriggerService {
         this.maybeSender = mailTemplateConfiguration.sender();
         this.senderAddress = maybeSender.asOptional()
             .orElseThrow(() -> new IllegalArgumentException("Sender address must not be empty"));
+        this.metricFactory = metricFactory;
     }
 
     public Mono<Void> sendMailAndCleanup(AlarmEvent alarmEvent) {
         Instant now = clock.instant().truncatedTo(ChronoUnit.MILLIS);
-        return sendMail(alarmEvent, now)
-            .then(cleanup(alarmEvent))
+        return timed("parse", Mono.fromCallable(() -> CalendarUtil.parseIcs(alarmEvent.ics())))
+            .flatMap(calendar -> sendMail(alarmEvent, calendar, now)
+                .then(cleanup(alarmEvent, calendar)))
             .doOnSuccess(unused -> LOGGER.info("Processed alarm for event: {}, recipient: {}, eventStartTime: {}",
                 alarmEvent.eventUid().value(), alarmEvent.recipient().asString(), alarmEvent.eventStartTime()));
     }
 
-    private Mono<Void> cleanup(AlarmEvent alarmEvent) {
+    private Mono<Void> cleanup(AlarmEvent alarmEvent, Calendar calendar) {
         Username username = Username.fromMailAddress(alarmEvent.recipient());
         Instant sinceInstant = alarmEvent.alarmTime();
 
-        return Mono.fromCallable(() -> alarmInstantFactory.computeNextAlarmInstant(CalendarUtil.parseIcs(alarmEvent.ics()), username, Optional.of(sinceInstant)))
-            .flatMap(alarmInstantOptional -> alarmInstantOptional
+        return Mono.fromCallable(() -> alarmInstantFactory.computeNextAlarmInstant(calendar, username, Optional.of(sinceInstant)))
+            .flatMap(alarmInstantOptional -> timed("persistence", alarmInstantOptional
                 .map(alarmInstant -> alarmEventDAO.update(alarmEvent.withNextOccurrence(alarmInstant)))
-                .orElseGet(() -> alarmEventDAO.delete(alarmEvent.eventUid(), alarmEvent.recipient())));
+                .orElseGet(() -> alarmEventDAO.delete(alarmEvent.eventUid(), alarmEvent.recipient()))));
     }
 
-    private Mono<Void> sendMail(AlarmEvent alarmEvent, Instant now) {
+    private Mono<Void> sendMail(AlarmEvent alarmEvent, Calendar calendar, Instant now) {
         Username recipientUser = Username.fromMailAddress(alarmEvent.recipient());
         if (alarmEvent.eventStartTime().isBefore(now)) {
             // If the event start time is before now, we do not send the alarm
             return Mono.empty();
         }
-        return settingsResolver.resolveOrDefault(recipientUser)
+        return timed("settings", settingsResolver.resolveOrDefault(recipientUser))
             .filter(resolvedSettings -> resolvedSettings.get(ALARM_SETTING_IDENTIFIER, Boolean.class).orElse(ENABLE_ALARM))
             .flatMap(resolvedSettings -> {
                 Locale locale = resolvedSettings.locale();
-                Map<String, Object> model = toPugModel(CalendarUtil.parseIcs(alarmEvent.ics()),
+                Map<String, Object> model = toPugModel(calendar,
                     alarmEvent.recurrenceId(),
                     locale,
                     Duration.between(now, alarmEvent.eventStartTime()));
-                return Mono.fromCallable(() -> messageGeneratorFactory.forLocalizedFeature(new Language(locale), TEMPLATE_TYPE))
-                    .subscribeOn(Schedulers.boundedElastic())
-                    .flatMap(messageGenerator -> messageGenerator.generate(recipientUser, senderAddress, model, List.of()))
-                    .flatMap(message -> mailSenderFactory.create()
-                        .flatMap(mailSender -> mailSender.send(new Mail(maybeSender, List.of(alarmEvent.recipient()), message))));
+                return timed("render", Mono.fromCallable(() -> messageGeneratorFactory.forLocalizedFeature(new Language(locale), TEMPLATE_TYPE))
+                        .subscribeOn(CalendarSchedulers.blocking())
+                        .flatMap(messageGenerator -> messageGenerator.generate(recipientUser, senderAddress, model, List.of())))
+                    .flatMap(message -> timed("smtp", mailSenderFactory.create()
+                        .flatMap(mailSender -> mailSender.send(new Mail(maybeSender, List.of(alarmEvent.recipient()), message)))));
             });
     }
 
+    private <T> Mono<T> timed(String stage, Mono<T> publisher) {
+        return Mono.from(metricFactory.decoratePublisherWithTimerMetric("calendar.alarm.stage." + stage + ".duration", publisher));
+    }
+
     private Map<String, Object> toPugModel(Calendar calendar,
                                            Optional<String> maybeRecurrenceId,
                                            Locale locale,
@@ -34,9 +34,12 @@ import org.junit.jupiter.api.Test;
 import com.github.fge.lambdas.Throwing;
 import com.linagora.calendar.storage.AlarmEvent;
 import com.linagora.calendar.storage.AlarmEventDAO;
+import com.linagora.calendar.storage.AlarmEventLeaseProvider;
 import com.linagora.calendar.storage.eventsearch.EventUid;
 
 import io.restassured.path.json.JsonPath;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
 public interface AlarmEventSchedulerContract {
     boolean NO_RECURRING = false;
@@ -49,6 +52,11 @@ public interface AlarmEventSchedulerContract {
 
     AlarmEventDAO alarmEventDAO();
 
+    AlarmEventLeaseProvider leaseProvider();
+
+    // Scheduler loading the alarms due within the lookahead into its timing wheel, closed after the test
+    AlarmEventScheduler lookaheadScheduler(int batchSize, Duration lookahead, AlarmEventLeaseProvider leaseProvider);
+
     @Test
     default void shouldSendAlarmEmailWhenAvailableAlarmIsTriggered() {
         scheduler().start();
@@ -164,4 +172,81 @@ public interface AlarmEventSchedulerContract {
         assertThat(getSmtpMailbox().getList("")).hasSize(0);
     }
 
+    @Test
+    default void alarmRegisteredWithinLookaheadShouldFireOnceWhenAnotherAlarmIsInFlight() throws InterruptedException {
+        Instant now = clock().instant();
+        AlarmEvent firstAlarm = alarmEvent("event-uid-1", "alice@abc.com", now.plus(1, ChronoUnit.MINUTES), now.plus(30, ChronoUnit.MINUTES));
+        AlarmEvent secondAlarm = alarmEvent("event-uid-2", "bob@abc.com", now.plus(2, ChronoUnit.MINUTES), now.plus(30, ChronoUnit.MINUTES));
+        alarmEventDAO().create(firstAlarm).block();
+        alarmEventDAO().create(secondAlarm).block();
+
+        // Keeps the first alarm in flight until released
+        Sinks.Empty<Void> releaseFirstAlarm = Sinks.empty();
+        AlarmEventLeaseProvider leaseProvider = new AlarmEventLeaseProvider() {
+            @Override
+            public Mono<Void> acquire(AlarmEvent alarmEvent, Duration ttl) {
+                if (alarmEvent.eventUid().equals(firstAlarm.eventUid())) {
+                    return releaseFirstAlarm.asMono().then(leaseProvider().acquire(alarmEvent, ttl));
+                }
+                return leaseProvider().acquire(alarmEvent, ttl);
+            }
+
+            @Override
+            public Mono<Void> release(AlarmEvent alarmEvent) {
+                return leaseProvider().release(alarmEvent);
+            }
+        };
+
+        // A batch of one only holds the first alarm until it is in flight
+        AlarmEventScheduler scheduler = lookaheadScheduler(1, Duration.ofMinutes(10), leaseProvider);
+        scheduler.start();
+        // As EventAlarmHandler does once the alarm is stored
+        scheduler.register(firstAlarm);
+
+        // The first alarm fires from the wheel and stays in flight: the prefetch must still reach the second one
+        clock().setInstant(now.plus(150, ChronoUnit.SECONDS));
+        awaitAtMost.atMost(Duration.ofSeconds(20))
+            .untilAsserted(() -> assertThat(getSmtpMailbox().getList("")).hasSize(1));
+        assertThat(getSmtpMailbox().getString("[0].recipients[0].address")).isEqualTo("bob@abc.com");
+
+        releaseFirstAlarm.tryEmitEmpty();
+        awaitAtMost.atMost(Duration.ofSeconds(20))
+            .untilAsserted(() -> assertThat(getSmtpMailbox().getList("")).hasSize(2));
+
+        // Leave a few prefetches a chance to load the sent alarms again
+        Thread.sleep(3000);
+        JsonPath smtpMailsResponse = getSmtpMailbox();
+        assertSoftly(softly -> {
+            softly.assertThat(smtpMailsResponse.getList("")).hasSize(2);
+            softly.assertThat(smtpMailsResponse.getString("[1].recipients[0].address")).isEqualTo("alice@abc.com");
+            softly.assertThat(alarmEventDAO().find(firstAlarm.eventUid(), firstAlarm.recipient()).blockOptional()).isEmpty();
+            softly.assertThat(alarmEventDAO().find(secondAlarm.eventUid(), secondAlarm.recipient()).blockOptional()).isEmpty();
+        });
+    }
+
+    private static AlarmEvent alarmEvent(String eventUid, String recipient, Instant alarmTime, Instant eventStartTime) {
+        return new AlarmEvent(
+            new EventUid(eventUid),
+            alarmTime,
+            eventStartTime,
+            NO_RECURRING,
+            Optional.empty(),
+            Throwing.supplier(() -> new MailAddress(recipient)).get(),
+            """
+                BEGIN:VCALENDAR
+                VERSION:2.0
+                BEGIN:VEVENT
+                UID:%s
+                DTSTART:20250801T100000Z
+                DTEND:20250801T110000Z
+                SUMMARY:Alarm Test Event
+                LOCATION:Test Room
+                DESCRIPTION:This is a test alarm event.
+                ORGANIZER;CN=Test Organizer:mailto:organizer@abc.com
+                ATTENDEE;CN=Test Attendee:mailto:%s
+                ATTENDEE;PARTSTAT=ACCEPTED;RSVP=FALSE;ROLE=CHAIR;CUTYPE=INDIVIDUAL:mailto:organizer@abc.com
+                END:VEVENT
+                END:VCALENDAR
+                """.formatted(eventUid, recipient));
+    }
 }
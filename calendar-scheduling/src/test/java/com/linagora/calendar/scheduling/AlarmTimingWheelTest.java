@@ -0,0 +1,148 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.scheduling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import jakarta.mail.internet.AddressException;
+
+import org.apache.james.core.MailAddress;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.linagora.calendar.storage.AlarmEvent;
+import com.linagora.calendar.storage.eventsearch.EventUid;
+
+class AlarmTimingWheelTest {
+    private static final Instant START = Instant.parse("2025-08-01T10:00:00Z");
+    private static final Duration TICK = Duration.ofMillis(100);
+    private static final int WHEEL_SIZE = 8;
+
+    private AlarmTimingWheel testee;
+
+    @BeforeEach
+    void setUp() {
+        testee = new AlarmTimingWheel(START, TICK, WHEEL_SIZE);
+    }
+
+    @Test
+    void advanceShouldReturnNothingWhenEmpty() {
+        assertThat(testee.advance(START.plusSeconds(10))).isEmpty();
+    }
+
+    @Test
+    void advanceShouldReturnOverdueAlarmsImmediately() throws AddressException {
+        AlarmEvent alarm = alarmEvent("1", START.minusSeconds(30));
+        testee.schedule(alarm);
+
+        assertThat(testee.advance(START)).containsExactly(alarm);
+    }
+
+    @Test
+    void advanceShouldNotReturnAlarmsBeforeTheirTime() throws AddressException {
+        testee.schedule(alarmEvent("1", START.plusSeconds(5)));
+
+        assertThat(testee.advance(START.plusMillis(4900))).isEmpty();
+    }
+
+    @Test
+    void advanceShouldReturnAlarmsOnTheirTime() throws AddressException {
+        AlarmEvent alarm = alarmEvent("1", START.plusSeconds(5));
+        testee.schedule(alarm);
+
+        assertThat(testee.advance(START.plusSeconds(5))).containsExactly(alarm);
+    }
+
+    @Test
+    void advanceShouldCascadeAlarmsFromUpperLevels() throws AddressException {
+        AlarmEvent alarm = alarmEvent("1", START.plus(Duration.ofMinutes(3)).plusMillis(250));
+        testee.schedule(alarm);
+
+        assertThat(testee.advance(START.plus(Duration.ofMinutes(3)))).isEmpty();
+        assertThat(testee.advance(START.plus(Duration.ofMinutes(3)).plusMillis(300))).containsExactly(alarm);
+    }
+
+    @Test
+    void advanceShouldReturnAlarmsOnlyOnce() throws AddressException {
+        testee.schedule(alarmEvent("1", START.plusSeconds(1)));
+        testee.advance(START.plusSeconds(2));
+
+        assertThat(testee.advance(START.plusSeconds(3))).isEmpty();
+        assertThat(testee.size()).isZero();
+    }
+
+    @Test
+    void advanceShouldReturnAlarmsOldestFirst() throws AddressException {
+        AlarmEvent alarm1 = alarmEvent("1", START.plusSeconds(3));
+        AlarmEvent alarm2 = alarmEvent("2", START.plusSeconds(1));
+        AlarmEvent alarm3 = alarmEvent("3", START.plusSeconds(2));
+        testee.schedule(alarm1);
+        testee.schedule(alarm2);
+        testee.schedule(alarm3);
+
+        assertThat(testee.advance(START.plusSeconds(10))).containsExactly(alarm2, alarm3, alarm1);
+    }
+
+    @Test
+    void scheduleShouldReplacePreviousAlarmOfTheSameEventAndRecipient() throws AddressException {
+        AlarmEvent alarm = alarmEvent("1", START.plusSeconds(1));
+        AlarmEvent rescheduled = alarmEvent("1", START.plusSeconds(60));
+        testee.schedule(alarm);
+        testee.schedule(rescheduled);
+
+        assertThat(testee.advance(START.plusSeconds(2))).isEmpty();
+        assertThat(testee.advance(START.plusSeconds(61))).containsExactly(rescheduled);
+    }
+
+    @Test
+    void cancelShouldRemoveScheduledAlarm() throws AddressException {
+        AlarmEvent alarm = alarmEvent("1", START.plusSeconds(1));
+        testee.schedule(alarm);
+
+        testee.cancel(alarm.eventUid(), alarm.recipient());
+
+        assertThat(testee.advance(START.plusSeconds(2))).isEmpty();
+        assertThat(testee.size()).isZero();
+    }
+
+    @Test
+    void cancelShouldRemoveOverdueAlarm() throws AddressException {
+        AlarmEvent alarm = alarmEvent("1", START.minusSeconds(1));
+        testee.schedule(alarm);
+
+        testee.cancel(alarm.eventUid(), alarm.recipient());
+
+        assertThat(testee.advance(START)).isEmpty();
+    }
+
+    private AlarmEvent alarmEvent(String eventUid, Instant alarmTime) throws AddressException {
+        return new AlarmEvent(
+            new EventUid(eventUid),
+            alarmTime,
+            alarmTime.plus(Duration.ofMinutes(15)),
+            false,
+            Optional.empty(),
+            new MailAddress("attendee@abc.com"),
+            "ics");
+    }
+}
@@ -51,6 +51,7 @@ import jakarta.mail.internet.AddressException;
 import org.apache.james.core.MailAddress;
 import org.apache.james.core.MaybeSender;
 import org.apache.james.core.Username;
+import org.apache.james.metrics.tests.RecordingMetricFactory;
 import org.apache.james.server.core.filesystem.FileSystemImpl;
 import org.apache.james.util.Port;
 import org.apache.james.utils.UpdatableTickingClock;
@@ -97,6 +98,7 @@ public class AlarmTriggerServiceTest {
     private MemoryAlarmEventDAO alarmEventDAO;
     private UpdatableTickingClock clock;
     private SettingsBasedResolver settingsResolver;
+    private RecordingMetricFactory metricFactory;
     private AlarmTriggerService testee;
 
     @BeforeEach
@@ -126,6 +128,7 @@ public class AlarmTriggerServiceTest {
             .thenReturn(Mono.just(SettingsBasedResolver.ResolvedSettings.DEFAULT));
 
         clock = new UpdatableTickingClock(Instant.now());
+        metricFactory = new RecordingMetricFactory();
 
         testee = new AlarmTriggerService(
             alarmEventDAO,
@@ -134,7 +137,8 @@ public class AlarmTriggerServiceTest {
             settingsResolver,
             messageGeneratorFactory,
             new AlarmInstantFactory.Default(clock),
-            mailTemplateConfig
+            mailTemplateConfig,
+            metricFactory
         );
 
         requestSpecification = new RequestSpecBuilder()
@@ -405,6 +409,43 @@ public class AlarmTriggerServiceTest {
         assertThat(alarmEventDAO.find(eventUid, new MailAddress("attendee@abc.com")).blockOptional()).isEmpty();
     }
 
+    @Test
+    void shouldRecordStageMetricsWhenSendingAlarmEmail() throws AddressException {
+        Instant now = clock.instant();
+        EventUid eventUid = new EventUid("event-uid-1");
+        AlarmEvent event = new AlarmEvent(
+            eventUid,
+            now.minusSeconds(10),
+            now.plusSeconds(3600),
+            NO_RECURRING,
+            Optional.empty(),
+            new MailAddress("attendee@abc.com"),
+            """
+            BEGIN:VCALENDAR
+            VERSION:2.0
+            BEGIN:VEVENT
+            UID:{eventUid}
+            DTSTART:20250801T100000Z
+            DTEND:20250801T110000Z
+            SUMMARY:Alarm Test Event
+            ORGANIZER;CN=Test Organizer:mailto:organizer@abc.com
+            ATTENDEE;CN=Test Attendee:mailto:attendee@abc.com
+            END:VEVENT
+            END:VCALENDAR
+            """.replace("{eventUid}", eventUid.value()));
+        alarmEventDAO.create(event).block();
+
+        testee.sendMailAndCleanup(event).block();
+
+        assertSoftly(softly -> {
+            softly.assertThat(metricFactory.executionTimesFor("calendar.alarm.stage.parse.duration")).hasSize(1);
+            softly.assertThat(metricFactory.executionTimesFor("calendar.alarm.stage.settings.duration")).hasSize(1);
+            softly.assertThat(metricFactory.executionTimesFor("calendar.alarm.stage.render.duration")).hasSize(1);
+            softly.assertThat(metricFactory.executionTimesFor("calendar.alarm.stage.smtp.duration")).hasSize(1);
+            softly.assertThat(metricFactory.executionTimesFor("calendar.alarm.stage.persistence.duration")).hasSize(1);
+        });
+    }
+
     @Test
     void shouldNotSendAlarmEmailWhenEventStartTimeIsLessThanCurrentTime() throws AddressException {
         Instant now = clock.instant();
@@ -47,6 +47,7 @@ import com.linagora.calendar.smtp.template.MailTemplateConfiguration;
 import com.linagora.calendar.smtp.template.MessageGenerator;
 import com.linagora.calendar.storage.AlarmEventDAO;
 import com.linagora.calendar.storage.AlarmEventLeaseProvider;
+import com.linagora.calendar.storage.AlarmPartitionMembership;
 import com.linagora.calendar.storage.MemoryAlarmEventDAO;
 import com.linagora.calendar.storage.MemoryOpenPaaSUserDAO;
 import com.linagora.calendar.storage.configuration.resolver.SettingsBasedResolver;
@@ -62,8 +63,10 @@ public class MemoryAlarmEventSchedulerTest implements AlarmEventSchedulerContrac
     static final MockSmtpServerExtension mockSmtpExtension = new MockSmtpServerExtension();
 
     private AlarmEventScheduler scheduler;
+    private AlarmEventScheduler lookaheadScheduler;
     private UpdatableTickingClock clock;
     private MemoryAlarmEventDAO alarmEventDAO;
+    private AlarmTriggerService alarmTriggerService;
     private RequestSpecification requestSpecification;
 
     @BeforeEach
@@ -90,14 +93,15 @@ public class MemoryAlarmEventSchedulerTest implements AlarmEventSchedulerContrac
             MaybeSender.getMailSender("no-reply@openpaas.org"));
         MessageGenerator.Factory messageGeneratorFactory = MessageGenerator.factory(mailTemplateConfig, fileSystem, new MemoryOpenPaaSUserDAO());
 
-        AlarmTriggerService alarmTriggerService = new AlarmTriggerService(
+        alarmTriggerService = new AlarmTriggerService(
             alarmEventDAO,
             clock,
             mailSenderFactory,
             settingsResolver,
             messageGeneratorFactory,
             new AlarmInstantFactory.Default(clock),
-            mailTemplateConfig);
+            mailTemplateConfig,
+            new RecordingMetricFactory());
 
         AlarmEventSchedulerConfiguration alarmEventSchedulerConfiguration = new AlarmEventSchedulerConfiguration(
             Duration.ofSeconds(1),
@@ -105,12 +109,7 @@ public class MemoryAlarmEventSchedulerTest implements AlarmEventSchedulerContrac
             Duration.ofMillis(100),
             AlarmEventSchedulerConfiguration.Mode.SINGLE);
 
-        scheduler = new AlarmEventScheduler(clock,
-            alarmEventDAO,
-            AlarmEventLeaseProvider.NOOP,
-            alarmTriggerService,
-            alarmEventSchedulerConfiguration,
-            new RecordingMetricFactory());
+        scheduler = createScheduler(alarmEventSchedulerConfiguration, AlarmEventLeaseProvider.NOOP);
 
         requestSpecification = new RequestSpecBuilder()
             .setPort(mockSmtpExtension.getMockSmtp().getRestApiPort())
@@ -118,9 +117,22 @@ public class MemoryAlarmEventSchedulerTest implements AlarmEventSchedulerContrac
             .build();
     }
 
+    private AlarmEventScheduler createScheduler(AlarmEventSchedulerConfiguration configuration, AlarmEventLeaseProvider leaseProvider) {
+        return new AlarmEventScheduler(clock,
+            alarmEventDAO,
+            leaseProvider,
+            AlarmPartitionMembership.SINGLE_NODE,
+            alarmTriggerService,
+            configuration,
+            new RecordingMetricFactory());
+    }
+
     @AfterEach
     void teardown() {
         scheduler.close();
+        if (lookaheadScheduler != null) {
+            lookaheadScheduler.close();
+        }
         given(requestSpecification).delete("/smtpMails").then();
         given(requestSpecification).delete("/smtpBehaviors").then();
     }
@@ -140,6 +152,23 @@ public class MemoryAlarmEventSchedulerTest implements AlarmEventSchedulerContrac
         return alarmEventDAO;
     }
 
+    @Override
+    public AlarmEventLeaseProvider leaseProvider() {
+        return AlarmEventLeaseProvider.NOOP;
+    }
+
+    @Override
+    public AlarmEventScheduler lookaheadScheduler(int batchSize, Duration lookahead, AlarmEventLeaseProvider leaseProvider) {
+        lookaheadScheduler = createScheduler(new AlarmEventSchedulerConfiguration(
+            Duration.ofSeconds(1),
+            batchSize,
+            Duration.ofMillis(100),
+            AlarmEventSchedulerConfiguration.Mode.SINGLE,
+            Optional.of(lookahead),
+            AlarmEventSchedulerConfiguration.LeaseStrategy.LEDGER), leaseProvider);
+        return lookaheadScheduler;
+    }
+
     @Override
     public JsonPath getSmtpMailbox() {
         return given(requestSpecification).get("/smtpMails").jsonPath();
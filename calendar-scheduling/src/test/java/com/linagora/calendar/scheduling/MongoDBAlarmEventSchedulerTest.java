@@ -52,6 +52,7 @@ import com.linagora.calendar.storage.configuration.resolver.SettingsBasedResolve
 import com.linagora.calendar.storage.event.AlarmInstantFactory;
 import com.linagora.calendar.storage.mongodb.DockerMongoDBExtension;
 import com.linagora.calendar.storage.mongodb.MongoAlarmEventLeaseProvider;
+import com.linagora.calendar.storage.mongodb.MongoAlarmPartitionMembership;
 import com.linagora.calendar.storage.mongodb.MongoDBAlarmEventDAO;
 import com.linagora.calendar.storage.mongodb.MongoDBAlarmEventLedgerDAO;
 import com.linagora.calendar.storage.mongodb.MongoDBOpenPaaSDomainDAO;
@@ -71,14 +72,17 @@ public class MongoDBAlarmEventSchedulerTest implements AlarmEventSchedulerContra
     static DockerMongoDBExtension mongo = new DockerMongoDBExtension();
 
     private AlarmEventScheduler scheduler;
+    private AlarmEventScheduler lookaheadScheduler;
     private UpdatableTickingClock clock;
     private MongoDBAlarmEventDAO alarmEventDAO;
+    private AlarmTriggerService alarmTriggerService;
+    private AlarmEventLeaseProvider alarmEventLeaseProvider;
     private RequestSpecification requestSpecification;
 
     @BeforeEach
     void setup() {
         clock = new UpdatableTickingClock(Instant.now());
-        alarmEventDAO = new MongoDBAlarmEventDAO(mongo.getDb());
+        alarmEventDAO = new MongoDBAlarmEventDAO(mongo.getDb(), clock);
         MailSenderConfiguration mailSenderConfiguration = new MailSenderConfiguration(
             "localhost",
             Port.of(mockSmtpExtension.getMockSmtp().getSmtpPort()),
@@ -104,12 +108,13 @@ public class MongoDBAlarmEventSchedulerTest implements AlarmEventSchedulerContra
 
         MessageGenerator.Factory messageGeneratorFactory = MessageGenerator.factory(mailTemplateConfig, fileSystem, openPaaSUserDAO);
 
-        AlarmTriggerService alarmTriggerService = new AlarmTriggerService(alarmEventDAO, clock,
+        alarmTriggerService = new AlarmTriggerService(alarmEventDAO, clock,
             mailSenderFactory,
             settingsResolver,
             messageGeneratorFactory,
             new AlarmInstantFactory.Default(clock),
-            mailTemplateConfig);
+            mailTemplateConfig,
+            new RecordingMetricFactory());
 
         AlarmEventSchedulerConfiguration alarmEventSchedulerConfiguration = new AlarmEventSchedulerConfiguration(
             Duration.ofSeconds(1),
@@ -117,14 +122,9 @@ public class MongoDBAlarmEventSchedulerTest implements AlarmEventSchedulerContra
             Duration.ofMillis(100),
             AlarmEventSchedulerConfiguration.Mode.CLUSTER);
 
-        AlarmEventLeaseProvider alarmEventLeaseProvider = new MongoAlarmEventLeaseProvider(
+        alarmEventLeaseProvider = new MongoAlarmEventLeaseProvider(
             new MongoDBAlarmEventLedgerDAO(mongo.getDb(), clock));
-        scheduler = new AlarmEventScheduler(clock,
-            alarmEventDAO,
-            alarmEventLeaseProvider,
-            alarmTriggerService,
-            alarmEventSchedulerConfiguration,
-            new RecordingMetricFactory());
+        scheduler = createScheduler(alarmEventSchedulerConfiguration, alarmEventLeaseProvider);
 
         requestSpecification = new RequestSpecBuilder()
             .setPort(mockSmtpExtension.getMockSmtp().getRestApiPort())
@@ -132,9 +132,22 @@ public class MongoDBAlarmEventSchedulerTest implements AlarmEventSchedulerContra
             .build();
     }
 
+    private AlarmEventScheduler createScheduler(AlarmEventSchedulerConfiguration configuration, AlarmEventLeaseProvider leaseProvider) {
+        return new AlarmEventScheduler(clock,
+            alarmEventDAO,
+            leaseProvider,
+            new MongoAlarmPartitionMembership(mongo.getDb(), clock),
+            alarmTriggerService,
+            configuration,
+            new RecordingMetricFactory());
+    }
+
     @AfterEach
     void teardown() {
         scheduler.close();
+        if (lookaheadScheduler != null) {
+            lookaheadScheduler.close();
+        }
         given(requestSpecification).delete("/smtpMails").then();
         given(requestSpecification).delete("/smtpBehaviors").then();
     }
@@ -154,6 +167,23 @@ public class MongoDBAlarmEventSchedulerTest implements AlarmEventSchedulerContra
         return alarmEventDAO;
     }
 
+    @Override
+    public AlarmEventLeaseProvider leaseProvider() {
+        return alarmEventLeaseProvider;
+    }
+
+    @Override
+    public AlarmEventScheduler lookaheadScheduler(int batchSize, Duration lookahead, AlarmEventLeaseProvider leaseProvider) {
+        lookaheadScheduler = createScheduler(new AlarmEventSchedulerConfiguration(
+            Duration.ofSeconds(1),
+            batchSize,
+            Duration.ofMillis(100),
+            AlarmEventSchedulerConfiguration.Mode.CLUSTER,
+            Optional.of(lookahead),
+            AlarmEventSchedulerConfiguration.LeaseStrategy.LEDGER), leaseProvider);
+        return lookaheadScheduler;
+    }
+
     @Override
     public JsonPath getSmtpMailbox() {
         return given(requestSpecification).get("/smtpMails").jsonPath();
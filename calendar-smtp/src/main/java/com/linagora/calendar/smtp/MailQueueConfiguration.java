@@ -0,0 +1,105 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.smtp;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+import org.apache.commons.configuration2.Configuration;
+import org.apache.james.util.DurationParser;
+
+import com.google.common.base.Preconditions;
+
+public record MailQueueConfiguration(boolean enabled,
+                                     Duration pollInterval,
+                                     int batchSize,
+                                     int concurrency,
+                                     int maxAttempts,
+                                     Duration initialBackoff,
+                                     Duration maxBackoff,
+                                     double domainRateLimit) {
+
+    public static final String ENABLED_PROPERTY = "smtp.queue.enabled";
+    public static final boolean ENABLED_DEFAULT = false;
+
+    public static final String POLL_INTERVAL_PROPERTY = "smtp.queue.poll.interval";
+    public static final Duration POLL_INTERVAL_DEFAULT = Duration.ofSeconds(1);
+
+    public static final String BATCH_SIZE_PROPERTY = "smtp.queue.batch.size";
+    public static final int BATCH_SIZE_DEFAULT = 100;
+
+    public static final String CONCURRENCY_PROPERTY = "smtp.queue.concurrency";
+    public static final int CONCURRENCY_DEFAULT = 4;
+
+    public static final String MAX_ATTEMPTS_PROPERTY = "smtp.queue.max.attempts";
+    public static final int MAX_ATTEMPTS_DEFAULT = 8;
+
+    public static final String INITIAL_BACKOFF_PROPERTY = "smtp.queue.backoff.initial";
+    public static final Duration INITIAL_BACKOFF_DEFAULT = Duration.ofSeconds(10);
+
+    public static final String MAX_BACKOFF_PROPERTY = "smtp.queue.backoff.max";
+    public static final Duration MAX_BACKOFF_DEFAULT = Duration.ofHours(1);
+
+    public static final String DOMAIN_RATE_LIMIT_PROPERTY = "smtp.queue.domain.rate.limit";
+    public static final double DOMAIN_RATE_LIMIT_DEFAULT = 0;
+
+    public static final MailQueueConfiguration DEFAULT = new MailQueueConfiguration(ENABLED_DEFAULT, POLL_INTERVAL_DEFAULT,
+        BATCH_SIZE_DEFAULT, CONCURRENCY_DEFAULT, MAX_ATTEMPTS_DEFAULT, INITIAL_BACKOFF_DEFAULT, MAX_BACKOFF_DEFAULT,
+        DOMAIN_RATE_LIMIT_DEFAULT);
+
+    public MailQueueConfiguration {
+        Preconditions.checkArgument(pollInterval.isPositive(), "'%s' must be positive".formatted(POLL_INTERVAL_PROPERTY));
+        Preconditions.checkArgument(batchSize > 0, "'%s' must be positive".formatted(BATCH_SIZE_PROPERTY));
+        Preconditions.checkArgument(concurrency > 0, "'%s' must be positive".formatted(CONCURRENCY_PROPERTY));
+        Preconditions.checkArgument(maxAttempts > 0, "'%s' must be positive".formatted(MAX_ATTEMPTS_PROPERTY));
+        Preconditions.checkArgument(initialBackoff.isPositive(), "'%s' must be positive".formatted(INITIAL_BACKOFF_PROPERTY));
+        Preconditions.checkArgument(maxBackoff.compareTo(initialBackoff) >= 0,
+            "'%s' must not be lower than '%s'".formatted(MAX_BACKOFF_PROPERTY, INITIAL_BACKOFF_PROPERTY));
+        Preconditions.checkArgument(domainRateLimit >= 0, "'%s' must not be negative".formatted(DOMAIN_RATE_LIMIT_PROPERTY));
+    }
+
+    public static MailQueueConfiguration from(Configuration configuration) {
+        return new MailQueueConfiguration(
+            configuration.getBoolean(ENABLED_PROPERTY, ENABLED_DEFAULT),
+            duration(configuration, POLL_INTERVAL_PROPERTY).orElse(POLL_INTERVAL_DEFAULT),
+            configuration.getInt(BATCH_SIZE_PROPERTY, BATCH_SIZE_DEFAULT),
+            configuration.getInt(CONCURRENCY_PROPERTY, CONCURRENCY_DEFAULT),
+            configuration.getInt(MAX_ATTEMPTS_PROPERTY, MAX_ATTEMPTS_DEFAULT),
+            duration(configuration, INITIAL_BACKOFF_PROPERTY).orElse(INITIAL_BACKOFF_DEFAULT),
+            duration(configuration, MAX_BACKOFF_PROPERTY).orElse(MAX_BACKOFF_DEFAULT),
+            configuration.getDouble(DOMAIN_RATE_LIMIT_PROPERTY, DOMAIN_RATE_LIMIT_DEFAULT));
+    }
+
+    private static Optional<Duration> duration(Configuration configuration, String property) {
+        return Optional.ofNullable(configuration.getString(property, null))
+            .map(string -> DurationParser.parse(string, ChronoUnit.SECONDS));
+    }
+
+    // Exponential backoff: the delay doubles after each failed attempt, up to maxBackoff
+    public Duration backoff(int failedAttempts) {
+        int exponent = Math.max(0, Math.min(failedAttempts - 1, 30));
+        Duration backoff = initialBackoff.multipliedBy(1L << exponent);
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    public boolean rateLimitsDomains() {
+        return domainRateLimit > 0;
+    }
+}
@@ -19,18 +19,17 @@
 package com.linagora.calendar.smtp;
 
 import java.io.IOException;
-import java.io.Writer;
-import java.nio.charset.StandardCharsets;
+import java.io.OutputStream;
 import java.security.cert.X509Certificate;
 import java.util.Collection;
-import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
 
 import javax.net.ssl.X509TrustManager;
 
 import jakarta.inject.Inject;
 
 import org.apache.commons.net.smtp.AuthenticatingSMTPClient;
-import org.apache.commons.net.smtp.SMTPClient;
 import org.apache.commons.net.smtp.SMTPReply;
 import org.apache.james.core.MailAddress;
 import org.apache.james.mime4j.message.DefaultMessageWriter;
@@ -40,14 +39,46 @@ import org.slf4j.LoggerFactory;
 import com.github.fge.lambdas.Throwing;
 import com.google.common.collect.ImmutableList;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface MailSender {
     Logger LOGGER = LoggerFactory.getLogger(MailSender.class);
 
+    record SendResult(Mail mail, Optional<Throwable> error) {
+        public static SendResult success(Mail mail) {
+            return new SendResult(mail, Optional.empty());
+        }
+
+        public static SendResult failure(Mail mail, Throwable error) {
+            return new SendResult(mail, Optional.of(error));
+        }
+
+        public boolean isSuccess() {
+            return error.isEmpty();
+        }
+    }
+
     Mono<Void> send(Mail mail);
 
-    Mono<Void> send(Collection<Mail> mails);
+    /**
+     * Sends the mails on a single session, and reports one result per mail, in the order of the given mails.
+     * A failure preventing the session from carrying further mails fails the remaining ones, while the mails
+     * already sent keep their success.
+     */
+    Flux<SendResult> sendEach(Collection<Mail> mails);
+
+    // Only fails when no mail could be sent
+    default Mono<Void> send(Collection<Mail> mails) {
+        return sendEach(mails)
+            .collectList()
+            .flatMap(results -> {
+                if (!results.isEmpty() && results.stream().noneMatch(SendResult::isSuccess)) {
+                    return Mono.error(results.getFirst().error().orElseThrow());
+                }
+                return Mono.empty();
+            });
+    }
 
     interface Factory {
         Mono<MailSender> create();
@@ -77,44 +108,48 @@ public interface MailSender {
             }
 
             public Mono<MailSender> create() {
-                return Mono.fromCallable(() -> {
-                    AuthenticatingSMTPClient authClient = new AuthenticatingSMTPClient(DEFAULT_PROTOCOL,
-                        configuration.sslEnabled(),
-                        UTF_8_ENCODING);
+                return Mono.fromCallable(() -> new MailSender.Default(connect(), configuration));
+            }
 
-                    if (configuration.trustAllCerts()) {
-                        authClient.setTrustManager(TRUST_ALL);
-                    }
+            StreamingSmtpClient connect() throws Exception {
+                StreamingSmtpClient authClient = new StreamingSmtpClient(DEFAULT_PROTOCOL,
+                    configuration.sslEnabled(),
+                    UTF_8_ENCODING);
 
-                    // Connect
-                    authClient.connect(configuration.host(), configuration.port().getValue());
+                if (configuration.trustAllCerts()) {
+                    authClient.setTrustManager(TRUST_ALL);
+                }
 
-                    // StartTLS if needed
-                    if (configuration.startTlsEnabled()) {
-                        authClient.execTLS();
-                        if (!SMTPReply.isPositiveCompletion(authClient.getReplyCode())) {
-                            throw new SmtpSendingFailedException("'starttls' failed: " + authClient.getReplyString());
-                        }
+                // Connect
+                authClient.connect(configuration.host(), configuration.port().getValue());
+
+                // StartTLS if needed
+                if (configuration.startTlsEnabled()) {
+                    authClient.execTLS();
+                    if (!SMTPReply.isPositiveCompletion(authClient.getReplyCode())) {
+                        throw new SmtpSendingFailedException("'starttls' failed: " + authClient.getReplyString());
                     }
-                    // AUTH
-                    configuration.username().ifPresent(Throwing.consumer(username -> {
-                        String password = configuration.password().get();
-                        authClient.auth(AuthenticatingSMTPClient.AUTH_METHOD.PLAIN, username.asString(), password);
-                        if (!SMTPReply.isPositiveCompletion(authClient.getReplyCode())) {
-                            throw new SmtpSendingFailedException("'auth' failed: " + authClient.getReplyString());
-                        }
-                    }));
-                    return new MailSender.Default(authClient, configuration);
-                });
+                }
+                // AUTH
+                configuration.username().ifPresent(Throwing.consumer(username -> {
+                    String password = configuration.password().get();
+                    authClient.auth(AuthenticatingSMTPClient.AUTH_METHOD.PLAIN, username.asString(), password);
+                    if (!SMTPReply.isPositiveCompletion(authClient.getReplyCode())) {
+                        throw new SmtpSendingFailedException("'auth' failed: " + authClient.getReplyString());
+                    }
+                }));
+                return authClient;
             }
         }
     }
 
     class Default implements MailSender {
-        private final SMTPClient client;
+        private final StreamingSmtpClient client;
         private final MailSenderConfiguration configuration;
+        private boolean greeted;
+        private boolean dataSent;
 
-        public Default(SMTPClient client, MailSenderConfiguration configuration) {
+        public Default(StreamingSmtpClient client, MailSenderConfiguration configuration) {
             this.client = client;
             this.configuration = configuration;
         }
@@ -128,78 +163,121 @@ public interface MailSender {
         }
 
         @Override
-        public Mono<Void> send(Collection<Mail> mails) {
-            return Mono.fromRunnable(Throwing.runnable(() -> {
-                ImmutableList.Builder<Exception> exceptionBuilder = new ImmutableList.Builder<>();
-                mails.forEach(Throwing.consumer(mail -> {
-                    try {
-                        sendMailTransaction(mail);
-                    } catch (Exception e) {
-                        LOGGER.warn("Sending email failed", e);
-                        exceptionBuilder.add(e);
-                    }
-                    boolean reset = client.reset();
-                    if (!reset) {
-                        throw new SmtpSendingFailedException("Failure to reset SMTP client: " + client.getReplyString());
+        public Flux<SendResult> sendEach(Collection<Mail> mails) {
+            return Mono.fromCallable(() -> {
+                    ImmutableList.Builder<SendResult> results = ImmutableList.builder();
+                    Optional<SmtpSendingFailedException> sessionFailure = Optional.empty();
+                    for (Mail mail : mails) {
+                        if (sessionFailure.isPresent()) {
+                            results.add(SendResult.failure(mail, sessionFailure.get()));
+                            continue;
+                        }
+                        try {
+                            sendMailTransaction(mail);
+                            results.add(SendResult.success(mail));
+                        } catch (Exception e) {
+                            LOGGER.warn("Sending email failed", e);
+                            results.add(SendResult.failure(mail, e));
+                        }
+                        if (!reset()) {
+                            sessionFailure = Optional.of(new SmtpSendingFailedException("Failure to reset SMTP client: " + client.getReplyString()));
+                        }
                     }
-                }));
-                disconnect();
-
-                List<Exception> exceptions = exceptionBuilder.build();
-                if (exceptions.size() == mails.size()) {
-                    throw exceptions.getFirst();
-                }
-            }));
+                    disconnectQuietly();
+                    return results.build();
+                })
+                .flatMapIterable(Function.identity());
         }
 
-        private void disconnect() throws IOException {
+        void disconnect() throws IOException {
             if (client.isConnected()) {
                 client.logout();
                 client.disconnect();
             }
         }
 
-        private void sendMailTransaction(Mail mail) throws IOException {
-            int heloCode = client.helo(configuration.ehlo());
-            if (!SMTPReply.isPositiveCompletion(heloCode)) {
-                throw new SmtpSendingFailedException("'helo' failed: " + client.getReplyString());
+        // Mails are already sent: failing to close the session must not report them as failed
+        private void disconnectQuietly() {
+            try {
+                disconnect();
+            } catch (IOException e) {
+                LOGGER.debug("Failure to close SMTP connection", e);
+            }
+        }
+
+        // RSET, so that the connection can carry the next transaction
+        boolean reset() {
+            try {
+                return client.isConnected() && client.reset();
+            } catch (IOException e) {
+                LOGGER.debug("Failure to reset SMTP connection", e);
+                return false;
+            }
+        }
+
+        boolean isAlive() {
+            try {
+                return client.isConnected() && client.sendNoOp();
+            } catch (IOException e) {
+                LOGGER.debug("SMTP connection is not alive", e);
+                return false;
+            }
+        }
+
+        // Once DATA was issued, the server may have accepted the message whatever happens next
+        boolean dataSent() {
+            return dataSent;
+        }
+
+        void sendMailTransaction(Mail mail) throws IOException {
+            dataSent = false;
+            if (!greeted) {
+                int heloCode = client.helo(configuration.ehlo());
+                if (!SMTPReply.isPositiveCompletion(heloCode)) {
+                    throw new SmtpSendingFailedException("'helo' failed: " + client.getReplyString());
+                }
+                greeted = true;
             }
 
             client.setSender(mail.sender().asString(""));
             if (!SMTPReply.isPositiveCompletion(client.getReplyCode())) {
-                throw new SmtpSendingFailedException("'mail from' failed: " + client.getReplyString());
+                throw new SmtpSendingFailedException("'mail from' failed: " + client.getReplyString(), client.getReplyCode());
             }
 
             addRecipients(mail);
             sendMessageData(mail);
 
             if (!client.completePendingCommand()) {
-                throw new SmtpSendingFailedException("'data' command failed: " + client.getReplyString());
+                throw new SmtpSendingFailedException("'data' command failed: " + client.getReplyString(), client.getReplyCode());
             }
         }
 
         private void sendMessageData(Mail mail) throws IOException {
-            DefaultMessageWriter defaultMessageWriter = new DefaultMessageWriter();
-            try (java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream()) {
-                defaultMessageWriter.writeMessage(mail.message(), baos);
-                try (Writer writer = client.sendMessageData()) {
-                    writer.write(baos.toString(StandardCharsets.UTF_8));
-                }
+            dataSent = true;
+            OutputStream dataStream = client.sendMessageDataStream();
+            if (dataStream == null) {
+                throw new SmtpSendingFailedException("'data' command failed: " + client.getReplyString(), client.getReplyCode());
+            }
+            try (dataStream) {
+                new DefaultMessageWriter().writeMessage(mail.message(), dataStream);
             }
         }
 
         private void addRecipients(Mail mail) throws IOException {
             int successfullRecipientCount = 0;
+            // The rejection is only permanent when every recipient was permanently rejected
+            int lowestRejectionCode = Integer.MAX_VALUE;
             for (MailAddress recipient : mail.recipients()) {
                 client.addRecipient(recipient.asString());
                 if (!SMTPReply.isPositiveCompletion(client.getReplyCode())) {
                     LOGGER.warn("'rcpr to' command failed for {}: {}", recipient.asString(), client.getReplyString());
+                    lowestRejectionCode = Math.min(lowestRejectionCode, client.getReplyCode());
                 } else {
                     successfullRecipientCount++;
                 }
             }
             if (successfullRecipientCount == 0) {
-                throw new SmtpSendingFailedException("All 'rcpt to' commands failed: " + client.getReplyString());
+                throw new SmtpSendingFailedException("All 'rcpt to' commands failed: " + client.getReplyString(), lowestRejectionCode);
             }
         }
     }
@@ -0,0 +1,73 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.smtp;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+import org.apache.commons.configuration2.Configuration;
+import org.apache.james.util.DurationParser;
+
+import com.google.common.base.Preconditions;
+
+public record MailSenderPoolConfiguration(int maxSize,
+                                          Duration maxIdleTime,
+                                          int maxMessagesPerConnection,
+                                          Duration borrowTimeout) {
+
+    public static final String MAX_SIZE_PROPERTY = "smtp.pool.size";
+    public static final int MAX_SIZE_DEFAULT = 10;
+
+    public static final String MAX_IDLE_TIME_PROPERTY = "smtp.pool.idle.timeout";
+    public static final Duration MAX_IDLE_TIME_DEFAULT = Duration.ofSeconds(30);
+
+    public static final String MAX_MESSAGES_PER_CONNECTION_PROPERTY = "smtp.pool.max.messages.per.connection";
+    public static final int MAX_MESSAGES_PER_CONNECTION_DEFAULT = 100;
+
+    public static final String BORROW_TIMEOUT_PROPERTY = "smtp.pool.borrow.timeout";
+    public static final Duration BORROW_TIMEOUT_DEFAULT = Duration.ofSeconds(30);
+
+    public static final MailSenderPoolConfiguration DEFAULT = new MailSenderPoolConfiguration(MAX_SIZE_DEFAULT,
+        MAX_IDLE_TIME_DEFAULT, MAX_MESSAGES_PER_CONNECTION_DEFAULT, BORROW_TIMEOUT_DEFAULT);
+
+    public MailSenderPoolConfiguration {
+        Preconditions.checkArgument(maxSize >= 0, "'%s' must not be negative".formatted(MAX_SIZE_PROPERTY));
+        Preconditions.checkArgument(maxIdleTime.isPositive(), "'%s' must be positive".formatted(MAX_IDLE_TIME_PROPERTY));
+        Preconditions.checkArgument(maxMessagesPerConnection > 0, "'%s' must be positive".formatted(MAX_MESSAGES_PER_CONNECTION_PROPERTY));
+        Preconditions.checkArgument(borrowTimeout.isPositive(), "'%s' must be positive".formatted(BORROW_TIMEOUT_PROPERTY));
+    }
+
+    public static MailSenderPoolConfiguration from(Configuration configuration) {
+        int maxSize = configuration.getInt(MAX_SIZE_PROPERTY, MAX_SIZE_DEFAULT);
+        Duration maxIdleTime = Optional.ofNullable(configuration.getString(MAX_IDLE_TIME_PROPERTY, null))
+            .map(string -> DurationParser.parse(string, ChronoUnit.SECONDS))
+            .orElse(MAX_IDLE_TIME_DEFAULT);
+        int maxMessagesPerConnection = configuration.getInt(MAX_MESSAGES_PER_CONNECTION_PROPERTY, MAX_MESSAGES_PER_CONNECTION_DEFAULT);
+        Duration borrowTimeout = Optional.ofNullable(configuration.getString(BORROW_TIMEOUT_PROPERTY, null))
+            .map(string -> DurationParser.parse(string, ChronoUnit.SECONDS))
+            .orElse(BORROW_TIMEOUT_DEFAULT);
+
+        return new MailSenderPoolConfiguration(maxSize, maxIdleTime, maxMessagesPerConnection, borrowTimeout);
+    }
+
+    public boolean enabled() {
+        return maxSize > 0;
+    }
+}
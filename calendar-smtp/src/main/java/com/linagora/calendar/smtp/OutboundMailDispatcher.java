@@ -0,0 +1,242 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.smtp;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+
+import org.apache.james.core.Domain;
+import org.apache.james.core.MailAddress;
+import org.apache.james.lifecycle.api.Startable;
+import org.apache.james.metrics.api.Metric;
+import org.apache.james.metrics.api.MetricFactory;
+import org.apache.james.mime4j.dom.Message;
+import org.apache.james.mime4j.message.DefaultMessageBuilder;
+import org.apache.james.util.DurationParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.inject.name.Named;
+import com.linagora.calendar.api.CalendarSchedulers;
+import com.linagora.calendar.storage.OutboundMail;
+import com.linagora.calendar.storage.OutboundMailDAO;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Drains the outbound mail queue: due mails are claimed in batches, delivered through the SMTP client with a bounded
+ * concurrency, and retried with an exponential backoff until the maximum attempt count is reached. Mails permanently
+ * rejected by the server (5xx) are dropped right away. Recipient domains can be rate limited, in which case the mail is
+ * postponed without consuming an attempt.
+ */
+public class OutboundMailDispatcher implements Startable, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboundMailDispatcher.class);
+    private static final Duration CLAIM_TTL = DurationParser.parse(System.getProperty("smtp.queue.claim.ttl", "300s"));
+    private static final Duration RATE_LIMITED_DELAY = Duration.ofSeconds(1);
+    private static final String METRIC_PREFIX = "calendar.smtp.queue.";
+    // An idle domain gets its bucket refilled within a second: forgetting it after a while only bounds the memory used
+    private static final Duration DOMAIN_RATE_LIMITER_IDLE_TIME = Duration.ofMinutes(10);
+    private static final int DOMAIN_RATE_LIMITER_MAXIMUM_SIZE = 10_000;
+
+    // Token bucket allowing bursts of up to one second of permits. Guarded by the dispatcher.
+    private static class DomainRateLimiter {
+        private final double permitsPerSecond;
+        private final double maxPermits;
+        private double availablePermits;
+        private Instant refilledAt;
+
+        private DomainRateLimiter(double permitsPerSecond, Instant now) {
+            this.permitsPerSecond = permitsPerSecond;
+            this.maxPermits = Math.max(1, permitsPerSecond);
+            this.availablePermits = 1;
+            this.refilledAt = now;
+        }
+
+        private boolean hasPermit(Instant now) {
+            if (now.isAfter(refilledAt)) {
+                double elapsedSeconds = Duration.between(refilledAt, now).toNanos() / 1_000_000_000d;
+                availablePermits = Math.min(maxPermits, availablePermits + elapsedSeconds * permitsPerSecond);
+                refilledAt = now;
+            }
+            return availablePermits >= 1;
+        }
+
+        private void takePermit() {
+            availablePermits -= 1;
+        }
+    }
+
+    private final OutboundMailDAO outboundMailDAO;
+    private final MailSender.Factory mailSenderFactory;
+    private final MailQueueConfiguration configuration;
+    private final Clock clock;
+    private final MetricFactory metricFactory;
+    private final Metric sentMetric;
+    private final Metric retriedMetric;
+    private final Metric droppedMetric;
+    private final Metric rateLimitedMetric;
+    private final Cache<Domain, DomainRateLimiter> domainRateLimiters = Caffeine.newBuilder()
+        .expireAfterAccess(DOMAIN_RATE_LIMITER_IDLE_TIME)
+        .maximumSize(DOMAIN_RATE_LIMITER_MAXIMUM_SIZE)
+        .build();
+    private final String dispatcherId = UUID.randomUUID().toString();
+
+    private Disposable loop;
+
+    @Inject
+    public OutboundMailDispatcher(OutboundMailDAO outboundMailDAO,
+                                  @Named(SmtpModule.DIRECT_MAIL_SENDER_FACTORY) MailSender.Factory mailSenderFactory,
+                                  MailQueueConfiguration configuration,
+                                  Clock clock,
+                                  MetricFactory metricFactory) {
+        this.outboundMailDAO = outboundMailDAO;
+        this.mailSenderFactory = mailSenderFactory;
+        this.configuration = configuration;
+        this.clock = clock;
+        this.metricFactory = metricFactory;
+        this.sentMetric = metricFactory.generate(METRIC_PREFIX + "sent");
+        this.retriedMetric = metricFactory.generate(METRIC_PREFIX + "retried");
+        this.droppedMetric = metricFactory.generate(METRIC_PREFIX + "dropped");
+        this.rateLimitedMetric = metricFactory.generate(METRIC_PREFIX + "rate.limited");
+    }
+
+    public void start() {
+        if (!configuration.enabled()) {
+            return;
+        }
+        LOGGER.info("Starting OutboundMailDispatcher: pollInterval={}, batchSize={}, concurrency={}",
+            configuration.pollInterval(), configuration.batchSize(), configuration.concurrency());
+
+        loop = Flux.interval(configuration.pollInterval())
+            .onBackpressureDrop()
+            .concatMap(tick -> dispatchDueMails()
+                .onErrorResume(e -> {
+                    LOGGER.warn("Dispatching queued mails failed", e);
+                    return Mono.empty();
+                }))
+            .subscribeOn(Schedulers.parallel())
+            .subscribe(count -> {
+                if (count > 0) {
+                    LOGGER.debug("Dispatched {} queued mail(s) this tick", count);
+                }
+            }, e -> LOGGER.error("OutboundMailDispatcher encountered an error", e));
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        if (loop != null && !loop.isDisposed()) {
+            loop.dispose();
+        }
+    }
+
+    Mono<Long> dispatchDueMails() {
+        return outboundMailDAO.claimDue(clock.instant(), dispatcherId, CLAIM_TTL, configuration.batchSize())
+            .flatMap(this::dispatch, configuration.concurrency())
+            .count();
+    }
+
+    private Mono<Void> dispatch(OutboundMail mail) {
+        if (!acquireDomainPermits(mail)) {
+            rateLimitedMetric.increment();
+            return outboundMailDAO.reschedule(mail.postponeTo(clock.instant().plus(RATE_LIMITED_DELAY)));
+        }
+        return deliver(mail)
+            .then(Mono.defer(() -> removeDelivered(mail)))
+            .onErrorResume(e -> onFailure(mail, e))
+            .onErrorResume(e -> {
+                LOGGER.error("Failed to update queued mail {}", mail, e);
+                return Mono.empty();
+            });
+    }
+
+    private Mono<Void> deliver(OutboundMail mail) {
+        return Mono.from(metricFactory.decoratePublisherWithTimerMetric(METRIC_PREFIX + "delivery.duration",
+            Mono.fromCallable(() -> toMail(mail))
+                .flatMap(parsedMail -> mailSenderFactory.create()
+                    .flatMap(mailSender -> mailSender.send(parsedMail)))
+                .subscribeOn(CalendarSchedulers.blocking())));
+    }
+
+    private Mono<Void> removeDelivered(OutboundMail mail) {
+        sentMetric.increment();
+        return outboundMailDAO.delete(mail.id())
+            .onErrorResume(e -> {
+                // Left in the queue, the mail would be delivered again once its claim expires
+                LOGGER.error("Delivered mail {} could not be removed from the queue", mail, e);
+                return Mono.empty();
+            });
+    }
+
+    private Mono<Void> onFailure(OutboundMail mail, Throwable error) {
+        if (error instanceof SmtpSendingFailedException smtpError && smtpError.isPermanent()) {
+            LOGGER.error("Queued mail {} was permanently rejected, dropping it", mail, error);
+            droppedMetric.increment();
+            return outboundMailDAO.delete(mail.id());
+        }
+        OutboundMail retried = mail.retryAt(clock.instant().plus(configuration.backoff(mail.attempts() + 1)));
+        if (retried.attempts() >= configuration.maxAttempts()) {
+            LOGGER.error("Giving up delivering queued mail {} after {} attempts", mail, retried.attempts(), error);
+            droppedMetric.increment();
+            return outboundMailDAO.delete(mail.id());
+        }
+        LOGGER.warn("Delivering queued mail {} failed, retrying at {}", mail, retried.nextAttemptAt(), error);
+        retriedMetric.increment();
+        return outboundMailDAO.reschedule(retried);
+    }
+
+    // All domains are checked before any permit is taken, so that a throttled domain does not use up the permits of the others
+    private synchronized boolean acquireDomainPermits(OutboundMail mail) {
+        if (!configuration.rateLimitsDomains()) {
+            return true;
+        }
+        Instant now = clock.instant();
+        List<DomainRateLimiter> rateLimiters = mail.recipients().stream()
+            .map(MailAddress::getDomain)
+            .distinct()
+            .map(domain -> domainRateLimiters.get(domain, any -> new DomainRateLimiter(configuration.domainRateLimit(), now)))
+            .toList();
+        if (!rateLimiters.stream().allMatch(rateLimiter -> rateLimiter.hasPermit(now))) {
+            return false;
+        }
+        rateLimiters.forEach(DomainRateLimiter::takePermit);
+        return true;
+    }
+
+    private static Mail toMail(OutboundMail mail) throws Exception {
+        // Bodies are kept encoded, so that the message is written back byte for byte
+        DefaultMessageBuilder messageBuilder = new DefaultMessageBuilder();
+        messageBuilder.setContentDecoding(false);
+        Message message = messageBuilder.parseMessage(new ByteArrayInputStream(mail.message()));
+        return new Mail(mail.sender(), mail.recipients(), message);
+    }
+}
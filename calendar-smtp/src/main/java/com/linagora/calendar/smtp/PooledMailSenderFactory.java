@@ -0,0 +1,287 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.smtp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+
+import org.apache.commons.net.smtp.SMTPConnectionClosedException;
+import org.apache.james.metrics.api.Metric;
+import org.apache.james.metrics.api.MetricFactory;
+import org.apache.james.metrics.api.TimeMetric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.fge.lambdas.Throwing;
+import com.google.common.collect.ImmutableList;
+import com.linagora.calendar.api.CalendarSchedulers;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Keeps a bounded pool of connected and authenticated SMTP sessions, so that mails do not pay the TCP, TLS and AUTH
+ * handshakes each time. Sessions are reset between transactions, evicted after being idle for too long, checked with
+ * a NOOP before being reused after a pause, and renewed after a given number of messages. Idle sessions are also
+ * evicted periodically, so that a quiet pool does not keep server side connections open.
+ */
+public class PooledMailSenderFactory implements MailSender.Factory, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledMailSenderFactory.class);
+    private static final Duration VALIDATION_IDLE_THRESHOLD = Duration.ofSeconds(5);
+    private static final String METRIC_PREFIX = "calendar.smtp.pool.";
+
+    private static class PooledConnection {
+        private final MailSender.Default session;
+        private Instant lastUsed;
+        private int sentMessages;
+
+        private PooledConnection(MailSender.Default session, Instant lastUsed) {
+            this.session = session;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    private class PooledMailSender implements MailSender {
+        @Override
+        public Mono<Void> send(Mail mail) {
+            return Mono.fromRunnable(Throwing.runnable(() -> sendWithPooledConnection(mail)));
+        }
+
+        @Override
+        public Flux<SendResult> sendEach(Collection<Mail> mails) {
+            return Mono.fromCallable(() -> {
+                    ImmutableList.Builder<SendResult> results = ImmutableList.builder();
+                    for (Mail mail : mails) {
+                        try {
+                            sendWithPooledConnection(mail);
+                            results.add(SendResult.success(mail));
+                        } catch (Exception e) {
+                            LOGGER.warn("Sending email failed", e);
+                            results.add(SendResult.failure(mail, e));
+                        }
+                    }
+                    return results.build();
+                })
+                .flatMapIterable(Function.identity());
+        }
+    }
+
+    private final MailSender.Factory.Default connectionFactory;
+    private final MailSenderConfiguration configuration;
+    private final MailSenderPoolConfiguration poolConfiguration;
+    private final Clock clock;
+    private final MetricFactory metricFactory;
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    private final MailSender pooledMailSender = new PooledMailSender();
+    private final Metric openConnections;
+    private final Metric activeConnections;
+    private final Metric createdConnections;
+    private final Metric reusedConnections;
+    private final Metric evictedConnections;
+    private final Disposable reaper;
+
+    @Inject
+    public PooledMailSenderFactory(MailSenderConfiguration configuration,
+                                   MailSenderPoolConfiguration poolConfiguration,
+                                   Clock clock,
+                                   MetricFactory metricFactory) {
+        this.connectionFactory = new MailSender.Factory.Default(configuration);
+        this.configuration = configuration;
+        this.poolConfiguration = poolConfiguration;
+        this.clock = clock;
+        this.metricFactory = metricFactory;
+        this.permits = new Semaphore(poolConfiguration.maxSize(), true);
+        this.openConnections = metricFactory.generate(METRIC_PREFIX + "connection.open");
+        this.activeConnections = metricFactory.generate(METRIC_PREFIX + "connection.active");
+        this.createdConnections = metricFactory.generate(METRIC_PREFIX + "connection.created");
+        this.reusedConnections = metricFactory.generate(METRIC_PREFIX + "connection.reused");
+        this.evictedConnections = metricFactory.generate(METRIC_PREFIX + "connection.evicted");
+        // Ticks run on the parallel scheduler: the blocking one may not support timed tasks. Closing sessions blocks.
+        this.reaper = Flux.interval(poolConfiguration.maxIdleTime(), Schedulers.parallel())
+            .onBackpressureDrop()
+            .concatMap(tick -> Mono.fromRunnable(this::evictExpiredConnections)
+                .subscribeOn(CalendarSchedulers.blocking())
+                .onErrorResume(e -> {
+                    LOGGER.warn("Failed to evict idle SMTP connections", e);
+                    return Mono.empty();
+                }))
+            .subscribe(any -> { },
+                e -> LOGGER.error("SMTP pool idle connection reaper encountered an error", e));
+    }
+
+    @Override
+    public Mono<MailSender> create() {
+        return Mono.just(pooledMailSender);
+    }
+
+    private void sendWithPooledConnection(Mail mail) throws Exception {
+        PooledConnection connection = borrow();
+        try {
+            sendWithPooledConnection(mail, connection);
+        } catch (SMTPConnectionClosedException e) {
+            if (connection.session.dataSent()) {
+                // The message may already have been accepted: a retry could deliver it twice
+                throw e;
+            }
+            // The server may close a pooled session on its side at any time: retry once, on a fresh connection if needed
+            LOGGER.debug("Pooled SMTP connection was closed by the server, retrying", e);
+            sendWithPooledConnection(mail, borrow());
+        }
+    }
+
+    private void sendWithPooledConnection(Mail mail, PooledConnection connection) throws Exception {
+        boolean reusable = false;
+        try {
+            connection.session.sendMailTransaction(mail);
+            connection.sentMessages++;
+            reusable = true;
+        } catch (SmtpSendingFailedException e) {
+            // Rejected by the server: the session itself is still usable once reset
+            connection.sentMessages++;
+            reusable = true;
+            throw e;
+        } finally {
+            release(connection, reusable);
+        }
+    }
+
+    private PooledConnection borrow() throws Exception {
+        TimeMetric timeMetric = metricFactory.timer(METRIC_PREFIX + "borrow.duration");
+        try {
+            acquirePermit();
+            try {
+                PooledConnection connection = pollIdleConnection();
+                if (connection == null) {
+                    connection = openConnection();
+                }
+                activeConnections.increment();
+                return connection;
+            } catch (Exception e) {
+                permits.release();
+                throw e;
+            }
+        } finally {
+            timeMetric.stopAndPublish();
+        }
+    }
+
+    private void acquirePermit() {
+        try {
+            if (!permits.tryAcquire(poolConfiguration.borrowTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new SmtpSendingFailedException("No SMTP connection available after " + poolConfiguration.borrowTimeout());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SmtpSendingFailedException("Interrupted while waiting for an SMTP connection");
+        }
+    }
+
+    private PooledConnection pollIdleConnection() {
+        PooledConnection connection = idleConnections.pollFirst();
+        while (connection != null) {
+            if (isExpired(connection)) {
+                closeConnection(connection);
+            } else if (idleFor(connection).compareTo(VALIDATION_IDLE_THRESHOLD) > 0 && !connection.session.isAlive()) {
+                closeConnection(connection);
+            } else {
+                reusedConnections.increment();
+                return connection;
+            }
+            connection = idleConnections.pollFirst();
+        }
+        return null;
+    }
+
+    private PooledConnection openConnection() throws Exception {
+        PooledConnection connection = new PooledConnection(new MailSender.Default(connectionFactory.connect(), configuration), clock.instant());
+        createdConnections.increment();
+        openConnections.increment();
+        return connection;
+    }
+
+    private void release(PooledConnection connection, boolean reusable) {
+        activeConnections.decrement();
+        try {
+            if (reusable
+                && connection.sentMessages < poolConfiguration.maxMessagesPerConnection()
+                && connection.session.reset()) {
+                connection.lastUsed = clock.instant();
+                // Most recently used first, so that the least used connections age and get evicted
+                idleConnections.offerFirst(connection);
+            } else {
+                closeConnection(connection);
+            }
+            evictExpiredConnections();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void evictExpiredConnections() {
+        PooledConnection oldest = idleConnections.peekLast();
+        while (oldest != null && isExpired(oldest) && idleConnections.removeLastOccurrence(oldest)) {
+            closeConnection(oldest);
+            oldest = idleConnections.peekLast();
+        }
+    }
+
+    private boolean isExpired(PooledConnection connection) {
+        return idleFor(connection).compareTo(poolConfiguration.maxIdleTime()) > 0;
+    }
+
+    private Duration idleFor(PooledConnection connection) {
+        return Duration.between(connection.lastUsed, clock.instant());
+    }
+
+    private void closeConnection(PooledConnection connection) {
+        evictedConnections.increment();
+        openConnections.decrement();
+        try {
+            connection.session.disconnect();
+        } catch (IOException e) {
+            LOGGER.debug("Failure to close SMTP connection", e);
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        reaper.dispose();
+        PooledConnection connection = idleConnections.pollFirst();
+        while (connection != null) {
+            closeConnection(connection);
+            connection = idleConnections.pollFirst();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.smtp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Clock;
+import java.util.Collection;
+import java.util.List;
+
+import jakarta.inject.Inject;
+
+import org.apache.james.core.MailAddress;
+import org.apache.james.metrics.api.Metric;
+import org.apache.james.metrics.api.MetricFactory;
+import org.apache.james.mime4j.message.DefaultMessageWriter;
+
+import com.google.common.collect.ImmutableList;
+import com.linagora.calendar.storage.OutboundMail;
+import com.linagora.calendar.storage.OutboundMailDAO;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link MailSender.Factory} rendering mails into the durable outbound queue instead of talking to SMTP: callers
+ * return as soon as the mail is stored, and {@link OutboundMailDispatcher} delivers it with its own concurrency and retries.
+ */
+public class QueueingMailSenderFactory implements MailSender.Factory {
+    private class QueueingMailSender implements MailSender {
+        @Override
+        public Mono<Void> send(Mail mail) {
+            return Mono.fromCallable(() -> toOutboundMail(mail))
+                .flatMap(outboundMailDAO::enqueue)
+                .doOnSuccess(any -> enqueuedMetric.increment());
+        }
+
+        @Override
+        public Flux<SendResult> sendEach(Collection<Mail> mails) {
+            return Flux.fromIterable(mails)
+                .concatMap(mail -> send(mail)
+                    .thenReturn(SendResult.success(mail))
+                    .onErrorResume(e -> Mono.just(SendResult.failure(mail, e))));
+        }
+    }
+
+    private final OutboundMailDAO outboundMailDAO;
+    private final Clock clock;
+    private final Metric enqueuedMetric;
+    private final MailSender mailSender = new QueueingMailSender();
+
+    @Inject
+    public QueueingMailSenderFactory(OutboundMailDAO outboundMailDAO, Clock clock, MetricFactory metricFactory) {
+        this.outboundMailDAO = outboundMailDAO;
+        this.clock = clock;
+        this.enqueuedMetric = metricFactory.generate("calendar.smtp.queue.enqueued");
+    }
+
+    @Override
+    public Mono<MailSender> create() {
+        return Mono.just(mailSender);
+    }
+
+    private OutboundMail toOutboundMail(Mail mail) throws IOException {
+        if (mail.recipients().isEmpty()) {
+            throw new SmtpSendingFailedException("All 'rcpt to' commands failed: no recipient");
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new DefaultMessageWriter().writeMessage(mail.message(), outputStream);
+        List<MailAddress> recipients = ImmutableList.copyOf(mail.recipients());
+        return OutboundMail.of(mail.sender(), recipients, outputStream.toByteArray(), clock.instant());
+    }
+}
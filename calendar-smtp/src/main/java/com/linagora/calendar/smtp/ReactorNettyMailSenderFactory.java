@@ -0,0 +1,270 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.smtp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.net.ssl.SSLException;
+
+import jakarta.inject.Inject;
+
+import org.apache.james.core.MailAddress;
+import org.apache.james.mime4j.message.DefaultMessageWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.linagora.calendar.smtp.ReactorNettySmtpConnection.SmtpReply;
+
+import io.netty.handler.codec.LineBasedFrameDecoder;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.tcp.TcpClient;
+
+/**
+ * Non blocking {@link MailSender.Factory} running the SMTP dialogue on reactor-netty event loops. Envelope commands
+ * are pipelined when the server advertises PIPELINING (RFC 2920), and STARTTLS upgrades the connection in place.
+ */
+public class ReactorNettyMailSenderFactory implements MailSender.Factory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactorNettyMailSenderFactory.class);
+    private static final int MAX_LINE_LENGTH = 8192;
+    private static final String PIPELINING = "PIPELINING";
+    private static final byte[] EMPTY_DATA = ".\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private record Session(ReactorNettySmtpConnection connection, Set<String> capabilities) {
+        boolean supportsPipelining() {
+            return capabilities.contains(PIPELINING);
+        }
+    }
+
+    private class ReactorNettyMailSender implements MailSender {
+        private final Session session;
+
+        private ReactorNettyMailSender(Session session) {
+            this.session = session;
+        }
+
+        @Override
+        public Mono<Void> send(Mail mail) {
+            return Mono.usingWhen(Mono.just(session.connection()),
+                connection -> sendMailTransaction(session, mail),
+                ReactorNettySmtpConnection::quit,
+                (connection, error) -> connection.quit(),
+                ReactorNettySmtpConnection::quit);
+        }
+
+        @Override
+        public Flux<SendResult> sendEach(Collection<Mail> mails) {
+            AtomicReference<Throwable> sessionFailure = new AtomicReference<>();
+            return Flux.usingWhen(Mono.just(session.connection()),
+                connection -> Flux.fromIterable(mails)
+                    .concatMap(mail -> Optional.ofNullable(sessionFailure.get())
+                        .map(failure -> Mono.just(SendResult.failure(mail, failure)))
+                        .orElseGet(() -> sendMailTransaction(session, mail)
+                            .thenReturn(SendResult.success(mail))
+                            .onErrorResume(e -> {
+                                LOGGER.warn("Sending email failed", e);
+                                return Mono.just(SendResult.failure(mail, e));
+                            })
+                            .flatMap(result -> reset(connection)
+                                .onErrorResume(e -> {
+                                    sessionFailure.set(e);
+                                    return Mono.empty();
+                                })
+                                .thenReturn(result)))),
+                ReactorNettySmtpConnection::quit,
+                (connection, error) -> connection.quit(),
+                ReactorNettySmtpConnection::quit);
+        }
+
+        private Mono<Void> reset(ReactorNettySmtpConnection connection) {
+            if (connection.isBroken()) {
+                // No RSET on a broken session: its replies can not be matched to commands anymore
+                return Mono.error(new SmtpSendingFailedException("SMTP session can not carry further mails"));
+            }
+            return connection.command("RSET")
+                .flatMap(reply -> expectCompletion(reply, "Failure to reset SMTP client: "));
+        }
+    }
+
+    private final MailSenderConfiguration configuration;
+    private final SslContext sslContext;
+    private final TcpClient tcpClient;
+
+    @Inject
+    public ReactorNettyMailSenderFactory(MailSenderConfiguration configuration) {
+        this.configuration = configuration;
+        this.sslContext = sslContext(configuration);
+        TcpClient client = TcpClient.newConnection()
+            .host(configuration.host())
+            .port(configuration.port().getValue())
+            .doOnConnected(connection -> connection.addHandlerLast(new LineBasedFrameDecoder(MAX_LINE_LENGTH)));
+        this.tcpClient = configuration.sslEnabled() ? client.secure(spec -> spec.sslContext(sslContext)) : client;
+    }
+
+    private static SslContext sslContext(MailSenderConfiguration configuration) {
+        try {
+            SslContextBuilder builder = SslContextBuilder.forClient();
+            if (configuration.trustAllCerts()) {
+                builder.trustManager(InsecureTrustManagerFactory.INSTANCE);
+            }
+            return builder.build();
+        } catch (SSLException e) {
+            throw new IllegalStateException("Cannot build the SMTP SSL context", e);
+        }
+    }
+
+    @Override
+    public Mono<MailSender> create() {
+        return tcpClient.connect()
+            .map(ReactorNettySmtpConnection::new)
+            .flatMap(connection -> handshake(connection)
+                .onErrorResume(e -> connection.quit().then(Mono.error(e))))
+            .map(ReactorNettyMailSender::new);
+    }
+
+    private Mono<Session> handshake(ReactorNettySmtpConnection connection) {
+        return connection.nextReply()
+            .flatMap(greeting -> expectCompletion(greeting, "'greeting' failed: "))
+            .then(hello(connection))
+            .flatMap(session -> {
+                if (configuration.startTlsEnabled()) {
+                    return connection.command("STARTTLS")
+                        .flatMap(reply -> expectCompletion(reply, "'starttls' failed: "))
+                        .then(connection.startTls(sslContext, configuration.host(), configuration.port().getValue()))
+                        .then(hello(connection));
+                }
+                return Mono.just(session);
+            })
+            .flatMap(session -> authenticate(connection).thenReturn(session));
+    }
+
+    private Mono<Session> hello(ReactorNettySmtpConnection connection) {
+        return connection.command("EHLO " + configuration.ehlo())
+            .flatMap(reply -> {
+                if (reply.isPositiveCompletion()) {
+                    return Mono.just(new Session(connection, capabilities(reply)));
+                }
+                return connection.command("HELO " + configuration.ehlo())
+                    .flatMap(heloReply -> expectCompletion(heloReply, "'helo' failed: "))
+                    .thenReturn(new Session(connection, ImmutableSet.of()));
+            });
+    }
+
+    private Set<String> capabilities(SmtpReply ehloReply) {
+        // The first line is the greeting, the following ones hold one extension each, after the reply code
+        return ehloReply.lines().stream()
+            .skip(1)
+            .filter(line -> line.length() > 4)
+            .map(line -> line.substring(4).trim().split(" ")[0].toUpperCase(Locale.US))
+            .collect(ImmutableSet.toImmutableSet());
+    }
+
+    private Mono<Void> authenticate(ReactorNettySmtpConnection connection) {
+        return Mono.justOrEmpty(configuration.username())
+            .flatMap(username -> {
+                String credentials = "\0" + username.asString() + "\0" + configuration.password().get();
+                return connection.command("AUTH PLAIN " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)))
+                    .flatMap(reply -> expectCompletion(reply, "'auth' failed: "));
+            });
+    }
+
+    private Mono<Void> sendMailTransaction(Session session, Mail mail) {
+        ReactorNettySmtpConnection connection = session.connection();
+        List<String> commands = ImmutableList.<String>builder()
+            .add("MAIL FROM:<" + mail.sender().asString("") + ">")
+            .addAll(mail.recipients().stream()
+                .map(recipient -> "RCPT TO:<" + recipient.asString() + ">")
+                .toList())
+            .add("DATA")
+            .build();
+
+        Flux<SmtpReply> replies = session.supportsPipelining()
+            ? connection.pipeline(commands)
+            : Flux.fromIterable(commands).concatMap(connection::command);
+
+        return replies.collectList()
+            .flatMap(envelopeReplies -> {
+                SmtpReply mailFromReply = envelopeReplies.getFirst();
+                List<SmtpReply> rcptReplies = envelopeReplies.subList(1, envelopeReplies.size() - 1);
+                SmtpReply dataReply = envelopeReplies.getLast();
+
+                if (!mailFromReply.isPositiveCompletion()) {
+                    return abortData(connection, dataReply)
+                        .then(Mono.error(new SmtpSendingFailedException("'mail from' failed: " + mailFromReply, mailFromReply.code())));
+                }
+                if (countAcceptedRecipients(mail.recipients(), rcptReplies) == 0) {
+                    // The rejection is only permanent when every recipient was permanently rejected
+                    int lowestRejectionCode = rcptReplies.stream().mapToInt(SmtpReply::code).min().orElse(mailFromReply.code());
+                    return abortData(connection, dataReply)
+                        .then(Mono.error(new SmtpSendingFailedException("All 'rcpt to' commands failed: "
+                            + (rcptReplies.isEmpty() ? mailFromReply : rcptReplies.getLast()), lowestRejectionCode)));
+                }
+                if (!dataReply.isPositiveIntermediate()) {
+                    return Mono.error(new SmtpSendingFailedException("'data' command failed: " + dataReply, dataReply.code()));
+                }
+                return connection.sendData(SmtpDataPublisher.encode(outputStream ->
+                        new DefaultMessageWriter().writeMessage(mail.message(), outputStream)))
+                    .flatMap(reply -> {
+                        if (reply.isPositiveCompletion()) {
+                            return Mono.<Void>empty();
+                        }
+                        return Mono.error(new SmtpSendingFailedException("'data' command failed: " + reply, reply.code()));
+                    });
+            });
+    }
+
+    private long countAcceptedRecipients(List<MailAddress> recipients, List<SmtpReply> rcptReplies) {
+        long accepted = 0;
+        for (int i = 0; i < rcptReplies.size(); i++) {
+            if (rcptReplies.get(i).isPositiveCompletion()) {
+                accepted++;
+            } else {
+                LOGGER.warn("'rcpt to' command failed for {}: {}", recipients.get(i).asString(), rcptReplies.get(i));
+            }
+        }
+        return accepted;
+    }
+
+    // A pipelined DATA may have been accepted even though the envelope was not: the data then has to be terminated
+    private Mono<Void> abortData(ReactorNettySmtpConnection connection, SmtpReply dataReply) {
+        if (dataReply.isPositiveIntermediate()) {
+            return connection.sendData(Flux.just(EMPTY_DATA)).then();
+        }
+        return Mono.empty();
+    }
+
+    private static Mono<Void> expectCompletion(SmtpReply reply, String errorMessage) {
+        if (reply.isPositiveCompletion()) {
+            return Mono.empty();
+        }
+        return Mono.error(new SmtpSendingFailedException(errorMessage + reply));
+    }
+}
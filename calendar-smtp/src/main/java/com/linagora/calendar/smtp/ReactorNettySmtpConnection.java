@@ -0,0 +1,195 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.smtp;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeoutException;
+
+import com.google.common.collect.ImmutableList;
+
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslHandler;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.netty.Connection;
+
+/**
+ * Request/reply layer of an SMTP session on top of a reactor-netty connection framed by lines. Replies are matched to
+ * commands in sending order, which allows pipelining (RFC 2920).
+ */
+class ReactorNettySmtpConnection {
+    private static final String CRLF = "\r\n";
+    private static final Duration REPLY_TIMEOUT = Duration.ofMinutes(1);
+    private static final Duration QUIT_TIMEOUT = Duration.ofSeconds(5);
+
+    record SmtpReply(int code, List<String> lines) {
+        boolean isPositiveCompletion() {
+            return code >= 200 && code < 300;
+        }
+
+        boolean isPositiveIntermediate() {
+            return code >= 300 && code < 400;
+        }
+
+        @Override
+        public String toString() {
+            return String.join("\n", lines);
+        }
+    }
+
+    private final Connection connection;
+    private final Queue<SmtpReply> unclaimedReplies = new ArrayDeque<>();
+    private final Queue<MonoSink<SmtpReply>> waiters = new ArrayDeque<>();
+    private final List<String> pendingLines = new ArrayList<>();
+    private Throwable failure;
+
+    ReactorNettySmtpConnection(Connection connection) {
+        this.connection = connection;
+        connection.inbound().receive()
+            .asString(StandardCharsets.UTF_8)
+            .subscribe(this::onLine, this::onFailure,
+                () -> onFailure(new SmtpSendingFailedException("SMTP connection closed by the server")));
+    }
+
+    Mono<SmtpReply> nextReply() {
+        return Mono.<SmtpReply>create(sink -> {
+                synchronized (this) {
+                    if (!unclaimedReplies.isEmpty()) {
+                        sink.success(unclaimedReplies.poll());
+                    } else if (failure != null) {
+                        sink.error(failure);
+                    } else {
+                        waiters.add(sink);
+                        sink.onCancel(() -> removeWaiter(sink));
+                    }
+                }
+            })
+            .timeout(REPLY_TIMEOUT)
+            .onErrorResume(TimeoutException.class, e -> {
+                // A late reply would be matched to the next command: the session can not be trusted anymore
+                SmtpSendingFailedException timeout = new SmtpSendingFailedException("No SMTP reply after " + REPLY_TIMEOUT);
+                onFailure(timeout);
+                connection.dispose();
+                return Mono.error(timeout);
+            });
+    }
+
+    synchronized boolean isBroken() {
+        return failure != null;
+    }
+
+    Mono<SmtpReply> command(String command) {
+        return write(command + CRLF)
+            .then(nextReply());
+    }
+
+    // Sends all commands in a single write, then reads their replies in order
+    Flux<SmtpReply> pipeline(List<String> commands) {
+        return write(String.join(CRLF, commands) + CRLF)
+            .thenMany(Flux.range(0, commands.size())
+                .concatMap(any -> nextReply()));
+    }
+
+    // The data is streamed as it is encoded: a failure midway leaves the session inside DATA, which can not be recovered
+    Mono<SmtpReply> sendData(Flux<byte[]> encodedMessage) {
+        return connection.outbound().sendByteArray(encodedMessage)
+            .then()
+            .onErrorResume(e -> {
+                onFailure(e);
+                connection.dispose();
+                return Mono.error(e);
+            })
+            .then(nextReply());
+    }
+
+    Mono<Void> startTls(SslContext sslContext, String host, int port) {
+        return Mono.create(sink -> {
+            SslHandler sslHandler = sslContext.newHandler(connection.channel().alloc(), host, port);
+            connection.channel().pipeline().addFirst("smtp-starttls", sslHandler);
+            sslHandler.handshakeFuture().addListener(future -> {
+                if (future.isSuccess()) {
+                    sink.success();
+                } else {
+                    sink.error(future.cause());
+                }
+            });
+        });
+    }
+
+    Mono<Void> quit() {
+        return command("QUIT")
+            .timeout(QUIT_TIMEOUT)
+            .onErrorResume(any -> Mono.empty())
+            .then(Mono.fromRunnable(connection::dispose));
+    }
+
+    private Mono<Void> write(String text) {
+        return connection.outbound().sendString(Mono.just(text), StandardCharsets.UTF_8).then();
+    }
+
+    private void onLine(String line) {
+        MonoSink<SmtpReply> waiter;
+        SmtpReply reply;
+        synchronized (this) {
+            pendingLines.add(line);
+            // Multi-line replies use a dash after the code on every line but the last one
+            if (line.length() > 3 && line.charAt(3) == '-') {
+                return;
+            }
+            reply = new SmtpReply(parseCode(line), ImmutableList.copyOf(pendingLines));
+            pendingLines.clear();
+            waiter = waiters.poll();
+            if (waiter == null) {
+                unclaimedReplies.add(reply);
+                return;
+            }
+        }
+        waiter.success(reply);
+    }
+
+    private synchronized void removeWaiter(MonoSink<SmtpReply> sink) {
+        waiters.remove(sink);
+    }
+
+    private void onFailure(Throwable throwable) {
+        List<MonoSink<SmtpReply>> failedWaiters;
+        synchronized (this) {
+            if (failure == null) {
+                failure = throwable;
+            }
+            failedWaiters = ImmutableList.copyOf(waiters);
+            waiters.clear();
+        }
+        failedWaiters.forEach(waiter -> waiter.error(throwable));
+    }
+
+    private int parseCode(String line) {
+        try {
+            return Integer.parseInt(line.substring(0, Math.min(3, line.length())));
+        } catch (NumberFormatException e) {
+            throw new SmtpSendingFailedException("Invalid SMTP reply: " + line);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.smtp;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes a message for the SMTP DATA command while it is being written: bare LF line endings become CRLF, lines
+ * starting with a dot get an extra dot (RFC 5321 section 4.5.2), and closing the stream appends the end of data
+ * marker. The underlying stream is flushed but left open, so that the connection can carry the next command.
+ */
+final class SmtpDataOutputStream extends FilterOutputStream {
+    private static final int CR = '\r';
+    private static final int LF = '\n';
+    private static final int DOT = '.';
+
+    private boolean lineStart = true;
+    private int previous = -1;
+    private boolean closed;
+
+    SmtpDataOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        int value = b & 0xFF;
+        if (value == LF && previous != CR) {
+            out.write(CR);
+        }
+        if (lineStart && value == DOT) {
+            out.write(DOT);
+        }
+        out.write(value);
+        lineStart = value == LF;
+        previous = value;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            write(b[i]);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (!lineStart) {
+            out.write(CR);
+            out.write(LF);
+        }
+        out.write(DOT);
+        out.write(CR);
+        out.write(LF);
+        out.flush();
+    }
+}
@@ -0,0 +1,121 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+
+package com.linagora.calendar.smtp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import com.linagora.calendar.api.CalendarSchedulers;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * Streams the SMTP DATA encoding of a message as chunks, so that the encoded message is never held in memory as a whole.
+ * The message is written on the blocking scheduler, which waits for downstream demand before handing over each chunk.
+ */
+final class SmtpDataPublisher {
+    @FunctionalInterface
+    interface DataWriter {
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+
+    static final int CHUNK_SIZE = 8192;
+
+    private SmtpDataPublisher() {
+    }
+
+    static Flux<byte[]> encode(DataWriter writer) {
+        return Flux.create(sink -> {
+            ChunkingOutputStream chunks = new ChunkingOutputStream(sink);
+            sink.onRequest(chunks::request);
+            sink.onDispose(chunks::cancel);
+            CalendarSchedulers.blocking().schedule(() -> {
+                try (SmtpDataOutputStream dataStream = new SmtpDataOutputStream(chunks)) {
+                    writer.writeTo(dataStream);
+                } catch (Exception e) {
+                    sink.error(e);
+                    return;
+                }
+                sink.complete();
+            });
+        });
+    }
+
+    private static final class ChunkingOutputStream extends OutputStream {
+        private final FluxSink<byte[]> sink;
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int count;
+        // guarded by this
+        private long demand;
+        private boolean cancelled;
+
+        private ChunkingOutputStream(FluxSink<byte[]> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                emit();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count > 0) {
+                emit();
+            }
+        }
+
+        private void emit() throws IOException {
+            byte[] chunk = Arrays.copyOf(buffer, count);
+            count = 0;
+            synchronized (this) {
+                while (demand == 0 && !cancelled) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for SMTP data demand");
+                    }
+                }
+                if (cancelled) {
+                    throw new IOException("SMTP data stream was cancelled");
+                }
+                demand--;
+            }
+            sink.next(chunk);
+        }
+
+        private synchronized void request(long n) {
+            demand = demand > Long.MAX_VALUE - n ? Long.MAX_VALUE : demand + n;
+            notifyAll();
+        }
+
+        private synchronized void cancel() {
+            cancelled = true;
+            notifyAll();
+        }
+    }
+}
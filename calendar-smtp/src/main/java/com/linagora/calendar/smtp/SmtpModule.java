@@ -19,25 +19,99 @@
 package com.linagora.calendar.smtp;
 
 import java.io.FileNotFoundException;
+import java.util.Locale;
 
+import jakarta.inject.Named;
+
+import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.apache.james.utils.InitializationOperation;
+import org.apache.james.utils.InitilizationOperationBuilder;
 import org.apache.james.utils.PropertiesProvider;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.Provider;
 import com.google.inject.Provides;
 import com.google.inject.Scopes;
 import com.google.inject.Singleton;
+import com.google.inject.multibindings.ProvidesIntoSet;
 import com.linagora.calendar.smtp.template.MailTemplateModule;
 
 public class SmtpModule extends AbstractModule {
+    public static final String SMTP_CLIENT_PROPERTY = "smtp.client";
+    public static final String DIRECT_MAIL_SENDER_FACTORY = "direct";
+
+    public enum SmtpClient {
+        COMMONS_NET, REACTOR_NETTY;
+
+        public static SmtpClient from(Configuration configuration) {
+            String value = configuration.getString(SMTP_CLIENT_PROPERTY, "commons-net").trim().toLowerCase(Locale.US);
+            return switch (value) {
+                case "commons-net" -> COMMONS_NET;
+                case "reactor-netty" -> REACTOR_NETTY;
+                default -> throw new IllegalArgumentException("Invalid value for '" + SMTP_CLIENT_PROPERTY + "': " + value);
+            };
+        }
+    }
+
     @Override
     protected void configure() {
         bind(MailSender.Factory.Default.class).in(Scopes.SINGLETON);
-        bind(MailSender.Factory.class).to(MailSender.Factory.Default.class);
+        bind(PooledMailSenderFactory.class).in(Scopes.SINGLETON);
+        bind(ReactorNettyMailSenderFactory.class).in(Scopes.SINGLETON);
+        bind(QueueingMailSenderFactory.class).in(Scopes.SINGLETON);
+        bind(OutboundMailDispatcher.class).in(Scopes.SINGLETON);
 
         install(new MailTemplateModule());
     }
 
+    @ProvidesIntoSet
+    InitializationOperation startOutboundMailDispatcher(OutboundMailDispatcher outboundMailDispatcher) {
+        return InitilizationOperationBuilder
+            .forClass(OutboundMailDispatcher.class)
+            .init(outboundMailDispatcher::start);
+    }
+
+    @Provides
+    @Singleton
+    public MailSender.Factory provideMailSenderFactory(MailQueueConfiguration queueConfiguration,
+                                                       Provider<QueueingMailSenderFactory> queueingMailSenderFactory,
+                                                       @Named(DIRECT_MAIL_SENDER_FACTORY) Provider<MailSender.Factory> directMailSenderFactory) {
+        if (queueConfiguration.enabled()) {
+            return queueingMailSenderFactory.get();
+        }
+        return directMailSenderFactory.get();
+    }
+
+    @Provides
+    @Singleton
+    @Named(DIRECT_MAIL_SENDER_FACTORY)
+    public MailSender.Factory provideDirectMailSenderFactory(PropertiesProvider propertiesProvider,
+                                                             MailSenderPoolConfiguration poolConfiguration,
+                                                             Provider<ReactorNettyMailSenderFactory> reactorNettyMailSenderFactory,
+                                                             Provider<PooledMailSenderFactory> pooledMailSenderFactory,
+                                                             Provider<MailSender.Factory.Default> defaultMailSenderFactory) throws ConfigurationException, FileNotFoundException {
+        if (SmtpClient.from(propertiesProvider.getConfiguration("configuration")) == SmtpClient.REACTOR_NETTY) {
+            return reactorNettyMailSenderFactory.get();
+        }
+        if (poolConfiguration.enabled()) {
+            return pooledMailSenderFactory.get();
+        }
+        return defaultMailSenderFactory.get();
+    }
+
+    @Provides
+    @Singleton
+    public MailQueueConfiguration provideMailQueueConfiguration(PropertiesProvider propertiesProvider) throws ConfigurationException, FileNotFoundException {
+        return MailQueueConfiguration.from(propertiesProvider.getConfiguration("configuration"));
+    }
+
+    @Provides
+    @Singleton
+    public MailSenderPoolConfiguration provideMailSenderPoolConfiguration(PropertiesProvider propertiesProvider) throws ConfigurationException, FileNotFoundException {
+        return MailSenderPoolConfiguration.from(propertiesProvider.getConfiguration("configuration"));
+    }
+
     @Provides
     @Singleton
     public MailSenderConfiguration provideDavConfiguration(PropertiesProvider propertiesProvider) throws ConfigurationException, FileNotFoundException {
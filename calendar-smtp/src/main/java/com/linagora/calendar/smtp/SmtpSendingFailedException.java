@@ -18,8 +18,27 @@
 
 package com.linagora.calendar.smtp;
 
+import java.util.Optional;
+
 public class SmtpSendingFailedException extends RuntimeException {
+    private final Optional<Integer> replyCode;
+
     public SmtpSendingFailedException(String message) {
         super(message);
+        this.replyCode = Optional.empty();
+    }
+
+    public SmtpSendingFailedException(String message, int replyCode) {
+        super(message);
+        this.replyCode = Optional.of(replyCode);
+    }
+
+    public Optional<Integer> replyCode() {
+        return replyCode;
+    }
+
+    // 5xx replies reject the mail itself: sending it again would fail the same way
+    public boolean isPermanent() {
+        return replyCode.map(code -> code >= 500 && code < 600).orElse(false);
     }
 }
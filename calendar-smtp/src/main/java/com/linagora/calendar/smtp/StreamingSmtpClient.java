@@ -0,0 +1,47 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.smtp;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.commons.net.smtp.AuthenticatingSMTPClient;
+import org.apache.commons.net.smtp.SMTPReply;
+
+/**
+ * {@link AuthenticatingSMTPClient} exposing the DATA stream as bytes: the message is written to the socket as it is
+ * serialized, instead of being buffered and decoded for {@link AuthenticatingSMTPClient#sendMessageData()}.
+ */
+public class StreamingSmtpClient extends AuthenticatingSMTPClient {
+    public StreamingSmtpClient(String protocol, boolean implicit, String encoding) {
+        super(protocol, implicit, encoding);
+    }
+
+    /**
+     * Sends DATA and returns the stream the message is to be written to, or null when the server did not accept the
+     * command. The stream must be closed, then {@link #completePendingCommand()} called to read the final reply.
+     */
+    OutputStream sendMessageDataStream() throws IOException {
+        if (!SMTPReply.isPositiveIntermediate(data())) {
+            return null;
+        }
+        return new SmtpDataOutputStream(new BufferedOutputStream(_output_));
+    }
+}
@@ -27,7 +27,7 @@ import de.neuland.pug4j.template.FileTemplateLoader;
 import de.neuland.pug4j.template.PugTemplate;
 
 public class HtmlBodyRenderer {
-    private static final String TEMPLATE_FILE_NAME = "html.pug";
+    public static final String TEMPLATE_FILE_NAME = "html.pug";
 
     public static HtmlBodyRenderer forPath(String templatePath) throws IOException {
         FileTemplateLoader fileLoader = new FileTemplateLoader(templatePath);
@@ -0,0 +1,108 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.smtp.template;
+
+import java.time.Duration;
+
+import jakarta.inject.Inject;
+import jakarta.mail.internet.InternetAddress;
+
+import org.apache.james.core.Username;
+import org.apache.james.metrics.api.Metric;
+import org.apache.james.metrics.api.MetricFactory;
+import org.apache.james.util.DurationParser;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.linagora.calendar.storage.OpenPaaSUser;
+import com.linagora.calendar.storage.OpenPaaSUserChangeListener;
+import com.linagora.calendar.storage.OpenPaaSUserDAO;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Resolves the {@link InternetAddress} of a user, with its full name as display name when the user is known.
+ */
+public interface InternetAddressResolver {
+    Mono<InternetAddress> resolve(Username username);
+
+    class Default implements InternetAddressResolver {
+        private final OpenPaaSUserDAO userDAO;
+
+        public Default(OpenPaaSUserDAO userDAO) {
+            this.userDAO = userDAO;
+        }
+
+        @Override
+        public Mono<InternetAddress> resolve(Username username) {
+            return userDAO.retrieve(username)
+                .map(OpenPaaSUser::fullName)
+                .flatMap(fullName -> Mono.fromCallable(() -> new InternetAddress(username.asString(), fullName)))
+                .switchIfEmpty(Mono.fromCallable(() -> new InternetAddress(username.asString())));
+        }
+    }
+
+    /**
+     * Short lived cache of resolved addresses: an organizer inviting many attendees would otherwise look the same users
+     * up for every single mail. Entries are dropped when the user is updated or deleted on this node, and expire quickly
+     * for changes made on other nodes.
+     */
+    class Cached implements InternetAddressResolver, OpenPaaSUserChangeListener {
+        private static final Duration TTL = DurationParser.parse(System.getProperty("mail.address.cache.ttl", "60s"));
+        private static final long MAXIMUM_SIZE = Long.getLong("mail.address.cache.size", 10_000);
+
+        private final InternetAddressResolver delegate;
+        private final Cache<Username, InternetAddress> cache;
+        private final Metric hitMetric;
+        private final Metric missMetric;
+
+        @Inject
+        public Cached(OpenPaaSUserDAO userDAO, MetricFactory metricFactory) {
+            this(new Default(userDAO), metricFactory);
+        }
+
+        public Cached(InternetAddressResolver delegate, MetricFactory metricFactory) {
+            this.delegate = delegate;
+            this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(TTL)
+                .maximumSize(MAXIMUM_SIZE)
+                .build();
+            this.hitMetric = metricFactory.generate("calendar.mail.address.cache.hit");
+            this.missMetric = metricFactory.generate("calendar.mail.address.cache.miss");
+        }
+
+        @Override
+        public Mono<InternetAddress> resolve(Username username) {
+            InternetAddress cached = cache.getIfPresent(username);
+            if (cached != null) {
+                hitMetric.increment();
+                // InternetAddress is mutable: callers get their own copy
+                return Mono.just((InternetAddress) cached.clone());
+            }
+            missMetric.increment();
+            return delegate.resolve(username)
+                .doOnNext(address -> cache.put(username, (InternetAddress) address.clone()));
+        }
+
+        @Override
+        public void userChanged(Username username) {
+            cache.invalidate(username);
+        }
+    }
+}
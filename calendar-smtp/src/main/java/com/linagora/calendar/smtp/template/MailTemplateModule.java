@@ -22,14 +22,37 @@ import java.io.FileNotFoundException;
 
 import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.apache.james.filesystem.api.FileSystem;
+import org.apache.james.utils.InitializationOperation;
+import org.apache.james.utils.InitilizationOperationBuilder;
 import org.apache.james.utils.PropertiesProvider;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
+import com.google.inject.Scopes;
 import com.google.inject.Singleton;
-import com.linagora.calendar.storage.OpenPaaSUserDAO;
+import com.google.inject.multibindings.Multibinder;
+import com.google.inject.multibindings.ProvidesIntoSet;
+import com.linagora.calendar.storage.OpenPaaSUserChangeListener;
 
 public class MailTemplateModule extends AbstractModule {
+    @Override
+    protected void configure() {
+        bind(MailTemplateWarmUp.class).in(Scopes.SINGLETON);
+
+        bind(InternetAddressResolver.Cached.class).in(Scopes.SINGLETON);
+        bind(InternetAddressResolver.class).to(InternetAddressResolver.Cached.class);
+        Multibinder.newSetBinder(binder(), OpenPaaSUserChangeListener.class)
+            .addBinding()
+            .to(InternetAddressResolver.Cached.class);
+    }
+
+    @ProvidesIntoSet
+    InitializationOperation warmUpMailTemplates(MailTemplateWarmUp mailTemplateWarmUp) {
+        return InitilizationOperationBuilder
+            .forClass(MailTemplateWarmUp.class)
+            .init(mailTemplateWarmUp::start);
+    }
+
     @Provides
     @Singleton
     MailTemplateConfiguration config(PropertiesProvider propertiesProvider) throws ConfigurationException, FileNotFoundException {
@@ -38,7 +61,14 @@ public class MailTemplateModule extends AbstractModule {
 
     @Provides
     @Singleton
-    MessageGenerator.Factory messageGeneratorFactory(MailTemplateConfiguration configuration, FileSystem fileSystem, OpenPaaSUserDAO userDAO) {
-        return MessageGenerator.factory(configuration, fileSystem, userDAO).cached();
+    MessageGenerator.Factory.Cached cachedMessageGeneratorFactory(MailTemplateConfiguration configuration, FileSystem fileSystem,
+                                                                  InternetAddressResolver internetAddressResolver) {
+        return MessageGenerator.factory(configuration, fileSystem, internetAddressResolver).cached();
+    }
+
+    @Provides
+    @Singleton
+    MessageGenerator.Factory messageGeneratorFactory(MessageGenerator.Factory.Cached cachedMessageGeneratorFactory) {
+        return cachedMessageGeneratorFactory;
     }
 }
@@ -0,0 +1,63 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.smtp.template;
+
+import jakarta.inject.Inject;
+
+import org.apache.james.lifecycle.api.Startable;
+import org.apache.james.metrics.api.MetricFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Builds every template and translation at startup, so that the first mails after a deployment do not pay for parsing
+ * Pug templates and loading resource bundles. Also backs the hot reload of templates edited on disk.
+ */
+public class MailTemplateWarmUp implements Startable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MailTemplateWarmUp.class);
+    public static final String WARM_UP_DURATION_METRIC = "calendar.mail.template.warmup.duration";
+    public static final String RELOAD_DURATION_METRIC = "calendar.mail.template.reload.duration";
+
+    private final MessageGenerator.Factory.Cached messageGeneratorFactory;
+    private final MetricFactory metricFactory;
+
+    @Inject
+    public MailTemplateWarmUp(MessageGenerator.Factory.Cached messageGeneratorFactory, MetricFactory metricFactory) {
+        this.messageGeneratorFactory = messageGeneratorFactory;
+        this.metricFactory = metricFactory;
+    }
+
+    public void start() {
+        // Templates keep being built lazily when the warm-up fails: this must not prevent the server from starting
+        Mono.from(metricFactory.decoratePublisherWithTimerMetric(WARM_UP_DURATION_METRIC, messageGeneratorFactory.reload()))
+            .doOnNext(count -> LOGGER.info("Warmed up {} mail template(s)", count))
+            .onErrorResume(e -> {
+                LOGGER.warn("Mail template warm-up failed", e);
+                return Mono.empty();
+            })
+            .block();
+    }
+
+    public Mono<Integer> reload() {
+        return Mono.from(metricFactory.decoratePublisherWithTimerMetric(RELOAD_DURATION_METRIC, messageGeneratorFactory.reload()))
+            .doOnNext(count -> LOGGER.info("Reloaded {} mail template(s)", count));
+    }
+}
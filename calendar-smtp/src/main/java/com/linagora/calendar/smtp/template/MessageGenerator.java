@@ -24,12 +24,17 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import jakarta.mail.internet.InternetAddress;
 
@@ -42,35 +47,52 @@ import org.apache.james.mime4j.dom.Message;
 import org.apache.james.mime4j.message.BodyPartBuilder;
 import org.apache.james.mime4j.message.MultipartBuilder;
 import org.apache.james.mime4j.stream.RawField;
+import org.apache.james.util.ReactorUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.github.fge.lambdas.Throwing;
 import com.google.common.base.Preconditions;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.linagora.calendar.api.CalendarSchedulers;
 import com.linagora.calendar.smtp.i18n.I18NTranslator;
 import com.linagora.calendar.smtp.i18n.I18NTranslator.PropertiesI18NTranslator;
-import com.linagora.calendar.storage.OpenPaaSUser;
 import com.linagora.calendar.storage.OpenPaaSUserDAO;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public class MessageGenerator {
     public interface Factory {
         MessageGenerator forLocalizedFeature(Language language, TemplateType templateType) throws IOException;
 
+        // The (language, template) pairs this factory can build, so that caches can be warmed up
+        default Set<CacheEntry> availableLocalizedFeatures() throws IOException {
+            return ImmutableSet.of();
+        }
+
         class Default implements Factory {
 
             private final MailTemplateConfiguration configuration;
             private final FileSystem fileSystem;
-            private final OpenPaaSUserDAO userDAO;
+            private final InternetAddressResolver internetAddressResolver;
 
             public Default(MailTemplateConfiguration configuration,
                            FileSystem fileSystem,
                            OpenPaaSUserDAO userDAO) {
+                this(configuration, fileSystem, new InternetAddressResolver.Default(userDAO));
+            }
+
+            public Default(MailTemplateConfiguration configuration,
+                           FileSystem fileSystem,
+                           InternetAddressResolver internetAddressResolver) {
                 this.configuration = configuration;
                 this.fileSystem = fileSystem;
-                this.userDAO = userDAO;
+                this.internetAddressResolver = internetAddressResolver;
             }
 
             public MessageGenerator forLocalizedFeature(Language language, TemplateType templateType) throws IOException {
@@ -83,10 +105,32 @@ public class MessageGenerator {
                 I18NTranslator i18NTranslator = getI18NTranslator(templateType, language.locale());
 
                 HtmlBodyRenderer htmlBodyRenderer = HtmlBodyRenderer.forPath(templateFileDirectory.getAbsolutePath());
-                return new MessageGenerator(i18NTranslator, htmlBodyRenderer, userDAO);
+                return new MessageGenerator(i18NTranslator, htmlBodyRenderer, internetAddressResolver);
             }
 
-            public Factory cached() {
+            @Override
+            public Set<CacheEntry> availableLocalizedFeatures() throws IOException {
+                File templateLocation = fileSystem.getFile(configuration.templateLocationPath());
+                File[] templateDirectories = templateLocation.listFiles(file -> new File(file, HtmlBodyRenderer.TEMPLATE_FILE_NAME).isFile());
+                if (templateDirectories == null) {
+                    throw new FileNotFoundException("Template location not found: " + templateLocation.getAbsolutePath());
+                }
+                return Arrays.stream(templateDirectories)
+                    .flatMap(templateDirectory -> availableLanguages(templateDirectory).stream()
+                        .map(language -> new CacheEntry(language, new TemplateType(templateDirectory.getName()))))
+                    .collect(ImmutableSet.toImmutableSet());
+            }
+
+            private Set<Language> availableLanguages(File templateDirectory) {
+                String[] translationFiles = new File(templateDirectory, "translations").list();
+                return Stream.concat(Stream.of(Language.ENGLISH), Arrays.stream(Optional.ofNullable(translationFiles).orElse(new String[0]))
+                        .map(TRANSLATION_FILE_PATTERN::matcher)
+                        .filter(Matcher::matches)
+                        .map(matcher -> new Language(Locale.forLanguageTag(matcher.group(1)))))
+                    .collect(ImmutableSet.toImmutableSet());
+            }
+
+            public Cached cached() {
                 return new Cached(this);
             }
 
@@ -121,6 +165,34 @@ public class MessageGenerator {
                     throw new RuntimeException(e);
                 }
             }
+
+            @Override
+            public Set<CacheEntry> availableLocalizedFeatures() throws IOException {
+                return factory.availableLocalizedFeatures();
+            }
+
+            /**
+             * Builds every available (language, template) pair in parallel, then overwrites the cached entries with them before
+             * dropping the entries no longer available, so that templates and translations edited on disk are picked up without
+             * serving a half empty cache meanwhile.
+             * Returns the count of message generators built.
+             */
+            public Mono<Integer> reload() {
+                return Mono.fromCallable(factory::availableLocalizedFeatures)
+                    .flatMapMany(Flux::fromIterable)
+                    .flatMap(entry -> Mono.fromCallable(() -> Map.entry(entry, factory.forLocalizedFeature(entry.language(), entry.templateType())))
+                        .subscribeOn(CalendarSchedulers.blocking())
+                        .onErrorResume(e -> {
+                            LOGGER.warn("Failed to build the '{}' template for language '{}'", entry.templateType().value(), entry.language().value(), e);
+                            return Mono.empty();
+                        }), ReactorUtils.DEFAULT_CONCURRENCY)
+                    .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                    .map(messageGenerators -> {
+                        loadingCache.putAll(messageGenerators);
+                        loadingCache.invalidateAll(Sets.difference(ImmutableSet.copyOf(loadingCache.asMap().keySet()), messageGenerators.keySet()));
+                        return messageGenerators.size();
+                    });
+            }
         }
     }
 
@@ -130,19 +202,33 @@ public class MessageGenerator {
         return new Factory.Default(configuration, fileSystem, userDAO);
     }
 
+    public static Factory.Default factory(MailTemplateConfiguration configuration,
+                                          FileSystem fileSystem,
+                                          InternetAddressResolver internetAddressResolver) {
+        return new Factory.Default(configuration, fileSystem, internetAddressResolver);
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageGenerator.class);
+    private static final Pattern TRANSLATION_FILE_PATTERN = Pattern.compile("messages_([a-zA-Z-]+)\\.properties");
     private static final String SUBJECT_KEY_NAME = "mail_subject";
     private static final String TRANSLATOR_FUNCTION_NAME = "translator";
 
     private final HtmlBodyRenderer htmlBodyRenderer;
     private final I18NTranslator i18nTranslator;
-    private final OpenPaaSUserDAO userDAO;
+    private final InternetAddressResolver internetAddressResolver;
 
     public MessageGenerator(I18NTranslator i18nTranslator,
                             HtmlBodyRenderer htmlBodyRenderer,
                             OpenPaaSUserDAO userDAO) {
+        this(i18nTranslator, htmlBodyRenderer, new InternetAddressResolver.Default(userDAO));
+    }
+
+    public MessageGenerator(I18NTranslator i18nTranslator,
+                            HtmlBodyRenderer htmlBodyRenderer,
+                            InternetAddressResolver internetAddressResolver) {
         this.i18nTranslator = i18nTranslator;
         this.htmlBodyRenderer = htmlBodyRenderer;
-        this.userDAO = userDAO;
+        this.internetAddressResolver = internetAddressResolver;
     }
 
     public Mono<Message> generate(Username recipient, MailAddress fromAddress, Map<String, Object> scopedVariable, List<MimeAttachment> mimeAttachments) {
@@ -156,10 +242,7 @@ public class MessageGenerator {
     }
 
     public Mono<InternetAddress> resolveInternetAddress(Username username) {
-        return userDAO.retrieve(username)
-            .map(OpenPaaSUser::fullName)
-            .flatMap(fullName -> Mono.fromCallable(() -> new InternetAddress(username.asString(), fullName)))
-            .switchIfEmpty(Mono.fromCallable(() -> new InternetAddress(username.asString())));
+        return internetAddressResolver.resolve(username);
     }
 
     public Mono<Message> generate(InternetAddress recipient, InternetAddress fromAddress, Map<String, Object> scopedVariable, List<MimeAttachment> mimeAttachments) {
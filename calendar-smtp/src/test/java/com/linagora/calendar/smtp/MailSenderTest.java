@@ -24,6 +24,7 @@ import static org.assertj.core.api.SoftAssertions.assertSoftly;
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import org.apache.james.core.MailAddress;
@@ -236,6 +237,29 @@ class MailSenderTest {
         }));
     }
 
+    @Test
+    void sendEachShouldReportTheOutcomeOfEveryMail() throws Exception {
+        String rawMessage1 = "From: sender1@localhost\nTo: recipient1@localhost\nSubject: Test1\n\nHello 1!";
+        String rawMessage2 = "From: sender2@localhost\nTo: recipient2@localhost\nSubject: Test2\n\nHello 2!";
+        Message message1 = new DefaultMessageBuilder().parseMessage(new ByteArrayInputStream(rawMessage1.getBytes(StandardCharsets.UTF_8)));
+        Message message2 = new DefaultMessageBuilder().parseMessage(new ByteArrayInputStream(rawMessage2.getBytes(StandardCharsets.UTF_8)));
+        Mail mail1 = new Mail(MaybeSender.of(new MailAddress("sender1@localhost")), ImmutableList.of(new MailAddress("recipient1@localhost")), message1);
+        Mail mail2 = new Mail(MaybeSender.of(new MailAddress("sender2@localhost")), ImmutableList.of(new MailAddress("recipient2@localhost")), message2);
+
+        String behaviorJson = """
+            [ { "command": "RCPT TO", "condition": { "operator": "contains", "matchingValue": "recipient1@localhost" }, "response": { "code": "501", "message": "Bad recipient" } } ]
+            """;
+        RestAssured.given().body(behaviorJson).contentType("application/json").put("/smtpBehaviors");
+
+        List<MailSender.SendResult> results = mailSender.sendEach(ImmutableList.of(mail1, mail2)).collectList().block();
+
+        assertSoftly(softly -> {
+            softly.assertThat(results).extracting(MailSender.SendResult::mail).containsExactly(mail1, mail2);
+            softly.assertThat(results.get(0).error()).containsInstanceOf(SmtpSendingFailedException.class);
+            softly.assertThat(results.get(1).isSuccess()).isTrue();
+        });
+    }
+
     @Test
     void shouldThrowWhenAllMailsFailInBatch() throws Exception {
         String rawMessage1 = "From: sender1@localhost\nTo: recipient1@localhost\nSubject: Test1\n\nHello 1!";
@@ -257,4 +281,25 @@ class MailSenderTest {
             .isInstanceOf(SmtpSendingFailedException.class)
             .hasMessageContaining("All 'rcpt to' commands failed");
     }
+
+    @Test
+    void shouldPreserveLinesStartingWithADot() throws Exception {
+        String rawMessage = "From: sender@localhost\nTo: recipient@localhost\nSubject: Test\n\n.leading dot\n..two dots";
+        Message message = new DefaultMessageBuilder().parseMessage(new ByteArrayInputStream(rawMessage.getBytes(StandardCharsets.UTF_8)));
+        Mail mail = new Mail(
+            MaybeSender.of(new MailAddress("sender@localhost")),
+            ImmutableList.of(new MailAddress("recipient@localhost")),
+            message
+        );
+
+        mailSender.send(mail).block();
+        JsonPath response = RestAssured.get("/smtpMails").jsonPath();
+
+        assertSoftly(Throwing.consumer(softly -> {
+            softly.assertThat(response.getList("")).hasSize(1);
+            softly.assertThat(response.getString("[0].message")).containsIgnoringNewLines(".leading dot")
+                .containsIgnoringNewLines("..two dots")
+                .doesNotContain("...two dots");
+        }));
+    }
 }
@@ -0,0 +1,219 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.smtp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.james.core.MailAddress;
+import org.apache.james.core.MaybeSender;
+import org.apache.james.metrics.tests.RecordingMetricFactory;
+import org.apache.james.mime4j.dom.Message;
+import org.apache.james.mime4j.message.DefaultMessageBuilder;
+import org.apache.james.util.Port;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import com.github.fge.lambdas.Throwing;
+import com.linagora.calendar.storage.MemoryOutboundMailDAO;
+import com.linagora.calendar.storage.OutboundMail;
+
+import io.restassured.RestAssured;
+import io.restassured.path.json.JsonPath;
+
+class OutboundMailDispatcherTest {
+
+    @RegisterExtension
+    static final MockSmtpServerExtension mockSmtpExtension = new MockSmtpServerExtension();
+
+    private static final MailQueueConfiguration QUEUE_CONFIGURATION = new MailQueueConfiguration(true, Duration.ofSeconds(1),
+        10, 2, 3, Duration.ofSeconds(10), Duration.ofMinutes(1), 0);
+
+    private MemoryOutboundMailDAO outboundMailDAO;
+    private RecordingMetricFactory metricFactory;
+    private MailSender.Factory directMailSenderFactory;
+    private QueueingMailSenderFactory queueingMailSenderFactory;
+
+    @BeforeEach
+    void setUp() {
+        MailSenderConfiguration configuration = new MailSenderConfiguration(
+            "localhost",
+            Port.of(mockSmtpExtension.getMockSmtp().getSmtpPort()),
+            "localhost",
+            Optional.empty(),
+            Optional.empty(),
+            false,
+            false,
+            false);
+        outboundMailDAO = new MemoryOutboundMailDAO();
+        metricFactory = new RecordingMetricFactory();
+        directMailSenderFactory = new MailSender.Factory.Default(configuration);
+        queueingMailSenderFactory = new QueueingMailSenderFactory(outboundMailDAO, Clock.systemUTC(), metricFactory);
+
+        RestAssured.baseURI = "http://localhost";
+        RestAssured.port = mockSmtpExtension.getMockSmtp().getRestApiPort();
+
+        RestAssured.delete("/smtpMails");
+        RestAssured.delete("/smtpBehaviors");
+    }
+
+    private OutboundMailDispatcher dispatcher(MailQueueConfiguration queueConfiguration) {
+        return new OutboundMailDispatcher(outboundMailDAO, directMailSenderFactory, queueConfiguration, Clock.systemUTC(), metricFactory);
+    }
+
+    private Mail mail(String... recipients) throws Exception {
+        String rawMessage = "From: sender@localhost\nTo: " + String.join(", ", recipients) + "\nSubject: Test\n\nHello World!";
+        Message message = new DefaultMessageBuilder().parseMessage(new ByteArrayInputStream(rawMessage.getBytes(StandardCharsets.UTF_8)));
+        return new Mail(MaybeSender.of(new MailAddress("sender@localhost")),
+            List.of(recipients).stream().map(Throwing.function(MailAddress::new)).toList(),
+            message);
+    }
+
+    private void enqueue(Mail mail) {
+        queueingMailSenderFactory.create().flatMap(mailSender -> mailSender.send(mail)).block();
+    }
+
+    private void rejectRecipient(String recipient) {
+        rejectRecipient(recipient, "451", "Try again later");
+    }
+
+    private void rejectRecipient(String recipient, String code, String reason) {
+        String behaviorJson = """
+            [ { "command": "RCPT TO", "condition": { "operator": "contains", "matchingValue": "%s" }, "response": { "code": "%s", "message": "%s" } } ]
+            """.formatted(recipient, code, reason);
+        RestAssured.given().body(behaviorJson).contentType("application/json").put("/smtpBehaviors");
+    }
+
+    @Test
+    void sendingShouldOnlyEnqueueTheMail() throws Exception {
+        enqueue(mail("recipient@localhost"));
+
+        assertThat(outboundMailDAO.count().block()).isEqualTo(1L);
+        assertThat(RestAssured.get("/smtpMails").jsonPath().getList("")).isEmpty();
+        assertThat(metricFactory.countFor("calendar.smtp.queue.enqueued")).isEqualTo(1);
+    }
+
+    @Test
+    void dispatchShouldDeliverQueuedMails() throws Exception {
+        enqueue(mail("recipient1@localhost"));
+        enqueue(mail("recipient2@localhost", "recipient3@localhost"));
+
+        assertThat(dispatcher(QUEUE_CONFIGURATION).dispatchDueMails().block()).isEqualTo(2L);
+
+        JsonPath response = RestAssured.get("/smtpMails").jsonPath();
+        assertThat(response.getList("recipients.address").stream().flatMap(addresses -> ((List<?>) addresses).stream()))
+            .containsExactlyInAnyOrder("recipient1@localhost", "recipient2@localhost", "recipient3@localhost");
+        assertThat(response.getString("[0].message")).contains("Hello World!");
+        assertThat(outboundMailDAO.count().block()).isZero();
+        assertThat(metricFactory.countFor("calendar.smtp.queue.sent")).isEqualTo(2);
+    }
+
+    @Test
+    void failedDeliveryShouldBeRetriedLater() throws Exception {
+        rejectRecipient("recipient@localhost");
+        enqueue(mail("recipient@localhost"));
+        Instant beforeDispatch = Instant.now();
+
+        dispatcher(QUEUE_CONFIGURATION).dispatchDueMails().block();
+
+        OutboundMail queued = outboundMailDAO.claimDue(Instant.now().plus(Duration.ofMinutes(1)), "test", Duration.ofMinutes(1), 10)
+            .single().block();
+        assertThat(queued.attempts()).isEqualTo(1);
+        assertThat(queued.nextAttemptAt()).isAfterOrEqualTo(beforeDispatch.plus(QUEUE_CONFIGURATION.initialBackoff()));
+        assertThat(metricFactory.countFor("calendar.smtp.queue.retried")).isEqualTo(1);
+    }
+
+    @Test
+    void retriedMailShouldNotBeDispatchedBeforeItsBackoff() throws Exception {
+        rejectRecipient("recipient@localhost");
+        enqueue(mail("recipient@localhost"));
+        OutboundMailDispatcher dispatcher = dispatcher(QUEUE_CONFIGURATION);
+
+        dispatcher.dispatchDueMails().block();
+
+        assertThat(dispatcher.dispatchDueMails().block()).isZero();
+    }
+
+    @Test
+    void mailShouldBeDroppedAfterMaxAttempts() throws Exception {
+        rejectRecipient("recipient@localhost");
+        enqueue(mail("recipient@localhost"));
+        MailQueueConfiguration singleAttempt = new MailQueueConfiguration(true, Duration.ofSeconds(1),
+            10, 2, 1, Duration.ofSeconds(10), Duration.ofMinutes(1), 0);
+
+        dispatcher(singleAttempt).dispatchDueMails().block();
+
+        assertThat(outboundMailDAO.count().block()).isZero();
+        assertThat(metricFactory.countFor("calendar.smtp.queue.dropped")).isEqualTo(1);
+    }
+
+    @Test
+    void permanentlyRejectedMailShouldBeDroppedWithoutRetry() throws Exception {
+        rejectRecipient("recipient@localhost", "550", "5.1.1 Mailbox unavailable");
+        enqueue(mail("recipient@localhost"));
+
+        dispatcher(QUEUE_CONFIGURATION).dispatchDueMails().block();
+
+        assertThat(outboundMailDAO.count().block()).isZero();
+        assertThat(metricFactory.countFor("calendar.smtp.queue.dropped")).isEqualTo(1);
+        assertThat(metricFactory.countFor("calendar.smtp.queue.retried")).isZero();
+    }
+
+    @Test
+    void throttledDomainShouldNotConsumePermitsOfOtherDomains() throws Exception {
+        MailQueueConfiguration rateLimited = new MailQueueConfiguration(true, Duration.ofSeconds(1),
+            10, 1, 3, Duration.ofSeconds(10), Duration.ofMinutes(1), 0.001);
+        OutboundMailDispatcher dispatcher = dispatcher(rateLimited);
+        enqueue(mail("recipient1@localhost"));
+        dispatcher.dispatchDueMails().block();
+
+        enqueue(mail("recipient2@other.com", "recipient3@localhost"));
+        dispatcher.dispatchDueMails().block();
+        enqueue(mail("recipient4@other.com"));
+        dispatcher.dispatchDueMails().block();
+
+        assertThat(RestAssured.get("/smtpMails").jsonPath().getList("recipients.address").stream().flatMap(addresses -> ((List<?>) addresses).stream()))
+            .containsExactlyInAnyOrder("recipient1@localhost", "recipient4@other.com");
+        assertThat(metricFactory.countFor("calendar.smtp.queue.rate.limited")).isEqualTo(1);
+    }
+
+    @Test
+    void rateLimitedDomainsShouldPostponeMails() throws Exception {
+        enqueue(mail("recipient1@localhost"));
+        enqueue(mail("recipient2@localhost"));
+        MailQueueConfiguration rateLimited = new MailQueueConfiguration(true, Duration.ofSeconds(1),
+            10, 1, 3, Duration.ofSeconds(10), Duration.ofMinutes(1), 0.001);
+
+        dispatcher(rateLimited).dispatchDueMails().block();
+
+        assertThat(RestAssured.get("/smtpMails").jsonPath().getList("")).hasSize(1);
+        OutboundMail postponed = outboundMailDAO.claimDue(Instant.now().plus(Duration.ofMinutes(1)), "test", Duration.ofMinutes(1), 10)
+            .single().block();
+        assertThat(postponed.attempts()).isZero();
+        assertThat(metricFactory.countFor("calendar.smtp.queue.rate.limited")).isEqualTo(1);
+    }
+}
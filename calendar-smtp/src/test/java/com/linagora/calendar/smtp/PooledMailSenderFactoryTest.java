@@ -0,0 +1,139 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.smtp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.james.core.MailAddress;
+import org.apache.james.core.MaybeSender;
+import org.apache.james.metrics.tests.RecordingMetricFactory;
+import org.apache.james.mime4j.dom.Message;
+import org.apache.james.mime4j.message.DefaultMessageBuilder;
+import org.apache.james.util.Port;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import com.google.common.collect.ImmutableList;
+
+import io.restassured.RestAssured;
+
+class PooledMailSenderFactoryTest {
+
+    @RegisterExtension
+    static final MockSmtpServerExtension mockSmtpExtension = new MockSmtpServerExtension();
+
+    private MailSenderConfiguration configuration;
+    private RecordingMetricFactory metricFactory;
+    private PooledMailSenderFactory testee;
+
+    @BeforeEach
+    void setUp() {
+        configuration = new MailSenderConfiguration(
+            "localhost",
+            Port.of(mockSmtpExtension.getMockSmtp().getSmtpPort()),
+            "localhost",
+            Optional.empty(),
+            Optional.empty(),
+            false,
+            false,
+            false);
+        metricFactory = new RecordingMetricFactory();
+        testee = new PooledMailSenderFactory(configuration, MailSenderPoolConfiguration.DEFAULT, Clock.systemUTC(), metricFactory);
+
+        RestAssured.baseURI = "http://localhost";
+        RestAssured.port = mockSmtpExtension.getMockSmtp().getRestApiPort();
+
+        RestAssured.delete("/smtpMails");
+        RestAssured.delete("/smtpBehaviors");
+    }
+
+    @AfterEach
+    void tearDown() {
+        testee.close();
+    }
+
+    @Test
+    void shouldReuseConnectionAcrossSends() throws Exception {
+        MailSender mailSender = testee.create().block();
+
+        mailSender.send(mail("recipient1@localhost")).block();
+        mailSender.send(mail("recipient2@localhost")).block();
+        mailSender.send(mail("recipient3@localhost")).block();
+
+        assertThat(RestAssured.get("/smtpMails").jsonPath().getList("")).hasSize(3);
+        assertThat(metricFactory.countFor("calendar.smtp.pool.connection.created")).isEqualTo(1);
+        assertThat(metricFactory.countFor("calendar.smtp.pool.connection.reused")).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRenewConnectionAfterMaxMessages() throws Exception {
+        testee = new PooledMailSenderFactory(configuration,
+            new MailSenderPoolConfiguration(2, Duration.ofMinutes(1), 1, Duration.ofSeconds(5)),
+            Clock.systemUTC(), metricFactory);
+        MailSender mailSender = testee.create().block();
+
+        mailSender.send(mail("recipient1@localhost")).block();
+        mailSender.send(mail("recipient2@localhost")).block();
+
+        assertThat(RestAssured.get("/smtpMails").jsonPath().getList("")).hasSize(2);
+        assertThat(metricFactory.countFor("calendar.smtp.pool.connection.created")).isEqualTo(2);
+    }
+
+    @Test
+    void shouldKeepConnectionUsableAfterRejectedTransaction() throws Exception {
+        String behaviorJson = """
+            [ { "command": "RCPT TO", "condition": { "operator": "contains", "matchingValue": "@rejected.com" }, "response": { "code": "501", "message": "5.1.3 Bad recipient address syntax" } } ]
+            """;
+        RestAssured.given().body(behaviorJson).contentType("application/json").put("/smtpBehaviors");
+        MailSender mailSender = testee.create().block();
+
+        assertThatThrownBy(() -> mailSender.send(mail("rejected@rejected.com")).block())
+            .isInstanceOf(SmtpSendingFailedException.class);
+        mailSender.send(mail("recipient@localhost")).block();
+
+        assertThat(RestAssured.get("/smtpMails").jsonPath().getList("")).hasSize(1);
+        assertThat(metricFactory.countFor("calendar.smtp.pool.connection.created")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldDeliverBatchOnPooledConnections() throws Exception {
+        MailSender mailSender = testee.create().block();
+
+        mailSender.send(List.of(mail("recipient1@localhost"), mail("recipient2@localhost"))).block();
+
+        assertThat(RestAssured.get("/smtpMails").jsonPath().getList("")).hasSize(2);
+        assertThat(metricFactory.countFor("calendar.smtp.pool.connection.created")).isEqualTo(1);
+    }
+
+    private Mail mail(String recipient) throws Exception {
+        String rawMessage = "From: sender@localhost\nTo: " + recipient + "\nSubject: Test\n\nHello World!";
+        Message message = new DefaultMessageBuilder().parseMessage(new ByteArrayInputStream(rawMessage.getBytes(StandardCharsets.UTF_8)));
+        return new Mail(MaybeSender.of(new MailAddress("sender@localhost")), ImmutableList.of(new MailAddress(recipient)), message);
+    }
+}
@@ -0,0 +1,76 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.smtp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class SmtpDataOutputStreamTest {
+
+    private static String encode(String... chunks) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (SmtpDataOutputStream dataStream = new SmtpDataOutputStream(outputStream)) {
+            for (String chunk : chunks) {
+                dataStream.write(chunk.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void shouldConvertBareLineFeeds() throws Exception {
+        assertThat(encode("a\nb\r\nc\n")).isEqualTo("a\r\nb\r\nc\r\n.\r\n");
+    }
+
+    @Test
+    void shouldStuffLeadingDots() throws Exception {
+        assertThat(encode(".a\n..b\nc.d\n")).isEqualTo("..a\r\n...b\r\nc.d\r\n.\r\n");
+    }
+
+    @Test
+    void shouldTerminateLastLine() throws Exception {
+        assertThat(encode("a")).isEqualTo("a\r\n.\r\n");
+    }
+
+    @Test
+    void shouldOnlyWriteTerminatorForEmptyMessage() throws Exception {
+        assertThat(encode()).isEqualTo(".\r\n");
+    }
+
+    @Test
+    void shouldKeepStateAcrossWrites() throws Exception {
+        assertThat(encode("a\r", "\n", ".b\n", "c")).isEqualTo("a\r\n..b\r\nc\r\n.\r\n");
+    }
+
+    @Test
+    void shouldNotCloseUnderlyingStream() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        SmtpDataOutputStream dataStream = new SmtpDataOutputStream(outputStream);
+        dataStream.close();
+        dataStream.close();
+        outputStream.write('x');
+
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo(".\r\nx");
+    }
+}
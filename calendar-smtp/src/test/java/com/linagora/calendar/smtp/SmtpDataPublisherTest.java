@@ -0,0 +1,116 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+
+package com.linagora.calendar.smtp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+
+import reactor.core.publisher.BaseSubscriber;
+
+class SmtpDataPublisherTest {
+    private static final String BODY = ".line of the message\n".repeat(2000);
+
+    @Test
+    void encodeShouldStreamTheDataEncodingInChunks() throws Exception {
+        List<byte[]> chunks = SmtpDataPublisher.encode(outputStream -> outputStream.write(BODY.getBytes(StandardCharsets.UTF_8)))
+            .collectList()
+            .block(Duration.ofSeconds(10));
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (SmtpDataOutputStream dataStream = new SmtpDataOutputStream(expected)) {
+            dataStream.write(BODY.getBytes(StandardCharsets.UTF_8));
+        }
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        for (byte[] chunk : chunks) {
+            actual.write(chunk);
+        }
+        assertThat(chunks).hasSizeGreaterThan(1)
+            .allSatisfy(chunk -> assertThat(chunk.length).isLessThanOrEqualTo(SmtpDataPublisher.CHUNK_SIZE));
+        assertThat(actual.toByteArray()).isEqualTo(expected.toByteArray());
+    }
+
+    @Test
+    void encodeShouldOnlyWriteWhatWasRequested() throws Exception {
+        List<byte[]> received = new CopyOnWriteArrayList<>();
+        CountDownLatch writerDone = new CountDownLatch(1);
+
+        BaseSubscriber<byte[]> subscriber = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(byte[] chunk) {
+                received.add(chunk);
+            }
+        };
+        SmtpDataPublisher.encode(outputStream -> {
+                try {
+                    outputStream.write(BODY.getBytes(StandardCharsets.UTF_8));
+                } finally {
+                    writerDone.countDown();
+                }
+            })
+            .subscribe(subscriber);
+
+        assertThat(writerDone.await(500, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(received).hasSize(1);
+        subscriber.dispose();
+    }
+
+    @Test
+    void encodeShouldStopTheWriterWhenCancelled() throws Exception {
+        CountDownLatch writerDone = new CountDownLatch(1);
+
+        SmtpDataPublisher.encode(outputStream -> {
+                try {
+                    outputStream.write(BODY.getBytes(StandardCharsets.UTF_8));
+                } finally {
+                    writerDone.countDown();
+                }
+            })
+            .take(1)
+            .blockLast(Duration.ofSeconds(10));
+
+        assertThat(writerDone.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void encodeShouldPropagateWriterFailures() {
+        assertThatThrownBy(() -> SmtpDataPublisher.encode(outputStream -> {
+                throw new IOException("boom");
+            })
+            .blockLast(Duration.ofSeconds(10)))
+            .hasRootCauseMessage("boom");
+    }
+}
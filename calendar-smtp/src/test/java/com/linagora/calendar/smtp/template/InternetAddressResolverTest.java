@@ -0,0 +1,119 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.smtp.template;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jakarta.mail.internet.InternetAddress;
+
+import org.apache.james.core.Username;
+import org.apache.james.metrics.tests.RecordingMetricFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.linagora.calendar.storage.ListeningOpenPaaSUserDAO;
+import com.linagora.calendar.storage.MemoryOpenPaaSUserDAO;
+import com.linagora.calendar.storage.OpenPaaSUser;
+
+class InternetAddressResolverTest {
+    private static final Username BOB = Username.of("bob@domain.tld");
+
+    private RecordingMetricFactory metricFactory;
+    private ListeningOpenPaaSUserDAO userDAO;
+    private InternetAddressResolver.Cached testee;
+
+    @BeforeEach
+    void setUp() {
+        metricFactory = new RecordingMetricFactory();
+        MemoryOpenPaaSUserDAO memoryUserDAO = new MemoryOpenPaaSUserDAO();
+        testee = new InternetAddressResolver.Cached(memoryUserDAO, metricFactory);
+        userDAO = new ListeningOpenPaaSUserDAO(memoryUserDAO, ImmutableSet.of(testee));
+    }
+
+    @Test
+    void resolveShouldUseFullNameAsPersonal() {
+        userDAO.add(BOB, "Bob", "Marley").block();
+
+        InternetAddress address = testee.resolve(BOB).block();
+
+        assertThat(address.getAddress()).isEqualTo("bob@domain.tld");
+        assertThat(address.getPersonal()).isEqualTo("Bob Marley");
+    }
+
+    @Test
+    void resolveShouldFallbackToBareAddressWhenUnknownUser() {
+        InternetAddress address = testee.resolve(BOB).block();
+
+        assertThat(address.getAddress()).isEqualTo("bob@domain.tld");
+        assertThat(address.getPersonal()).isNull();
+    }
+
+    @Test
+    void resolveShouldHitTheCacheOnSubsequentCalls() {
+        userDAO.add(BOB, "Bob", "Marley").block();
+
+        testee.resolve(BOB).block();
+        testee.resolve(BOB).block();
+        testee.resolve(BOB).block();
+
+        assertThat(metricFactory.countFor("calendar.mail.address.cache.miss")).isEqualTo(1);
+        assertThat(metricFactory.countFor("calendar.mail.address.cache.hit")).isEqualTo(2);
+    }
+
+    @Test
+    void cachedAddressShouldNotBeAlteredByCallers() throws Exception {
+        userDAO.add(BOB, "Bob", "Marley").block();
+
+        testee.resolve(BOB).block().setPersonal("Altered");
+
+        assertThat(testee.resolve(BOB).block().getPersonal()).isEqualTo("Bob Marley");
+    }
+
+    @Test
+    void updateShouldInvalidateTheCachedAddress() {
+        OpenPaaSUser user = userDAO.add(BOB, "Bob", "Marley").block();
+        testee.resolve(BOB).block();
+
+        userDAO.update(user.id(), BOB, "Robert", "Marley").block();
+
+        assertThat(testee.resolve(BOB).block().getPersonal()).isEqualTo("Robert Marley");
+    }
+
+    @Test
+    void renamingShouldInvalidateTheFormerAddress() {
+        Username alice = Username.of("alice@domain.tld");
+        OpenPaaSUser user = userDAO.add(BOB, "Bob", "Marley").block();
+        testee.resolve(BOB).block();
+
+        userDAO.update(user.id(), alice, "Alice", "Marley").block();
+
+        assertThat(testee.resolve(BOB).block().getPersonal()).isNull();
+    }
+
+    @Test
+    void deleteShouldInvalidateTheCachedAddress() {
+        userDAO.add(BOB, "Bob", "Marley").block();
+        testee.resolve(BOB).block();
+
+        userDAO.delete(BOB).block();
+
+        assertThat(testee.resolve(BOB).block().getPersonal()).isNull();
+    }
+}
@@ -20,12 +20,15 @@ package com.linagora.calendar.webadmin;
 
 import static com.linagora.calendar.webadmin.task.RunningOptions.DEFAULT_EVENTS_PER_SECOND;
 
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
 import java.util.Optional;
 import java.util.Set;
 
 import jakarta.inject.Inject;
 
 import org.apache.james.task.TaskManager;
+import org.apache.james.util.DurationParser;
 import org.apache.james.webadmin.Routes;
 import org.apache.james.webadmin.tasks.TaskFromRequestRegistry;
 import org.apache.james.webadmin.tasks.TaskRegistrationKey;
@@ -33,8 +36,11 @@ import org.apache.james.webadmin.utils.JsonTransformer;
 
 import com.linagora.calendar.webadmin.service.AlarmScheduleService;
 import com.linagora.calendar.webadmin.service.CalendarEventsReindexService;
+import com.linagora.calendar.webadmin.service.DeadLetterReplayService;
 import com.linagora.calendar.webadmin.task.AlarmScheduleTask;
 import com.linagora.calendar.webadmin.task.CalendarEventsReindexTask;
+import com.linagora.calendar.webadmin.task.DeadLetterReplayRunningOptions;
+import com.linagora.calendar.webadmin.task.DeadLetterReplayTask;
 import com.linagora.calendar.webadmin.task.RunningOptions;
 
 import spark.Request;
@@ -93,6 +99,54 @@ public class CalendarRoutes implements Routes {
         }
     }
 
+    public static class DeadLetterReplayRequestToTask extends TaskFromRequestRegistry.TaskRegistration {
+        public static final TaskRegistrationKey TASK_NAME = TaskRegistrationKey.of("replayDeadLetters");
+
+        private static final String QUEUE = "queue";
+        private static final String MESSAGES_PER_SECOND = "messagesPerSecond";
+        private static final String CONCURRENCY = "concurrency";
+        private static final String MAX_AGE = "maxAge";
+
+        @Inject
+        public DeadLetterReplayRequestToTask(DeadLetterReplayService deadLetterReplayService) {
+            super(TASK_NAME, request -> new DeadLetterReplayTask(deadLetterReplayService, extractRunningOptions(request)));
+        }
+
+        private static DeadLetterReplayRunningOptions extractRunningOptions(Request request) {
+            Optional<String> deadLetterQueue = Optional.ofNullable(request.queryParams(QUEUE));
+            deadLetterQueue.ifPresent(DeadLetterReplayService::validateDeadLetterQueue);
+            return new DeadLetterReplayRunningOptions(deadLetterQueue,
+                extractStrictlyPositiveInteger(request, MESSAGES_PER_SECOND, DeadLetterReplayRunningOptions.DEFAULT_MESSAGES_PER_SECOND),
+                extractStrictlyPositiveInteger(request, CONCURRENCY, DeadLetterReplayRunningOptions.DEFAULT_CONCURRENCY),
+                extractMaxAge(request));
+        }
+
+        private static int extractStrictlyPositiveInteger(Request request, String parameterName, int defaultValue) {
+            try {
+                int value = Optional.ofNullable(request.queryParams(parameterName))
+                    .map(Integer::parseInt)
+                    .orElse(defaultValue);
+                if (value <= 0) {
+                    throw new NumberFormatException("'" + parameterName + "' must be strictly positive");
+                }
+                return value;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(String.format("Illegal value supplied for query parameter '%s', expecting a " +
+                    "strictly positive optional integer", parameterName), e);
+            }
+        }
+
+        private static Optional<Duration> extractMaxAge(Request request) {
+            try {
+                return Optional.ofNullable(request.queryParams(MAX_AGE))
+                    .map(maxAge -> DurationParser.parse(maxAge, ChronoUnit.SECONDS));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(String.format("Illegal value supplied for query parameter '%s', expecting a " +
+                    "duration", MAX_AGE), e);
+            }
+        }
+    }
+
     public static final String BASE_PATH = "/calendars";
 
     private final JsonTransformer jsonTransformer;
@@ -50,6 +50,7 @@ public class CalendarRoutesModule extends AbstractModule {
         routesMultibinder.addBinding().to(CalendarRoutes.class);
         routesMultibinder.addBinding().to(ResourceRoutes.class);
         routesMultibinder.addBinding().to(DomainAdminRoutes.class);
+        routesMultibinder.addBinding().to(MailTemplateRoutes.class);
 
         bind(MemoryTaskManager.class).in(Scopes.SINGLETON);
         bind(TaskManager.class).to(MemoryTaskManager.class);
@@ -0,0 +1,68 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.webadmin;
+
+import java.util.Map;
+
+import jakarta.inject.Inject;
+
+import org.apache.james.webadmin.Routes;
+import org.apache.james.webadmin.utils.JsonTransformer;
+
+import com.google.common.base.Preconditions;
+import com.linagora.calendar.smtp.template.MailTemplateWarmUp;
+
+import spark.Route;
+import spark.Service;
+
+public class MailTemplateRoutes implements Routes {
+    public static final String BASE_PATH = "/mail-templates";
+
+    private static final String ACTION_PARAM = "action";
+    private static final String RELOAD_ACTION = "reload";
+
+    private final MailTemplateWarmUp mailTemplateWarmUp;
+    private final JsonTransformer jsonTransformer;
+
+    @Inject
+    public MailTemplateRoutes(MailTemplateWarmUp mailTemplateWarmUp, JsonTransformer jsonTransformer) {
+        this.mailTemplateWarmUp = mailTemplateWarmUp;
+        this.jsonTransformer = jsonTransformer;
+    }
+
+    @Override
+    public String getBasePath() {
+        return BASE_PATH;
+    }
+
+    @Override
+    public void define(Service service) {
+        service.post(BASE_PATH, reload(), jsonTransformer);
+    }
+
+    public Route reload() {
+        return (request, response) -> {
+            Preconditions.checkArgument(RELOAD_ACTION.equals(request.queryParams(ACTION_PARAM)),
+                "Invalid or missing '%s' query parameter, expecting '%s'", ACTION_PARAM, RELOAD_ACTION);
+
+            int reloadedTemplates = mailTemplateWarmUp.reload().block();
+            return Map.of("reloadedTemplates", reloadedTemplates);
+        };
+    }
+}
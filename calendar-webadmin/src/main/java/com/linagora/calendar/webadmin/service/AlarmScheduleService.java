@@ -33,7 +33,6 @@ import org.apache.james.util.ReactorUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.github.fge.lambdas.Throwing;
 import com.google.common.base.MoreObjects;
 import com.linagora.calendar.api.CalendarUtil;
 import com.linagora.calendar.dav.CalDavClient;
@@ -144,8 +143,8 @@ public class AlarmScheduleService {
     private Mono<Task.Result> schedule(Context context, ScheduledItem scheduledItem) {
         return Mono.justOrEmpty(alarmInstantFactory.computeNextAlarmInstant(scheduledItem.calendar(), scheduledItem.username()))
             .flatMap(alarmInstant -> buildAlarmEvent(scheduledItem.calendar(), alarmInstant)
-                .flatMap(alarmEvent -> insertAlarmEvent(scheduledItem.username(), alarmEvent))
-                .then())
+                .collectList()
+                .flatMap(alarmEventDAO::upsertAll))
             .then(Mono.fromCallable(() -> {
                 context.incrementProcessedEvent();
                 return Task.Result.COMPLETED;
@@ -177,12 +176,6 @@ public class AlarmScheduleService {
                 eventCalendarString));
     }
 
-    private Mono<Void> insertAlarmEvent(Username username, AlarmEvent alarmEvent) {
-        return alarmEventDAO.find(alarmEvent.eventUid(), Throwing.supplier(username::asMailAddress).get())
-            .flatMap(existing -> Mono.empty())
-            .switchIfEmpty(Mono.defer(() -> alarmEventDAO.create(alarmEvent))).then();
-    }
-
     private Flux<ScheduledItem> collectEvents(Context context, OpenPaaSUser user) {
         return calDavClient.findUserCalendars(user.username(), user.id())
                 .flatMap(calendarURL -> collectEvents(context, user, calendarURL))
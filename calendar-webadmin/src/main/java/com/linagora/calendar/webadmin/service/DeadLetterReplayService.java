@@ -0,0 +1,308 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.webadmin.service;
+
+import static com.linagora.calendar.webadmin.CalendarRoutes.DeadLetterReplayRequestToTask.TASK_NAME;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.inject.Inject;
+
+import org.apache.james.backends.rabbitmq.SimpleConnectionPool;
+import org.apache.james.task.Task;
+import org.apache.james.util.ReactorUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.linagora.calendar.amqp.CalendarQueueUtil;
+import com.linagora.calendar.api.CalendarSchedulers;
+import com.linagora.calendar.webadmin.task.DeadLetterReplayRunningOptions;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.GetResponse;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Moves the messages of the dead letter queues back to the queues they were rejected from.
+ *
+ * Only the messages present when a dead letter queue starts being drained are considered. Messages dead lettered
+ * before the optional max age are put back at the end of their dead letter queue.
+ */
+public class DeadLetterReplayService {
+
+    public static class Context {
+        public record Snapshot(long replayedMessageCount, long skippedMessageCount, long failedMessageCount) {
+            @Override
+            public String toString() {
+                return MoreObjects.toStringHelper(this)
+                    .add("replayedMessageCount", replayedMessageCount)
+                    .add("skippedMessageCount", skippedMessageCount)
+                    .add("failedMessageCount", failedMessageCount)
+                    .toString();
+            }
+        }
+
+        private final AtomicLong replayedMessageCount;
+        private final AtomicLong skippedMessageCount;
+        private final AtomicLong failedMessageCount;
+        private final AtomicLong failedQueueCount;
+
+        public Context() {
+            replayedMessageCount = new AtomicLong();
+            skippedMessageCount = new AtomicLong();
+            failedMessageCount = new AtomicLong();
+            failedQueueCount = new AtomicLong();
+        }
+
+        void incrementReplayedMessage() {
+            replayedMessageCount.incrementAndGet();
+        }
+
+        void incrementSkippedMessage() {
+            skippedMessageCount.incrementAndGet();
+        }
+
+        void incrementFailedMessage() {
+            failedMessageCount.incrementAndGet();
+        }
+
+        void incrementFailedQueue() {
+            failedQueueCount.incrementAndGet();
+        }
+
+        public Snapshot snapshot() {
+            return new Snapshot(
+                replayedMessageCount.get(),
+                skippedMessageCount.get(),
+                failedMessageCount.get());
+        }
+    }
+
+    private record DeadLetterQueue(String deadLetterQueue, String sourceQueue) {
+    }
+
+    @FunctionalInterface
+    private interface ChannelOperation<T> {
+        T apply(Channel channel) throws Exception;
+    }
+
+    private static class ChannelPool implements AutoCloseable {
+        private final Connection connection;
+        private final Queue<Channel> idleChannels;
+        private final Set<Channel> channels;
+
+        ChannelPool(Connection connection) {
+            this.connection = connection;
+            this.idleChannels = new ConcurrentLinkedQueue<>();
+            this.channels = ConcurrentHashMap.newKeySet();
+        }
+
+        <T> T withChannel(ChannelOperation<T> operation) throws Exception {
+            Channel channel = borrow();
+            try {
+                T result = operation.apply(channel);
+                idleChannels.offer(channel);
+                return result;
+            } catch (Exception e) {
+                channels.remove(channel);
+                closeQuietly(channel);
+                throw e;
+            }
+        }
+
+        private Channel borrow() throws IOException {
+            Channel idleChannel = idleChannels.poll();
+            while (idleChannel != null && !idleChannel.isOpen()) {
+                channels.remove(idleChannel);
+                idleChannel = idleChannels.poll();
+            }
+            if (idleChannel != null) {
+                return idleChannel;
+            }
+            Channel channel = connection.createChannel();
+            channels.add(channel);
+            channel.confirmSelect();
+            return channel;
+        }
+
+        @Override
+        public void close() {
+            channels.forEach(ChannelPool::closeQuietly);
+            channels.clear();
+            idleChannels.clear();
+        }
+
+        private static void closeQuietly(Channel channel) {
+            try {
+                if (channel.isOpen()) {
+                    channel.close();
+                }
+            } catch (Exception e) {
+                LOGGER.debug("Failed to close a dead letter replay channel", e);
+            }
+        }
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeadLetterReplayService.class);
+    private static final String DEFAULT_EXCHANGE = "";
+    private static final String X_DEATH_HEADER = "x-death";
+    private static final String X_DEATH_TIME = "time";
+    private static final boolean AUTO_ACK = true;
+    private static final boolean MULTIPLE = true;
+    private static final Duration CONFIRM_TIMEOUT = Duration.ofSeconds(10);
+
+    private final SimpleConnectionPool connectionPool;
+    private final Clock clock;
+
+    @Inject
+    public DeadLetterReplayService(SimpleConnectionPool connectionPool, Clock clock) {
+        this.connectionPool = connectionPool;
+        this.clock = clock;
+    }
+
+    public static void validateDeadLetterQueue(String deadLetterQueue) {
+        Preconditions.checkArgument(CalendarQueueUtil.getDeadLetterQueueSources().containsKey(deadLetterQueue),
+            "Unknown dead letter queue '%s'", deadLetterQueue);
+    }
+
+    public Mono<Task.Result> replay(Context context, DeadLetterReplayRunningOptions options) {
+        Map<String, String> deadLetterQueueSources = options.deadLetterQueue()
+            .map(deadLetterQueue -> {
+                validateDeadLetterQueue(deadLetterQueue);
+                return ImmutableMap.of(deadLetterQueue, CalendarQueueUtil.getDeadLetterQueueSources().get(deadLetterQueue));
+            })
+            .orElseGet(CalendarQueueUtil::getDeadLetterQueueSources);
+        Optional<Instant> oldestReplayed = options.maxAge().map(clock.instant()::minus);
+
+        return connectionPool.getResilientConnection()
+            .flatMapMany(connection -> Flux.fromIterable(deadLetterQueueSources.entrySet())
+                .concatMap(entry -> replay(context, connection, entry.getKey(), entry.getValue(), options, oldestReplayed)))
+            .reduce(Task.Result.COMPLETED, Task::combine)
+            .map(result -> {
+                if (context.failedQueueCount.get() > 0 || context.failedMessageCount.get() > 0) {
+                    LOGGER.info("{} task result: {}. Detail:\n{}", TASK_NAME.asString(), Task.Result.PARTIAL, context.snapshot());
+                    return Task.Result.PARTIAL;
+                } else {
+                    LOGGER.info("{} task result: {}. Detail:\n{}", TASK_NAME.asString(), result.toString(), context.snapshot());
+                    return result;
+                }
+            }).onErrorResume(e -> {
+                LOGGER.error("Task {} is incomplete", TASK_NAME.asString(), e);
+                return Mono.just(Task.Result.PARTIAL);
+            });
+    }
+
+    // Delivery tags and publisher confirms are scoped to a channel, and a channel must not be shared between threads:
+    // each concurrent replay borrows a channel of its own. A channel is discarded after a failure, so that the message
+    // it holds unacknowledged goes back to its dead letter queue.
+    private Flux<Task.Result> replay(Context context, Connection connection, String deadLetterQueue, String sourceQueue,
+                                     DeadLetterReplayRunningOptions options, Optional<Instant> oldestReplayed) {
+        DeadLetterQueue queue = new DeadLetterQueue(deadLetterQueue, sourceQueue);
+        AtomicBoolean drained = new AtomicBoolean(false);
+
+        return Flux.using(() -> new ChannelPool(connection),
+                channels -> Mono.fromCallable(() -> channels.withChannel(channel -> channel.messageCount(deadLetterQueue)))
+                    .subscribeOn(CalendarSchedulers.blocking())
+                    .flatMapMany(messageCount -> Flux.range(0, Math.toIntExact(Math.min(messageCount, Integer.MAX_VALUE))))
+                    .transform(ReactorUtils.<Integer, Integer>throttle()
+                        .elements(options.messagesPerSecond())
+                        .per(Duration.ofSeconds(1))
+                        .forOperation(Mono::just))
+                    .takeWhile(any -> !drained.get())
+                    .flatMap(any -> replayNext(context, channels, queue, drained, oldestReplayed), options.concurrency()),
+                ChannelPool::close)
+            .subscribeOn(CalendarSchedulers.blocking())
+            .onErrorResume(e -> {
+                LOGGER.error("Error while doing task {} for dead letter queue {}", TASK_NAME.asString(), deadLetterQueue, e);
+                context.incrementFailedQueue();
+                return Mono.just(Task.Result.PARTIAL);
+            });
+    }
+
+    private Mono<Task.Result> replayNext(Context context, ChannelPool channels, DeadLetterQueue queue, AtomicBoolean drained,
+                                         Optional<Instant> oldestReplayed) {
+        return Mono.fromCallable(() -> channels.withChannel(channel -> {
+                GetResponse response = channel.basicGet(queue.deadLetterQueue(), !AUTO_ACK);
+                if (response == null) {
+                    drained.set(true);
+                    return null;
+                }
+                if (isOlderThan(response.getProps(), oldestReplayed)) {
+                    moveTo(channel, response, queue.deadLetterQueue());
+                    context.incrementSkippedMessage();
+                } else {
+                    moveTo(channel, response, queue.sourceQueue());
+                    context.incrementReplayedMessage();
+                }
+                return Task.Result.COMPLETED;
+            }))
+            .subscribeOn(CalendarSchedulers.blocking())
+            .onErrorResume(e -> {
+                LOGGER.error("Error while doing task {} for a message of dead letter queue {}", TASK_NAME.asString(), queue.deadLetterQueue(), e);
+                context.incrementFailedMessage();
+                return Mono.just(Task.Result.PARTIAL);
+            });
+    }
+
+    private void moveTo(Channel channel, GetResponse response, String queue) throws IOException, InterruptedException, TimeoutException {
+        channel.basicPublish(DEFAULT_EXCHANGE, queue, response.getProps(), response.getBody());
+        channel.waitForConfirmsOrDie(CONFIRM_TIMEOUT.toMillis());
+        channel.basicAck(response.getEnvelope().getDeliveryTag(), !MULTIPLE);
+    }
+
+    private boolean isOlderThan(AMQP.BasicProperties properties, Optional<Instant> oldestReplayed) {
+        return oldestReplayed
+            .flatMap(oldest -> deadLetteredAt(properties).map(instant -> instant.isBefore(oldest)))
+            .orElse(false);
+    }
+
+    // RabbitMQ records the most recent dead lettering first in the x-death header. Messages published directly to the
+    // dead letter queue fall back to their timestamp, and are replayed when their age is unknown.
+    private Optional<Instant> deadLetteredAt(AMQP.BasicProperties properties) {
+        return Optional.ofNullable(properties.getHeaders())
+            .map(headers -> headers.get(X_DEATH_HEADER))
+            .filter(List.class::isInstance)
+            .flatMap(deaths -> ((List<?>) deaths).stream().findFirst())
+            .filter(Map.class::isInstance)
+            .map(death -> ((Map<?, ?>) death).get(X_DEATH_TIME))
+            .filter(Date.class::isInstance)
+            .map(time -> ((Date) time).toInstant())
+            .or(() -> Optional.ofNullable(properties.getTimestamp()).map(Date::toInstant));
+    }
+}
@@ -32,8 +32,8 @@ import org.apache.james.util.ReactorUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.github.fge.lambdas.Throwing;
 import com.google.common.base.MoreObjects;
+import com.linagora.calendar.api.CalendarSchedulers;
 import com.linagora.calendar.storage.OpenPaaSUserDAO;
 import com.linagora.calendar.storage.ldap.LdapUser;
 import com.linagora.calendar.storage.ldap.LdapUserDAO;
@@ -89,7 +89,9 @@ public class LdapUsersImportService {
     }
 
     public Mono<Task.Result> importUsers(Context context, int usersPerSecond) {
-        return Flux.fromIterable(Throwing.supplier(ldapUserDAO::getAllUsers).get())
+        return Mono.fromCallable(ldapUserDAO::getAllUsers)
+            .subscribeOn(CalendarSchedulers.blocking())
+            .flatMapMany(Flux::fromIterable)
             .transform(ReactorUtils.<LdapUser, Task.Result>throttle()
                 .elements(usersPerSecond)
                 .per(Duration.ofSeconds(1))
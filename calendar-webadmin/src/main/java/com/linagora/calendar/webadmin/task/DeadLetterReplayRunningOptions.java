@@ -0,0 +1,37 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.webadmin.task;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import com.google.common.base.Preconditions;
+
+public record DeadLetterReplayRunningOptions(Optional<String> deadLetterQueue, int messagesPerSecond, int concurrency, Optional<Duration> maxAge) {
+    public static final int DEFAULT_MESSAGES_PER_SECOND = 100;
+    public static final int DEFAULT_CONCURRENCY = 4;
+    public static final DeadLetterReplayRunningOptions DEFAULT = new DeadLetterReplayRunningOptions(Optional.empty(),
+        DEFAULT_MESSAGES_PER_SECOND, DEFAULT_CONCURRENCY, Optional.empty());
+
+    public DeadLetterReplayRunningOptions {
+        Preconditions.checkArgument(messagesPerSecond > 0, "'messagesPerSecond' must be strictly positive");
+        Preconditions.checkArgument(concurrency > 0, "'concurrency' must be strictly positive");
+        Preconditions.checkArgument(maxAge.map(age -> !age.isNegative() && !age.isZero()).orElse(true), "'maxAge' must be strictly positive");
+    }
+}
@@ -0,0 +1,69 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.webadmin.task;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Optional;
+
+import org.apache.james.task.Task;
+import org.apache.james.task.TaskExecutionDetails;
+import org.apache.james.task.TaskType;
+
+import com.linagora.calendar.webadmin.service.DeadLetterReplayService;
+
+public class DeadLetterReplayTask implements Task {
+    public record Details(Instant instant, long replayedMessageCount, long skippedMessageCount, long failedMessageCount) implements TaskExecutionDetails.AdditionalInformation {
+        @Override
+        public Instant timestamp() {
+            return instant;
+        }
+    }
+
+    public static final TaskType REPLAY_DEAD_LETTERS = TaskType.of("replay-dead-letters");
+
+    private final DeadLetterReplayService deadLetterReplayService;
+    private final DeadLetterReplayRunningOptions runningOptions;
+    private final DeadLetterReplayService.Context context;
+
+    public DeadLetterReplayTask(DeadLetterReplayService deadLetterReplayService, DeadLetterReplayRunningOptions runningOptions) {
+        this.deadLetterReplayService = deadLetterReplayService;
+        this.runningOptions = runningOptions;
+        this.context = new DeadLetterReplayService.Context();
+    }
+
+    @Override
+    public Result run() {
+        return deadLetterReplayService.replay(context, runningOptions).block();
+    }
+
+    @Override
+    public TaskType type() {
+        return REPLAY_DEAD_LETTERS;
+    }
+
+    @Override
+    public Optional<TaskExecutionDetails.AdditionalInformation> details() {
+        DeadLetterReplayService.Context.Snapshot snapshot = context.snapshot();
+        return Optional.of(new Details(Clock.systemUTC().instant(),
+            snapshot.replayedMessageCount(),
+            snapshot.skippedMessageCount(),
+            snapshot.failedMessageCount()));
+    }
+}
@@ -0,0 +1,67 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.webadmin.task;
+
+import java.time.Instant;
+
+import org.apache.james.json.DTOModule;
+import org.apache.james.server.task.json.dto.AdditionalInformationDTO;
+import org.apache.james.server.task.json.dto.AdditionalInformationDTOModule;
+
+public record DeadLetterReplayTaskAdditionalInformationDTO(String type,
+                                                           Instant timestamp,
+                                                           long replayedMessageCount,
+                                                           long skippedMessageCount,
+                                                           long failedMessageCount) implements AdditionalInformationDTO {
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public static AdditionalInformationDTOModule<DeadLetterReplayTask.Details, DeadLetterReplayTaskAdditionalInformationDTO> module() {
+        return DTOModule.forDomainObject(DeadLetterReplayTask.Details.class)
+            .convertToDTO(DeadLetterReplayTaskAdditionalInformationDTO.class)
+            .toDomainObjectConverter(DeadLetterReplayTaskAdditionalInformationDTO::toDomainObject)
+            .toDTOConverter(DeadLetterReplayTaskAdditionalInformationDTO::fromDomainObject)
+            .typeName(DeadLetterReplayTask.REPLAY_DEAD_LETTERS.asString())
+            .withFactory(AdditionalInformationDTOModule::new);
+    }
+
+    private static DeadLetterReplayTaskAdditionalInformationDTO fromDomainObject(DeadLetterReplayTask.Details details, String type) {
+        return new DeadLetterReplayTaskAdditionalInformationDTO(
+            type,
+            details.instant(),
+            details.replayedMessageCount(),
+            details.skippedMessageCount(),
+            details.failedMessageCount());
+    }
+
+    private DeadLetterReplayTask.Details toDomainObject() {
+        return new DeadLetterReplayTask.Details(
+            timestamp,
+            replayedMessageCount,
+            skippedMessageCount,
+            failedMessageCount);
+    }
+}
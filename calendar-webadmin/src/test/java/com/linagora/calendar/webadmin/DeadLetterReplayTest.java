@@ -0,0 +1,354 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.webadmin;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+import org.apache.james.backends.rabbitmq.RabbitMQConnectionFactory;
+import org.apache.james.backends.rabbitmq.SimpleConnectionPool;
+import org.apache.james.json.DTOConverter;
+import org.apache.james.server.task.json.dto.AdditionalInformationDTO;
+import org.apache.james.server.task.json.dto.AdditionalInformationDTOModule;
+import org.apache.james.task.Hostname;
+import org.apache.james.task.MemoryTaskManager;
+import org.apache.james.task.TaskExecutionDetails;
+import org.apache.james.task.TaskManager;
+import org.apache.james.webadmin.WebAdminServer;
+import org.apache.james.webadmin.WebAdminUtils;
+import org.apache.james.webadmin.routes.TasksRoutes;
+import org.apache.james.webadmin.utils.JsonTransformer;
+import org.eclipse.jetty.http.HttpStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import com.github.fge.lambdas.Throwing;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.linagora.calendar.amqp.CalendarQueueUtil;
+import com.linagora.calendar.amqp.EventITIPConsumer;
+import com.linagora.calendar.dav.DockerSabreDavSetup;
+import com.linagora.calendar.dav.SabreDavExtension;
+import com.linagora.calendar.webadmin.service.DeadLetterReplayService;
+import com.linagora.calendar.webadmin.task.DeadLetterReplayTaskAdditionalInformationDTO;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+
+import io.restassured.RestAssured;
+
+public class DeadLetterReplayTest {
+    private static final boolean DURABLE = true;
+    private static final boolean EXCLUSIVE = true;
+    private static final boolean AUTO_DELETE = true;
+
+    @RegisterExtension
+    static SabreDavExtension sabreDavExtension = new SabreDavExtension(DockerSabreDavSetup.SINGLETON);
+
+    private WebAdminServer webAdminServer;
+    private SimpleConnectionPool connectionPool;
+    private Connection connection;
+    private Channel channel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connectionPool = new SimpleConnectionPool(new RabbitMQConnectionFactory(sabreDavExtension.dockerSabreDavSetup().rabbitMQConfiguration()),
+            SimpleConnectionPool.Configuration.builder()
+                .retries(2)
+                .initialDelay(Duration.ofMillis(5)));
+        connection = connectionPool.getResilientConnection().block();
+        channel = connection.createChannel();
+        channel.confirmSelect();
+        CalendarQueueUtil.getDeadLetterQueueSources().forEach(Throwing.biConsumer((deadLetterQueue, sourceQueue) -> {
+            channel.queueDeclare(deadLetterQueue, DURABLE, !EXCLUSIVE, !AUTO_DELETE, ImmutableMap.of());
+            channel.queueDeclare(sourceQueue, DURABLE, !EXCLUSIVE, !AUTO_DELETE, ImmutableMap.of());
+        }));
+
+        TaskManager taskManager = new MemoryTaskManager(new Hostname("foo"));
+        DeadLetterReplayService deadLetterReplayService = new DeadLetterReplayService(connectionPool, Clock.systemUTC());
+
+        webAdminServer = WebAdminUtils.createWebAdminServer(new CalendarRoutes(new JsonTransformer(),
+                taskManager,
+                ImmutableSet.of(new CalendarRoutes.DeadLetterReplayRequestToTask(deadLetterReplayService))),
+            new TasksRoutes(taskManager,
+                new JsonTransformer(),
+                new DTOConverter<>(ImmutableSet.<AdditionalInformationDTOModule<? extends TaskExecutionDetails.AdditionalInformation, ? extends AdditionalInformationDTO>>builder()
+                    .add(DeadLetterReplayTaskAdditionalInformationDTO.module())
+                    .build()))
+        ).start();
+
+        RestAssured.requestSpecification = WebAdminUtils.buildRequestSpecification(webAdminServer)
+            .setBasePath(CalendarRoutes.BASE_PATH)
+            .build();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        webAdminServer.destroy();
+        CalendarQueueUtil.getDeadLetterQueueSources().forEach(Throwing.biConsumer((deadLetterQueue, sourceQueue) -> {
+            channel.queueDelete(deadLetterQueue);
+            channel.queueDelete(sourceQueue);
+        }));
+        channel.close();
+        connectionPool.close();
+    }
+
+    @Test
+    void shouldShowAllInformationInResponse() {
+        String taskId = given()
+            .queryParam("task", "replayDeadLetters")
+            .when()
+            .post()
+            .jsonPath()
+            .get("taskId");
+
+        given()
+            .basePath(TasksRoutes.BASE)
+            .when()
+            .get(taskId + "/await")
+            .then()
+            .body("status", is("completed"))
+            .body("taskId", is(taskId))
+            .body("type", is("replay-dead-letters"))
+            .body("additionalInformation.replayedMessageCount", is(0))
+            .body("additionalInformation.skippedMessageCount", is(0))
+            .body("additionalInformation.failedMessageCount", is(0))
+            .body("additionalInformation.timestamp", is(notNullValue()))
+            .body("additionalInformation.type", is("replay-dead-letters"));
+    }
+
+    @Test
+    void replayShouldMoveDeadLettersBackToTheirSourceQueue() throws Exception {
+        publishDeadLetter(EventITIPConsumer.DEAD_LETTER_QUEUE, "message 1", Instant.now());
+        publishDeadLetter(EventITIPConsumer.DEAD_LETTER_QUEUE, "message 2", Instant.now());
+
+        String taskId = given()
+            .queryParam("task", "replayDeadLetters")
+            .queryParam("queue", EventITIPConsumer.DEAD_LETTER_QUEUE)
+            .when()
+            .post()
+            .jsonPath()
+            .get("taskId");
+
+        given()
+            .basePath(TasksRoutes.BASE)
+            .when()
+            .get(taskId + "/await")
+            .then()
+            .body("status", is("completed"))
+            .body("additionalInformation.replayedMessageCount", is(2))
+            .body("additionalInformation.skippedMessageCount", is(0))
+            .body("additionalInformation.failedMessageCount", is(0));
+
+        assertThat(channel.messageCount(EventITIPConsumer.DEAD_LETTER_QUEUE)).isZero();
+        assertThat(channel.messageCount(EventITIPConsumer.QUEUE_NAME)).isEqualTo(2);
+    }
+
+    @Test
+    void replayShouldMoveEveryDeadLetterWhenReplayingConcurrently() throws Exception {
+        int messageCount = 50;
+        for (int i = 0; i < messageCount; i++) {
+            publishDeadLetter(EventITIPConsumer.DEAD_LETTER_QUEUE, "message " + i, Instant.now());
+        }
+
+        String taskId = given()
+            .queryParam("task", "replayDeadLetters")
+            .queryParam("queue", EventITIPConsumer.DEAD_LETTER_QUEUE)
+            .queryParam("messagesPerSecond", 1000)
+            .queryParam("concurrency", 8)
+            .when()
+            .post()
+            .jsonPath()
+            .get("taskId");
+
+        given()
+            .basePath(TasksRoutes.BASE)
+            .when()
+            .get(taskId + "/await")
+            .then()
+            .body("status", is("completed"))
+            .body("additionalInformation.replayedMessageCount", is(messageCount))
+            .body("additionalInformation.skippedMessageCount", is(0))
+            .body("additionalInformation.failedMessageCount", is(0));
+
+        assertThat(channel.messageCount(EventITIPConsumer.DEAD_LETTER_QUEUE)).isZero();
+        assertThat(channel.messageCount(EventITIPConsumer.QUEUE_NAME)).isEqualTo(messageCount);
+    }
+
+    @Test
+    void replayShouldKeepMessagesOlderThanMaxAgeWhenReplayingConcurrently() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            publishDeadLetter(EventITIPConsumer.DEAD_LETTER_QUEUE, "old message " + i, Instant.now().minus(Duration.ofHours(2)));
+            publishDeadLetter(EventITIPConsumer.DEAD_LETTER_QUEUE, "recent message " + i, Instant.now());
+        }
+
+        String taskId = given()
+            .queryParam("task", "replayDeadLetters")
+            .queryParam("queue", EventITIPConsumer.DEAD_LETTER_QUEUE)
+            .queryParam("messagesPerSecond", 1000)
+            .queryParam("concurrency", 8)
+            .queryParam("maxAge", "1h")
+            .when()
+            .post()
+            .jsonPath()
+            .get("taskId");
+
+        given()
+            .basePath(TasksRoutes.BASE)
+            .when()
+            .get(taskId + "/await")
+            .then()
+            .body("status", is("completed"))
+            .body("additionalInformation.replayedMessageCount", is(10))
+            .body("additionalInformation.skippedMessageCount", is(10))
+            .body("additionalInformation.failedMessageCount", is(0));
+
+        assertThat(channel.messageCount(EventITIPConsumer.DEAD_LETTER_QUEUE)).isEqualTo(10);
+        assertThat(channel.messageCount(EventITIPConsumer.QUEUE_NAME)).isEqualTo(10);
+    }
+
+    @Test
+    void replayShouldPreserveMessageContent() throws Exception {
+        publishDeadLetter(EventITIPConsumer.DEAD_LETTER_QUEUE, "message 1", Instant.now());
+
+        String taskId = given()
+            .queryParam("task", "replayDeadLetters")
+            .queryParam("queue", EventITIPConsumer.DEAD_LETTER_QUEUE)
+            .when()
+            .post()
+            .jsonPath()
+            .get("taskId");
+
+        given()
+            .basePath(TasksRoutes.BASE)
+            .when()
+            .get(taskId + "/await");
+
+        assertThat(new String(channel.basicGet(EventITIPConsumer.QUEUE_NAME, true).getBody(), StandardCharsets.UTF_8))
+            .isEqualTo("message 1");
+    }
+
+    @Test
+    void replayShouldDrainAllDeadLetterQueuesByDefault() throws Exception {
+        CalendarQueueUtil.getDeadLetterQueueSources().keySet()
+            .forEach(Throwing.consumer(deadLetterQueue -> publishDeadLetter(deadLetterQueue, "message", Instant.now())));
+
+        String taskId = given()
+            .queryParam("task", "replayDeadLetters")
+            .queryParam("messagesPerSecond", 1000)
+            .when()
+            .post()
+            .jsonPath()
+            .get("taskId");
+
+        given()
+            .basePath(TasksRoutes.BASE)
+            .when()
+            .get(taskId + "/await")
+            .then()
+            .body("status", is("completed"))
+            .body("additionalInformation.replayedMessageCount", is(CalendarQueueUtil.getDeadLetterQueueSources().size()));
+
+        CalendarQueueUtil.getDeadLetterQueueSources().forEach(Throwing.biConsumer((deadLetterQueue, sourceQueue) -> {
+            assertThat(channel.messageCount(deadLetterQueue)).isZero();
+            assertThat(channel.messageCount(sourceQueue)).isEqualTo(1);
+        }));
+    }
+
+    @Test
+    void replayShouldKeepMessagesOlderThanMaxAge() throws Exception {
+        publishDeadLetter(EventITIPConsumer.DEAD_LETTER_QUEUE, "old message", Instant.now().minus(Duration.ofHours(2)));
+        publishDeadLetter(EventITIPConsumer.DEAD_LETTER_QUEUE, "recent message", Instant.now());
+
+        String taskId = given()
+            .queryParam("task", "replayDeadLetters")
+            .queryParam("queue", EventITIPConsumer.DEAD_LETTER_QUEUE)
+            .queryParam("maxAge", "1h")
+            .when()
+            .post()
+            .jsonPath()
+            .get("taskId");
+
+        given()
+            .basePath(TasksRoutes.BASE)
+            .when()
+            .get(taskId + "/await")
+            .then()
+            .body("status", is("completed"))
+            .body("additionalInformation.replayedMessageCount", is(1))
+            .body("additionalInformation.skippedMessageCount", is(1));
+
+        assertThat(new String(channel.basicGet(EventITIPConsumer.QUEUE_NAME, true).getBody(), StandardCharsets.UTF_8))
+            .isEqualTo("recent message");
+        assertThat(new String(channel.basicGet(EventITIPConsumer.DEAD_LETTER_QUEUE, true).getBody(), StandardCharsets.UTF_8))
+            .isEqualTo("old message");
+    }
+
+    @Test
+    void replayShouldRejectUnknownQueue() {
+        given()
+            .queryParam("task", "replayDeadLetters")
+            .queryParam("queue", "unknown")
+            .when()
+            .post()
+            .then()
+            .statusCode(HttpStatus.BAD_REQUEST_400);
+    }
+
+    @Test
+    void replayShouldRejectInvalidMessagesPerSecond() {
+        given()
+            .queryParam("task", "replayDeadLetters")
+            .queryParam("messagesPerSecond", 0)
+            .when()
+            .post()
+            .then()
+            .statusCode(HttpStatus.BAD_REQUEST_400);
+    }
+
+    @Test
+    void replayShouldRejectInvalidConcurrency() {
+        given()
+            .queryParam("task", "replayDeadLetters")
+            .queryParam("concurrency", "abc")
+            .when()
+            .post()
+            .then()
+            .statusCode(HttpStatus.BAD_REQUEST_400);
+    }
+
+    private void publishDeadLetter(String deadLetterQueue, String body, Instant timestamp) throws Exception {
+        AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
+            .deliveryMode(2)
+            .timestamp(Date.from(timestamp))
+            .build();
+        channel.basicPublish("", deadLetterQueue, properties, body.getBytes(StandardCharsets.UTF_8));
+        channel.waitForConfirmsOrDie();
+    }
+}
@@ -0,0 +1,94 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.webadmin;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.james.webadmin.WebAdminServer;
+import org.apache.james.webadmin.WebAdminUtils;
+import org.apache.james.webadmin.utils.JsonTransformer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.linagora.calendar.smtp.template.MailTemplateWarmUp;
+
+import io.restassured.RestAssured;
+import reactor.core.publisher.Mono;
+
+class MailTemplateRoutesTest {
+
+    private WebAdminServer webAdminServer;
+    private MailTemplateWarmUp mailTemplateWarmUp;
+
+    @BeforeEach
+    void setUp() {
+        mailTemplateWarmUp = mock(MailTemplateWarmUp.class);
+        when(mailTemplateWarmUp.reload()).thenReturn(Mono.just(12));
+        webAdminServer = WebAdminUtils.createWebAdminServer(new MailTemplateRoutes(mailTemplateWarmUp, new JsonTransformer())).start();
+
+        RestAssured.requestSpecification = WebAdminUtils.buildRequestSpecification(webAdminServer)
+            .setBasePath(MailTemplateRoutes.BASE_PATH)
+            .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        webAdminServer.destroy();
+    }
+
+    @Test
+    void reloadShouldReturnTheCountOfReloadedTemplates() {
+        given()
+            .queryParam("action", "reload")
+        .when()
+            .post()
+        .then()
+            .statusCode(200)
+            .body("reloadedTemplates", is(12));
+
+        verify(mailTemplateWarmUp).reload();
+    }
+
+    @Test
+    void postShouldReturn400WhenActionIsMissing() {
+        given()
+        .when()
+            .post()
+        .then()
+            .statusCode(400);
+
+        verify(mailTemplateWarmUp, never()).reload();
+    }
+
+    @Test
+    void postShouldReturn400WhenActionIsUnknown() {
+        given()
+            .queryParam("action", "unknown")
+        .when()
+            .post()
+        .then()
+            .statusCode(400);
+    }
+}
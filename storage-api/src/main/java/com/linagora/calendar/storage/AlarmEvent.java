@@ -37,6 +37,8 @@ public record AlarmEvent(EventUid eventUid,
                          MailAddress recipient,
                          String ics) {
 
+    public static final int PARTITION_COUNT = 64;
+
     public String toShortString() {
         return MoreObjects.toStringHelper(this)
             .add("eventUid", eventUid.value())
@@ -45,6 +47,10 @@ public record AlarmEvent(EventUid eventUid,
             .toString();
     }
 
+    public int partition() {
+        return Math.floorMod((eventUid.value() + ":" + recipient.asString()).hashCode(), PARTITION_COUNT);
+    }
+
     public AlarmEvent withNextOccurrence(AlarmInstant instant) {
         return new AlarmEvent(
             this.eventUid,
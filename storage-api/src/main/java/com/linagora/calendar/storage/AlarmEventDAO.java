@@ -18,7 +18,9 @@
 
 package com.linagora.calendar.storage;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
 
 import org.apache.james.core.MailAddress;
 
@@ -36,5 +38,20 @@ public interface AlarmEventDAO {
 
     Mono<Void> delete(EventUid eventUid, MailAddress recipient);
 
+    // Creates or replaces all the given alarms at once, clearing their claims like update does.
+    Mono<Void> upsertAll(Collection<AlarmEvent> alarmEvents);
+
+    Mono<Void> deleteAll(EventUid eventUid, Collection<MailAddress> recipients);
+
     Flux<AlarmEvent> findAlarmsToTrigger(Instant time); // get all alarmEvent with time >= alarmTime
+
+    Flux<AlarmEvent> findAlarmsToTrigger(Instant time, AlarmEventFetchOptions options); // same as above, sorted and limited by the storage
+
+    // Marks the unclaimed alarms to trigger as claimed by the claimer until time + claimTtl, and returns only those.
+    // The claim is cleared when the alarm gets updated or deleted.
+    Flux<AlarmEvent> claimAlarmsToTrigger(Instant time, String claimer, Duration claimTtl, AlarmEventFetchOptions options);
+
+    // Deletes, among the alarms to trigger selected by the options, those that can not be sent anymore and are skipped by
+    // the find methods. Returns the number of deleted alarms.
+    Mono<Long> deleteUntriggerableAlarms(Instant time, AlarmEventFetchOptions options);
 }
@@ -0,0 +1,62 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage;
+
+import java.util.Optional;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+
+public record AlarmEventFetchOptions(int limit,
+                                     SortOrder sortOrder,
+                                     int batchSize,
+                                     Optional<Set<Integer>> partitions) {
+
+    public enum SortOrder {
+        ALARM_TIME_ASCENDING,
+        ALARM_TIME_DESCENDING
+    }
+
+    public static AlarmEventFetchOptions oldestFirst(int limit) {
+        return new AlarmEventFetchOptions(limit, SortOrder.ALARM_TIME_ASCENDING, limit);
+    }
+
+    public AlarmEventFetchOptions(int limit, SortOrder sortOrder, int batchSize) {
+        this(limit, sortOrder, batchSize, Optional.empty());
+    }
+
+    public AlarmEventFetchOptions {
+        Preconditions.checkArgument(limit > 0, "limit must be positive");
+        Preconditions.checkNotNull(sortOrder, "sortOrder must not be null");
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be positive");
+        Preconditions.checkNotNull(partitions, "partitions must not be null");
+    }
+
+    public AlarmEventFetchOptions withLimit(int limit) {
+        return new AlarmEventFetchOptions(limit, sortOrder, batchSize, partitions);
+    }
+
+    public AlarmEventFetchOptions withPartitions(Set<Integer> partitions) {
+        return new AlarmEventFetchOptions(limit, sortOrder, batchSize, Optional.of(partitions));
+    }
+
+    public boolean matchesPartition(AlarmEvent alarmEvent) {
+        return partitions.map(set -> set.contains(alarmEvent.partition())).orElse(true);
+    }
+}
@@ -0,0 +1,53 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import reactor.core.publisher.Mono;
+
+public interface AlarmPartitionMembership {
+
+    Set<Integer> ALL_PARTITIONS = IntStream.range(0, AlarmEvent.PARTITION_COUNT)
+        .boxed()
+        .collect(Collectors.toUnmodifiableSet());
+
+    // Renews the membership of this node and returns the alarm partitions it currently owns
+    Mono<Set<Integer>> renew(Duration ttl);
+
+    Mono<Void> leave();
+
+    AlarmPartitionMembership SINGLE_NODE = new SingleNodeAlarmPartitionMembership();
+
+    class SingleNodeAlarmPartitionMembership implements AlarmPartitionMembership {
+
+        @Override
+        public Mono<Set<Integer>> renew(Duration ttl) {
+            return Mono.just(ALL_PARTITIONS);
+        }
+
+        @Override
+        public Mono<Void> leave() {
+            return Mono.empty();
+        }
+    }
+}
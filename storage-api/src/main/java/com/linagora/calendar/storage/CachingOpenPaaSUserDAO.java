@@ -0,0 +1,162 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage;
+
+import java.time.Duration;
+
+import org.apache.james.core.Domain;
+import org.apache.james.core.Username;
+import org.apache.james.util.DurationParser;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Caches the users retrieved through an {@link OpenPaaSUserDAO}: AMQP consumers resolve the owner of every message they
+ * process. Ids unknown as users, typically resource ids, are remembered for a shorter time. Entries are dropped when
+ * the user is updated or deleted, and expire for changes this node is not notified of.
+ */
+public class CachingOpenPaaSUserDAO implements OpenPaaSUserDAO, OpenPaaSUserChangeListener {
+    public record Configuration(Duration ttl, Duration negativeTtl, long maximumSize) {
+        public static Configuration fromSystemProperties() {
+            return new Configuration(
+                DurationParser.parse(System.getProperty("user.cache.ttl", "60s")),
+                DurationParser.parse(System.getProperty("user.cache.negative.ttl", "10s")),
+                Long.getLong("user.cache.size", 10_000));
+        }
+    }
+
+    private final OpenPaaSUserDAO delegate;
+    private final Cache<OpenPaaSId, OpenPaaSUser> usersById;
+    private final Cache<Username, OpenPaaSUser> usersByUsername;
+    // Unknown usernames are not remembered: a user provisioned on another node would stay invisible until expiry
+    private final Cache<OpenPaaSId, Boolean> unknownIds;
+
+    public CachingOpenPaaSUserDAO(OpenPaaSUserDAO delegate) {
+        this(delegate, Configuration.fromSystemProperties());
+    }
+
+    public CachingOpenPaaSUserDAO(OpenPaaSUserDAO delegate, Configuration configuration) {
+        this.delegate = delegate;
+        this.usersById = Caffeine.newBuilder()
+            .expireAfterWrite(configuration.ttl())
+            .maximumSize(configuration.maximumSize())
+            .build();
+        this.usersByUsername = Caffeine.newBuilder()
+            .expireAfterWrite(configuration.ttl())
+            .maximumSize(configuration.maximumSize())
+            .build();
+        this.unknownIds = Caffeine.newBuilder()
+            .expireAfterWrite(configuration.negativeTtl())
+            .maximumSize(configuration.maximumSize())
+            .build();
+    }
+
+    @Override
+    public Mono<OpenPaaSUser> retrieve(OpenPaaSId id) {
+        OpenPaaSUser cached = usersById.getIfPresent(id);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        if (unknownIds.getIfPresent(id) != null) {
+            return Mono.empty();
+        }
+        return delegate.retrieve(id)
+            .doOnNext(this::cache)
+            .switchIfEmpty(Mono.fromRunnable(() -> unknownIds.put(id, Boolean.TRUE)));
+    }
+
+    @Override
+    public Mono<OpenPaaSUser> retrieve(Username username) {
+        OpenPaaSUser cached = usersByUsername.getIfPresent(username);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return delegate.retrieve(username)
+            .doOnNext(this::cache);
+    }
+
+    @Override
+    public Mono<OpenPaaSUser> add(Username username) {
+        return delegate.add(username)
+            .doOnNext(this::cache);
+    }
+
+    @Override
+    public Mono<OpenPaaSUser> add(Username username, String firstName, String lastName) {
+        return delegate.add(username, firstName, lastName)
+            .doOnNext(this::cache);
+    }
+
+    @Override
+    public Mono<Void> update(OpenPaaSId id, Username newUsername, String newFirstname, String newLastname) {
+        return delegate.update(id, newUsername, newFirstname, newLastname)
+            .doFinally(signal -> {
+                invalidate(id);
+                userChanged(newUsername);
+            });
+    }
+
+    @Override
+    public Mono<Void> delete(Username username) {
+        return delegate.delete(username)
+            .doFinally(signal -> userChanged(username));
+    }
+
+    @Override
+    public Flux<OpenPaaSUser> list() {
+        return delegate.list();
+    }
+
+    @Override
+    public Flux<OpenPaaSUser> search(Domain domain, String query, int limit) {
+        return delegate.search(domain, query, limit);
+    }
+
+    @Override
+    public Mono<MigrationResult> addMissingFields() {
+        return delegate.addMissingFields()
+            .doFinally(signal -> {
+                usersById.invalidateAll();
+                usersByUsername.invalidateAll();
+            });
+    }
+
+    @Override
+    public void userChanged(Username username) {
+        usersByUsername.invalidate(username);
+        usersById.asMap().values().removeIf(user -> user.username().equals(username));
+    }
+
+    private void cache(OpenPaaSUser user) {
+        usersById.put(user.id(), user);
+        usersByUsername.put(user.username(), user);
+    }
+
+    private void invalidate(OpenPaaSId id) {
+        OpenPaaSUser former = usersById.asMap().remove(id);
+        unknownIds.invalidate(id);
+        if (former != null) {
+            usersByUsername.invalidate(former.username());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage;
+
+import jakarta.inject.Inject;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.linagora.calendar.storage.configuration.MessageDeduplicationConfiguration;
+
+import reactor.core.publisher.Mono;
+
+public class CaffeineProcessedMessageCache implements ProcessedMessageCache {
+
+    private final Cache<String, String> fingerprints;
+
+    @Inject
+    public CaffeineProcessedMessageCache(MessageDeduplicationConfiguration configuration) {
+        this.fingerprints = Caffeine.newBuilder()
+            .expireAfterWrite(configuration.window())
+            .maximumSize(configuration.maxSize())
+            .build();
+    }
+
+    @Override
+    public Mono<String> lastFingerprint(String key) {
+        return Mono.fromCallable(() -> fingerprints.getIfPresent(key));
+    }
+
+    @Override
+    public Mono<Void> recordFingerprint(String key, String fingerprint) {
+        return Mono.fromRunnable(() -> fingerprints.put(key, fingerprint));
+    }
+}
@@ -0,0 +1,114 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage;
+
+import java.util.Set;
+
+import org.apache.james.core.Domain;
+import org.apache.james.core.Username;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableSet;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Decorates an {@link OpenPaaSUserDAO} to notify the {@link OpenPaaSUserChangeListener}s of updated and deleted users.
+ */
+public class ListeningOpenPaaSUserDAO implements OpenPaaSUserDAO {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ListeningOpenPaaSUserDAO.class);
+
+    private final OpenPaaSUserDAO delegate;
+    private final Set<OpenPaaSUserChangeListener> listeners;
+
+    public ListeningOpenPaaSUserDAO(OpenPaaSUserDAO delegate, Set<OpenPaaSUserChangeListener> listeners) {
+        this.delegate = delegate;
+        this.listeners = ImmutableSet.copyOf(listeners);
+    }
+
+    @Override
+    public Mono<OpenPaaSUser> retrieve(OpenPaaSId id) {
+        return delegate.retrieve(id);
+    }
+
+    @Override
+    public Mono<OpenPaaSUser> retrieve(Username username) {
+        return delegate.retrieve(username);
+    }
+
+    @Override
+    public Mono<OpenPaaSUser> add(Username username) {
+        return delegate.add(username);
+    }
+
+    @Override
+    public Mono<OpenPaaSUser> add(Username username, String firstName, String lastName) {
+        return delegate.add(username, firstName, lastName);
+    }
+
+    @Override
+    public Mono<Void> update(OpenPaaSId id, Username newUsername, String newFirstname, String newLastname) {
+        if (listeners.isEmpty()) {
+            return delegate.update(id, newUsername, newFirstname, newLastname);
+        }
+        // The former username is only known before the update
+        return delegate.retrieve(id)
+            .map(OpenPaaSUser::username)
+            .map(ImmutableSet::of)
+            .defaultIfEmpty(ImmutableSet.of())
+            .flatMap(formerUsernames -> delegate.update(id, newUsername, newFirstname, newLastname)
+                .doOnSuccess(any -> {
+                    formerUsernames.forEach(this::notifyListeners);
+                    notifyListeners(newUsername);
+                }));
+    }
+
+    @Override
+    public Mono<Void> delete(Username username) {
+        return delegate.delete(username)
+            .doOnSuccess(any -> notifyListeners(username));
+    }
+
+    @Override
+    public Flux<OpenPaaSUser> list() {
+        return delegate.list();
+    }
+
+    @Override
+    public Flux<OpenPaaSUser> search(Domain domain, String query, int limit) {
+        return delegate.search(domain, query, limit);
+    }
+
+    @Override
+    public Mono<MigrationResult> addMissingFields() {
+        return delegate.addMissingFields();
+    }
+
+    private void notifyListeners(Username username) {
+        listeners.forEach(listener -> {
+            try {
+                listener.userChanged(username);
+            } catch (Exception e) {
+                LOGGER.warn("Failed to notify {} of the change of user {}", listener.getClass().getSimpleName(), username.asString(), e);
+            }
+        });
+    }
+}
@@ -18,9 +18,13 @@
 
 package com.linagora.calendar.storage;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
@@ -39,7 +43,11 @@ public class MemoryAlarmEventDAO implements AlarmEventDAO {
     public MemoryAlarmEventDAO() {
     }
 
+    private record Claim(String claimer, Instant claimedUntil) {
+    }
+
     private final Map<String, AlarmEvent> store = new ConcurrentHashMap<>();
+    private final Map<String, Claim> claims = new ConcurrentHashMap<>();
 
     @Override
     public Mono<AlarmEvent> find(EventUid eventUid, MailAddress recipient) {
@@ -54,12 +62,38 @@ public class MemoryAlarmEventDAO implements AlarmEventDAO {
 
     @Override
     public Mono<Void> update(AlarmEvent alarmEvent) {
-        return Mono.fromRunnable(() -> store.put(generateKey(alarmEvent.eventUid(), alarmEvent.recipient()), alarmEvent));
+        return Mono.fromRunnable(() -> {
+            String key = generateKey(alarmEvent.eventUid(), alarmEvent.recipient());
+            store.put(key, alarmEvent);
+            claims.remove(key);
+        });
     }
 
     @Override
     public Mono<Void> delete(EventUid eventUid, MailAddress recipient) {
-        return Mono.fromRunnable(() -> store.remove(generateKey(eventUid, recipient)));
+        return Mono.fromRunnable(() -> {
+            String key = generateKey(eventUid, recipient);
+            store.remove(key);
+            claims.remove(key);
+        });
+    }
+
+    @Override
+    public Mono<Void> upsertAll(Collection<AlarmEvent> alarmEvents) {
+        return Mono.fromRunnable(() -> alarmEvents.forEach(alarmEvent -> {
+            String key = generateKey(alarmEvent.eventUid(), alarmEvent.recipient());
+            store.put(key, alarmEvent);
+            claims.remove(key);
+        }));
+    }
+
+    @Override
+    public Mono<Void> deleteAll(EventUid eventUid, Collection<MailAddress> recipients) {
+        return Mono.fromRunnable(() -> recipients.forEach(recipient -> {
+            String key = generateKey(eventUid, recipient);
+            store.remove(key);
+            claims.remove(key);
+        }));
     }
 
     @Override
@@ -68,6 +102,39 @@ public class MemoryAlarmEventDAO implements AlarmEventDAO {
             .filter(e -> !e.alarmTime().isAfter(time)));
     }
 
+    @Override
+    public Flux<AlarmEvent> findAlarmsToTrigger(Instant time, AlarmEventFetchOptions options) {
+        return Flux.fromStream(dueAlarms(time, options)
+            .limit(options.limit()));
+    }
+
+    @Override
+    public Flux<AlarmEvent> claimAlarmsToTrigger(Instant time, String claimer, Duration claimTtl, AlarmEventFetchOptions options) {
+        Claim claim = new Claim(claimer, time.plus(claimTtl));
+        return Flux.fromStream(dueAlarms(time, options)
+            .filter(alarmEvent -> claims.compute(generateKey(alarmEvent.eventUid(), alarmEvent.recipient()),
+                (key, existing) -> existing == null || !existing.claimedUntil().isAfter(time) ? claim : existing) == claim)
+            .limit(options.limit()));
+    }
+
+    @Override
+    public Mono<Long> deleteUntriggerableAlarms(Instant time, AlarmEventFetchOptions options) {
+        // Alarms are stored along with their ICS: all of them can be triggered
+        return Mono.just(0L);
+    }
+
+    private Stream<AlarmEvent> dueAlarms(Instant time, AlarmEventFetchOptions options) {
+        Comparator<AlarmEvent> comparator = switch (options.sortOrder()) {
+            case ALARM_TIME_ASCENDING -> Comparator.comparing(AlarmEvent::alarmTime);
+            case ALARM_TIME_DESCENDING -> Comparator.comparing(AlarmEvent::alarmTime).reversed();
+        };
+
+        return store.values().stream()
+            .filter(e -> !e.alarmTime().isAfter(time))
+            .filter(options::matchesPartition)
+            .sorted(comparator);
+    }
+
     private String generateKey(EventUid eventUid, MailAddress recipient) {
         return eventUid.value() + ":" + recipient.asString();
     }
@@ -0,0 +1,98 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class MemoryOutboundMailDAO implements OutboundMailDAO {
+
+    private record Claim(String claimer, Instant claimedUntil) {
+    }
+
+    private final Map<String, OutboundMail> store = new ConcurrentHashMap<>();
+    private final Map<String, Claim> claims = new ConcurrentHashMap<>();
+
+    @Inject
+    @Singleton
+    public MemoryOutboundMailDAO() {
+    }
+
+    @Override
+    public Mono<Void> enqueue(OutboundMail mail) {
+        return Mono.fromRunnable(() -> store.put(mail.id(), mail));
+    }
+
+    @Override
+    public Mono<OutboundMail> find(String id) {
+        return Mono.fromCallable(() -> store.get(id));
+    }
+
+    @Override
+    public Flux<OutboundMail> claimDue(Instant time, String claimer, Duration claimTtl, int limit) {
+        return Flux.defer(() -> {
+            synchronized (this) {
+                List<OutboundMail> claimed = store.values().stream()
+                    .filter(mail -> !mail.nextAttemptAt().isAfter(time))
+                    .filter(mail -> isClaimable(mail.id(), time))
+                    .sorted(Comparator.comparing(OutboundMail::nextAttemptAt))
+                    .limit(limit)
+                    .toList();
+                claimed.forEach(mail -> claims.put(mail.id(), new Claim(claimer, time.plus(claimTtl))));
+                return Flux.fromIterable(claimed);
+            }
+        });
+    }
+
+    private boolean isClaimable(String id, Instant time) {
+        Claim claim = claims.get(id);
+        return claim == null || !claim.claimedUntil().isAfter(time);
+    }
+
+    @Override
+    public Mono<Void> reschedule(OutboundMail mail) {
+        return Mono.fromRunnable(() -> {
+            store.computeIfPresent(mail.id(), (id, stored) -> mail);
+            claims.remove(mail.id());
+        });
+    }
+
+    @Override
+    public Mono<Void> delete(String id) {
+        return Mono.fromRunnable(() -> {
+            store.remove(id);
+            claims.remove(id);
+        });
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.fromCallable(() -> (long) store.size());
+    }
+}
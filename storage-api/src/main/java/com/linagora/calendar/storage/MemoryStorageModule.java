@@ -19,6 +19,7 @@
 package com.linagora.calendar.storage;
 
 import java.io.FileNotFoundException;
+import java.util.Set;
 
 import org.apache.james.core.Domain;
 import org.apache.james.domainlist.api.DomainList;
@@ -31,6 +32,7 @@ import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Scopes;
 import com.google.inject.Singleton;
+import com.google.inject.multibindings.Multibinder;
 import com.google.inject.multibindings.ProvidesIntoSet;
 import com.linagora.calendar.storage.configuration.UserConfigurationDAO;
 import com.linagora.calendar.storage.eventsearch.CalendarSearchService;
@@ -49,7 +51,9 @@ public class MemoryStorageModule extends AbstractModule {
         bind(MemoryOpenPaaSDomainAdminDAO.class).in(Scopes.SINGLETON);
 
         bind(OpenPaaSDomainDAO.class).to(MemoryOpenPaaSDomainDAO.class);
-        bind(OpenPaaSUserDAO.class).to(MemoryOpenPaaSUserDAO.class);
+        Multibinder.newSetBinder(binder(), OpenPaaSUserChangeListener.class)
+            .addBinding()
+            .to(CachingOpenPaaSUserDAO.class);
         bind(OpenPaaSDomainAdminDAO.class).to(MemoryOpenPaaSDomainAdminDAO.class);
 
         bind(OpenPaaSDomainList.class).in(Scopes.SINGLETON);
@@ -70,6 +74,10 @@ public class MemoryStorageModule extends AbstractModule {
         bind(AlarmEventDAO.class).to(MemoryAlarmEventDAO.class);
 
         bind(AlarmEventLeaseProvider.class).toInstance(AlarmEventLeaseProvider.NOOP);
+        bind(AlarmPartitionMembership.class).toInstance(AlarmPartitionMembership.SINGLE_NODE);
+
+        bind(MemoryOutboundMailDAO.class).in(Scopes.SINGLETON);
+        bind(OutboundMailDAO.class).to(MemoryOutboundMailDAO.class);
 
         bind(MemoryResourceDAO.class).in(Scopes.SINGLETON);
         bind(ResourceDAO.class).to(MemoryResourceDAO.class);
@@ -78,6 +86,18 @@ public class MemoryStorageModule extends AbstractModule {
         bind(TicketStore.class).to(MemoryTicketStore.class);
     }
 
+    @Provides
+    @Singleton
+    CachingOpenPaaSUserDAO provideCachingOpenPaaSUserDAO(MemoryOpenPaaSUserDAO openPaaSUserDAO) {
+        return new CachingOpenPaaSUserDAO(openPaaSUserDAO);
+    }
+
+    @Provides
+    @Singleton
+    OpenPaaSUserDAO provideOpenPaaSUserDAO(CachingOpenPaaSUserDAO openPaaSUserDAO, Set<OpenPaaSUserChangeListener> listeners) {
+        return new ListeningOpenPaaSUserDAO(openPaaSUserDAO, listeners);
+    }
+
     @Provides
     @Singleton
     DomainConfiguration domainConfiguration(PropertiesProvider propertiesProvider) throws Exception {
@@ -0,0 +1,31 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage;
+
+import org.apache.james.core.Username;
+
+/**
+ * Notified after a user got updated or deleted through {@link OpenPaaSUserDAO}, so that data derived from it can be
+ * invalidated. Listeners only see changes made by the local node, unless an event bus shared between nodes propagates
+ * them.
+ */
+public interface OpenPaaSUserChangeListener {
+    // Called for the former and the new username of an updated user, and for the username of a deleted user
+    void userChanged(Username username);
+}
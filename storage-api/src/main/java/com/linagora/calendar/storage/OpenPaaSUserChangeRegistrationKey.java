@@ -0,0 +1,42 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage;
+
+import org.apache.james.events.RegistrationKey;
+
+/**
+ * Single key every node registers on, so that {@link OpenPaaSUserChangeEvent}s reach all of them.
+ */
+public record OpenPaaSUserChangeRegistrationKey() implements RegistrationKey {
+    public static final OpenPaaSUserChangeRegistrationKey INSTANCE = new OpenPaaSUserChangeRegistrationKey();
+
+    private static final String VALUE = "all";
+
+    public static OpenPaaSUserChangeRegistrationKey fromString(String asString) {
+        if (!VALUE.equals(asString)) {
+            throw new IllegalArgumentException("Invalid OpenPaaSUserChangeRegistrationKey: " + asString);
+        }
+        return INSTANCE;
+    }
+
+    @Override
+    public String asString() {
+        return VALUE;
+    }
+}
@@ -0,0 +1,99 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+import org.apache.james.core.MailAddress;
+import org.apache.james.core.MaybeSender;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A rendered mail waiting in the outbound queue for SMTP delivery. The message holds the serialized MIME content.
+ */
+public record OutboundMail(String id,
+                           MaybeSender sender,
+                           List<MailAddress> recipients,
+                           byte[] message,
+                           Instant enqueuedAt,
+                           int attempts,
+                           Instant nextAttemptAt) {
+
+    public static OutboundMail of(MaybeSender sender, List<MailAddress> recipients, byte[] message, Instant now) {
+        return new OutboundMail(UUID.randomUUID().toString(), sender, recipients, message, now, 0, now);
+    }
+
+    public OutboundMail {
+        Preconditions.checkNotNull(id, "id must not be null");
+        Preconditions.checkNotNull(sender, "sender must not be null");
+        Preconditions.checkNotNull(message, "message must not be null");
+        Preconditions.checkNotNull(enqueuedAt, "enqueuedAt must not be null");
+        Preconditions.checkNotNull(nextAttemptAt, "nextAttemptAt must not be null");
+        Preconditions.checkArgument(attempts >= 0, "attempts must not be negative");
+        recipients = ImmutableList.copyOf(recipients);
+    }
+
+    // A failed attempt: the mail is retried at nextAttemptAt
+    public OutboundMail retryAt(Instant nextAttemptAt) {
+        return new OutboundMail(id, sender, recipients, message, enqueuedAt, attempts + 1, nextAttemptAt);
+    }
+
+    // Delivery was not attempted, e.g. because of rate limiting: the attempt count is left untouched
+    public OutboundMail postponeTo(Instant nextAttemptAt) {
+        return new OutboundMail(id, sender, recipients, message, enqueuedAt, attempts, nextAttemptAt);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof OutboundMail that) {
+            return attempts == that.attempts
+                && Objects.equals(id, that.id)
+                && Objects.equals(sender, that.sender)
+                && Objects.equals(recipients, that.recipients)
+                && Arrays.equals(message, that.message)
+                && Objects.equals(enqueuedAt, that.enqueuedAt)
+                && Objects.equals(nextAttemptAt, that.nextAttemptAt);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, sender, recipients, Arrays.hashCode(message), enqueuedAt, attempts, nextAttemptAt);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("id", id)
+            .add("sender", sender.asString())
+            .add("recipients", recipients)
+            .add("size", message.length)
+            .add("attempts", attempts)
+            .add("nextAttemptAt", nextAttemptAt)
+            .toString();
+    }
+}
@@ -0,0 +1,42 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface OutboundMailDAO {
+    Mono<Void> enqueue(OutboundMail mail);
+
+    Mono<OutboundMail> find(String id);
+
+    // Marks up to limit unclaimed mails due at time as claimed by the claimer until time + claimTtl, and returns only those,
+    // oldest attempt first. A claim left behind by a crashed node expires, so that the mail gets delivered by another one.
+    Flux<OutboundMail> claimDue(Instant time, String claimer, Duration claimTtl, int limit);
+
+    // Stores the new attempt count and next attempt time of the mail, clearing its claim.
+    Mono<Void> reschedule(OutboundMail mail);
+
+    Mono<Void> delete(String id);
+
+    Mono<Long> count();
+}
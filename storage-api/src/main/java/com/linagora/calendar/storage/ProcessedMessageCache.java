@@ -0,0 +1,34 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Remembers the fingerprint of the last message successfully processed for a given key, for a bounded window of time.
+ */
+public interface ProcessedMessageCache {
+
+    /**
+     * @return the fingerprint of the last message processed for this key, empty when unknown or expired
+     */
+    Mono<String> lastFingerprint(String key);
+
+    Mono<Void> recordFingerprint(String key, String fingerprint);
+}
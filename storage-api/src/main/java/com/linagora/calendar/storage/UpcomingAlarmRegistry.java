@@ -0,0 +1,43 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage;
+
+import org.apache.james.core.MailAddress;
+
+import com.linagora.calendar.storage.eventsearch.EventUid;
+
+public interface UpcomingAlarmRegistry {
+
+    void register(AlarmEvent alarmEvent);
+
+    void unregister(EventUid eventUid, MailAddress recipient);
+
+    UpcomingAlarmRegistry NOOP = new NoOpUpcomingAlarmRegistry();
+
+    class NoOpUpcomingAlarmRegistry implements UpcomingAlarmRegistry {
+
+        @Override
+        public void register(AlarmEvent alarmEvent) {
+        }
+
+        @Override
+        public void unregister(EventUid eventUid, MailAddress recipient) {
+        }
+    }
+}
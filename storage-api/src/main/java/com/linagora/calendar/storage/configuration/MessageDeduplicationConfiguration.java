@@ -0,0 +1,52 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage.configuration;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.apache.commons.configuration2.Configuration;
+import org.apache.james.util.DurationParser;
+
+import com.google.common.base.Preconditions;
+
+public record MessageDeduplicationConfiguration(boolean enabled, Duration window, long maxSize) {
+
+    public static final String AMQP_DEDUPLICATION_ENABLED = "amqp.deduplication.enabled";
+    public static final String AMQP_DEDUPLICATION_WINDOW = "amqp.deduplication.window";
+    public static final String AMQP_DEDUPLICATION_MAX_SIZE = "amqp.deduplication.maxSize";
+    public static final Duration DEFAULT_WINDOW = Duration.ofMinutes(10);
+    public static final long DEFAULT_MAX_SIZE = 100_000;
+
+    public static final MessageDeduplicationConfiguration DEFAULT = new MessageDeduplicationConfiguration(true, DEFAULT_WINDOW, DEFAULT_MAX_SIZE);
+    public static final MessageDeduplicationConfiguration DISABLED = new MessageDeduplicationConfiguration(false, DEFAULT_WINDOW, DEFAULT_MAX_SIZE);
+
+    public static MessageDeduplicationConfiguration parse(Configuration configuration) {
+        return new MessageDeduplicationConfiguration(configuration.getBoolean(AMQP_DEDUPLICATION_ENABLED, true),
+            Optional.ofNullable(configuration.getString(AMQP_DEDUPLICATION_WINDOW, null))
+                .map(DurationParser::parse)
+                .orElse(DEFAULT_WINDOW),
+            configuration.getLong(AMQP_DEDUPLICATION_MAX_SIZE, DEFAULT_MAX_SIZE));
+    }
+
+    public MessageDeduplicationConfiguration {
+        Preconditions.checkArgument(!window.isNegative() && !window.isZero(), "window must be positive");
+        Preconditions.checkArgument(maxSize > 0, "maxSize must be greater than 0");
+    }
+}
@@ -19,10 +19,10 @@
 package com.linagora.calendar.storage.event;
 
 import static net.fortuna.ical4j.model.Property.ACTION;
-import static net.fortuna.ical4j.model.Property.ATTENDEE;
 import static net.fortuna.ical4j.model.Property.TRIGGER;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
@@ -38,22 +38,22 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
-
-import jakarta.mail.internet.AddressException;
+import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.Strings;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.james.core.MailAddress;
 import org.apache.james.core.Username;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.fge.lambdas.Throwing;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 import net.fortuna.ical4j.model.Calendar;
 import net.fortuna.ical4j.model.Component;
@@ -93,24 +93,82 @@ public interface AlarmInstantFactory {
         private static final Logger LOGGER = LoggerFactory.getLogger(Default.class);
         private static final Comparator<AlarmInstant> EARLIEST_FIRST_ALARM_COMPARATOR =
             Comparator.comparing(AlarmInstant::alarmTime);
-        private static final Comparator<VEvent> EARLIEST_FIRST_EVENT_COMPARATOR =
-            Comparator.comparing(e -> EventParseUtils.getStartTime(e).toInstant());
         private static final Set<String> VALID_ALARM_ACTIONS = Set.of("EMAIL");
+        private static final long INITIAL_EXPANSION_WINDOW_MONTHS = 1;
+        // Absorbs day based triggers spanning a daylight saving change
+        private static final Duration ALARM_LEAD_MARGIN = Duration.ofDays(1);
+        private static final long EXPANSION_CACHE_MAX_OCCURRENCES = 100_000;
+        private static final Duration EXPANSION_CACHE_EXPIRATION = Duration.ofHours(1);
+
+        private record ExpansionKey(String eventUid, String sequence, String dtStart, String rrule) {
+        }
+
+        private record RecurrenceExpansion(ExpansionKey key, Recur recur, Temporal seed, Temporal horizonStart, Temporal horizonEnd) {
+        }
+
+        // Sorted occurrences of a recurrence in [from, to)
+        private record ExpandedOccurrences(Temporal from, Temporal to, List<Temporal> dates) {
+            boolean covers(Temporal start, Temporal end) {
+                return !toInstant(from).isAfter(toInstant(start)) && !toInstant(to).isBefore(toInstant(end));
+            }
+
+            boolean canBeExtendedTo(Temporal start) {
+                return !toInstant(from).isAfter(toInstant(start)) && !toInstant(to).isBefore(toInstant(start));
+            }
+
+            ExpandedOccurrences trimBefore(Temporal start) {
+                if (!toInstant(start).isAfter(toInstant(from))) {
+                    return this;
+                }
+                return new ExpandedOccurrences(start, to, slice(start, to));
+            }
+
+            ExpandedOccurrences append(List<Temporal> occurrences, Temporal newTo) {
+                return new ExpandedOccurrences(from, newTo, ImmutableList.<Temporal>builder()
+                    .addAll(dates)
+                    .addAll(occurrences)
+                    .build());
+            }
+
+            List<Temporal> slice(Temporal start, Temporal end) {
+                return dates.stream()
+                    .filter(date -> isWithin(date, start, end))
+                    .toList();
+            }
+        }
 
         private final Clock clock;
+        // Keyed by UID and SEQUENCE, so that long-lived series are not expanded again on every alarm
+        private final Cache<ExpansionKey, ExpandedOccurrences> expansionCache;
 
         public Default(Clock clock) {
             this.clock = clock;
+            this.expansionCache = Caffeine.newBuilder()
+                .maximumWeight(EXPANSION_CACHE_MAX_OCCURRENCES)
+                .<ExpansionKey, ExpandedOccurrences>weigher((key, occurrences) -> occurrences.dates().size())
+                .expireAfterAccess(EXPANSION_CACHE_EXPIRATION)
+                .build();
         }
 
         @Override
         public Optional<AlarmInstant> computeNextAlarmInstant(Calendar calendar, Username username, Optional<Instant> sinceInstant) {
             Instant sinceInstantValue = sinceInstant
                 .orElse(clock.instant());
-            return listUpcomingAcceptedVEvents(calendar, username).stream()
+            List<VEvent> allEvents = calendar.getComponents(Component.VEVENT);
+
+            boolean isRecurrence = allEvents.stream()
+                .anyMatch(e -> e.getProperty(Property.RRULE).isPresent());
+            if (isRecurrence) {
+                return computeNextRecurringAlarmInstant(allEvents, username, sinceInstantValue);
+            }
+            return earliestAlarmInstant(listUpcomingAcceptedVEvents(allEvents, username).stream(), username, sinceInstantValue);
+        }
+
+        private Optional<AlarmInstant> earliestAlarmInstant(Stream<VEvent> events, Username username, Instant sinceInstant) {
+            return events
                 .filter(event -> !EventParseUtils.isCancelled(event))
                 .flatMap(event -> computeAlarmInstants(event).stream())
-                .filter(alarmInstant -> alarmInstant.alarmTime().isAfter(sinceInstantValue))
+                .filter(alarmInstant -> alarmInstant.alarmTime().isAfter(sinceInstant))
                 .filter(Throwing.predicate(alarmInstant -> alarmInstant.recipients().isEmpty()
                     || alarmInstant.recipients().contains(username.asMailAddress())))
                 .min(EARLIEST_FIRST_ALARM_COMPARATOR);
@@ -129,21 +187,7 @@ public interface AlarmInstantFactory {
                     return new AlarmInstant(alarmTime.toInstant(),
                         eventStart.toInstant(),
                         Optional.ofNullable(recurrenceId),
-                        extractRecipients(pair.getRight()));
-                })
-                .toList();
-        }
-
-        private List<MailAddress> extractRecipients(VAlarm vAlarm) {
-            return vAlarm.getProperties(ATTENDEE).stream()
-                .map(property -> Strings.CS.replace(property.getValue(), "mailto:", ""))
-                .filter(StringUtils::isNotBlank)
-                .map(mailAddressValue -> {
-                    try {
-                        return new MailAddress(mailAddressValue);
-                    } catch (AddressException e) {
-                        throw new IllegalArgumentException("Invalid email address in ATTENDEE property: " + mailAddressValue, e);
-                    }
+                        EventParseUtils.getAlarmRecipients(pair.getRight()));
                 })
                 .toList();
         }
@@ -172,28 +216,19 @@ public interface AlarmInstantFactory {
             return duration;
         }
 
-        private List<VEvent> listUpcomingAcceptedVEvents(Calendar calendar, Username username) {
-            List<VEvent> allEvents = calendar.getComponents(Component.VEVENT);
-
+        private List<VEvent> listUpcomingAcceptedVEvents(List<VEvent> allEvents, Username username) {
             if (allEvents.isEmpty()) {
                 return List.of();
             }
 
-            if (allEvents.size() == 1 && allEvents.getFirst().getProperty(Property.RRULE).isEmpty()) {
+            if (allEvents.size() == 1) {
                 return findUpcomingFromSingleEventAsList(allEvents.getFirst(), username);
             }
 
-            boolean isRecurrence = allEvents.stream()
-                .anyMatch(e -> e.getProperty(Property.RRULE).isPresent());
-
-            if (!isRecurrence) {
-                return allEvents.stream()
-                    .max(new VEventComparator())
-                    .map(event -> findUpcomingFromSingleEventAsList(event, username))
-                    .orElse(List.of());
-            }
-
-            return listUpcomingAcceptedRecurringEvents(allEvents, username);
+            return allEvents.stream()
+                .max(new VEventComparator())
+                .map(event -> findUpcomingFromSingleEventAsList(event, username))
+                .orElse(List.of());
         }
 
         private List<VEvent> findUpcomingFromSingleEventAsList(VEvent event, Username username) {
@@ -212,7 +247,7 @@ public interface AlarmInstantFactory {
             return Optional.empty();
         }
 
-        private List<VEvent> listUpcomingAcceptedRecurringEvents(List<VEvent> events, Username username) {
+        private Optional<AlarmInstant> computeNextRecurringAlarmInstant(List<VEvent> events, Username username, Instant sinceInstant) {
             Optional<VEvent> masterOpt = events.stream()
                 .filter(e -> e.getRecurrenceId() == null)
                 .findFirst();
@@ -220,74 +255,136 @@ public interface AlarmInstantFactory {
             List<VEvent> overrideEvents = events.stream()
                 .filter(e -> e.getRecurrenceId() != null)
                 .toList();
-            return masterOpt.map(master -> listUpcomingAcceptedRecurrenceInstances(master, overrideEvents, username))
-                .orElseGet(List::of);
+            return masterOpt.flatMap(master -> computeNextRecurringAlarmInstant(master, overrideEvents, username, sinceInstant));
         }
 
-        private List<VEvent> listUpcomingAcceptedRecurrenceInstances(VEvent master, List<VEvent> overrideEvents, Username username) {
-            List<Temporal> excludedDates = extractExDates(master);
-
-            List<Temporal> recurrenceDates = expandRecurrenceDates(master);
-            List<Temporal> filteredRecurrenceDates = recurrenceDates.stream()
-                .filter(recurrence -> !excludedDates.contains(recurrence))
-                .toList();
+        /**
+         * Expands the recurrence by windows of growing size, and stops as soon as no occurrence of the next
+         * windows can have an alarm earlier than the best one found so far.
+         */
+        private Optional<AlarmInstant> computeNextRecurringAlarmInstant(VEvent master, List<VEvent> overrideEvents, Username username, Instant sinceInstant) {
+            Set<Temporal> excludedDates = extractExDates(master);
 
             Map<Temporal, VEvent> overrideMap = overrideEvents.stream()
                 .collect(Collectors.toMap(event -> normalizeTemporal(event.getRecurrenceId().getDate()),
                     Function.identity()));
 
             Instant now = clock.instant();
-            Predicate<Temporal> isAfterPredicate = temporal -> {
-                if (temporal instanceof LocalDate time) {
-                    return time.atStartOfDay(ZoneOffset.UTC).toInstant().isAfter(now);
+            Duration maxAlarmLead = maxAlarmLead(master, overrideMap);
+            RecurrenceExpansion expansion = recurrenceExpansion(master);
+
+            Optional<AlarmInstant> earliest = Optional.empty();
+            Temporal windowStart = expansion.horizonStart();
+            long windowMonths = INITIAL_EXPANSION_WINDOW_MONTHS;
+            while (toInstant(windowStart).isBefore(toInstant(expansion.horizonEnd()))) {
+                Instant earliestReachableAlarm = toInstant(windowStart).minus(maxAlarmLead);
+                if (earliest.isPresent() && earliestReachableAlarm.isAfter(earliest.get().alarmTime())) {
+                    break;
                 }
-                return ((Instant) temporal).isAfter(now);
-            };
-
-            return filteredRecurrenceDates.stream()
-                .filter(isAfterPredicate)
-                .map(recurrenceDate -> overrideMap.getOrDefault(
-                    recurrenceDate,
-                    createInstanceVEvent(master, recurrenceDate)))
-                .filter(event -> hasAccepted(event, username))
-                .sorted(EARLIEST_FIRST_EVENT_COMPARATOR)
+                Temporal windowEnd = min(windowStart.plus(windowMonths, ChronoUnit.MONTHS), expansion.horizonEnd());
+
+                Optional<AlarmInstant> windowEarliest = earliestAlarmInstant(occurrences(master, expansion, windowStart, windowEnd).stream()
+                    .filter(recurrence -> !excludedDates.contains(recurrence))
+                    .filter(recurrence -> toInstant(recurrence).isAfter(now))
+                    .map(recurrenceDate -> Optional.ofNullable(overrideMap.get(recurrenceDate))
+                        .orElseGet(() -> createInstanceVEvent(master, recurrenceDate)))
+                    .filter(event -> hasAccepted(event, username)), username, sinceInstant);
+                earliest = Stream.concat(earliest.stream(), windowEarliest.stream())
+                    .min(EARLIEST_FIRST_ALARM_COMPARATOR);
+
+                windowStart = windowEnd;
+                windowMonths = windowMonths * 2;
+            }
+            return earliest;
+        }
+
+        // Upper bound of how long before its recurrence date an occurrence may trigger an alarm
+        private Duration maxAlarmLead(VEvent master, Map<Temporal, VEvent> overrideMap) {
+            Stream<Duration> masterLeads = computeAlarmInstants(master).stream()
+                .map(alarmInstant -> Duration.between(alarmInstant.alarmTime(), alarmInstant.eventStartTime()));
+            Stream<Duration> overrideLeads = overrideMap.entrySet().stream()
+                .flatMap(entry -> computeAlarmInstants(entry.getValue()).stream()
+                    .map(alarmInstant -> Duration.between(alarmInstant.alarmTime(), toInstant(entry.getKey()))));
+
+            return Stream.concat(masterLeads, overrideLeads)
+                .max(Comparator.naturalOrder())
+                .filter(lead -> !lead.isNegative())
+                .orElse(Duration.ZERO)
+                .plus(ALARM_LEAD_MARGIN);
+        }
+
+        private RecurrenceExpansion recurrenceExpansion(VEvent master) {
+            RRule<Temporal> rrule = master.getProperty(Property.RRULE)
+                .map(property -> (RRule<Temporal>) property)
+                .orElseThrow(() -> new IllegalArgumentException("Master event must have an RRULE: " + master));
+            ExpansionKey key = new ExpansionKey(master.getUid().map(Property::getValue).orElse(""),
+                master.getProperty(Property.SEQUENCE).map(Property::getValue).orElse("0"),
+                master.getDateTimeStart().toString(),
+                rrule.getValue());
+
+            if (EventParseUtils.isAllDay(master)) {
+                Temporal startDate = master.getDateTimeStart().getDate();
+                return new RecurrenceExpansion(key, rrule.getRecur(), startDate, startDate, startDate.plus(1, ChronoUnit.YEARS));
+            }
+
+            ZonedDateTime seedStart = EventParseUtils.getStartTime(master);
+            ZonedDateTime periodStart = clock.instant().atZone(seedStart.getZone());
+            return new RecurrenceExpansion(key, rrule.getRecur(), seedStart, periodStart, periodStart.plusYears(1));
+        }
+
+        private List<Temporal> occurrences(VEvent master, RecurrenceExpansion expansion, Temporal windowStart, Temporal windowEnd) {
+            ExpandedOccurrences cached = expansionCache.getIfPresent(expansion.key());
+
+            if (cached != null && cached.covers(windowStart, windowEnd)) {
+                return cached.slice(windowStart, windowEnd);
+            }
+            if (cached != null && cached.canBeExtendedTo(windowStart)) {
+                ExpandedOccurrences extended = cached.trimBefore(expansion.horizonStart())
+                    .append(expand(master, expansion, cached.to(), windowEnd), windowEnd);
+                expansionCache.put(expansion.key(), extended);
+                return extended.slice(windowStart, windowEnd);
+            }
+            ExpandedOccurrences computed = new ExpandedOccurrences(windowStart, windowEnd, expand(master, expansion, windowStart, windowEnd));
+            expansionCache.put(expansion.key(), computed);
+            return computed.dates();
+        }
+
+        private List<Temporal> expand(VEvent master, RecurrenceExpansion expansion, Temporal from, Temporal to) {
+            List<Temporal> recurrenceDates = expansion.recur().getDates(expansion.seed(), from, to);
+            return recurrenceDates.stream()
+                .map(Default::normalizeTemporal)
+                .filter(date -> isWithin(date, from, to))
                 .toList();
         }
 
+        private static boolean isWithin(Temporal date, Temporal from, Temporal to) {
+            Instant instant = toInstant(date);
+            return !instant.isBefore(toInstant(from)) && instant.isBefore(toInstant(to));
+        }
+
+        private static Instant toInstant(Temporal temporal) {
+            if (temporal instanceof LocalDate date) {
+                return date.atStartOfDay(ZoneOffset.UTC).toInstant();
+            }
+            return Instant.from(temporal);
+        }
+
+        private static Temporal min(Temporal a, Temporal b) {
+            return toInstant(a).isAfter(toInstant(b)) ? b : a;
+        }
+
         private boolean hasAccepted(VEvent vEvent, Username username) {
             return EventParseUtils.getAttendees(vEvent).stream()
                 .anyMatch(person -> person.email().asString().equalsIgnoreCase(username.asString())
                     && person.partStat().map(partStat -> partStat == PartStat.ACCEPTED).orElse(false));
         }
 
-        private List<Temporal> extractExDates(VEvent master) {
+        private Set<Temporal> extractExDates(VEvent master) {
             return master.getProperties(Property.EXDATE).stream()
                 .map(ExDate.class::cast)
                 .flatMap(exDate -> ((List<Temporal>) exDate.getDates()).stream()
                     .map(Default::normalizeTemporal))
-                .toList();
-        }
-
-        private List<Temporal> expandRecurrenceDates(VEvent vEvent) {
-            RRule<Temporal> rrule = vEvent.getProperty(Property.RRULE)
-                .map(property -> (RRule<Temporal>) property)
-                .orElseThrow(() -> new IllegalArgumentException("Master event must have an RRULE: " + vEvent));
-            Recur recur = rrule.getRecur();
-
-            if (EventParseUtils.isAllDay(vEvent)) {
-                Temporal startDate = vEvent.getDateTimeStart().getDate();
-                return recur.getDates(startDate, startDate, startDate.plus(1, ChronoUnit.YEARS));
-            }
-
-            ZonedDateTime seedStart = EventParseUtils.getStartTime(vEvent);
-            ZonedDateTime periodStart = clock.instant().atZone(seedStart.getZone());
-            ZonedDateTime periodEnd = periodStart.plusYears(1);
-
-            List<ZonedDateTime> recurrenceDates = recur.getDates(seedStart, periodStart, periodEnd);
-
-            return recurrenceDates
-                .stream().map(Default::normalizeTemporal)
-                .toList();
+                .collect(ImmutableSet.toImmutableSet());
         }
 
         private static Temporal normalizeTemporal(Temporal temporal) {
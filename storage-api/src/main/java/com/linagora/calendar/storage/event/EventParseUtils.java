@@ -37,8 +37,10 @@ import java.time.temporal.TemporalAccessor;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import jakarta.mail.internet.AddressException;
 
@@ -50,6 +52,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
 
 import net.fortuna.ical4j.model.Calendar;
 import net.fortuna.ical4j.model.Component;
@@ -58,6 +61,7 @@ import net.fortuna.ical4j.model.Parameter;
 import net.fortuna.ical4j.model.Property;
 import net.fortuna.ical4j.model.TimeZone;
 import net.fortuna.ical4j.model.component.CalendarComponent;
+import net.fortuna.ical4j.model.component.VAlarm;
 import net.fortuna.ical4j.model.component.VEvent;
 import net.fortuna.ical4j.model.parameter.PartStat;
 import net.fortuna.ical4j.model.property.Description;
@@ -290,6 +294,40 @@ public class EventParseUtils {
             .orElseThrow(() -> new IllegalStateException("No UID found in the calendar event"));
     }
 
+    public static List<MailAddress> getAlarmRecipients(VAlarm vAlarm) {
+        return alarmRecipientValues(vAlarm)
+            .map(mailAddressValue -> {
+                try {
+                    return new MailAddress(mailAddressValue);
+                } catch (AddressException e) {
+                    throw new IllegalArgumentException("Invalid email address in ATTENDEE property: " + mailAddressValue, e);
+                }
+            })
+            .toList();
+    }
+
+    // Recipients of every VALARM of the calendar, invalid addresses being ignored.
+    public static Set<MailAddress> getAlarmRecipients(Calendar calendar) {
+        return calendar.getComponents(Component.VEVENT).stream()
+            .map(VEvent.class::cast)
+            .flatMap(event -> event.getAlarms().stream())
+            .flatMap(EventParseUtils::alarmRecipientValues)
+            .flatMap(mailAddressValue -> {
+                try {
+                    return Stream.of(new MailAddress(mailAddressValue));
+                } catch (AddressException e) {
+                    return Stream.empty();
+                }
+            })
+            .collect(ImmutableSet.toImmutableSet());
+    }
+
+    private static Stream<String> alarmRecipientValues(VAlarm vAlarm) {
+        return vAlarm.getProperties(Property.ATTENDEE).stream()
+            .map(property -> Strings.CS.replace(property.getValue(), "mailto:", ""))
+            .filter(StringUtils::isNotBlank);
+    }
+
     public static boolean isCancelled(VEvent event) {
         return event.getStatus() != null && "CANCELLED".equalsIgnoreCase(event.getStatus().getValue());
     }
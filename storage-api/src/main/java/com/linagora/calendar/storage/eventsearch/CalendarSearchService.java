@@ -18,6 +18,9 @@
 
 package com.linagora.calendar.storage.eventsearch;
 
+import java.util.List;
+import java.util.Optional;
+
 import org.apache.james.vacation.api.AccountId;
 
 import com.linagora.calendar.storage.event.EventFields;
@@ -27,8 +30,38 @@ import reactor.core.publisher.Mono;
 
 public interface CalendarSearchService {
 
+    record IndexRequest(AccountId accountId, CalendarEvents events) {
+    }
+
+    record IndexResult(IndexRequest request, Optional<Throwable> error) {
+        public static IndexResult success(IndexRequest request) {
+            return new IndexResult(request, Optional.empty());
+        }
+
+        public static IndexResult failure(IndexRequest request, Throwable error) {
+            return new IndexResult(request, Optional.of(error));
+        }
+
+        public boolean succeeded() {
+            return error.isEmpty();
+        }
+    }
+
     Mono<Void> index(AccountId accountId, CalendarEvents fields);
 
+    /**
+     * Indexes several sets of events at once, with the same semantic as {@link #index(AccountId, CalendarEvents)}.
+     *
+     * <p>Emits exactly one result per request, in the order of the requests: the failure of one request does not
+     * fail the others.</p>
+     */
+    default Flux<IndexResult> indexAll(List<IndexRequest> requests) {
+        return Flux.fromIterable(requests)
+            .concatMap(request -> index(request.accountId(), request.events())
+                .then(Mono.fromCallable(() -> IndexResult.success(request)))
+                .onErrorResume(error -> Mono.just(IndexResult.failure(request, error))));
+    }
+
     Mono<Void> reindex(AccountId accountId, CalendarEvents fields);
 
     Mono<Void> delete(AccountId accountId, EventUid eventUid);
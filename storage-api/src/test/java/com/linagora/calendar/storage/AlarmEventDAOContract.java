@@ -20,10 +20,12 @@ package com.linagora.calendar.storage;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import jakarta.mail.internet.AddressException;
 
@@ -143,5 +145,253 @@ public interface AlarmEventDAOContract {
 
         assertThat(events).containsExactlyInAnyOrder(e1, e2, e4);
     }
+
+    @Test
+    default void findAlarmsToTriggerWithOptionsShouldReturnOldestFirst() throws AddressException {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        AlarmEvent e1 = alarmEvent("1", now.minusSeconds(30), "r1@abc.com");
+        AlarmEvent e2 = alarmEvent("2", now.minusSeconds(90), "r2@abc.com");
+        AlarmEvent e3 = alarmEvent("3", now.minusSeconds(60), "r3@abc.com");
+        AlarmEvent e4 = alarmEvent("4", now.plusSeconds(60), "r4@abc.com");
+        getDAO().create(e1).block();
+        getDAO().create(e2).block();
+        getDAO().create(e3).block();
+        getDAO().create(e4).block();
+
+        List<AlarmEvent> events = getDAO().findAlarmsToTrigger(now, AlarmEventFetchOptions.oldestFirst(10)).collectList().block();
+
+        assertThat(events).containsExactly(e2, e3, e1);
+    }
+
+    @Test
+    default void findAlarmsToTriggerWithOptionsShouldApplyLimit() throws AddressException {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        AlarmEvent e1 = alarmEvent("1", now.minusSeconds(30), "r1@abc.com");
+        AlarmEvent e2 = alarmEvent("2", now.minusSeconds(90), "r2@abc.com");
+        AlarmEvent e3 = alarmEvent("3", now.minusSeconds(60), "r3@abc.com");
+        getDAO().create(e1).block();
+        getDAO().create(e2).block();
+        getDAO().create(e3).block();
+
+        List<AlarmEvent> events = getDAO().findAlarmsToTrigger(now, AlarmEventFetchOptions.oldestFirst(2)).collectList().block();
+
+        assertThat(events).containsExactly(e2, e3);
+    }
+
+    @Test
+    default void findAlarmsToTriggerWithOptionsShouldSupportDescendingOrder() throws AddressException {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        AlarmEvent e1 = alarmEvent("1", now.minusSeconds(30), "r1@abc.com");
+        AlarmEvent e2 = alarmEvent("2", now.minusSeconds(90), "r2@abc.com");
+        AlarmEvent e3 = alarmEvent("3", now.minusSeconds(60), "r3@abc.com");
+        getDAO().create(e1).block();
+        getDAO().create(e2).block();
+        getDAO().create(e3).block();
+
+        List<AlarmEvent> events = getDAO().findAlarmsToTrigger(now,
+                new AlarmEventFetchOptions(2, AlarmEventFetchOptions.SortOrder.ALARM_TIME_DESCENDING, 1))
+            .collectList().block();
+
+        assertThat(events).containsExactly(e1, e3);
+    }
+
+    @Test
+    default void findAlarmsToTriggerWithOptionsShouldFilterPartitions() throws AddressException {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        AlarmEvent e1 = alarmEvent("1", now.minusSeconds(30), "r1@abc.com");
+        AlarmEvent e2 = alarmEvent("2", now.minusSeconds(90), "r2@abc.com");
+        getDAO().create(e1).block();
+        getDAO().create(e2).block();
+
+        List<AlarmEvent> events = getDAO().findAlarmsToTrigger(now,
+                AlarmEventFetchOptions.oldestFirst(10).withPartitions(Set.of(e1.partition())))
+            .collectList().block();
+
+        assertThat(events).containsExactly(e1);
+    }
+
+    @Test
+    default void claimAlarmsToTriggerShouldReturnDueAlarmsOldestFirst() throws AddressException {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        AlarmEvent e1 = alarmEvent("1", now.minusSeconds(30), "r1@abc.com");
+        AlarmEvent e2 = alarmEvent("2", now.minusSeconds(90), "r2@abc.com");
+        AlarmEvent e3 = alarmEvent("3", now.plusSeconds(60), "r3@abc.com");
+        getDAO().create(e1).block();
+        getDAO().create(e2).block();
+        getDAO().create(e3).block();
+
+        List<AlarmEvent> events = getDAO().claimAlarmsToTrigger(now, "node-1", Duration.ofMinutes(1), AlarmEventFetchOptions.oldestFirst(10))
+            .collectList().block();
+
+        assertThat(events).containsExactly(e2, e1);
+    }
+
+    @Test
+    default void claimAlarmsToTriggerShouldApplyLimit() throws AddressException {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        AlarmEvent e1 = alarmEvent("1", now.minusSeconds(30), "r1@abc.com");
+        AlarmEvent e2 = alarmEvent("2", now.minusSeconds(90), "r2@abc.com");
+        getDAO().create(e1).block();
+        getDAO().create(e2).block();
+
+        List<AlarmEvent> events = getDAO().claimAlarmsToTrigger(now, "node-1", Duration.ofMinutes(1), AlarmEventFetchOptions.oldestFirst(1))
+            .collectList().block();
+
+        assertThat(events).containsExactly(e2);
+    }
+
+    @Test
+    default void claimAlarmsToTriggerShouldNotReturnAlarmsAlreadyClaimed() throws AddressException {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        AlarmEvent e1 = alarmEvent("1", now.minusSeconds(30), "r1@abc.com");
+        AlarmEvent e2 = alarmEvent("2", now.minusSeconds(90), "r2@abc.com");
+        getDAO().create(e1).block();
+        getDAO().create(e2).block();
+        getDAO().claimAlarmsToTrigger(now, "node-1", Duration.ofMinutes(1), AlarmEventFetchOptions.oldestFirst(1)).blockLast();
+
+        List<AlarmEvent> events = getDAO().claimAlarmsToTrigger(now, "node-2", Duration.ofMinutes(1), AlarmEventFetchOptions.oldestFirst(10))
+            .collectList().block();
+
+        assertThat(events).containsExactly(e1);
+    }
+
+    @Test
+    default void claimAlarmsToTriggerShouldReturnAlarmsWhoseClaimExpired() throws AddressException {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        AlarmEvent e1 = alarmEvent("1", now.minusSeconds(30), "r1@abc.com");
+        getDAO().create(e1).block();
+        getDAO().claimAlarmsToTrigger(now, "node-1", Duration.ofMinutes(1), AlarmEventFetchOptions.oldestFirst(10)).blockLast();
+
+        List<AlarmEvent> events = getDAO().claimAlarmsToTrigger(now.plus(Duration.ofMinutes(2)), "node-2", Duration.ofMinutes(1), AlarmEventFetchOptions.oldestFirst(10))
+            .collectList().block();
+
+        assertThat(events).containsExactly(e1);
+    }
+
+    @Test
+    default void updateShouldReleaseClaim() throws AddressException {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        AlarmEvent e1 = alarmEvent("1", now.minusSeconds(30), "r1@abc.com");
+        getDAO().create(e1).block();
+        getDAO().claimAlarmsToTrigger(now, "node-1", Duration.ofMinutes(1), AlarmEventFetchOptions.oldestFirst(10)).blockLast();
+
+        AlarmEvent updated = alarmEvent("1", now.minusSeconds(10), "r1@abc.com");
+        getDAO().update(updated).block();
+
+        List<AlarmEvent> events = getDAO().claimAlarmsToTrigger(now, "node-2", Duration.ofMinutes(1), AlarmEventFetchOptions.oldestFirst(10))
+            .collectList().block();
+
+        assertThat(events).containsExactly(updated);
+    }
+
+    @Test
+    default void findAlarmsToTriggerShouldReturnSharedIcsForEachRecipient() throws AddressException {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        AlarmEvent e1 = alarmEvent("1", now.minusSeconds(30), "r1@abc.com");
+        AlarmEvent e2 = alarmEvent("1", now.minusSeconds(20), "r2@abc.com");
+        getDAO().create(e1).block();
+        getDAO().create(e2).block();
+
+        List<AlarmEvent> events = getDAO().findAlarmsToTrigger(now, AlarmEventFetchOptions.oldestFirst(10)).collectList().block();
+
+        assertThat(events).containsExactly(e1, e2);
+    }
+
+    @Test
+    default void updateShouldReplaceIcs() throws AddressException {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        AlarmEvent e1 = alarmEvent("1", now.minusSeconds(30), "r1@abc.com");
+        AlarmEvent e2 = alarmEvent("1", now.minusSeconds(20), "r2@abc.com");
+        getDAO().create(e1).block();
+        getDAO().create(e2).block();
+
+        AlarmEvent updated = new AlarmEvent(e1.eventUid(), e1.alarmTime(), e1.eventStartTime(), e1.recurring(),
+            e1.recurrenceId(), e1.recipient(), "updated ics");
+        getDAO().update(updated).block();
+
+        assertThat(getDAO().find(e1.eventUid(), e1.recipient()).block()).isEqualTo(updated);
+        assertThat(getDAO().find(e2.eventUid(), e2.recipient()).block()).isEqualTo(e2);
+    }
+
+    @Test
+    default void upsertAllShouldCreateMissingAlarms() throws AddressException {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        AlarmEvent e1 = alarmEvent("1", now.minusSeconds(30), "r1@abc.com");
+        AlarmEvent e2 = alarmEvent("1", now.minusSeconds(30), "r2@abc.com");
+
+        getDAO().upsertAll(List.of(e1, e2)).block();
+
+        assertThat(getDAO().find(e1.eventUid(), e1.recipient()).block()).isEqualTo(e1);
+        assertThat(getDAO().find(e2.eventUid(), e2.recipient()).block()).isEqualTo(e2);
+    }
+
+    @Test
+    default void upsertAllShouldReplaceExistingAlarms() throws AddressException {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        getDAO().create(alarmEvent("1", now.minusSeconds(30), "r1@abc.com")).block();
+        AlarmEvent e1 = alarmEvent("1", now.minusSeconds(10), "r1@abc.com");
+        AlarmEvent e2 = alarmEvent("1", now.minusSeconds(10), "r2@abc.com");
+
+        getDAO().upsertAll(List.of(e1, e2)).block();
+
+        assertThat(getDAO().findAlarmsToTrigger(now).collectList().block()).containsExactlyInAnyOrder(e1, e2);
+    }
+
+    @Test
+    default void upsertAllShouldAcceptEmptyCollection() {
+        getDAO().upsertAll(List.of()).block();
+
+        assertThat(getDAO().findAlarmsToTrigger(Instant.now()).collectList().block()).isEmpty();
+    }
+
+    @Test
+    default void upsertAllShouldReleaseClaims() throws AddressException {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        getDAO().create(alarmEvent("1", now.minusSeconds(30), "r1@abc.com")).block();
+        getDAO().claimAlarmsToTrigger(now, "node-1", Duration.ofMinutes(1), AlarmEventFetchOptions.oldestFirst(10)).blockLast();
+
+        AlarmEvent updated = alarmEvent("1", now.minusSeconds(10), "r1@abc.com");
+        getDAO().upsertAll(List.of(updated)).block();
+
+        assertThat(getDAO().claimAlarmsToTrigger(now, "node-2", Duration.ofMinutes(1), AlarmEventFetchOptions.oldestFirst(10))
+            .collectList().block())
+            .containsExactly(updated);
+    }
+
+    @Test
+    default void deleteAllShouldRemoveOnlyGivenRecipients() throws AddressException {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        AlarmEvent e1 = alarmEvent("1", now.minusSeconds(30), "r1@abc.com");
+        AlarmEvent e2 = alarmEvent("1", now.minusSeconds(30), "r2@abc.com");
+        AlarmEvent e3 = alarmEvent("1", now.minusSeconds(30), "r3@abc.com");
+        AlarmEvent otherEvent = alarmEvent("2", now.minusSeconds(30), "r1@abc.com");
+        getDAO().upsertAll(List.of(e1, e2, e3, otherEvent)).block();
+
+        getDAO().deleteAll(new EventUid("1"), List.of(e1.recipient(), e2.recipient())).block();
+
+        assertThat(getDAO().findAlarmsToTrigger(now).collectList().block()).containsExactlyInAnyOrder(e3, otherEvent);
+    }
+
+    @Test
+    default void deleteUntriggerableAlarmsShouldKeepAlarmsThatCanBeSent() throws AddressException {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        AlarmEvent e1 = alarmEvent("1", now.minusSeconds(30), "r1@abc.com");
+        AlarmEvent e2 = alarmEvent("2", now.minusSeconds(60), "r1@abc.com");
+        getDAO().upsertAll(List.of(e1, e2)).block();
+
+        assertThat(getDAO().deleteUntriggerableAlarms(now, AlarmEventFetchOptions.oldestFirst(10)).block()).isZero();
+        assertThat(getDAO().findAlarmsToTrigger(now).collectList().block()).containsExactlyInAnyOrder(e1, e2);
+    }
+
+    private AlarmEvent alarmEvent(String eventUid, Instant alarmTime, String recipient) throws AddressException {
+        return new AlarmEvent(
+            new EventUid(eventUid),
+            alarmTime,
+            alarmTime.plusSeconds(1000),
+            NO_RECURRING,
+            Optional.empty(),
+            new MailAddress(recipient),
+            "ics" + eventUid);
+    }
 }
 
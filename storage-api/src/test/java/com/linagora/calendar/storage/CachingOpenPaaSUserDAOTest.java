@@ -0,0 +1,139 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+
+import org.apache.james.core.Username;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CachingOpenPaaSUserDAOTest implements OpenPaaSUserDAOContract {
+    private static final Username BOB = Username.of("bob@domain.tld");
+    private static final Username ALICE = Username.of("alice@domain.tld");
+    private static final OpenPaaSId UNKNOWN_ID = new OpenPaaSId("659387b9d486dc0046aeff21");
+    private static final CachingOpenPaaSUserDAO.Configuration CONFIGURATION = new CachingOpenPaaSUserDAO.Configuration(
+        Duration.ofMinutes(1), Duration.ofMinutes(1), 100);
+
+    private MemoryOpenPaaSUserDAO delegate;
+    private CachingOpenPaaSUserDAO testee;
+
+    @BeforeEach
+    void setUp() {
+        delegate = spy(new MemoryOpenPaaSUserDAO());
+        testee = new CachingOpenPaaSUserDAO(delegate, CONFIGURATION);
+    }
+
+    @Override
+    public OpenPaaSUserDAO testee() {
+        return testee;
+    }
+
+    @Test
+    void retrieveByIdShouldBeCached() {
+        OpenPaaSUser user = delegate.add(BOB, "Bob", "Marley").block();
+
+        testee.retrieve(user.id()).block();
+        OpenPaaSUser retrieved = testee.retrieve(user.id()).block();
+
+        assertThat(retrieved).isEqualTo(user);
+        verify(delegate, times(1)).retrieve(user.id());
+    }
+
+    @Test
+    void retrieveByUsernameShouldBeCached() {
+        OpenPaaSUser user = delegate.add(BOB, "Bob", "Marley").block();
+
+        testee.retrieve(BOB).block();
+        OpenPaaSUser retrieved = testee.retrieve(BOB).block();
+
+        assertThat(retrieved).isEqualTo(user);
+        verify(delegate, times(1)).retrieve(BOB);
+    }
+
+    @Test
+    void unknownIdShouldBeCached() {
+        testee.retrieve(UNKNOWN_ID).block();
+
+        assertThat(testee.retrieve(UNKNOWN_ID).blockOptional()).isEmpty();
+        verify(delegate, times(1)).retrieve(UNKNOWN_ID);
+    }
+
+    @Test
+    void unknownIdShouldExpireAfterNegativeTtl() throws Exception {
+        testee = new CachingOpenPaaSUserDAO(delegate, new CachingOpenPaaSUserDAO.Configuration(
+            Duration.ofMinutes(1), Duration.ofMillis(100), 100));
+
+        testee.retrieve(UNKNOWN_ID).block();
+        Thread.sleep(200);
+        testee.retrieve(UNKNOWN_ID).block();
+
+        verify(delegate, times(2)).retrieve(UNKNOWN_ID);
+    }
+
+    @Test
+    void unknownUsernameShouldNotBeCached() {
+        testee.retrieve(BOB).block();
+        OpenPaaSUser user = delegate.add(BOB, "Bob", "Marley").block();
+
+        assertThat(testee.retrieve(BOB).block()).isEqualTo(user);
+    }
+
+    @Test
+    void retrieveShouldReturnUpdatedUser() {
+        OpenPaaSUser user = testee.add(BOB, "Bob", "Marley").block();
+        testee.retrieve(user.id()).block();
+        testee.retrieve(BOB).block();
+
+        testee.update(user.id(), ALICE, "Alice", "Marley").block();
+
+        OpenPaaSUser expected = new OpenPaaSUser(ALICE, user.id(), "Alice", "Marley");
+        assertThat(testee.retrieve(user.id()).block()).isEqualTo(expected);
+        assertThat(testee.retrieve(ALICE).block()).isEqualTo(expected);
+        assertThat(testee.retrieve(BOB).blockOptional()).isEmpty();
+    }
+
+    @Test
+    void userChangedShouldInvalidateEntries() {
+        OpenPaaSUser user = testee.add(BOB, "Bob", "Marley").block();
+        delegate.update(user.id(), BOB, "Robert", "Marley").block();
+
+        testee.userChanged(BOB);
+
+        OpenPaaSUser expected = new OpenPaaSUser(BOB, user.id(), "Robert", "Marley");
+        assertThat(testee.retrieve(user.id()).block()).isEqualTo(expected);
+        assertThat(testee.retrieve(BOB).block()).isEqualTo(expected);
+    }
+
+    @Test
+    void retrieveShouldNotReturnDeletedUser() {
+        OpenPaaSUser user = testee.add(BOB, "Bob", "Marley").block();
+        testee.retrieve(user.id()).block();
+
+        testee.delete(BOB).block();
+
+        assertThat(testee.retrieve(user.id()).blockOptional()).isEmpty();
+        assertThat(testee.retrieve(BOB).blockOptional()).isEmpty();
+    }
+}
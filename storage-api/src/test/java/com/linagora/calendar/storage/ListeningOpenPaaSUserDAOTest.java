@@ -0,0 +1,86 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.james.core.Username;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+public class ListeningOpenPaaSUserDAOTest implements OpenPaaSUserDAOContract {
+    private static final Username BOB = Username.of("bob@domain.tld");
+    private static final Username ALICE = Username.of("alice@domain.tld");
+
+    private List<Username> notified;
+    private ListeningOpenPaaSUserDAO testee;
+
+    @BeforeEach
+    void setUp() {
+        notified = new CopyOnWriteArrayList<>();
+        OpenPaaSUserChangeListener failingListener = username -> {
+            throw new RuntimeException("boom");
+        };
+        testee = new ListeningOpenPaaSUserDAO(new MemoryOpenPaaSUserDAO(), ImmutableSet.of(notified::add, failingListener));
+    }
+
+    @Override
+    public OpenPaaSUserDAO testee() {
+        return testee;
+    }
+
+    @Test
+    void addShouldNotNotifyListeners() {
+        testee.add(BOB, "Bob", "Marley").block();
+
+        assertThat(notified).isEmpty();
+    }
+
+    @Test
+    void updateShouldNotifyListeners() {
+        OpenPaaSUser user = testee.add(BOB, "Bob", "Marley").block();
+
+        testee.update(user.id(), BOB, "Robert", "Marley").block();
+
+        assertThat(notified).containsOnly(BOB);
+    }
+
+    @Test
+    void updateShouldNotifyBothFormerAndNewUsernames() {
+        OpenPaaSUser user = testee.add(BOB, "Bob", "Marley").block();
+
+        testee.update(user.id(), ALICE, "Alice", "Marley").block();
+
+        assertThat(notified).containsExactlyInAnyOrder(BOB, ALICE);
+    }
+
+    @Test
+    void deleteShouldNotifyListeners() {
+        testee.add(BOB, "Bob", "Marley").block();
+
+        testee.delete(BOB).block();
+
+        assertThat(notified).containsExactly(BOB);
+    }
+}
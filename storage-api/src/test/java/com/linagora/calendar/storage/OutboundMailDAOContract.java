@@ -0,0 +1,151 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.apache.james.core.MailAddress;
+import org.apache.james.core.MaybeSender;
+import org.junit.jupiter.api.Test;
+
+public interface OutboundMailDAOContract {
+    Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+    Duration CLAIM_TTL = Duration.ofMinutes(5);
+
+    OutboundMailDAO getDAO();
+
+    private static OutboundMail mail(Instant enqueuedAt) throws Exception {
+        return OutboundMail.of(MaybeSender.of(new MailAddress("sender@abc.com")),
+            List.of(new MailAddress("r1@abc.com"), new MailAddress("r2@def.com")),
+            "Subject: test\r\n\r\nHello".getBytes(StandardCharsets.UTF_8),
+            enqueuedAt.truncatedTo(ChronoUnit.MILLIS));
+    }
+
+    @Test
+    default void enqueuedMailShouldBeFound() throws Exception {
+        OutboundMail mail = mail(NOW);
+        getDAO().enqueue(mail).block();
+
+        assertThat(getDAO().find(mail.id()).block()).isEqualTo(mail);
+    }
+
+    @Test
+    default void nullSenderShouldBeSupported() throws Exception {
+        OutboundMail mail = OutboundMail.of(MaybeSender.nullSender(), List.of(new MailAddress("r1@abc.com")),
+            new byte[] {'a'}, NOW);
+        getDAO().enqueue(mail).block();
+
+        assertThat(getDAO().find(mail.id()).block().sender().isNullSender()).isTrue();
+    }
+
+    @Test
+    default void claimDueShouldReturnDueMails() throws Exception {
+        OutboundMail due = mail(NOW.minusSeconds(10));
+        OutboundMail notDue = mail(NOW.plusSeconds(10));
+        getDAO().enqueue(due).block();
+        getDAO().enqueue(notDue).block();
+
+        assertThat(getDAO().claimDue(NOW, "node1", CLAIM_TTL, 10).collectList().block())
+            .containsExactly(due);
+    }
+
+    @Test
+    default void claimDueShouldReturnOldestFirstAndRespectTheLimit() throws Exception {
+        OutboundMail first = mail(NOW.minusSeconds(30));
+        OutboundMail second = mail(NOW.minusSeconds(20));
+        OutboundMail third = mail(NOW.minusSeconds(10));
+        getDAO().enqueue(third).block();
+        getDAO().enqueue(first).block();
+        getDAO().enqueue(second).block();
+
+        assertThat(getDAO().claimDue(NOW, "node1", CLAIM_TTL, 2).collectList().block())
+            .containsExactly(first, second);
+    }
+
+    @Test
+    default void claimedMailsShouldNotBeClaimedAgain() throws Exception {
+        OutboundMail mail = mail(NOW);
+        getDAO().enqueue(mail).block();
+        getDAO().claimDue(NOW, "node1", CLAIM_TTL, 10).collectList().block();
+
+        assertThat(getDAO().claimDue(NOW.plusSeconds(1), "node2", CLAIM_TTL, 10).collectList().block())
+            .isEmpty();
+    }
+
+    @Test
+    default void expiredClaimsShouldBeClaimedAgain() throws Exception {
+        OutboundMail mail = mail(NOW);
+        getDAO().enqueue(mail).block();
+        getDAO().claimDue(NOW, "node1", CLAIM_TTL, 10).collectList().block();
+
+        assertThat(getDAO().claimDue(NOW.plus(CLAIM_TTL), "node2", CLAIM_TTL, 10).collectList().block())
+            .containsExactly(mail);
+    }
+
+    @Test
+    default void rescheduleShouldUpdateAttemptsAndClearTheClaim() throws Exception {
+        OutboundMail mail = mail(NOW);
+        getDAO().enqueue(mail).block();
+        getDAO().claimDue(NOW, "node1", CLAIM_TTL, 10).collectList().block();
+
+        OutboundMail retried = mail.retryAt(NOW.plusSeconds(60));
+        getDAO().reschedule(retried).block();
+
+        assertThat(getDAO().claimDue(NOW.plusSeconds(30), "node1", CLAIM_TTL, 10).collectList().block())
+            .isEmpty();
+        assertThat(getDAO().claimDue(NOW.plusSeconds(60), "node1", CLAIM_TTL, 10).collectList().block())
+            .containsExactly(retried);
+    }
+
+    @Test
+    default void rescheduleShouldNotRecreateDeletedMails() throws Exception {
+        OutboundMail mail = mail(NOW);
+        getDAO().enqueue(mail).block();
+        getDAO().delete(mail.id()).block();
+
+        getDAO().reschedule(mail.retryAt(NOW.plusSeconds(60))).block();
+
+        assertThat(getDAO().find(mail.id()).blockOptional()).isEmpty();
+    }
+
+    @Test
+    default void deleteShouldRemoveTheMail() throws Exception {
+        OutboundMail mail = mail(NOW);
+        getDAO().enqueue(mail).block();
+
+        getDAO().delete(mail.id()).block();
+
+        assertThat(getDAO().count().block()).isZero();
+        assertThat(getDAO().claimDue(NOW, "node1", CLAIM_TTL, 10).collectList().block()).isEmpty();
+    }
+
+    @Test
+    default void countShouldReturnQueuedMails() throws Exception {
+        getDAO().enqueue(mail(NOW)).block();
+        getDAO().enqueue(mail(NOW)).block();
+
+        assertThat(getDAO().count().block()).isEqualTo(2L);
+    }
+}
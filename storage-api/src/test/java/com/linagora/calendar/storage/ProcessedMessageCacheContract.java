@@ -0,0 +1,75 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.linagora.calendar.storage.configuration.MessageDeduplicationConfiguration;
+
+public abstract class ProcessedMessageCacheContract {
+
+    protected static final MessageDeduplicationConfiguration CONFIGURATION = new MessageDeduplicationConfiguration(true, Duration.ofSeconds(1), 100);
+
+    public abstract ProcessedMessageCache testee();
+
+    @Test
+    void lastFingerprintShouldReturnEmptyByDefault() {
+        assertThat(testee().lastFingerprint("key").blockOptional())
+            .isEmpty();
+    }
+
+    @Test
+    void lastFingerprintShouldReturnRecordedFingerprint() {
+        testee().recordFingerprint("key", "fingerprint").block();
+
+        assertThat(testee().lastFingerprint("key").block())
+            .isEqualTo("fingerprint");
+    }
+
+    @Test
+    void recordFingerprintShouldOverridePreviousFingerprint() {
+        testee().recordFingerprint("key", "fingerprint1").block();
+        testee().recordFingerprint("key", "fingerprint2").block();
+
+        assertThat(testee().lastFingerprint("key").block())
+            .isEqualTo("fingerprint2");
+    }
+
+    @Test
+    void recordFingerprintShouldNotAffectOtherKeys() {
+        testee().recordFingerprint("key1", "fingerprint").block();
+
+        assertThat(testee().lastFingerprint("key2").blockOptional())
+            .isEmpty();
+    }
+
+    @Test
+    void lastFingerprintShouldReturnEmptyAfterTheWindow() throws Exception {
+        testee().recordFingerprint("key", "fingerprint").block();
+
+        Thread.sleep(CONFIGURATION.window().multipliedBy(2).toMillis());
+
+        assertThat(testee().lastFingerprint("key").blockOptional())
+            .isEmpty();
+    }
+}
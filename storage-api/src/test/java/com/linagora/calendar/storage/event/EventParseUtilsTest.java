@@ -243,4 +243,75 @@ class EventParseUtilsTest {
 
         assertThat(EventParseUtils.getOrganizer(event)).isEqualTo(new EventFields.Person("Test Organizer", new MailAddress("organizer@abc.com")));
     }
+
+    @Test
+    void getAlarmRecipientsShouldReturnRecipientsOfEveryAlarmOfEveryEvent() throws AddressException {
+        String ics = """
+            BEGIN:VCALENDAR
+            VERSION:2.0
+            BEGIN:VEVENT
+            UID:event-1
+            DTSTART:20250911T100000Z
+            DTEND:20250911T120000Z
+            RRULE:FREQ=DAILY
+            BEGIN:VALARM
+            TRIGGER:-PT15M
+            ACTION:EMAIL
+            ATTENDEE:mailto:bob@abc.com
+            SUMMARY:Reminder
+            END:VALARM
+            BEGIN:VALARM
+            TRIGGER:-PT5M
+            ACTION:EMAIL
+            ATTENDEE:mailto:alice@abc.com
+            ATTENDEE:mailto:bob@abc.com
+            SUMMARY:Reminder
+            END:VALARM
+            END:VEVENT
+            BEGIN:VEVENT
+            UID:event-1
+            RECURRENCE-ID:20250912T100000Z
+            DTSTART:20250912T140000Z
+            DTEND:20250912T150000Z
+            BEGIN:VALARM
+            TRIGGER:-PT15M
+            ACTION:EMAIL
+            ATTENDEE:mailto:cedric@abc.com
+            SUMMARY:Reminder
+            END:VALARM
+            END:VEVENT
+            END:VCALENDAR
+            """;
+
+        Calendar calendar = CalendarUtil.parseIcs(ics);
+
+        assertThat(EventParseUtils.getAlarmRecipients(calendar))
+            .containsExactlyInAnyOrder(new MailAddress("alice@abc.com"), new MailAddress("bob@abc.com"), new MailAddress("cedric@abc.com"));
+    }
+
+    @Test
+    void getAlarmRecipientsShouldIgnoreInvalidAddresses() throws AddressException {
+        String ics = """
+            BEGIN:VCALENDAR
+            VERSION:2.0
+            BEGIN:VEVENT
+            UID:event-1
+            DTSTART:20250911T100000Z
+            DTEND:20250911T120000Z
+            BEGIN:VALARM
+            TRIGGER:-PT15M
+            ACTION:EMAIL
+            ATTENDEE:mailto:not an address
+            ATTENDEE:mailto:bob@abc.com
+            SUMMARY:Reminder
+            END:VALARM
+            END:VEVENT
+            END:VCALENDAR
+            """;
+
+        Calendar calendar = CalendarUtil.parseIcs(ics);
+
+        assertThat(EventParseUtils.getAlarmRecipients(calendar))
+            .containsExactly(new MailAddress("bob@abc.com"));
+    }
 }
@@ -1663,6 +1663,82 @@ public interface CalendarSearchServiceContract {
         });
     }
 
+    @Test
+    default void indexAllShouldIndexEveryRequest() {
+        EventFields event1 = EventFields.builder()
+            .uid(generateEventUid())
+            .summary("Bulk first")
+            .calendarURL(generateCalendarURL())
+            .build();
+        EventFields event2 = EventFields.builder()
+            .uid(generateEventUid())
+            .summary("Bulk second")
+            .calendarURL(generateCalendarURL())
+            .build();
+
+        List<CalendarSearchService.IndexResult> results = testee().indexAll(List.of(
+                new CalendarSearchService.IndexRequest(accountId, CalendarEvents.of(event1)),
+                new CalendarSearchService.IndexRequest(accountId2, CalendarEvents.of(event2))))
+            .collectList().block();
+
+        assertThat(results).allMatch(CalendarSearchService.IndexResult::succeeded);
+        CALMLY_AWAIT.untilAsserted(() -> {
+            assertThat(testee().search(accountId, simpleQuery("Bulk")).collectList().block())
+                .containsExactly(event1);
+            assertThat(testee().search(accountId2, simpleQuery("Bulk")).collectList().block())
+                .containsExactly(event2);
+        });
+    }
+
+    @Test
+    default void indexAllShouldReturnResultsInRequestOrder() {
+        List<CalendarSearchService.IndexRequest> requests = IntStream.range(0, 10)
+            .mapToObj(i -> new CalendarSearchService.IndexRequest(accountId, CalendarEvents.of(EventFields.builder()
+                .uid(generateEventUid())
+                .summary("Ordered " + i)
+                .calendarURL(generateCalendarURL())
+                .build())))
+            .toList();
+
+        List<CalendarSearchService.IndexResult> results = testee().indexAll(requests).collectList().block();
+
+        assertThat(results)
+            .extracting(CalendarSearchService.IndexResult::request)
+            .containsExactlyElementsOf(requests);
+    }
+
+    @Test
+    default void indexAllShouldHonorSequence() {
+        EventUid uid = generateEventUid();
+        CalendarURL url = generateCalendarURL();
+
+        EventFields v2 = EventFields.builder()
+            .uid(uid)
+            .sequence(2)
+            .summary("v2")
+            .calendarURL(url)
+            .build();
+        indexEvents(accountId, v2);
+
+        EventFields v1 = EventFields.builder()
+            .uid(uid)
+            .sequence(1)
+            .summary("v1")
+            .calendarURL(url)
+            .build();
+        testee().indexAll(List.of(new CalendarSearchService.IndexRequest(accountId, CalendarEvents.of(v1)))).blockLast();
+
+        CALMLY_AWAIT.untilAsserted(() ->
+            assertThat(testee().search(accountId, simpleQuery("v2"))
+                .collectList().block())
+                .containsExactly(v2));
+    }
+
+    @Test
+    default void indexAllShouldAcceptEmptyRequests() {
+        assertThat(testee().indexAll(List.of()).collectList().block()).isEmpty();
+    }
+
     // private helper
     private void indexEvents(AccountId accountId, EventFields events) {
         testee().index(accountId, CalendarEvents.of(events)).block();
@@ -0,0 +1,117 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage.mongodb;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gt;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import jakarta.inject.Inject;
+
+import org.bson.Document;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.linagora.calendar.storage.AlarmPartitionMembership;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Each scheduler node heartbeats a member document with an expiry. Live members are ordered by id and the
+ * alarm partitions are spread round-robin among them, so that every node derives the same assignment.
+ */
+public class MongoAlarmPartitionMembership implements AlarmPartitionMembership {
+
+    public static final String COLLECTION = "twake_calendar_alarm_scheduler_members";
+    public static final String ID_FIELD = "_id";
+    public static final String RENEWED_AT_FIELD = "renewedAt";
+    public static final String EXPIRES_AT_FIELD = "expiresAt";
+
+    private final MongoCollection<Document> collection;
+    private final Clock clock;
+    private final String memberId;
+
+    @Inject
+    public MongoAlarmPartitionMembership(MongoDatabase database, Clock clock) {
+        this(database, clock, UUID.randomUUID().toString());
+    }
+
+    @VisibleForTesting
+    MongoAlarmPartitionMembership(MongoDatabase database, Clock clock, String memberId) {
+        this.collection = database.getCollection(COLLECTION);
+        this.clock = clock;
+        this.memberId = memberId;
+    }
+
+    public static Mono<Void> declareIndex(MongoCollection<Document> collection) {
+        return Mono.from(collection.createIndex(
+                Indexes.ascending(EXPIRES_AT_FIELD),
+                new IndexOptions()
+                    .expireAfter(0L, TimeUnit.SECONDS)
+                    .name("ttl_expiresAt")))
+            .then();
+    }
+
+    @Override
+    public Mono<Set<Integer>> renew(Duration ttl) {
+        Instant now = clock.instant();
+        Document member = new Document()
+            .append(ID_FIELD, memberId)
+            .append(RENEWED_AT_FIELD, Date.from(now))
+            .append(EXPIRES_AT_FIELD, Date.from(now.plus(ttl)));
+
+        return Mono.from(collection.replaceOne(eq(ID_FIELD, memberId), member, new ReplaceOptions().upsert(true)))
+            .then(Flux.from(collection.find(gt(EXPIRES_AT_FIELD, Date.from(now)))
+                    .sort(Sorts.ascending(ID_FIELD)))
+                .map(document -> document.getString(ID_FIELD))
+                .collectList())
+            .map(this::ownedPartitions);
+    }
+
+    @Override
+    public Mono<Void> leave() {
+        return Mono.from(collection.deleteOne(eq(ID_FIELD, memberId))).then();
+    }
+
+    private Set<Integer> ownedPartitions(List<String> liveMembers) {
+        int memberCount = liveMembers.size();
+        int memberIndex = liveMembers.indexOf(memberId);
+        if (memberIndex < 0) {
+            return ALL_PARTITIONS;
+        }
+        return ALL_PARTITIONS.stream()
+            .filter(partition -> partition % memberCount == memberIndex)
+            .collect(Collectors.toUnmodifiableSet());
+    }
+}
@@ -0,0 +1,76 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+
+package com.linagora.calendar.storage.mongodb;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Filters.lte;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Updates;
+import com.mongodb.reactivestreams.client.MongoCollection;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Lets several nodes share the due documents of a collection: a node claims documents until a given instant, after which
+ * other nodes may claim them again. The claim is cleared by unsetting {@link #CLAIMED_BY_FIELD} and {@link #CLAIMED_UNTIL_FIELD}.
+ */
+class MongoClaims {
+    static final String CLAIMED_BY_FIELD = "claimedBy";
+    static final String CLAIMED_UNTIL_FIELD = "claimedUntil";
+    private static final String ID_FIELD = "_id";
+
+    /**
+     * Claims at most limit documents matching the due filter and not claimed at the given time, and returns only the
+     * documents actually claimed, in the given order.
+     */
+    static Flux<Document> claim(MongoCollection<Document> collection, Bson due, Bson sort, int limit,
+                                Instant time, String claimer, Duration claimTtl) {
+        Date claimedUntil = Date.from(time.plus(claimTtl));
+        Bson claimable = Filters.and(due,
+            Filters.or(exists(CLAIMED_UNTIL_FIELD, false), lte(CLAIMED_UNTIL_FIELD, Date.from(time))));
+
+        return Flux.from(collection.find(claimable)
+                .projection(Projections.include(ID_FIELD))
+                .sort(sort)
+                .limit(limit))
+            .map(document -> document.get(ID_FIELD))
+            .collectList()
+            .filter(candidateIds -> !candidateIds.isEmpty())
+            // the claimable condition is evaluated again by the update: documents claimed meanwhile by another node are left untouched
+            .flatMapMany(candidateIds -> Mono.from(collection.updateMany(Filters.and(in(ID_FIELD, candidateIds), claimable),
+                    Updates.combine(Updates.set(CLAIMED_BY_FIELD, claimer), Updates.set(CLAIMED_UNTIL_FIELD, claimedUntil))))
+                .thenMany(Flux.from(collection.find(Filters.and(in(ID_FIELD, candidateIds),
+                        eq(CLAIMED_BY_FIELD, claimer),
+                        eq(CLAIMED_UNTIL_FIELD, claimedUntil)))
+                    .sort(sort))));
+    }
+}
@@ -19,25 +19,52 @@
 package com.linagora.calendar.storage.mongodb;
 
 import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Filters.in;
 import static com.mongodb.client.model.Filters.lte;
 import static com.mongodb.client.model.Indexes.ascending;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import jakarta.inject.Inject;
 
 import org.apache.james.core.MailAddress;
 import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.github.fge.lambdas.Throwing;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
 import com.linagora.calendar.storage.AlarmEvent;
 import com.linagora.calendar.storage.AlarmEventDAO;
+import com.linagora.calendar.storage.AlarmEventFetchOptions;
 import com.linagora.calendar.storage.eventsearch.EventUid;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
 import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.DeleteResult;
 import com.mongodb.reactivestreams.client.MongoCollection;
 import com.mongodb.reactivestreams.client.MongoDatabase;
 
@@ -45,24 +72,44 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public class MongoDBAlarmEventDAO implements AlarmEventDAO {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoDBAlarmEventDAO.class);
 
     public static final String COLLECTION = "twake_calendar_alarm_events";
+    public static final String ICS_COLLECTION = "twake_calendar_alarm_ics";
     public static final String EVENT_UID_FIELD = "eventUid";
     public static final String RECIPIENT_FIELD = "recipient";
     public static final String ALARM_TIME_FIELD = "alarmTime";
     public static final String EVENT_START_TIME_FIELD = "eventStartTime";
     public static final String RECURRING_FIELD = "recurring";
     public static final String ICS_FIELD = "ics";
+    public static final String ICS_REF_FIELD = "icsRef";
+    public static final String EXPIRES_AT_FIELD = "expiresAt";
     public static final String RECURRENCE_ID_FIELD = "recurrenceId";
+    public static final String PARTITION_FIELD = "partition";
+    public static final String CLAIMED_BY_FIELD = MongoClaims.CLAIMED_BY_FIELD;
+    public static final String CLAIMED_UNTIL_FIELD = MongoClaims.CLAIMED_UNTIL_FIELD;
+    private static final String ID_FIELD = "_id";
+    // Shared ICS payloads outlive the last alarm referencing them by this delay before being expired by MongoDB
+    private static final Duration ICS_RETENTION = Duration.ofDays(30);
+    // Copies still referenced by an alarm being read get their expiration pushed back once they come within this delay
+    private static final Duration ICS_REFRESH_THRESHOLD = ICS_RETENTION.dividedBy(2);
+    private static final int ICS_RESOLUTION_BATCH_SIZE = 100;
 
     private final MongoCollection<Document> collection;
+    private final MongoCollection<Document> icsCollection;
+    private final Clock clock;
 
     @Inject
-    public MongoDBAlarmEventDAO(MongoDatabase database) {
+    public MongoDBAlarmEventDAO(MongoDatabase database, Clock clock) {
+        this.clock = clock;
         this.collection = database.getCollection(COLLECTION);
+        this.icsCollection = database.getCollection(ICS_COLLECTION);
+        Mono.from(icsCollection.createIndex(ascending(EXPIRES_AT_FIELD), new IndexOptions()
+            .expireAfter(0L, TimeUnit.SECONDS))).block();
         Mono.from(collection.createIndex(ascending(EVENT_UID_FIELD, RECIPIENT_FIELD), new IndexOptions()
             .unique(true))).block();
         Mono.from(collection.createIndex(ascending(ALARM_TIME_FIELD), new IndexOptions())).block();
+        Mono.from(collection.createIndex(ascending(PARTITION_FIELD, ALARM_TIME_FIELD), new IndexOptions())).block();
     }
 
     @Override
@@ -72,24 +119,27 @@ public class MongoDBAlarmEventDAO implements AlarmEventDAO {
                 eq(EVENT_UID_FIELD, eventUid.value()),
                 eq(RECIPIENT_FIELD, recipient.asString())
             )).first())
-            .map(this::fromDocument);
+            .flatMapMany(document -> resolveIcs(List.of(document)))
+            .next();
     }
 
     @Override
     public Mono<Void> create(AlarmEvent alarmEvent) {
-        return Mono.from(collection.insertOne(toDocument(alarmEvent))).then();
+        return storeIcs(alarmEvent)
+            .then(Mono.from(collection.insertOne(toDocument(alarmEvent))))
+            .then();
     }
 
     @Override
     public Mono<Void> update(AlarmEvent alarmEvent) {
-        return Mono.from(collection.replaceOne(
+        return storeIcs(alarmEvent).then(Mono.from(collection.replaceOne(
             Filters.and(
                 eq(EVENT_UID_FIELD, alarmEvent.eventUid().value()),
                 eq(RECIPIENT_FIELD, alarmEvent.recipient().asString())
             ),
             toDocument(alarmEvent),
             new ReplaceOptions().upsert(true)
-        )).then();
+        ))).then();
     }
 
     @Override
@@ -101,12 +151,187 @@ public class MongoDBAlarmEventDAO implements AlarmEventDAO {
             ))).then();
     }
 
+    @Override
+    public Mono<Void> upsertAll(Collection<AlarmEvent> alarmEvents) {
+        if (alarmEvents.isEmpty()) {
+            return Mono.empty();
+        }
+        List<ReplaceOneModel<Document>> replacements = alarmEvents.stream()
+            .map(alarmEvent -> new ReplaceOneModel<>(
+                Filters.and(
+                    eq(EVENT_UID_FIELD, alarmEvent.eventUid().value()),
+                    eq(RECIPIENT_FIELD, alarmEvent.recipient().asString())),
+                toDocument(alarmEvent),
+                new ReplaceOptions().upsert(true)))
+            .toList();
+
+        return storeAllIcs(alarmEvents)
+            .then(Mono.from(collection.bulkWrite(replacements, new BulkWriteOptions().ordered(false))))
+            .then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(EventUid eventUid, Collection<MailAddress> recipients) {
+        if (recipients.isEmpty()) {
+            return Mono.empty();
+        }
+        return Mono.from(collection.deleteMany(
+            Filters.and(
+                eq(EVENT_UID_FIELD, eventUid.value()),
+                in(RECIPIENT_FIELD, recipients.stream().map(MailAddress::asString).toList())
+            ))).then();
+    }
+
     @Override
     public Flux<AlarmEvent> findAlarmsToTrigger(Instant time) {
         return Flux.from(collection.find(
             Filters.and(
                 lte(ALARM_TIME_FIELD, Date.from(time))
-            ))).map(this::fromDocument);
+            )).batchSize(ICS_RESOLUTION_BATCH_SIZE))
+            .buffer(ICS_RESOLUTION_BATCH_SIZE)
+            .concatMap(this::resolveIcs);
+    }
+
+    @Override
+    public Flux<AlarmEvent> findAlarmsToTrigger(Instant time, AlarmEventFetchOptions options) {
+        return Flux.from(collection.find(triggerFilter(time, options))
+                .sort(sort(options))
+                .limit(options.limit())
+                .batchSize(options.batchSize()))
+            .buffer(options.batchSize())
+            .concatMap(this::resolveIcs);
+    }
+
+    @Override
+    public Flux<AlarmEvent> claimAlarmsToTrigger(Instant time, String claimer, Duration claimTtl, AlarmEventFetchOptions options) {
+        return MongoClaims.claim(collection, triggerFilter(time, options), sort(options), options.limit(), time, claimer, claimTtl)
+            .buffer(options.batchSize())
+            .concatMap(this::resolveIcs);
+    }
+
+    @Override
+    public Mono<Long> deleteUntriggerableAlarms(Instant time, AlarmEventFetchOptions options) {
+        return Flux.from(collection.find(Filters.and(triggerFilter(time, options), exists(ICS_FIELD, false)))
+                .projection(Projections.include(ID_FIELD, ICS_REF_FIELD, EVENT_UID_FIELD, RECIPIENT_FIELD))
+                .sort(sort(options))
+                .limit(options.limit())
+                .batchSize(ICS_RESOLUTION_BATCH_SIZE))
+            .buffer(ICS_RESOLUTION_BATCH_SIZE)
+            .concatMap(documents -> loadIcsRefs(documents.stream().map(document -> document.getString(ICS_REF_FIELD)).distinct().toList())
+                .flatMap(existingRefs -> deleteOrphans(documents.stream()
+                    .filter(document -> !existingRefs.contains(document.getString(ICS_REF_FIELD)))
+                    .toList())))
+            .reduce(0L, Long::sum);
+    }
+
+    private Bson triggerFilter(Instant time, AlarmEventFetchOptions options) {
+        return options.partitions()
+            .map(partitions -> Filters.and(lte(ALARM_TIME_FIELD, Date.from(time)),
+                // Alarms stored before partitioning was introduced have no partition: every node may trigger them
+                Filters.or(in(PARTITION_FIELD, partitions), exists(PARTITION_FIELD, false))))
+            .orElse(lte(ALARM_TIME_FIELD, Date.from(time)));
+    }
+
+    private Bson sort(AlarmEventFetchOptions options) {
+        return switch (options.sortOrder()) {
+            case ALARM_TIME_ASCENDING -> Sorts.ascending(ALARM_TIME_FIELD);
+            case ALARM_TIME_DESCENDING -> Sorts.descending(ALARM_TIME_FIELD);
+        };
+    }
+
+    private Mono<Void> storeIcs(AlarmEvent event) {
+        return Mono.from(icsCollection.updateOne(eq(ID_FIELD, icsRef(event)), icsUpsert(event), new UpdateOptions().upsert(true)))
+            .then();
+    }
+
+    private Mono<Void> storeAllIcs(Collection<AlarmEvent> events) {
+        // Recipients of an event share the same ICS: write each reference once, with its latest expiration
+        List<UpdateOneModel<Document>> upserts = events.stream()
+            .collect(Collectors.toMap(MongoDBAlarmEventDAO::icsRef, Function.identity(),
+                (a, b) -> lastUse(a).isAfter(lastUse(b)) ? a : b))
+            .values().stream()
+            .map(event -> new UpdateOneModel<Document>(eq(ID_FIELD, icsRef(event)), icsUpsert(event), new UpdateOptions().upsert(true)))
+            .toList();
+        return Mono.from(icsCollection.bulkWrite(upserts, new BulkWriteOptions().ordered(false)))
+            .then();
+    }
+
+    private Bson icsUpsert(AlarmEvent event) {
+        return Updates.combine(Updates.setOnInsert(ICS_FIELD, event.ics()),
+            Updates.max(EXPIRES_AT_FIELD, Date.from(lastUse(event).plus(ICS_RETENTION))));
+    }
+
+    private static Instant lastUse(AlarmEvent event) {
+        return event.alarmTime().isAfter(event.eventStartTime()) ? event.alarmTime() : event.eventStartTime();
+    }
+
+    private static String icsRef(AlarmEvent event) {
+        return event.eventUid().value() + ":" + Hashing.sha256().hashString(event.ics(), StandardCharsets.UTF_8);
+    }
+
+    // An alarm whose ICS is missing can not be sent: it is skipped here and deleted by deleteUntriggerableAlarms
+    private Flux<AlarmEvent> resolveIcs(List<Document> documents) {
+        List<String> refs = documents.stream()
+            .filter(document -> !document.containsKey(ICS_FIELD))
+            .map(document -> document.getString(ICS_REF_FIELD))
+            .distinct()
+            .toList();
+
+        return loadIcs(refs)
+            .flatMapMany(icsByRef -> refreshExpiringIcs(icsByRef.values())
+                .thenMany(Flux.fromIterable(documents)
+                    .flatMapIterable(document -> Optional.ofNullable(document.getString(ICS_FIELD))
+                        .or(() -> Optional.ofNullable(icsByRef.get(document.getString(ICS_REF_FIELD))).map(ics -> ics.getString(ICS_FIELD)))
+                        .map(ics -> List.of(fromDocument(document, ics)))
+                        .orElseGet(() -> {
+                            LOGGER.warn("Missing ICS {} for alarm of event {} and recipient {}, skipping it",
+                                document.getString(ICS_REF_FIELD), document.getString(EVENT_UID_FIELD), document.getString(RECIPIENT_FIELD));
+                            return List.of();
+                        }))));
+    }
+
+    private Mono<Long> deleteOrphans(List<Document> orphans) {
+        if (orphans.isEmpty()) {
+            return Mono.just(0L);
+        }
+        orphans.forEach(document -> LOGGER.warn("Missing ICS {} for alarm of event {} and recipient {}, deleting it",
+            document.getString(ICS_REF_FIELD), document.getString(EVENT_UID_FIELD), document.getString(RECIPIENT_FIELD)));
+        // Matching on the reference too leaves alone alarms updated meanwhile with a new ICS
+        return Mono.from(collection.deleteMany(Filters.and(
+                in(ID_FIELD, orphans.stream().map(document -> document.get(ID_FIELD)).toList()),
+                in(ICS_REF_FIELD, orphans.stream().map(document -> document.getString(ICS_REF_FIELD)).distinct().toList()))))
+            .map(DeleteResult::getDeletedCount);
+    }
+
+    private Mono<Void> refreshExpiringIcs(Collection<Document> icsDocuments) {
+        Instant now = clock.instant();
+        List<String> expiringRefs = icsDocuments.stream()
+            .filter(document -> Optional.ofNullable(document.getDate(EXPIRES_AT_FIELD))
+                .map(expiresAt -> expiresAt.toInstant().isBefore(now.plus(ICS_REFRESH_THRESHOLD)))
+                .orElse(false))
+            .map(document -> document.getString(ID_FIELD))
+            .toList();
+        if (expiringRefs.isEmpty()) {
+            return Mono.empty();
+        }
+        return Mono.from(icsCollection.updateMany(in(ID_FIELD, expiringRefs),
+                Updates.max(EXPIRES_AT_FIELD, Date.from(now.plus(ICS_RETENTION)))))
+            .then();
+    }
+
+    private Mono<Map<String, Document>> loadIcs(Collection<String> refs) {
+        if (refs.isEmpty()) {
+            return Mono.just(ImmutableMap.of());
+        }
+        return Flux.from(icsCollection.find(in(ID_FIELD, refs)))
+            .collectMap(document -> document.getString(ID_FIELD));
+    }
+
+    private Mono<Set<String>> loadIcsRefs(Collection<String> refs) {
+        return Flux.from(icsCollection.find(in(ID_FIELD, refs))
+                .projection(Projections.include(ID_FIELD)))
+            .map(document -> document.getString(ID_FIELD))
+            .collect(ImmutableSet.toImmutableSet());
     }
 
     private Document toDocument(AlarmEvent event) {
@@ -116,12 +341,13 @@ public class MongoDBAlarmEventDAO implements AlarmEventDAO {
             .append(EVENT_START_TIME_FIELD, Date.from(event.eventStartTime()))
             .append(RECURRING_FIELD, event.recurring())
             .append(RECIPIENT_FIELD, event.recipient().asString())
-            .append(ICS_FIELD, event.ics());
+            .append(ICS_REF_FIELD, icsRef(event))
+            .append(PARTITION_FIELD, event.partition());
         event.recurrenceId().ifPresent(id -> doc.append(RECURRENCE_ID_FIELD, id));
         return doc;
     }
 
-    private AlarmEvent fromDocument(Document doc) {
+    private AlarmEvent fromDocument(Document doc, String ics) {
         return new AlarmEvent(
             new EventUid(doc.getString(EVENT_UID_FIELD)),
             doc.getDate(ALARM_TIME_FIELD).toInstant(),
@@ -129,7 +355,7 @@ public class MongoDBAlarmEventDAO implements AlarmEventDAO {
             doc.getBoolean(RECURRING_FIELD, false),
             Optional.ofNullable(doc.getString(RECURRENCE_ID_FIELD)),
             Throwing.supplier(() -> new MailAddress(doc.getString(RECIPIENT_FIELD))).get(),
-            doc.getString(ICS_FIELD)
+            ics
         );
     }
 }
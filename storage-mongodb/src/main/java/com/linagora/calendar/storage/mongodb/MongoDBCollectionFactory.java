@@ -37,6 +37,7 @@ public class MongoDBCollectionFactory {
     public static final String SECRETLINKS = MongoDBSecretLinkStore.COLLECTION;
     public static final String ALARM_EVENT_LEDGE = MongoDBAlarmEventLedgerDAO.COLLECTION;
     public static final String AUTH_TICKETS = MongoDBTicketDAO.COLLECTION;
+    public static final String ALARM_SCHEDULER_MEMBERS = MongoAlarmPartitionMembership.COLLECTION;
 
     public static void initialize(MongoDatabase database) {
         createUsersCollection(database);
@@ -44,6 +45,7 @@ public class MongoDBCollectionFactory {
         createSecretLinksCollection(database);
         createAlarmEventLedgeCollection(database);
         createAuthTicketsCollection(database);
+        createAlarmSchedulerMembersCollection(database);
     }
 
     private static void createUsersCollection(MongoDatabase database) {
@@ -125,6 +127,13 @@ public class MongoDBCollectionFactory {
         MongoDBTicketDAO.declareIndex(database.getCollection(AUTH_TICKETS)).block();
     }
 
+    private static void createAlarmSchedulerMembersCollection(MongoDatabase database) {
+        if (!collectionExists(database, ALARM_SCHEDULER_MEMBERS)) {
+            Mono.from(database.createCollection(ALARM_SCHEDULER_MEMBERS)).block();
+        }
+        MongoAlarmPartitionMembership.declareIndex(database.getCollection(ALARM_SCHEDULER_MEMBERS)).block();
+    }
+
     private static boolean collectionExists(MongoDatabase database, String collectionName) {
         return Flux.from(database.listCollectionNames())
             .filter(collectionName::equals)
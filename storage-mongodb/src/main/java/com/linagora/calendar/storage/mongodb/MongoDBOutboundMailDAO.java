@@ -0,0 +1,130 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage.mongodb;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.lte;
+import static com.mongodb.client.model.Indexes.ascending;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import jakarta.inject.Inject;
+
+import org.apache.james.core.MailAddress;
+import org.apache.james.core.MaybeSender;
+import org.bson.Document;
+import org.bson.types.Binary;
+
+import com.github.fge.lambdas.Throwing;
+import com.linagora.calendar.storage.OutboundMail;
+import com.linagora.calendar.storage.OutboundMailDAO;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class MongoDBOutboundMailDAO implements OutboundMailDAO {
+    public static final String COLLECTION = "twake_calendar_outbound_mails";
+    public static final String SENDER_FIELD = "sender";
+    public static final String RECIPIENTS_FIELD = "recipients";
+    public static final String MESSAGE_FIELD = "message";
+    public static final String ENQUEUED_AT_FIELD = "enqueuedAt";
+    public static final String ATTEMPTS_FIELD = "attempts";
+    public static final String NEXT_ATTEMPT_AT_FIELD = "nextAttemptAt";
+    public static final String CLAIMED_BY_FIELD = MongoClaims.CLAIMED_BY_FIELD;
+    public static final String CLAIMED_UNTIL_FIELD = MongoClaims.CLAIMED_UNTIL_FIELD;
+    private static final String ID_FIELD = "_id";
+
+    private final MongoCollection<Document> collection;
+
+    @Inject
+    public MongoDBOutboundMailDAO(MongoDatabase database) {
+        this.collection = database.getCollection(COLLECTION);
+        Mono.from(collection.createIndex(ascending(NEXT_ATTEMPT_AT_FIELD), new IndexOptions())).block();
+    }
+
+    @Override
+    public Mono<Void> enqueue(OutboundMail mail) {
+        return Mono.from(collection.insertOne(toDocument(mail))).then();
+    }
+
+    @Override
+    public Mono<OutboundMail> find(String id) {
+        return Mono.from(collection.find(eq(ID_FIELD, id)).first())
+            .map(this::fromDocument);
+    }
+
+    @Override
+    public Flux<OutboundMail> claimDue(Instant time, String claimer, Duration claimTtl, int limit) {
+        return MongoClaims.claim(collection, lte(NEXT_ATTEMPT_AT_FIELD, Date.from(time)), Sorts.ascending(NEXT_ATTEMPT_AT_FIELD), limit,
+                time, claimer, claimTtl)
+            .map(this::fromDocument);
+    }
+
+    @Override
+    public Mono<Void> reschedule(OutboundMail mail) {
+        return Mono.from(collection.updateOne(eq(ID_FIELD, mail.id()),
+                Updates.combine(Updates.set(ATTEMPTS_FIELD, mail.attempts()),
+                    Updates.set(NEXT_ATTEMPT_AT_FIELD, Date.from(mail.nextAttemptAt())),
+                    Updates.unset(CLAIMED_BY_FIELD),
+                    Updates.unset(CLAIMED_UNTIL_FIELD))))
+            .then();
+    }
+
+    @Override
+    public Mono<Void> delete(String id) {
+        return Mono.from(collection.deleteOne(eq(ID_FIELD, id))).then();
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.from(collection.countDocuments());
+    }
+
+    private Document toDocument(OutboundMail mail) {
+        return new Document()
+            .append(ID_FIELD, mail.id())
+            .append(SENDER_FIELD, mail.sender().asString(""))
+            .append(RECIPIENTS_FIELD, mail.recipients().stream().map(MailAddress::asString).toList())
+            .append(MESSAGE_FIELD, new Binary(mail.message()))
+            .append(ENQUEUED_AT_FIELD, Date.from(mail.enqueuedAt()))
+            .append(ATTEMPTS_FIELD, mail.attempts())
+            .append(NEXT_ATTEMPT_AT_FIELD, Date.from(mail.nextAttemptAt()));
+    }
+
+    private OutboundMail fromDocument(Document document) {
+        List<MailAddress> recipients = document.getList(RECIPIENTS_FIELD, String.class).stream()
+            .map(Throwing.function(MailAddress::new))
+            .toList();
+        return new OutboundMail(document.getString(ID_FIELD),
+            MaybeSender.getMailSender(document.getString(SENDER_FIELD)),
+            recipients,
+            document.get(MESSAGE_FIELD, Binary.class).getData(),
+            document.getDate(ENQUEUED_AT_FIELD).toInstant(),
+            document.getInteger(ATTEMPTS_FIELD, 0),
+            document.getDate(NEXT_ATTEMPT_AT_FIELD).toInstant());
+    }
+}
@@ -19,6 +19,7 @@
 package com.linagora.calendar.storage.mongodb;
 
 import java.io.FileNotFoundException;
+import java.util.Set;
 
 import org.apache.james.core.Domain;
 import org.apache.james.core.healthcheck.HealthCheck;
@@ -37,11 +38,16 @@ import com.google.inject.multibindings.Multibinder;
 import com.google.inject.multibindings.ProvidesIntoSet;
 import com.linagora.calendar.storage.AlarmEventDAO;
 import com.linagora.calendar.storage.AlarmEventLeaseProvider;
+import com.linagora.calendar.storage.AlarmPartitionMembership;
+import com.linagora.calendar.storage.CachingOpenPaaSUserDAO;
 import com.linagora.calendar.storage.DomainConfiguration;
+import com.linagora.calendar.storage.ListeningOpenPaaSUserDAO;
 import com.linagora.calendar.storage.OpenPaaSDomainAdminDAO;
 import com.linagora.calendar.storage.OpenPaaSDomainDAO;
 import com.linagora.calendar.storage.OpenPaaSDomainList;
+import com.linagora.calendar.storage.OpenPaaSUserChangeListener;
 import com.linagora.calendar.storage.OpenPaaSUserDAO;
+import com.linagora.calendar.storage.OutboundMailDAO;
 import com.linagora.calendar.storage.ResourceDAO;
 import com.linagora.calendar.storage.UploadedFileDAO;
 import com.linagora.calendar.storage.configuration.UserConfigurationDAO;
@@ -57,7 +63,9 @@ public class MongoDBStorageModule extends AbstractModule {
 
         bind(OpenPaaSDomainDAO.class).to(MongoDBOpenPaaSDomainDAO.class);
         bind(OpenPaaSDomainAdminDAO.class).to(MongoDBOpenPaaSDomainDAO.class);
-        bind(OpenPaaSUserDAO.class).to(MongoDBOpenPaaSUserDAO.class);
+        Multibinder.newSetBinder(binder(), OpenPaaSUserChangeListener.class)
+            .addBinding()
+            .to(CachingOpenPaaSUserDAO.class);
 
         bind(OpenPaaSDomainList.class).in(Scopes.SINGLETON);
         bind(DomainList.class).to(OpenPaaSDomainList.class);
@@ -75,6 +83,11 @@ public class MongoDBStorageModule extends AbstractModule {
         bind(MongoDBAlarmEventLedgerDAO.class).in(Scopes.SINGLETON);
         bind(MongoAlarmEventLeaseProvider.class).in(Scopes.SINGLETON);
         bind(AlarmEventLeaseProvider.class).to(MongoAlarmEventLeaseProvider.class);
+        bind(MongoAlarmPartitionMembership.class).in(Scopes.SINGLETON);
+        bind(AlarmPartitionMembership.class).to(MongoAlarmPartitionMembership.class);
+
+        bind(MongoDBOutboundMailDAO.class).in(Scopes.SINGLETON);
+        bind(OutboundMailDAO.class).to(MongoDBOutboundMailDAO.class);
 
         bind(ResourceDAO.class).to(MongoDBResourceDAO.class);
 
@@ -86,6 +99,18 @@ public class MongoDBStorageModule extends AbstractModule {
             .to(MongoDBHealthCheck.class);
     }
 
+    @Provides
+    @Singleton
+    CachingOpenPaaSUserDAO provideCachingOpenPaaSUserDAO(MongoDBOpenPaaSUserDAO openPaaSUserDAO) {
+        return new CachingOpenPaaSUserDAO(openPaaSUserDAO);
+    }
+
+    @Provides
+    @Singleton
+    OpenPaaSUserDAO provideOpenPaaSUserDAO(CachingOpenPaaSUserDAO openPaaSUserDAO, Set<OpenPaaSUserChangeListener> listeners) {
+        return new ListeningOpenPaaSUserDAO(openPaaSUserDAO, listeners);
+    }
+
     @Provides
     @Singleton
     DomainConfiguration domainConfiguration(PropertiesProvider propertiesProvider) throws Exception {
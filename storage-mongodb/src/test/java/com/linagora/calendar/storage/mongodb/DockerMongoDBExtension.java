@@ -41,6 +41,8 @@ public class DockerMongoDBExtension implements BeforeAllCallback, AfterAllCallba
         MongoDBOpenPaaSUserDAO.COLLECTION,
         MongoDBUploadedFileDAO.COLLECTION,
         MongoDBAlarmEventDAO.COLLECTION,
+        MongoDBAlarmEventDAO.ICS_COLLECTION,
+        MongoDBOutboundMailDAO.COLLECTION,
         MongoDBResourceDAO.COLLECTION);
 
     private static MongoDBConfiguration mongoDBConfiguration;
@@ -0,0 +1,87 @@
+/********************************************************************
+ *  As a subpart of Twake Mail, this file is edited by Linagora.    *
+ *                                                                  *
+ *  https://twake-mail.com/                                         *
+ *  https://linagora.com                                            *
+ *                                                                  *
+ *  This file is subject to The Affero Gnu Public License           *
+ *  version 3.                                                      *
+ *                                                                  *
+ *  https://www.gnu.org/licenses/agpl-3.0.en.html                   *
+ *                                                                  *
+ *  This program is distributed in the hope that it will be         *
+ *  useful, but WITHOUT ANY WARRANTY; without even the implied      *
+ *  warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR         *
+ *  PURPOSE. See the GNU Affero General Public License for          *
+ *  more details.                                                   *
+ ********************************************************************/
+
+package com.linagora.calendar.storage.mongodb;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import com.google.common.collect.Sets;
+import com.linagora.calendar.storage.AlarmPartitionMembership;
+
+public class MongoAlarmPartitionMembershipTest {
+
+    static final Duration TTL = Duration.ofMinutes(1);
+
+    @RegisterExtension
+    static DockerMongoDBExtension mongo = new DockerMongoDBExtension(List.of(MongoAlarmPartitionMembership.COLLECTION));
+
+    private MongoAlarmPartitionMembership member1;
+    private MongoAlarmPartitionMembership member2;
+
+    @BeforeEach
+    void setUp() {
+        member1 = new MongoAlarmPartitionMembership(mongo.getDb(), Clock.systemUTC(), "member-1");
+        member2 = new MongoAlarmPartitionMembership(mongo.getDb(), Clock.systemUTC(), "member-2");
+    }
+
+    @Test
+    void singleMemberShouldOwnAllPartitions() {
+        assertThat(member1.renew(TTL).block()).isEqualTo(AlarmPartitionMembership.ALL_PARTITIONS);
+    }
+
+    @Test
+    void membersShouldShareAllPartitions() {
+        member1.renew(TTL).block();
+        member2.renew(TTL).block();
+
+        Set<Integer> partitions1 = member1.renew(TTL).block();
+        Set<Integer> partitions2 = member2.renew(TTL).block();
+
+        assertThat(partitions1).isNotEmpty();
+        assertThat(partitions2).isNotEmpty();
+        assertThat(Sets.intersection(partitions1, partitions2)).isEmpty();
+        assertThat(Sets.union(partitions1, partitions2)).isEqualTo(AlarmPartitionMembership.ALL_PARTITIONS);
+    }
+
+    @Test
+    void remainingMemberShouldOwnAllPartitionsAfterLeave() {
+        member1.renew(TTL).block();
+        member2.renew(TTL).block();
+
+        member2.leave().block();
+
+        assertThat(member1.renew(TTL).block()).isEqualTo(AlarmPartitionMembership.ALL_PARTITIONS);
+    }
+
+    @Test
+    void expiredMembersShouldBeIgnored() throws InterruptedException {
+        member2.renew(Duration.ofMillis(1)).block();
+        Thread.sleep(50);
+
+        assertThat(member1.renew(TTL).block()).isEqualTo(AlarmPartitionMembership.ALL_PARTITIONS);
+    }
+}
@@ -18,11 +18,28 @@
 
 package com.linagora.calendar.storage.mongodb;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+import org.apache.james.core.MailAddress;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 
+import com.linagora.calendar.storage.AlarmEvent;
 import com.linagora.calendar.storage.AlarmEventDAO;
 import com.linagora.calendar.storage.AlarmEventDAOContract;
+import com.linagora.calendar.storage.AlarmEventFetchOptions;
+import com.linagora.calendar.storage.eventsearch.EventUid;
+import com.mongodb.client.model.Filters;
+
+import reactor.core.publisher.Mono;
 
 public class MongoDBAlarmEventDAOTest implements AlarmEventDAOContract {
     @RegisterExtension
@@ -32,12 +49,82 @@ public class MongoDBAlarmEventDAOTest implements AlarmEventDAOContract {
 
     @BeforeEach
     void setUp() {
-        dao = new MongoDBAlarmEventDAO(mongo.getDb());
+        dao = new MongoDBAlarmEventDAO(mongo.getDb(), Clock.systemUTC());
     }
 
     @Override
     public AlarmEventDAO getDAO() {
         return dao;
     }
-}
 
+    @Test
+    void alarmsOfTheSameEventShouldShareASingleIcsDocument() throws Exception {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        for (String recipient : new String[]{"r1@abc.com", "r2@abc.com", "r3@abc.com"}) {
+            dao.create(new AlarmEvent(new EventUid("1"), now, now.plusSeconds(600), false,
+                Optional.empty(), new MailAddress(recipient), "BEGIN:VCALENDAR")).block();
+        }
+
+        assertThat(Mono.from(mongo.getDb().getCollection(MongoDBAlarmEventDAO.ICS_COLLECTION).countDocuments()).block())
+            .isEqualTo(1L);
+    }
+
+    @Test
+    void alarmsWhoseIcsExpiredShouldBeSkippedButKeptWhenRead() throws Exception {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        AlarmEvent orphan = new AlarmEvent(new EventUid("1"), now.minusSeconds(120), now.plusSeconds(600), false,
+            Optional.empty(), new MailAddress("r1@abc.com"), "BEGIN:VCALENDAR");
+        AlarmEvent alarm = new AlarmEvent(new EventUid("2"), now.minusSeconds(60), now.plusSeconds(600), false,
+            Optional.empty(), new MailAddress("r1@abc.com"), "BEGIN:VCALENDAR");
+        dao.create(orphan).block();
+        dao.create(alarm).block();
+        Mono.from(mongo.getDb().getCollection(MongoDBAlarmEventDAO.ICS_COLLECTION)
+            .deleteOne(Filters.regex("_id", "^1:"))).block();
+
+        assertThat(dao.findAlarmsToTrigger(now, AlarmEventFetchOptions.oldestFirst(10)).collectList().block())
+            .containsExactly(alarm);
+        assertThat(dao.find(orphan.eventUid(), orphan.recipient()).blockOptional()).isEmpty();
+        assertThat(Mono.from(mongo.getDb().getCollection(MongoDBAlarmEventDAO.COLLECTION).countDocuments()).block())
+            .isEqualTo(2L);
+    }
+
+    @Test
+    void deleteUntriggerableAlarmsShouldDeleteAlarmsWhoseIcsExpired() throws Exception {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        AlarmEvent orphan = new AlarmEvent(new EventUid("1"), now.minusSeconds(120), now.plusSeconds(600), false,
+            Optional.empty(), new MailAddress("r1@abc.com"), "BEGIN:VCALENDAR");
+        AlarmEvent alarm = new AlarmEvent(new EventUid("2"), now.minusSeconds(60), now.plusSeconds(600), false,
+            Optional.empty(), new MailAddress("r1@abc.com"), "BEGIN:VCALENDAR");
+        dao.create(orphan).block();
+        dao.create(alarm).block();
+        Mono.from(mongo.getDb().getCollection(MongoDBAlarmEventDAO.ICS_COLLECTION)
+            .deleteOne(Filters.regex("_id", "^1:"))).block();
+
+        assertThat(dao.deleteUntriggerableAlarms(now, AlarmEventFetchOptions.oldestFirst(10)).block()).isEqualTo(1L);
+        assertThat(dao.findAlarmsToTrigger(now).collectList().block()).containsExactly(alarm);
+        assertThat(Mono.from(mongo.getDb().getCollection(MongoDBAlarmEventDAO.COLLECTION).countDocuments()).block())
+            .isEqualTo(1L);
+    }
+
+    @Test
+    void readingAnAlarmShouldPushBackTheExpirationOfAnIcsAboutToExpire() throws Exception {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        AlarmEvent alarm = new AlarmEvent(new EventUid("1"), now.minusSeconds(60), now, false,
+            Optional.empty(), new MailAddress("r1@abc.com"), "BEGIN:VCALENDAR");
+        dao.create(alarm).block();
+        Instant later = now.plus(Duration.ofDays(20));
+        MongoDBAlarmEventDAO laterDao = new MongoDBAlarmEventDAO(mongo.getDb(), Clock.fixed(later, ZoneOffset.UTC));
+
+        dao.find(alarm.eventUid(), alarm.recipient()).block();
+        assertThat(icsExpiration()).isEqualTo(now.plus(Duration.ofDays(30)));
+
+        laterDao.find(alarm.eventUid(), alarm.recipient()).block();
+        assertThat(icsExpiration()).isEqualTo(later.plus(Duration.ofDays(30)));
+    }
+
+    private Instant icsExpiration() {
+        return Mono.from(mongo.getDb().getCollection(MongoDBAlarmEventDAO.ICS_COLLECTION).find().first()).block()
+            .getDate(MongoDBAlarmEventDAO.EXPIRES_AT_FIELD)
+            .toInstant();
+    }
+}
@@ -22,7 +22,9 @@ import static org.apache.james.backends.opensearch.IndexCreationFactory.RAW;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
@@ -50,8 +52,14 @@ import org.opensearch.client.opensearch._types.query_dsl.Operator;
 import org.opensearch.client.opensearch._types.query_dsl.Query;
 import org.opensearch.client.opensearch._types.query_dsl.QueryBuilders;
 import org.opensearch.client.opensearch._types.query_dsl.TermsQueryField;
+import org.opensearch.client.opensearch.core.BulkRequest;
+import org.opensearch.client.opensearch.core.BulkResponse;
 import org.opensearch.client.opensearch.core.SearchRequest;
 import org.opensearch.client.opensearch.core.UpdateRequest;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
+import org.opensearch.client.opensearch.core.bulk.IndexOperation;
+import org.opensearch.client.opensearch.core.bulk.UpdateOperation;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -149,6 +157,96 @@ public class OpensearchCalendarSearchService implements CalendarSearchService {
             .then();
     }
 
+    @Override
+    public Flux<IndexResult> indexAll(List<IndexRequest> requests) {
+        if (requests.isEmpty()) {
+            return Flux.empty();
+        }
+        return Flux.defer(() -> doIndexAll(requests));
+    }
+
+    // One _bulk request for all the events of all the requests: a request fails if any of its events fails
+    private Flux<IndexResult> doIndexAll(List<IndexRequest> requests) {
+        Map<Integer, Throwable> failures = new HashMap<>();
+        ImmutableList.Builder<BulkOperation> operations = ImmutableList.builder();
+        ImmutableList.Builder<Integer> operationOwners = ImmutableList.builder();
+        for (int position = 0; position < requests.size(); position++) {
+            IndexRequest request = requests.get(position);
+            try {
+                List<BulkOperation> requestOperations = bulkOperations(request);
+                operations.addAll(requestOperations);
+                for (int i = 0; i < requestOperations.size(); i++) {
+                    operationOwners.add(position);
+                }
+            } catch (Exception e) {
+                failures.put(position, CalendarSearchIndexingException.of("Error while indexing event", request.accountId(), request.events().eventUid(), e));
+            }
+        }
+
+        List<Integer> owners = operationOwners.build();
+        return bulk(operations.build())
+            .doOnNext(response -> {
+                List<BulkResponseItem> items = response.items();
+                for (int i = 0; i < items.size(); i++) {
+                    int position = owners.get(i);
+                    Optional.ofNullable(items.get(i).error())
+                        .ifPresent(error -> failures.putIfAbsent(position, CalendarSearchIndexingException.of("Error while indexing event",
+                            requests.get(position).accountId(), requests.get(position).events().eventUid(),
+                            new IllegalStateException(error.type() + ": " + error.reason()))));
+                }
+            })
+            .onErrorResume(error -> {
+                owners.forEach(position -> failures.putIfAbsent(position, CalendarSearchIndexingException.of("Error while bulk indexing events",
+                    requests.get(position).accountId(), requests.get(position).events().eventUid(), error)));
+                return Mono.empty();
+            })
+            .thenMany(Flux.range(0, requests.size())
+                .map(position -> Optional.ofNullable(failures.get(position))
+                    .map(error -> IndexResult.failure(requests.get(position), error))
+                    .orElseGet(() -> IndexResult.success(requests.get(position)))));
+    }
+
+    private Mono<BulkResponse> bulk(List<BulkOperation> operations) {
+        if (operations.isEmpty()) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> opensearchAsyncClient.bulk(new BulkRequest.Builder()
+                .operations(operations)
+                .build()))
+            .flatMap(OpensearchCalendarSearchService::toReactor);
+    }
+
+    private List<BulkOperation> bulkOperations(IndexRequest request) {
+        return request.events().events().stream()
+            .map(eventFields -> {
+                DocumentId documentId = buildDocumentIdForEvent(request.accountId(), eventFields);
+                RoutingKey routingKey = ROUTING_KEY.apply(request.accountId());
+                ObjectNode docMap = mapper.convertValue(CalendarEventsDocument.fromEventFields(request.accountId(), eventFields), ObjectNode.class);
+
+                if (eventFields.sequence().isPresent()) {
+                    return new BulkOperation.Builder()
+                        .update(new UpdateOperation.Builder<ObjectNode>()
+                            .index(configuration.writeAliasName().getValue())
+                            .id(documentId.asString())
+                            .routing(routingKey.asString())
+                            .script(UPSERT_WITH_SEQUENCE_SCRIPT.apply(eventFields.sequence().get(), docMap))
+                            .scriptedUpsert(false)
+                            .upsert(docMap)
+                            .build())
+                        .build();
+                }
+                return new BulkOperation.Builder()
+                    .index(new IndexOperation.Builder<ObjectNode>()
+                        .index(configuration.writeAliasName().getValue())
+                        .id(documentId.asString())
+                        .routing(routingKey.asString())
+                        .document(docMap)
+                        .build())
+                    .build();
+            })
+            .toList();
+    }
+
     private Mono<WriteResponseBase> indexSingleEvent(AccountId accountId,
                                                      EventFields eventFields,
                                                      boolean checkSequence) {